@@ -826,6 +826,17 @@ public class Order extends BaseOpenmrsData {
 		return this.getDateStopped() != null ? this.getDateStopped() : this.getAutoExpireDate();
 	}
 	
+	/**
+	 * The effective stop date is derived from dateStopped and autoExpireDate, it is only stored so
+	 * that active orders can be looked up by a single indexed column, hence the stored value is
+	 * ignored when an order is loaded.
+	 * 
+	 * @param effectiveStopDate the stored effective stop date
+	 */
+	@SuppressWarnings("unused")
+	private void setEffectiveStopDate(Date effectiveStopDate) {
+	}
+	
 	/**
 	 * @since 1.12 {@link org.openmrs.OrderGroup}
 	 * @returns the OrderGroup
@@ -25,7 +25,7 @@ import org.hibernate.search.annotations.Indexed;
 import org.hibernate.search.annotations.IndexedEmbedded;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.hibernate.search.LuceneAnalyzers;
-import org.openmrs.util.OpenmrsClassLoader;
+import org.openmrs.util.PersonAttributeHydrator;
 import org.openmrs.util.OpenmrsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -239,10 +239,10 @@ public class PersonAttribute extends BaseChangeableOpenmrsData implements java.i
 	 * <code>Attributable</code>, hydrate(value) is called. Defaults to just returning getValue()
 	 * 
 	 * @return hydrated object or getValue()
+	 * @see PersonAttributeHydrator
 	 * @should load class in format property
 	 * @should still load class in format property if not Attributable
 	 */
-	@SuppressWarnings("unchecked")
 	public Object getHydratedObject() {
 		
 		if (getValue() == null) {
@@ -250,19 +250,7 @@ public class PersonAttribute extends BaseChangeableOpenmrsData implements java.i
 		}
 		
 		try {
-			Class c = OpenmrsClassLoader.getInstance().loadClass(getAttributeType().getFormat());
-			try {
-				Object o = c.newInstance();
-				if (o instanceof Attributable) {
-					Attributable attr = (Attributable) o;
-					return attr.hydrate(getValue());
-				}
-			}
-			catch (InstantiationException e) {
-				// try to hydrate the object with the String constructor
-				log.trace("Unable to call no-arg constructor for class: " + c.getName());
-				return c.getConstructor(String.class).newInstance(getValue());
-			}
+			return PersonAttributeHydrator.hydrate(getAttributeType().getFormat(), getValue());
 		}
 		catch (Exception e) {
 			
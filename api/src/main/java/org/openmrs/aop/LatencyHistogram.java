@@ -0,0 +1,106 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.aop;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds that can be recorded to concurrently without locking or
+ * allocating. Like an HdrHistogram, each power of two range is split into {@link #SUB_BUCKETS}
+ * buckets of equal width, so the buckets get wider as the latencies grow and a value read from the
+ * histogram is never off by more than an eighth.
+ *
+ * @since 2.2
+ */
+public class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 3;
+	
+	static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	
+	/**
+	 * Values below {@link #SUB_BUCKETS} have a bucket each, the power of two ranges above it up to
+	 * {@link Long#MAX_VALUE} have {@link #SUB_BUCKETS} buckets each
+	 */
+	static final int BUCKETS = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS;
+	
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	
+	/**
+	 * @param nanos the latency to record, negative values are recorded as 0
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(indexOf(Math.max(nanos, 0)));
+	}
+	
+	/**
+	 * @return a copy of the count of each bucket
+	 */
+	public long[] getCounts() {
+		long[] copy = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++) {
+			copy[i] = counts.get(i);
+		}
+		return copy;
+	}
+	
+	/**
+	 * Gets the latency below or at which a fraction of the recorded latencies are
+	 * 
+	 * @param counts the counts returned by {@link #getCounts()}
+	 * @param fraction the fraction, e.g. 0.99 for the 99th percentile
+	 * @return the highest latency in the bucket the percentile falls in, or 0 if nothing was recorded
+	 * @should return the highest value of the bucket the percentile falls in
+	 * @should return zero if nothing was recorded
+	 */
+	public static long getPercentile(long[] counts, double fraction) {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(fraction * total));
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return getHighestValue(i);
+			}
+		}
+		return getHighestValue(counts.length - 1);
+	}
+	
+	/**
+	 * @should give each value below the sub bucket count its own bucket
+	 * @should put values into the bucket whose range contains them
+	 */
+	static int indexOf(long value) {
+		if (value < SUB_BUCKETS) {
+			return (int) value;
+		}
+		int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+	
+	static long getLowestValue(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		return (long) (SUB_BUCKETS | index % SUB_BUCKETS) << (exponent - SUB_BUCKET_BITS);
+	}
+	
+	static long getHighestValue(int index) {
+		return index == BUCKETS - 1 ? Long.MAX_VALUE : getLowestValue(index + 1) - 1;
+	}
+}
@@ -0,0 +1,54 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.aop;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.openmrs.aop.ServiceMetrics.MethodMetrics;
+
+/**
+ * This class provides the AOP around advice that records how often and how long service methods
+ * are called in {@link ServiceMetrics}. It is placed on all services next to the
+ * {@link LoggingAdvice}, see /metadata/api/spring/applicationContext-service.xml
+ *
+ * @since 2.2
+ */
+public class MetricsAdvice implements MethodInterceptor {
+	
+	private final ServiceMetrics serviceMetrics;
+	
+	public MetricsAdvice(ServiceMetrics serviceMetrics) {
+		this.serviceMetrics = serviceMetrics;
+	}
+	
+	/**
+	 * @see org.aopalliance.intercept.MethodInterceptor#invoke(org.aopalliance.intercept.MethodInvocation)
+	 * @should record calls and errors of the invoked method
+	 * @should not record calls if recording is disabled
+	 */
+	@Override
+	public Object invoke(MethodInvocation invocation) throws Throwable {
+		MethodMetrics metrics = serviceMetrics.getMethodMetrics(invocation.getMethod());
+		if (metrics == null) {
+			return invocation.proceed();
+		}
+		
+		long start = System.nanoTime();
+		boolean failed = true;
+		try {
+			Object result = invocation.proceed();
+			failed = false;
+			return result;
+		}
+		finally {
+			metrics.record(System.nanoTime() - start, failed);
+		}
+	}
+}
@@ -0,0 +1,112 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.aop;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The calls recorded for a service method at some point in time. The latencies are in
+ * milliseconds, percentiles are the upper bounds of the histogram buckets they fall in.
+ *
+ * @see ServiceMetrics
+ * @since 2.2
+ */
+public class ServiceMethodStatistics {
+	
+	private final String service;
+	
+	private final String method;
+	
+	private final long calls;
+	
+	private final long errors;
+	
+	private final double meanMillis;
+	
+	private final double maxMillis;
+	
+	private final double medianMillis;
+	
+	private final double p95Millis;
+	
+	private final double p99Millis;
+	
+	@ConstructorProperties( { "service", "method", "calls", "errors", "meanMillis", "maxMillis", "medianMillis",
+	        "p95Millis", "p99Millis" })
+	public ServiceMethodStatistics(String service, String method, long calls, long errors, double meanMillis,
+	    double maxMillis, double medianMillis, double p95Millis, double p99Millis) {
+		this.service = service;
+		this.method = method;
+		this.calls = calls;
+		this.errors = errors;
+		this.meanMillis = meanMillis;
+		this.maxMillis = maxMillis;
+		this.medianMillis = medianMillis;
+		this.p95Millis = p95Millis;
+		this.p99Millis = p99Millis;
+	}
+	
+	/**
+	 * @return the fully qualified name of the service interface
+	 */
+	public String getService() {
+		return service;
+	}
+	
+	/**
+	 * @return the method name and parameter types, e.g. getPatients(String,Integer,Integer)
+	 */
+	public String getMethod() {
+		return method;
+	}
+	
+	/**
+	 * @return the number of calls, including the ones that failed
+	 */
+	public long getCalls() {
+		return calls;
+	}
+	
+	/**
+	 * @return the number of calls that threw an exception
+	 */
+	public long getErrors() {
+		return errors;
+	}
+	
+	public double getMeanMillis() {
+		return meanMillis;
+	}
+	
+	public double getMaxMillis() {
+		return maxMillis;
+	}
+	
+	public double getMedianMillis() {
+		return medianMillis;
+	}
+	
+	public double getP95Millis() {
+		return p95Millis;
+	}
+	
+	public double getP99Millis() {
+		return p99Millis;
+	}
+	
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return service + "." + method + ": calls=" + calls + ", errors=" + errors + ", mean=" + meanMillis + "ms, max="
+		        + maxMillis + "ms, median=" + medianMillis + "ms, p95=" + p95Millis + "ms, p99=" + p99Millis + "ms";
+	}
+}
@@ -0,0 +1,227 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.aop;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the number of calls, the number of errors and a latency histogram of each service method
+ * called through the {@link MetricsAdvice}. Recording a call neither locks nor allocates, so it can
+ * stay enabled in production. Recording can be turned off altogether or for single services.
+ * <p>
+ * The metrics are registered with JMX as <code>org.openmrs:type=ServiceMetrics</code>, modules and
+ * the web layer can get them from the "serviceMetrics" bean, e.g.
+ * 
+ * <pre>
+ * Context.getRegisteredComponent(&quot;serviceMetrics&quot;, ServiceMetrics.class).getStatistics()
+ * </pre>
+ *
+ * @since 2.2
+ */
+public class ServiceMetrics implements ServiceMetricsMXBean {
+	
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+	
+	private final Map<Method, MethodMetrics> metrics = new ConcurrentHashMap<>();
+	
+	private final Map<String, ServiceSwitch> services = new ConcurrentHashMap<>();
+	
+	private volatile boolean enabled = true;
+	
+	/**
+	 * Gets the metrics to record a call of a service method in
+	 * 
+	 * @param method the service method
+	 * @return the metrics of the method, or null if calls of the method are not recorded
+	 * @should return the same metrics for each call of a method
+	 * @should return null if recording is disabled
+	 * @should return null if recording is disabled for the service of the method
+	 */
+	MethodMetrics getMethodMetrics(Method method) {
+		if (!enabled) {
+			return null;
+		}
+		MethodMetrics methodMetrics = metrics.get(method);
+		if (methodMetrics == null) {
+			methodMetrics = metrics.computeIfAbsent(method, m -> new MethodMetrics(m, getServiceSwitch(m
+			        .getDeclaringClass().getName())));
+		}
+		return methodMetrics.service.enabled ? methodMetrics : null;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.ServiceMetricsMXBean#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.ServiceMetricsMXBean#setEnabled(boolean)
+	 */
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.ServiceMetricsMXBean#getDisabledServices()
+	 */
+	@Override
+	public List<String> getDisabledServices() {
+		List<String> disabled = new ArrayList<>();
+		for (Map.Entry<String, ServiceSwitch> entry : services.entrySet()) {
+			if (!entry.getValue().enabled) {
+				disabled.add(entry.getKey());
+			}
+		}
+		Collections.sort(disabled);
+		return disabled;
+	}
+	
+	/**
+	 * Sets the services whose method calls are not recorded, e.g. from the application context
+	 * 
+	 * @param serviceNames the fully qualified names of the service interfaces
+	 */
+	public void setDisabledServices(Collection<String> serviceNames) {
+		for (ServiceSwitch service : services.values()) {
+			service.enabled = true;
+		}
+		for (String serviceName : serviceNames) {
+			disableService(serviceName);
+		}
+	}
+	
+	/**
+	 * @see org.openmrs.aop.ServiceMetricsMXBean#enableService(java.lang.String)
+	 */
+	@Override
+	public void enableService(String serviceName) {
+		getServiceSwitch(serviceName).enabled = true;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.ServiceMetricsMXBean#disableService(java.lang.String)
+	 */
+	@Override
+	public void disableService(String serviceName) {
+		getServiceSwitch(serviceName).enabled = false;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.ServiceMetricsMXBean#getStatistics()
+	 * @should return the statistics of the called methods
+	 */
+	@Override
+	public List<ServiceMethodStatistics> getStatistics() {
+		List<ServiceMethodStatistics> statistics = new ArrayList<>();
+		for (MethodMetrics methodMetrics : metrics.values()) {
+			ServiceMethodStatistics methodStatistics = methodMetrics.getStatistics();
+			if (methodStatistics.getCalls() > 0) {
+				statistics.add(methodStatistics);
+			}
+		}
+		statistics.sort((a, b) -> (a.getService() + '.' + a.getMethod()).compareTo(b.getService() + '.'
+		        + b.getMethod()));
+		return statistics;
+	}
+	
+	/**
+	 * @see org.openmrs.aop.ServiceMetricsMXBean#reset()
+	 */
+	@Override
+	public void reset() {
+		metrics.clear();
+	}
+	
+	private ServiceSwitch getServiceSwitch(String serviceName) {
+		return services.computeIfAbsent(serviceName, name -> new ServiceSwitch());
+	}
+	
+	/**
+	 * Shared by the metrics of all methods of a service so that turning recording off for the
+	 * service applies to all of them at once
+	 */
+	private static class ServiceSwitch {
+		
+		private volatile boolean enabled = true;
+	}
+	
+	/**
+	 * The calls recorded for a service method
+	 */
+	static class MethodMetrics {
+		
+		private final String serviceName;
+		
+		private final String methodName;
+		
+		private final ServiceSwitch service;
+		
+		private final LongAdder calls = new LongAdder();
+		
+		private final LongAdder errors = new LongAdder();
+		
+		private final LongAdder totalNanos = new LongAdder();
+		
+		private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+		
+		private final LatencyHistogram histogram = new LatencyHistogram();
+		
+		private MethodMetrics(Method method, ServiceSwitch service) {
+			this.serviceName = method.getDeclaringClass().getName();
+			StringBuilder name = new StringBuilder(method.getName()).append('(');
+			Class<?>[] parameterTypes = method.getParameterTypes();
+			for (int i = 0; i < parameterTypes.length; i++) {
+				name.append(i > 0 ? "," : "").append(parameterTypes[i].getSimpleName());
+			}
+			this.methodName = name.append(')').toString();
+			this.service = service;
+		}
+		
+		/**
+		 * @param nanos how long the call took
+		 * @param failed whether the call threw an exception
+		 */
+		void record(long nanos, boolean failed) {
+			calls.increment();
+			if (failed) {
+				errors.increment();
+			}
+			totalNanos.add(nanos);
+			maxNanos.accumulate(nanos);
+			histogram.record(nanos);
+		}
+		
+		ServiceMethodStatistics getStatistics() {
+			long[] counts = histogram.getCounts();
+			long callCount = calls.sum();
+			double mean = callCount == 0 ? 0 : totalNanos.sum() / (double) callCount;
+			return new ServiceMethodStatistics(serviceName, methodName, callCount, errors.sum(), toMillis(mean),
+			        toMillis(maxNanos.get()), toMillis(LatencyHistogram.getPercentile(counts, 0.5)), toMillis(LatencyHistogram
+			                .getPercentile(counts, 0.95)), toMillis(LatencyHistogram.getPercentile(counts, 0.99)));
+		}
+		
+		private static double toMillis(double nanos) {
+			return nanos / NANOS_PER_MILLI;
+		}
+	}
+}
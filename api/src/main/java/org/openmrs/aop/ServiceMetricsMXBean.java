@@ -0,0 +1,59 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.aop;
+
+import java.util.List;
+
+/**
+ * The JMX interface of {@link ServiceMetrics}, registered as <code>org.openmrs:type=ServiceMetrics</code>
+ *
+ * @since 2.2
+ */
+public interface ServiceMetricsMXBean {
+	
+	/**
+	 * @return whether service method calls are being recorded
+	 */
+	boolean isEnabled();
+	
+	/**
+	 * @param enabled whether service method calls should be recorded
+	 */
+	void setEnabled(boolean enabled);
+	
+	/**
+	 * @return the names of the services whose method calls are not recorded
+	 */
+	List<String> getDisabledServices();
+	
+	/**
+	 * Starts recording the method calls of a service again
+	 * 
+	 * @param serviceName the fully qualified name of the service interface
+	 */
+	void enableService(String serviceName);
+	
+	/**
+	 * Stops recording the method calls of a service
+	 * 
+	 * @param serviceName the fully qualified name of the service interface
+	 */
+	void disableService(String serviceName);
+	
+	/**
+	 * @return the statistics of every service method that was called since the last reset
+	 */
+	List<ServiceMethodStatistics> getStatistics();
+	
+	/**
+	 * Discards all recorded calls
+	 */
+	void reset();
+}
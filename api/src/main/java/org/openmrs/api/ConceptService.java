@@ -429,6 +429,7 @@ public interface ConceptService extends OpenmrsService {
 	 * @param name
 	 * @return ConceptClass matching the given name
 	 * @throws APIException
+	 * @should find a concept class saved in the same transaction
 	 */
 	@Authorized(PrivilegeConstants.GET_CONCEPT_CLASSES)
 	public ConceptClass getConceptClassByName(String name) throws APIException;
@@ -620,6 +621,45 @@ public interface ConceptService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_CONCEPTS)
 	public List<Concept> getConceptsByConceptSet(Concept concept) throws APIException;
 	
+	/**
+	 * Gets the ids of all concepts within a concept set, including the members of nested sets, in
+	 * the same order as {@link #getConceptsByConceptSet(Concept)}. Concept set membership is kept in
+	 * an in-memory index so this does not query the database once the index has been loaded.
+	 * 
+	 * @param conceptSet the concept representing the concept set
+	 * @return the concept ids
+	 * @since 2.2
+	 * @should return the ids of all concepts in the set and its nested sets
+	 * @should reflect members added by saving the concept set
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public int[] getConceptIdsByConceptSet(Concept conceptSet) throws APIException;
+	
+	/**
+	 * Gets the ids of all concept sets that contain the given concept, either directly or as a
+	 * member of a nested set
+	 * 
+	 * @param concept the concept
+	 * @return the concept set ids in ascending order
+	 * @since 2.2
+	 * @should return the ids of all sets containing the concept
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public int[] getConceptSetIdsContainingConcept(Concept concept) throws APIException;
+	
+	/**
+	 * Checks whether a concept is a member of a concept set or of any set nested in it
+	 * 
+	 * @param concept the concept
+	 * @param conceptSet the concept representing the concept set
+	 * @return true if the concept is in the set
+	 * @since 2.2
+	 * @should return true for members of nested sets
+	 * @should return false for concepts not in the set
+	 */
+	@Authorized(PrivilegeConstants.GET_CONCEPTS)
+	public boolean isConceptInSet(Concept concept, Concept conceptSet) throws APIException;
+	
 	/**
 	 * Find all sets that the given concept is a member of
 	 * 
@@ -79,6 +79,7 @@ public interface LocationService extends OpenmrsService {
 	 * @param name the exact name of the location to match on
 	 * @return Location matching the <code>name</code> to Location.name
 	 * @should return null when no location match given location name
+	 * @should find a location by its new name after it was renamed
 	 */
 	@Authorized( { PrivilegeConstants.GET_LOCATIONS })
 	public Location getLocation(String name) throws APIException;
@@ -201,6 +202,41 @@ public interface LocationService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.GET_LOCATIONS })
 	public List<Location> getLocationsHavingAnyTag(List<LocationTag> tags) throws APIException;
 	
+	/**
+	 * Checks whether a location is the given root location or somewhere below it. Unlike
+	 * {@link Location#isInHierarchy(Location, Location)} this does not walk the parent locations, the
+	 * location tree is kept in an in-memory index so the check does not touch the database once the
+	 * index has been loaded.
+	 * 
+	 * @param location the location to check
+	 * @param root the location at the top of the hierarchy
+	 * @return true if the location is in the hierarchy starting at root
+	 * @since 2.2
+	 * @should return true given the same location in both parameters
+	 * @should return true given a location below the root
+	 * @should return false given a location that is not below the root
+	 * @should return false given any null parameter
+	 */
+	@Authorized( { PrivilegeConstants.GET_LOCATIONS })
+	public boolean isLocationInHierarchy(Location location, Location root) throws APIException;
+	
+	/**
+	 * Gets the ids of the given location and of all locations below it, e.g. to find everything
+	 * recorded anywhere within a district with a single <code>location in (:ids)</code> restriction.
+	 * If retired locations are excluded, the locations below a retired location are excluded as well.
+	 * The given location itself is always included.
+	 * 
+	 * @param root the location at the top of the hierarchy
+	 * @param includeRetired whether to include retired locations
+	 * @return the location ids, parents before their children
+	 * @since 2.2
+	 * @should return the ids of the location and all its descendants
+	 * @should exclude retired locations when includeRetired is false
+	 * @should reflect changes to the parent of a location
+	 */
+	@Authorized( { PrivilegeConstants.GET_LOCATIONS })
+	public List<Integer> getLocationIdsInHierarchy(Location root, boolean includeRetired) throws APIException;
+	
 	/**
 	 * Retires the given location. This effectively removes the location from circulation or use.
 	 * 
@@ -268,6 +304,7 @@ public interface LocationService extends OpenmrsService {
 	 * @return LocationTag matching the name to LocationTag.tag
 	 * @should get location tag by name
 	 * @should return null when no location tag match given name
+	 * @should find a location tag by its new name after it was renamed
 	 * @since 1.5
 	 */
 	@Authorized( { PrivilegeConstants.GET_LOCATIONS })
@@ -127,6 +127,24 @@ public interface OrderService extends OpenmrsService {
 	@Authorized({ PrivilegeConstants.EDIT_ORDERS, PrivilegeConstants.ADD_ORDERS })
 	public Order saveRetrospectiveOrder(Order order, OrderContext orderContext);
 	
+	/**
+	 * Saves the given new orders in the given order, e.g. all the drugs of an order set for a
+	 * patient. Each order is saved as by {@link #saveOrder(Order, OrderContext)}, but the active
+	 * orders of a patient are only looked up once and every order is checked against the orders
+	 * saved before it.
+	 * 
+	 * @param orders the orders to save
+	 * @param orderContext the OrderContext object used for every order
+	 * @return the saved orders
+	 * @throws APIException
+	 * @since 2.2
+	 * @see #saveOrder(Order, OrderContext)
+	 * @should save all the orders
+	 * @should fail if two of the orders are drug orders for the same drug
+	 */
+	@Authorized({ PrivilegeConstants.EDIT_ORDERS, PrivilegeConstants.ADD_ORDERS })
+	public List<Order> saveOrders(List<Order> orders, OrderContext orderContext) throws APIException;
+	
 	/**
 	 * Completely delete an order from the database. This should not typically be used unless
 	 * desperately needed. Most orders should just be voided. See {@link #voidOrder(Order, String)}
@@ -369,6 +387,19 @@ public interface OrderService extends OpenmrsService {
 	@Authorized(PrivilegeConstants.GET_ORDERS)
 	public List<Order> getActiveOrders(Patient patient, OrderType orderType, CareSetting careSetting, Date asOfDate);
 	
+	/**
+	 * Active orders are looked up by an effective stop date that is stored with each order and
+	 * kept up to date when orders are saved. This updates it for orders whose date stopped or auto
+	 * expire date were changed without going through the API, e.g. by SQL, so that they are not
+	 * returned as active after they ended.
+	 * 
+	 * @return the number of orders that were updated
+	 * @since 2.2
+	 * @should update the effective stop date of orders that were stopped without the api
+	 */
+	@Authorized(PrivilegeConstants.EDIT_ORDERS)
+	public int updateEffectiveStopDates();
+	
 	/**
 	 * Retrieve care setting
 	 * 
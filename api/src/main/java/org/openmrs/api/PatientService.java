@@ -23,6 +23,7 @@ import org.openmrs.PatientIdentifierType;
 import org.openmrs.annotation.Authorized;
 import org.openmrs.api.db.PatientDAO;
 import org.openmrs.comparator.PatientIdentifierTypeDefaultComparator;
+import org.openmrs.patient.DuplicatePatientMatch;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.person.PersonMergeLogData;
 import org.openmrs.serialization.SerializationException;
@@ -343,6 +344,8 @@ public interface PatientService extends OpenmrsService {
 	 * @should fetch patient identifier type that exactly matches given name
 	 * @should not return patient identifier type that partially matches given name
 	 * @should return null when patient identifier type with given name does not exist
+	 * @should not return a retired patient identifier type
+	 * @should find a patient identifier type by its new name after it was renamed
 	 */
 	@Authorized( { PrivilegeConstants.GET_IDENTIFIER_TYPES })
 	public PatientIdentifierType getPatientIdentifierTypeByName(String name) throws APIException;
@@ -486,6 +489,28 @@ public interface PatientService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.GET_PATIENTS })
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws APIException;
 	
+	/**
+	 * Searches for likely duplicate patients by comparing their names, gender and birthdate. Unlike
+	 * {@link #getDuplicatePatientsByAttributes(List)} this does not require exact matches, patients
+	 * are grouped by blocking keys and only compared within their groups so it scales to large
+	 * databases. When <code>registeredSince</code> is given only pairs involving a patient registered
+	 * on or after that date are returned, which allows new registrations to be checked incrementally.
+	 * 
+	 * @param registeredSince only consider pairs with at least one patient registered on or after
+	 *            this date, null to consider all patients
+	 * @param start the index of the first match to return, null for the first
+	 * @param length the maximum number of matches to return, null for all
+	 * @return the matches ordered by blocking key, then by descending score, only the groups needed to
+	 *         fill the page are compared
+	 * @throws APIException
+	 * @since 2.2
+	 * @should return scored pairs of likely duplicate patients
+	 * @should only load patients sharing a family name initial with new patients
+	 */
+	@Authorized( { PrivilegeConstants.GET_PATIENTS })
+	public List<DuplicatePatientMatch> getDuplicatePatientMatches(Date registeredSince, Integer start, Integer length)
+	        throws APIException;
+	
 	/**
 	 * Convenience method to join two patients' information into one record.
 	 * <ol>
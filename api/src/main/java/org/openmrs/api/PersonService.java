@@ -9,6 +9,7 @@
  */
 package org.openmrs.api;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -261,6 +262,7 @@ public interface PersonService extends OpenmrsService {
 	 * @return a person attribute type with the given uuid
 	 * @should find object given valid uuid
 	 * @should return null if no object found with given uuid
+	 * @should find a type saved in the same transaction
 	 */
 	@Authorized( { PrivilegeConstants.GET_PERSON_ATTRIBUTE_TYPES })
 	public PersonAttributeType getPersonAttributeTypeByUuid(String uuid);
@@ -277,6 +279,21 @@ public interface PersonService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.GET_PERSON_ATTRIBUTE_TYPES })
 	public PersonAttribute getPersonAttribute(Integer id) throws APIException;
 	
+	/**
+	 * Gets the hydrated values of the active attributes of a list of persons, see
+	 * {@link PersonAttribute#getHydratedObject()}. The objects the values refer to by id, e.g.
+	 * concepts or locations, are loaded with one query per attribute format and each distinct value
+	 * is only hydrated once, instead of hydrating the attributes of each person one by one.
+	 * 
+	 * @param persons the persons
+	 * @return the hydrated values by attribute
+	 * @since 2.2
+	 * @should return the hydrated values of the active attributes of all the persons
+	 * @should return the value of attributes whose type has no format
+	 */
+	@Authorized( { PrivilegeConstants.GET_PERSONS })
+	public Map<PersonAttribute, Object> getHydratedAttributeValues(Collection<? extends Person> persons);
+	
 	/**
 	 * Get the PersonAttributeType given the type's name
 	 * 
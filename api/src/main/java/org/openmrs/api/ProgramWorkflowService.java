@@ -443,6 +443,27 @@ public interface ProgramWorkflowService extends OpenmrsService {
 	 */
 	public ConceptStateConversion getConceptStateConversion(ProgramWorkflow workflow, Concept trigger) throws APIException;
 	
+	/**
+	 * Applies a state conversion to the patient programs of every patient in a cohort, like
+	 * triggering it for each patient would, e.g. to exit many patients from care at once. Every
+	 * incomplete patient program in a workflow that has a state for the trigger is moved into that
+	 * state when the transition from its current state is legal. The current states of all patients
+	 * are loaded at once and the new states are written in batches, without loading the patient
+	 * programs, so patient programs that are already loaded are evicted from the session.
+	 * 
+	 * @param cohort the patients to convert
+	 * @param trigger the concept of the states to move into
+	 * @param dateConverted the date of the transitions
+	 * @return the number of patient states that were created
+	 * @throws APIException if any of the parameters is null
+	 * @since 2.2
+	 * @should transition the patient programs of the patients in the cohort
+	 * @should skip patient programs that are already completed
+	 * @should fail if the trigger is null
+	 */
+	@Authorized( { PrivilegeConstants.EDIT_PATIENT_PROGRAMS })
+	public int triggerStateConversion(Cohort cohort, Concept trigger, Date dateConverted) throws APIException;
+	
 	/**
 	 * Get {@code ProgramWorkflowState} by internal identifier.
 	 * 
@@ -147,6 +147,7 @@ public interface ProviderService extends OpenmrsService {
 	 * @should not find any visits if none have given attribute values
 	 * @should return all providers if query is empty
 	 * @should find provider by identifier
+	 * @should only match persons with a name containing every word
 	 */
 	@Authorized( { PrivilegeConstants.GET_PROVIDERS })
 	public List<Provider> getProviders(String query, Integer start, Integer length,
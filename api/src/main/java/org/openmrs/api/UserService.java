@@ -404,6 +404,9 @@ public interface UserService extends OpenmrsService {
 	 * @should not fetch duplicate users
 	 * @should fetch all users if nameSearch is empty or null
 	 * @should not fail if roles are searched but name is empty
+	 * @should match words split across the username and the name
+	 * @should not match users matching only some of the words
+	 * @should only match the names of persons with a user account
 	 */
 	@Authorized( { PrivilegeConstants.GET_USERS })
 	public List<User> getUsers(String nameSearch, List<Role> roles, boolean includeVoided) throws APIException;
@@ -507,6 +510,21 @@ public interface UserService extends OpenmrsService {
 	@Authorized( { PrivilegeConstants.GET_USERS })
 	public Integer getCountOfUsers(String name, List<Role> roles, boolean includeRetired);
 	
+	/**
+	 * Gets the values the unretired users that have at least one of the given roles have for a user
+	 * property, without loading the users and their properties one by one
+	 * 
+	 * @param key the user property
+	 * @param roles the roles the users must have one of, inherited roles count as well
+	 * @return the non empty values of the property
+	 * @since 2.2
+	 * @should return the values of the users with the roles
+	 * @should return the values of users whose roles inherit the roles
+	 * @should not return the values of retired users
+	 */
+	@Authorized( { PrivilegeConstants.GET_USERS })
+	public List<String> getUserPropertyValues(String key, List<Role> roles);
+	
 	/**
 	 * Saves the current key/value as a user property for the current user.
 	 * 
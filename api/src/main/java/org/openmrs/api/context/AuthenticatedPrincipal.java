@@ -0,0 +1,263 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.context;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.User;
+import org.openmrs.util.RoleConstants;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The identity and the privileges of an authenticated user, which is what the {@link UserContext}
+ * keeps between requests instead of the user entity. It is immutable and small, privilege checks
+ * use the flattened names of the privileges of all the roles of the user and of the authenticated
+ * role so they never load roles or privileges.
+ * <p>
+ * A principal is stale once the roles or privileges it was built from may have changed, i.e. when
+ * its user, any role or any privilege was saved or purged since it was built. The user context
+ * builds a new one from the user when it finds its principal stale. A deserialized principal is
+ * always stale, since the changes it was built before are only known in the JVM that built it.
+ *
+ * @since 2.2
+ */
+public final class AuthenticatedPrincipal implements Serializable {
+	
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Incremented on every change to users, roles or privileges
+	 */
+	private static final AtomicLong generation = new AtomicLong();
+	
+	/**
+	 * The generation of the last change to any role or privilege
+	 */
+	private static final AtomicLong rolesChangedAt = new AtomicLong();
+	
+	/**
+	 * The generation of the last change to each user that changed since the last change to any role
+	 * or privilege
+	 */
+	private static final Map<Integer, Long> usersChangedAt = new ConcurrentHashMap<>();
+	
+	/**
+	 * The most users whose changes are kept, beyond that all principals are made stale instead
+	 */
+	private static final int MAX_CHANGED_USERS = 10000;
+	
+	private final Integer userId;
+	
+	private final String uuid;
+	
+	private final String username;
+	
+	private final String systemId;
+	
+	private final boolean superUser;
+	
+	private final Set<String> roles;
+	
+	private final Set<String> privileges;
+	
+	private final transient long builtAt;
+	
+	/**
+	 * False once deserialized, the generations of other JVMs cannot be compared with this one's
+	 */
+	private final transient boolean builtInThisJvm;
+	
+	private AuthenticatedPrincipal(User user, boolean superUser, Set<String> roles, Set<String> privileges, long builtAt) {
+		this.userId = user.getUserId();
+		this.uuid = user.getUuid();
+		this.username = user.getUsername();
+		this.systemId = user.getSystemId();
+		this.superUser = superUser;
+		this.roles = Collections.unmodifiableSet(roles);
+		this.privileges = Collections.unmodifiableSet(privileges);
+		this.builtAt = builtAt;
+		this.builtInThisJvm = true;
+	}
+	
+	/**
+	 * Builds the principal of a user
+	 *
+	 * @param user the authenticated user
+	 * @param authenticatedRole the role given to all authenticated users, may be null
+	 * @return the principal
+	 * @should include the privileges of inherited roles
+	 * @should include the privileges of the authenticated role
+	 */
+	public static AuthenticatedPrincipal of(User user, Role authenticatedRole) {
+		// read the generation first so that changes made while building make the principal stale
+		long builtAt = generation.get();
+		
+		Set<Role> allRoles = new HashSet<>(user.getAllRoles());
+		if (authenticatedRole != null) {
+			allRoles.add(authenticatedRole);
+		}
+		boolean superUser = false;
+		Set<String> roles = new HashSet<>();
+		Set<String> privileges = new HashSet<>();
+		for (Role role : allRoles) {
+			roles.add(role.getRole());
+			superUser |= RoleConstants.SUPERUSER.equalsIgnoreCase(role.getRole());
+			if (role.getPrivileges() != null) {
+				for (Privilege privilege : role.getPrivileges()) {
+					privileges.add(privilege.getPrivilege());
+				}
+			}
+		}
+		return new AuthenticatedPrincipal(user, superUser, roles, privileges, builtAt);
+	}
+	
+	/**
+	 * Marks the principals of a user as stale, now and again when the current transaction
+	 * completes, called when the user is saved or purged
+	 *
+	 * @param userId the id of the user
+	 */
+	public static void invalidate(final Integer userId) {
+		if (userId == null) {
+			return;
+		}
+		userChanged(userId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					userChanged(userId);
+				}
+			});
+		}
+	}
+	
+	/**
+	 * Marks all principals as stale, now and again when the current transaction completes, called
+	 * when a role or a privilege is saved or purged
+	 */
+	public static void invalidateAll() {
+		rolesChanged();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					rolesChanged();
+				}
+			});
+		}
+	}
+	
+	private static void userChanged(Integer userId) {
+		usersChangedAt.put(userId, generation.incrementAndGet());
+		if (usersChangedAt.size() > MAX_CHANGED_USERS) {
+			rolesChanged();
+		}
+	}
+	
+	private static void rolesChanged() {
+		long changedAt = generation.incrementAndGet();
+		rolesChangedAt.accumulateAndGet(changedAt, Math::max);
+		// principals built before this are stale anyway, so earlier changes to users can be dropped
+		usersChangedAt.values().removeIf(userChangedAt -> userChangedAt <= changedAt);
+	}
+	
+	/**
+	 * @return true if the user, a role or a privilege changed since this principal was built
+	 * @should be stale once its user changed
+	 * @should be stale once any role or privilege changed
+	 * @should be stale once deserialized
+	 */
+	public boolean isStale() {
+		if (!builtInThisJvm || rolesChangedAt.get() > builtAt) {
+			return true;
+		}
+		Long userChangedAt = usersChangedAt.get(userId);
+		return userChangedAt != null && userChangedAt > builtAt;
+	}
+	
+	/**
+	 * @param privilege the name of a privilege
+	 * @return true if the user is a superuser, has the privilege through one of their roles or
+	 *         through the authenticated role, or the privilege is empty
+	 * @should authorize the empty privilege
+	 * @should authorize superusers for any privilege
+	 */
+	public boolean hasPrivilege(String privilege) {
+		return StringUtils.isEmpty(privilege) || superUser || privileges.contains(privilege);
+	}
+	
+	/**
+	 * @return the id of the user
+	 */
+	public Integer getUserId() {
+		return userId;
+	}
+	
+	/**
+	 * @return the uuid of the user
+	 */
+	public String getUuid() {
+		return uuid;
+	}
+	
+	/**
+	 * @return the username of the user
+	 */
+	public String getUsername() {
+		return username;
+	}
+	
+	/**
+	 * @return the system id of the user
+	 */
+	public String getSystemId() {
+		return systemId;
+	}
+	
+	/**
+	 * @return true if the user has the superuser role
+	 */
+	public boolean isSuperUser() {
+		return superUser;
+	}
+	
+	/**
+	 * @return the names of all the roles of the user, including inherited roles and the
+	 *         authenticated role
+	 */
+	public Set<String> getRoles() {
+		return roles;
+	}
+	
+	/**
+	 * @return the names of all the privileges of the roles of the user
+	 */
+	public Set<String> getPrivileges() {
+		return privileges;
+	}
+	
+	@Override
+	public String toString() {
+		return "AuthenticatedPrincipal[userId=" + userId + ", username=" + username + "]";
+	}
+}
@@ -605,7 +605,7 @@ public class Context {
 		if (Daemon.isDaemonThread()) {
 			return true;
 		} else {
-			return getAuthenticatedUser() != null;
+			return getUserContext().isAuthenticated();
 		}
 	}
 
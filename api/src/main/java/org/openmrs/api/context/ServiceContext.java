@@ -17,6 +17,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.aopalliance.aop.Advice;
 import org.openmrs.api.APIException;
@@ -77,7 +78,7 @@ public class ServiceContext implements ApplicationContextAware {
 
 	private ApplicationContext applicationContext;
 	
-	private static boolean refreshingContext = false;
+	private static volatile boolean refreshingContext = false;
 	
 	private static final Object refreshingContextLock = new Object();
 	
@@ -87,8 +88,16 @@ public class ServiceContext implements ApplicationContextAware {
 	 */
 	private boolean useSystemClassLoader = false;
 	
-	// Cached service objects
-	Map<Class, Object> services = new HashMap<>();
+	// Cached service objects, concurrent since publishing copies them while services may be set
+	Map<Class, Object> services = new ConcurrentHashMap<>();
+	
+	/**
+	 * An immutable copy of {@link #services} read by {@link #getService(Class)} without locking. It is
+	 * replaced whenever a service is set outside of a context refresh and once a refresh is done.
+	 */
+	private volatile Map<Class, Object> serviceSnapshot = Collections.emptyMap();
+	
+	private final Object publishLock = new Object();
 	
 	// Advisors added to services by this service
 	Map<Class, Set<Advisor>> addedAdvisors = new HashMap<>();
@@ -157,6 +166,7 @@ public class ServiceContext implements ApplicationContextAware {
 			if (ServiceContextHolder.instance.services != null) {
 				ServiceContextHolder.instance.services.clear();
 				ServiceContextHolder.instance.services = null;
+				ServiceContextHolder.instance.serviceSnapshot = Collections.emptyMap();
 			}
 			
 			if (ServiceContextHolder.instance.addedAdvisors != null) {
@@ -648,10 +658,14 @@ public class ServiceContext implements ApplicationContextAware {
 	}
 	
 	/**
-	 * Returns the current proxy that is stored for the Class <code>cls</code>
+	 * Returns the current proxy that is stored for the Class <code>cls</code>. Outside of a context
+	 * refresh this does not take any lock, callers only wait while the context is being refreshed.
 	 *
 	 * @param cls
 	 * @return Object that is a proxy for the <code>cls</code> class
+	 * @should return the service set for the class
+	 * @should fail if no service has been set for the class
+	 * @should wait until the context is done refreshing
 	 */
 	@SuppressWarnings("unchecked")
 	public <T> T getService(Class<? extends T> cls) {
@@ -659,8 +673,28 @@ public class ServiceContext implements ApplicationContextAware {
 			log.trace("Getting service: " + cls);
 		}
 		
-		// if the context is refreshing, wait until it is
-		// done -- otherwise a null service might be returned
+		if (!refreshingContext) {
+			Object service = serviceSnapshot.get(cls);
+			if (service != null) {
+				return (T) service;
+			}
+		} else {
+			waitForRefreshingContext(cls);
+		}
+		
+		Object service = serviceSnapshot.get(cls);
+		if (service == null) {
+			throw new APIException("Service not found: " + cls);
+		}
+		
+		return (T) service;
+	}
+	
+	/**
+	 * If the context is refreshing, waits until it is done -- otherwise a null service might be
+	 * returned
+	 */
+	private void waitForRefreshingContext(Class<?> cls) {
 		synchronized (refreshingContextLock) {
 			try {
 				while (refreshingContext) {
@@ -680,13 +714,19 @@ public class ServiceContext implements ApplicationContextAware {
 				log.warn("Refresh lock was interrupted", e);
 			}
 		}
-		
-		Object service = services.get(cls);
-		if (service == null) {
-			throw new APIException("Service not found: " + cls);
+	}
+	
+	/**
+	 * Publishes the current services to {@link #getService(Class)}
+	 */
+	private void publishServices() {
+		// serialized so that the snapshot published last is copied after every service set before it
+		synchronized (publishLock) {
+			Map<Class, Object> current = services;
+			if (current != null) {
+				serviceSnapshot = Collections.unmodifiableMap(new HashMap<>(current));
+			}
 		}
-		
-		return (T) service;
 	}
 	
 	/**
@@ -725,6 +765,10 @@ public class ServiceContext implements ApplicationContextAware {
 					}
 					
 					services.put(cls, advisedService);
+					// while the context is refreshing this is deferred until it is done
+					if (!refreshingContext) {
+						publishServices();
+					}
 				}
 				log.debug("Service: " + cls + " set successfully");
 			}
@@ -841,6 +885,7 @@ public class ServiceContext implements ApplicationContextAware {
 	public void doneRefreshingContext() {
 		synchronized (refreshingContextLock) {
 			log.info("Done refreshing Context");
+			publishServices();
 			setRefreshingContext(false);
 			refreshingContextLock.notifyAll();
 		}
@@ -855,9 +900,7 @@ public class ServiceContext implements ApplicationContextAware {
 	 *         doneRefreshingContext()
 	 */
 	public boolean isRefreshingContext() {
-		synchronized (refreshingContextLock) {
-			return refreshingContext;
-		}
+		return refreshingContext;
 	}
 	
 	/**
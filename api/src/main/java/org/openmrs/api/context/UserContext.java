@@ -14,7 +14,9 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.Location;
@@ -38,6 +40,11 @@ import org.slf4j.LoggerFactory;
  * UserContext should not be accessed directly, but rather used through the <code>Context</code>.
  * This class should be kept light-weight. There is one instance of this class per user that is
  * logged into the system.
+ * <p>
+ * Between requests only an {@link AuthenticatedPrincipal} is kept for the authenticated user,
+ * privilege checks use it and the <code>User</code> itself is loaded when it is asked for. Web
+ * requests release the loaded user when they end so that later requests do not work with a
+ * detached entity.
  *
  * @see org.openmrs.api.context.Context
  */
@@ -51,9 +58,16 @@ public class UserContext implements Serializable {
 	private static final Logger log = LoggerFactory.getLogger(UserContext.class);
 	
 	/**
-	 * User object containing details about the authenticated user
+	 * User objects containing details about the authenticated user by user context, loaded from the
+	 * principal when they are needed. They are kept per thread since a user context is shared by
+	 * the concurrent requests of a session and each request has its own hibernate session.
 	 */
-	private User user = null;
+	private static final ThreadLocal<Map<UserContext, User>> users = ThreadLocal.withInitial(WeakHashMap::new);
+	
+	/**
+	 * The identity and privileges of the authenticated user
+	 */
+	private AuthenticatedPrincipal principal = null;
 	
 	/**
 	 * User's permission proxies
@@ -68,12 +82,12 @@ public class UserContext implements Serializable {
 	/**
 	 * Cached Role given to all authenticated users
 	 */
-	private Role authenticatedRole = null;
+	private transient Role authenticatedRole = null;
 	
 	/**
 	 * Cache Role given to all users
 	 */
-	private Role anonymousRole = null;
+	private transient Role anonymousRole = null;
 	
 	/**
 	 * User's defined location
@@ -99,8 +113,10 @@ public class UserContext implements Serializable {
 	public User authenticate(String username, String password, ContextDAO contextDAO) throws ContextAuthenticationException {
 		log.debug("Authenticating with username: {}", username);
 		try {
-			this.user = contextDAO.authenticate(username, password);
-			notifyUserSessionListener(this.user, Event.LOGIN, Status.SUCCESS);
+			User user = contextDAO.authenticate(username, password);
+			setUser(user);
+			this.principal = AuthenticatedPrincipal.of(user, getAuthenticatedRole());
+			notifyUserSessionListener(user, Event.LOGIN, Status.SUCCESS);
 		} catch(ContextAuthenticationException e) {
 			User loggingInUser = new User();
 			loggingInUser.setUsername(username);
@@ -108,9 +124,9 @@ public class UserContext implements Serializable {
 			throw e;
 		}
 		setUserLocation();
-		log.debug("Authenticated as: {}", this.user);
+		log.debug("Authenticated as: {}", getUser());
 		
-		return this.user;
+		return getUser();
 	}
 	
 	/**
@@ -123,8 +139,10 @@ public class UserContext implements Serializable {
 	public void refreshAuthenticatedUser() {
 		log.debug("Refreshing authenticated user");
 		
-		if (user != null) {
-			user = Context.getUserService().getUser(user.getUserId());
+		if (principal != null) {
+			User user = Context.getUserService().getUser(principal.getUserId());
+			setUser(user);
+			principal = user == null ? null : AuthenticatedPrincipal.of(user, getAuthenticatedRole());
 			//update the stored location in the user's session
 			setUserLocation();
 		}
@@ -151,38 +169,87 @@ public class UserContext implements Serializable {
 			throw new ContextAuthenticationException("User not found with systemId: " + systemId);
 		}
 		
-		// hydrate the user object
-		if (userToBecome.getAllRoles() != null) {
-			userToBecome.getAllRoles().size();
-		}
-		if (userToBecome.getUserProperties() != null) {
-			userToBecome.getUserProperties().size();
-		}
-		if (userToBecome.getPrivileges() != null) {
-			userToBecome.getPrivileges().size();
-		}
-		
-		this.user = userToBecome;
+		setUser(userToBecome);
+		this.principal = AuthenticatedPrincipal.of(userToBecome, getAuthenticatedRole());
 		//update the user's location
 		setUserLocation();
 		
-		log.debug("Becoming user: {}", user);
+		log.debug("Becoming user: {}", userToBecome);
 		
 		return userToBecome;
 	}
 	
 	/**
 	 * @return "active" user who has been authenticated, otherwise <code>null</code>
+	 * @should load the user of the principal if it was released
 	 */
 	public User getAuthenticatedUser() {
+		User user = getUser();
+		AuthenticatedPrincipal current = principal;
+		if (user == null && current != null) {
+			user = Context.getContextDAO().getUser(current.getUserId());
+			setUser(user);
+		}
 		return user;
 	}
 	
+	/**
+	 * @return the user loaded by the current thread for this context
+	 */
+	private User getUser() {
+		return users.get().get(this);
+	}
+	
+	/**
+	 * @param user the user loaded by the current thread for this context, null to release it
+	 */
+	private void setUser(User user) {
+		if (user == null) {
+			users.get().remove(this);
+		} else {
+			users.get().put(this, user);
+		}
+	}
+	
+	/**
+	 * Gets the principal of the authenticated user, building it again from the user if the user,
+	 * a role or a privilege changed since it was built
+	 *
+	 * @return the principal or null if no user has been authenticated
+	 * @since 2.2
+	 * @should rebuild the principal when the roles of the user changed
+	 */
+	public AuthenticatedPrincipal getAuthenticatedPrincipal() {
+		AuthenticatedPrincipal current = principal;
+		if (current != null && current.isStale()) {
+			// the cached roles may have changed too
+			authenticatedRole = null;
+			anonymousRole = null;
+			User reloaded = Context.getContextDAO().getUser(current.getUserId());
+			current = reloaded == null ? null : AuthenticatedPrincipal.of(reloaded, getAuthenticatedRole());
+			principal = current;
+			setUser(reloaded);
+		}
+		return current;
+	}
+	
+	/**
+	 * Drops the authenticated user the current thread loaded in this context, it is loaded again by
+	 * {@link #getAuthenticatedUser()} when needed. Called at the end of each web request so that the
+	 * user is not kept as a detached entity between requests.
+	 *
+	 * @since 2.2
+	 * @should only release the user of the current thread
+	 */
+	public void releaseAuthenticatedUser() {
+		setUser(null);
+	}
+	
 	/**
 	 * @return true if user has been authenticated in this UserContext
 	 */
 	public boolean isAuthenticated() {
-		return user != null;
+		return principal != null;
 	}
 	
 	/**
@@ -192,8 +259,9 @@ public class UserContext implements Serializable {
 	 */
 	public void logout() {
 		log.debug("setting user to null on logout");
-		notifyUserSessionListener(user, Event.LOGOUT, Status.SUCCESS);
-		user = null;
+		notifyUserSessionListener(getAuthenticatedUser(), Event.LOGOUT, Status.SUCCESS);
+		setUser(null);
+		principal = null;
 	}
 	
 	/**
@@ -302,12 +370,12 @@ public class UserContext implements Serializable {
 	 */
 	public boolean hasPrivilege(String privilege) {
 		
-		// if a user has logged in, check their privileges
-		if (isAuthenticated()
-		        && (getAuthenticatedUser().hasPrivilege(privilege) || getAuthenticatedRole().hasPrivilege(privilege))) {
+		// if a user has logged in, check their privileges, including those of the authenticated role
+		AuthenticatedPrincipal authenticated = getAuthenticatedPrincipal();
+		if (authenticated != null && authenticated.hasPrivilege(privilege)) {
 			
 			// check user's privileges
-			notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
+			notifyPrivilegeListeners(privilege, true);
 			return true;
 			
 		}
@@ -317,18 +385,18 @@ public class UserContext implements Serializable {
 		// check proxied privileges
 		for (String s : proxies) {
 			if (s.equals(privilege)) {
-				notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
+				notifyPrivilegeListeners(privilege, true);
 				return true;
 			}
 		}
 		
 		if (getAnonymousRole().hasPrivilege(privilege)) {
-			notifyPrivilegeListeners(getAuthenticatedUser(), privilege, true);
+			notifyPrivilegeListeners(privilege, true);
 			return true;
 		}
 		
 		// default return value
-		notifyPrivilegeListeners(getAuthenticatedUser(), privilege, false);
+		notifyPrivilegeListeners(privilege, false);
 		return false;
 	}
 	
@@ -414,8 +482,9 @@ public class UserContext implements Serializable {
 	 * the value of the user's default location property
 	 */
 	private void setUserLocation() {
-		if (this.user != null) {
-			String locationId = this.user.getUserProperty(OpenmrsConstants.USER_PROPERTY_DEFAULT_LOCATION);
+		User user = getUser();
+		if (user != null) {
+			String locationId = user.getUserProperty(OpenmrsConstants.USER_PROPERTY_DEFAULT_LOCATION);
 			if (StringUtils.isNotBlank(locationId)) {
 				//only go ahead if it has actually changed OR if wasn't set before
 				if (this.locationId == null || this.locationId != Integer.parseInt(locationId)) {
@@ -428,7 +497,7 @@ public class UserContext implements Serializable {
 						if (this.locationId != null) {
 							this.locationId = null;
 						}
-						log.warn("The value of the default Location property of the user with id:" + this.user.getUserId()
+						log.warn("The value of the default Location property of the user with id:" + user.getUserId()
 						        + " should be an integer", e);
 					}
 				}
@@ -443,19 +512,24 @@ public class UserContext implements Serializable {
 	/**
 	 * Notifies privilege listener beans about any privilege check.
      * <p>
-     * It is called by {@link UserContext#hasPrivilege(java.lang.String)}.
+     * It is called by {@link UserContext#hasPrivilege(java.lang.String)}. The authenticated user
+     * is only loaded if there are listeners.
      * 
      * @see PrivilegeListener
-     * @param user the authenticated user or <code>null</code> if not authenticated
      * @param privilege the checked privilege
      * @param hasPrivilege <code>true</code> if the authenticated user has the required privilege or
 	 *            if it is a proxy privilege
      * @since 1.8.4, 1.9.1, 1.10
      */
-	private void notifyPrivilegeListeners(User user, String privilege, boolean hasPrivilege) {
-	    for (PrivilegeListener privilegeListener : Context.getRegisteredComponents(PrivilegeListener.class)) {
+	private void notifyPrivilegeListeners(String privilege, boolean hasPrivilege) {
+	    List<PrivilegeListener> privilegeListeners = Context.getRegisteredComponents(PrivilegeListener.class);
+	    if (privilegeListeners.isEmpty()) {
+		    return;
+	    }
+	    User authenticatedUser = getAuthenticatedUser();
+	    for (PrivilegeListener privilegeListener : privilegeListeners) {
 		    try {
-			    privilegeListener.privilegeChecked(user, privilege, hasPrivilege);
+			    privilegeListener.privilegeChecked(authenticatedUser, privilege, hasPrivilege);
 		    }
 		    catch (Exception e) {
 			    log.error("Privilege listener has failed", e);
@@ -218,6 +218,25 @@ public interface ConceptDAO {
 	 */
 	public List<ConceptSet> getSetsContainingConcept(Concept concept) throws DAOException;
 	
+	/**
+	 * Gets the membership of all concept sets in one query, used to build the in-memory concept set
+	 * index
+	 * 
+	 * @return rows of [set concept id, member concept id, whether the member is a set] ordered by set
+	 *         and sort weight
+	 * @since 2.2
+	 */
+	public List<Object[]> getAllConceptSetMembers() throws DAOException;
+	
+	/**
+	 * Gets the concepts with the given ids
+	 * 
+	 * @param conceptIds the concept ids
+	 * @return the concepts in no particular order
+	 * @since 2.2
+	 */
+	public List<Concept> getConceptsByIds(Collection<Integer> conceptIds) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptNumeric(java.lang.Integer)
 	 */
@@ -351,6 +370,24 @@ public interface ConceptDAO {
 	 */
 	public ConceptDatatype getConceptDatatypeByUuid(String uuid);
 	
+	/**
+	 * Gets the uuid, name and retired flag of every concept datatype in one query, used to build the
+	 * in-memory metadata index
+	 * 
+	 * @return rows of [concept datatype id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getConceptDatatypeMetadata();
+	
+	/**
+	 * Gets the uuid, name and retired flag of every concept class in one query, used to build the
+	 * in-memory metadata index
+	 * 
+	 * @return rows of [concept class id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getConceptClassMetadata();
+	
 	/**
 	 * @param uuid
 	 * @return concept numeric or null
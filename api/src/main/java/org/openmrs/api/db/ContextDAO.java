@@ -62,6 +62,18 @@ public interface ContextDAO {
 	 */
 	public User getUserByUuid(String uuid) throws ContextAuthenticationException;
 	
+	/**
+	 * Gets a user given the id. Privilege checks are not done here because this is used by the
+	 * {@link Context#getAuthenticatedUser()} method to load the user of the authenticated principal.
+	 * 
+	 * @param userId id of the user to fetch
+	 * @return the User from the second level cache or the database with its roles, privileges and
+	 *         user properties loaded, null if there is none
+	 * @since 2.2
+	 * @should load the user properties of the user
+	 */
+	public User getUser(Integer userId);
+	
 	/**
 	 * Open session.
 	 */
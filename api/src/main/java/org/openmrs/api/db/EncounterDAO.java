@@ -142,6 +142,15 @@ public interface EncounterDAO {
 	 */
 	public EncounterType getEncounterTypeByUuid(String uuid);
 	
+	/**
+	 * Gets the uuid, name and retired flag of every encounter type in one query, used to build
+	 * the in-memory metadata index
+	 * 
+	 * @return rows of [encounter type id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getEncounterTypeMetadata();
+	
 	/**
 	 * Get a list of {@link Encounter} by Patient name or identifier based on batch settings
 	 * 
@@ -9,6 +9,7 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -140,6 +141,24 @@ public interface LocationDAO {
 	 */
 	public Location getLocationByUuid(String uuid);
 	
+	/**
+	 * Gets the uuid, name and retired flag of every location in one query, used to build the
+	 * in-memory metadata index
+	 * 
+	 * @return rows of [location id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getLocationMetadata();
+	
+	/**
+	 * Gets the uuid, name and retired flag of every location tag in one query, used to build the
+	 * in-memory metadata index
+	 * 
+	 * @return rows of [location tag id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getLocationTagMetadata();
+	
 	/**
 	 * @param uuid
 	 * @return location tag or null
@@ -201,4 +220,32 @@ public interface LocationDAO {
 	 * @should ignore null values in location tag list
 	 */
 	List<Location> getLocationsHavingAllTags(List<LocationTag> locationTagIdList);
+	
+	/**
+	 * Gets the parent and retired flag of every location in one query, used to build the in-memory
+	 * location hierarchy index
+	 * 
+	 * @return rows of [location id, parent location id, retired] ordered by location id
+	 * @since 2.2
+	 */
+	List<Object[]> getLocationHierarchy();
+	
+	/**
+	 * Gets the tags of every location in one query, used to build the in-memory location hierarchy
+	 * index
+	 * 
+	 * @return rows of [location tag id, location id]
+	 * @since 2.2
+	 */
+	List<Object[]> getLocationTagMemberships();
+	
+	/**
+	 * Gets the locations with the given ids
+	 * 
+	 * @param locationIds the location ids
+	 * @return the locations ordered by name
+	 * @since 2.2
+	 * @should order more locations than fit in one query by name
+	 */
+	List<Location> getLocationsByIds(Collection<Integer> locationIds);
 }
@@ -107,6 +107,33 @@ public interface OrderDAO {
 	 */
 	public List<Order> getActiveOrders(Patient patient, List<OrderType> orderTypes, CareSetting careSetting, Date asOfDate);
 	
+	/**
+	 * Gets the orders of a patient that have not been stopped or expired before the given date,
+	 * whether or not they have been activated yet. Voided and discontinuation orders are excluded.
+	 * 
+	 * @param patient the patient
+	 * @param date the date
+	 * @return the orders that are or may become active on or after the date
+	 * @since 2.2
+	 */
+	public List<Order> getOrdersNotEndedBefore(Patient patient, Date date);
+	
+	/**
+	 * Sets the stored effective stop date of the orders whose date stopped or auto expire date were
+	 * changed without updating it, e.g. by SQL
+	 * 
+	 * @return the number of orders that were updated
+	 * @since 2.2
+	 */
+	public int updateEffectiveStopDates();
+	
+	/**
+	 * @param order the order
+	 * @return true if the order is an instance held by the current session
+	 * @since 2.2
+	 */
+	public boolean isInSession(Order order);
+	
 	/**
 	 * Get care setting by type
 	 * 
@@ -214,6 +241,33 @@ public interface OrderDAO {
 	 */
 	public List<OrderType> getOrderSubtypes(OrderType orderType, boolean includeRetired);
 	
+	/**
+	 * Gets the uuid, name, retired flag and parent of every order type in one query, used to build
+	 * the in-memory metadata index
+	 * 
+	 * @return rows of [order type id, uuid, name, retired, parent order type id] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getOrderTypeMetadata();
+	
+	/**
+	 * Gets the concept classes mapped to every order type in one query, used to build the in-memory
+	 * metadata index
+	 * 
+	 * @return rows of [concept class id, order type id]
+	 * @since 2.2
+	 */
+	public List<Object[]> getOrderTypeConceptClasses();
+	
+	/**
+	 * Gets the uuid, name and retired flag of every care setting in one query, used to build
+	 * the in-memory metadata index
+	 * 
+	 * @return rows of [care setting id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getCareSettingMetadata();
+	
 	/**
 	 * Check whether give order type is used by any order
 	 * 
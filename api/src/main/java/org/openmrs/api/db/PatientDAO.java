@@ -9,6 +9,8 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 import org.openmrs.Allergies;
@@ -18,6 +20,7 @@ import org.openmrs.Patient;
 import org.openmrs.PatientIdentifier;
 import org.openmrs.PatientIdentifierType;
 import org.openmrs.api.PatientService;
+import org.openmrs.patient.DuplicatePatientCandidate;
 
 /**
  * Database methods for the PatientService
@@ -185,6 +188,37 @@ public interface PatientDAO {
 	 */
 	public List<Patient> getDuplicatePatientsByAttributes(List<String> attributes) throws DAOException;
 	
+	/**
+	 * Loads one flat row per non voided name of every non voided patient, for use by the duplicate
+	 * patient detection
+	 * 
+	 * @return the duplicate patient candidates
+	 * @since 2.2
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientMatches(java.util.Date, Integer, Integer)
+	 */
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates() throws DAOException;
+	
+	/**
+	 * Loads the duplicate patient candidates of the patients registered on or after a date
+	 * 
+	 * @param registeredSince the registration date
+	 * @return the duplicate patient candidates
+	 * @since 2.2
+	 */
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates(Date registeredSince) throws DAOException;
+	
+	/**
+	 * Loads the duplicate patient candidates whose family name starts with one of the given
+	 * letters. Names that do not start with a letter from A to Z are always included since their
+	 * first letter cannot be compared in the database.
+	 * 
+	 * @param familyNameInitials upper case letters
+	 * @return the duplicate patient candidates
+	 * @since 2.2
+	 */
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidatesByFamilyNameInitials(
+	        Collection<String> familyNameInitials) throws DAOException;
+	
 	/**
 	 * @see org.openmrs.api.PatientService#isIdentifierInUseByAnotherPatient(PatientIdentifier)
 	 */
@@ -204,6 +238,15 @@ public interface PatientDAO {
 	 */
 	public PatientIdentifierType getPatientIdentifierTypeByUuid(String uuid);
 	
+	/**
+	 * Gets the uuid, name and retired flag of every patient identifier type in one query, used to build
+	 * the in-memory metadata index
+	 * 
+	 * @return rows of [patient identifier type id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getPatientIdentifierTypeMetadata();
+	
 	/**
 	 * @see org.openmrs.api.PatientService#getPatientIdentifier(java.lang.Integer)
 	 */
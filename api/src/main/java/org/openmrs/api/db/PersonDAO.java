@@ -9,6 +9,7 @@
  */
 package org.openmrs.api.db;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -86,6 +87,19 @@ public interface PersonDAO {
 	 */
 	public PersonAttribute getPersonAttribute(Integer id) throws DAOException;
 	
+	/**
+	 * Loads the objects of a class with the given ids, e.g. the objects person attribute values
+	 * refer to
+	 * 
+	 * @param type the class
+	 * @param ids the ids
+	 * @return the objects, or an empty list if the class is not mapped or its id is not an integer
+	 * @since 2.2
+	 * @should load more objects than fit in one query
+	 * @see org.openmrs.api.PersonService#getHydratedAttributeValues(java.util.Collection)
+	 */
+	public List<?> getObjectsByIds(Class<?> type, Collection<Integer> ids);
+	
 	/**
 	 * @see org.openmrs.api.PersonService#getRelationship(java.lang.Integer)
 	 */
@@ -187,6 +201,15 @@ public interface PersonDAO {
 	 */
 	public PersonAttributeType getPersonAttributeTypeByUuid(String uuid);
 	
+	/**
+	 * Gets the uuid, name and retired flag of every person attribute type in one query, used to build the
+	 * in-memory metadata index
+	 * 
+	 * @return rows of [person attribute type id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	public List<Object[]> getPersonAttributeTypeMetadata();
+	
 	/**
 	 * Gets the value of name currently saved in the database for the given personAttributeType,
 	 * bypassing any caches. This is used prior to saving an personAttributeType, so that we can
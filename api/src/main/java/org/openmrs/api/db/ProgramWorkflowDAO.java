@@ -14,6 +14,7 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.openmrs.Cohort;
 import org.openmrs.Concept;
@@ -25,6 +26,7 @@ import org.openmrs.PatientState;
 import org.openmrs.Program;
 import org.openmrs.ProgramWorkflow;
 import org.openmrs.ProgramWorkflowState;
+import org.openmrs.User;
 
 /**
  * Program- and PatientProgram- and ConceptStateConversion-related database functions
@@ -109,6 +111,23 @@ public interface ProgramWorkflowDAO {
 	
 	public List<PatientProgram> getPatientPrograms(Cohort cohort, Collection<Program> programs);
 	
+	/**
+	 * Moves the incomplete patient programs of the given patients into the given states, ending
+	 * their current states in the workflows of the states and completing them when a state is
+	 * terminal. The patient states are read and written in bulk without loading the patient
+	 * programs.
+	 * 
+	 * @param patientIds the ids of the patients
+	 * @param transitions the states to move into, each mapped to the ids of the states it may be
+	 *            entered from, including null if it may be entered without a current state
+	 * @param onDate the date of the transitions
+	 * @param user the user making the changes
+	 * @return the number of patient states that were created
+	 * @since 2.2
+	 */
+	public int transitionPatientStates(Collection<Integer> patientIds, Map<ProgramWorkflowState, Set<Integer>> transitions,
+	        Date onDate, User user);
+	
 	/**
 	 * Returns PatientPrograms that match the input parameters. If an input parameter is set to
 	 * null, the parameter will not be used. Calling this method will all null parameters will
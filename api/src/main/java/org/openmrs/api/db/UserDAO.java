@@ -195,4 +195,9 @@ public interface UserDAO {
 	 */
 	public Integer getCountOfUsers(String name, List<Role> roles, boolean includeRetired);
 	
+	/**
+	 * @see UserService#getUserPropertyValues(String, List)
+	 */
+	public List<String> getUserPropertyValues(String key, List<Role> roles);
+	
 }
@@ -51,6 +51,15 @@ public interface VisitDAO {
 	 */
 	VisitType getVisitTypeByUuid(String uuid);
 	
+	/**
+	 * Gets the uuid, name and retired flag of every visit type in one query, used to build
+	 * the in-memory metadata index
+	 * 
+	 * @return rows of [visit type id, uuid, name, retired] ordered by id
+	 * @since 2.2
+	 */
+	List<Object[]> getVisitTypeMetadata();
+	
 	/**
 	 * @see org.openmrs.api.VisitService#getVisitTypes(java.lang.String)
 	 */
@@ -37,12 +37,22 @@ import org.slf4j.LoggerFactory;
  * @since 1.9
  */
 
-public class AuditableInterceptor extends EmptyInterceptor {
+public class AuditableInterceptor extends EmptyInterceptor implements SelectiveInterceptor {
 	
 	private static final Logger log = LoggerFactory.getLogger(AuditableInterceptor.class);
 	
 	private static final long serialVersionUID = 1L;
 	
+	/**
+	 * Only {@link OpenmrsObject}s get their creator and changedBy fields set
+	 * 
+	 * @see SelectiveInterceptor#getInterceptedTypes()
+	 */
+	@Override
+	public Class<?>[] getInterceptedTypes() {
+		return new Class<?>[] { OpenmrsObject.class };
+	}
+	
 	/**
 	 * This method is only called when inserting new objects.
 	 * @should return true if dateCreated was null
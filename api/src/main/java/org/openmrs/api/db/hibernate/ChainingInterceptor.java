@@ -10,11 +10,14 @@
 package org.openmrs.api.db.hibernate;
 
 import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.hibernate.CallbackException;
 import org.hibernate.EntityMode;
@@ -27,7 +30,8 @@ import org.slf4j.LoggerFactory;
 /**
  * Used by the {@link HibernateSessionFactoryBean} to keep track of multiple interceptors <br>
  * Each of the methods in {@link Interceptor} are called for each interceptor that is added to this
- * class
+ * class. Interceptors implementing {@link SelectiveInterceptor} are only called for entities of the
+ * types they intercept, the interceptors to call are worked out once per entity class.
  * 
  * @since 1.9
  */
@@ -38,6 +42,8 @@ public class ChainingInterceptor implements Interceptor {
 	// using a linkedhashset to preserve insert order and maintain a list of unique objects
 	public Collection<Interceptor> interceptors = new LinkedHashSet<>();
 	
+	private volatile Dispatch dispatch;
+	
 	/**
 	 * Adds the given interceptor to the list of interceptors to be applied to hibernate sessions.
 	 * Interceptors are called in the added order, with core interceptors being called first
@@ -58,11 +64,27 @@ public class ChainingInterceptor implements Interceptor {
 		}
 		
 		interceptors.add(interceptor);
+		dispatch = null;
+	}
+	
+	/**
+	 * Gets the interceptors to call for an entity, in the order they were added
+	 * 
+	 * @param entity the entity
+	 * @return the interceptors that intercept entities of its class
+	 */
+	Interceptor[] getInterceptors(Object entity) {
+		Dispatch d = dispatch;
+		if (d == null || !d.isFor(interceptors)) {
+			d = new Dispatch(interceptors);
+			dispatch = d;
+		}
+		return d.getInterceptors(entity.getClass());
 	}
 	
 	@Override
 	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
-		for (Interceptor i : interceptors) {
+		for (Interceptor i : getInterceptors(entity)) {
 			i.onDelete(entity, id, state, propertyNames, types);
 		}
 	}
@@ -72,7 +94,7 @@ public class ChainingInterceptor implements Interceptor {
 	        String[] propertyNames, Type[] types) {
 		boolean objectChanged = false;
 		
-		for (Interceptor i : interceptors) {
+		for (Interceptor i : getInterceptors(entity)) {
 			// must be in this order so that java doesn't skip the method call for optimizations
 			objectChanged = i.onFlushDirty(entity, id, currentState, previousState, propertyNames, types) || objectChanged;
 		}
@@ -84,7 +106,7 @@ public class ChainingInterceptor implements Interceptor {
 	public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
 		boolean objectChanged = false;
 		
-		for (Interceptor i : interceptors) {
+		for (Interceptor i : getInterceptors(entity)) {
 			// must be in this order so that java doesn't skip the method call for optimizations
 			objectChanged = i.onLoad(entity, id, state, propertyNames, types) || objectChanged;
 		}
@@ -96,7 +118,7 @@ public class ChainingInterceptor implements Interceptor {
 	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
 		boolean objectChanged = false;
 		
-		for (Interceptor i : interceptors) {
+		for (Interceptor i : getInterceptors(entity)) {
 			// must be in this order so that java doesn't skip the method call for optimizations
 			objectChanged = i.onSave(entity, id, state, propertyNames, types) || objectChanged;
 		}
@@ -158,7 +180,7 @@ public class ChainingInterceptor implements Interceptor {
 		
 		List<Integer> uniqueIndices = new LinkedList<>();
 		
-		for (Interceptor i : interceptors) {
+		for (Interceptor i : getInterceptors(entity)) {
 			int[] indices = i.findDirty(entity, id, currentState, previousState, propertyNames, types);
 			if (indices != null) {
 				for (int index : indices) {
@@ -261,4 +283,63 @@ public class ChainingInterceptor implements Interceptor {
 		}
 	}
 	
+	/**
+	 * The interceptors to call for each entity class, worked out from one version of the list of
+	 * interceptors
+	 */
+	private static class Dispatch {
+		
+		private final Collection<Interceptor> source;
+		
+		private final int size;
+		
+		private final Interceptor[] all;
+		
+		private final Map<Class<?>, Interceptor[]> byEntityClass = new ConcurrentHashMap<>();
+		
+		Dispatch(Collection<Interceptor> interceptors) {
+			this.source = interceptors;
+			this.size = interceptors.size();
+			this.all = interceptors.toArray(new Interceptor[0]);
+		}
+		
+		/**
+		 * The interceptors field is public, so it is also checked whether it was replaced or changed
+		 * without calling addInterceptor
+		 */
+		boolean isFor(Collection<Interceptor> interceptors) {
+			return interceptors == source && interceptors.size() == size;
+		}
+		
+		Interceptor[] getInterceptors(Class<?> entityClass) {
+			Interceptor[] result = byEntityClass.get(entityClass);
+			if (result == null) {
+				List<Interceptor> matching = new ArrayList<>(all.length);
+				for (Interceptor interceptor : all) {
+					if (intercepts(interceptor, entityClass)) {
+						matching.add(interceptor);
+					}
+				}
+				result = matching.toArray(new Interceptor[0]);
+				byEntityClass.put(entityClass, result);
+			}
+			return result;
+		}
+		
+		private static boolean intercepts(Interceptor interceptor, Class<?> entityClass) {
+			if (!(interceptor instanceof SelectiveInterceptor)) {
+				return true;
+			}
+			Class<?>[] types = ((SelectiveInterceptor) interceptor).getInterceptedTypes();
+			if (types == null) {
+				return true;
+			}
+			for (Class<?> type : types) {
+				if (type.isAssignableFrom(entityClass)) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
 }
@@ -0,0 +1,185 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.Serializable;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import org.openmrs.OpenmrsObject;
+import org.openmrs.api.db.SerializedObject;
+import org.openmrs.serialization.BinarySerializer;
+import org.openmrs.serialization.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the objects deserialized from {@link SerializedObject}s so that objects that are read over
+ * and over again, e.g. report definitions, are not parsed each time. The objects are kept in java
+ * serialized form and every lookup returns a new copy, so callers may modify the objects they get.
+ * <p>
+ * An object is only returned for a serialized object with the same uuid, date changed, subtype,
+ * serializer and serialized data as the one it was deserialized from, so a changed serialized
+ * object is always deserialized again. Objects that reference hibernate proxies, collections or
+ * entities of the current session are not cached since copies of them would be detached.
+ *
+ * @since 2.2
+ */
+class DeserializedObjectCache {
+
+	private static final Logger log = LoggerFactory.getLogger(DeserializedObjectCache.class);
+
+	private final Map<String, Entry> entries;
+
+	private final BinarySerializer serializer;
+
+	/**
+	 * @param maxSize the number of objects to keep, the least recently used are dropped first
+	 * @param isManaged tells whether an object is an entity of the current session
+	 */
+	DeserializedObjectCache(final int maxSize, final Predicate<Object> isManaged) {
+		this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+				return size() > maxSize;
+			}
+		};
+		this.serializer = new BinarySerializer() {
+
+			@Override
+			protected Object replaceObject(Object o) throws IOException {
+				if (o instanceof OpenmrsObject && isManaged.test(o)) {
+					throw new InvalidClassException(o.getClass().getName(), "Can't copy persistent objects");
+				}
+				return super.replaceObject(o);
+			}
+		};
+	}
+
+	/**
+	 * @param serializedObject the serialized object
+	 * @return a copy of the object deserialized from it or null if it is not cached
+	 */
+	OpenmrsObject get(SerializedObject serializedObject) {
+		Entry entry;
+		synchronized (entries) {
+			entry = entries.get(serializedObject.getUuid());
+		}
+		if (entry == null || entry.bytes == null || !entry.isFrom(serializedObject)) {
+			return null;
+		}
+		try {
+			return serializer.fromBytes(entry.bytes, OpenmrsObject.class);
+		}
+		catch (SerializationException e) {
+			log.debug("Unable to copy cached object {}", serializedObject.getUuid(), e);
+			remove(serializedObject.getUuid());
+			return null;
+		}
+	}
+
+	/**
+	 * Caches the object deserialized from the serialized object, unless it cannot be copied
+	 *
+	 * @param serializedObject the serialized object
+	 * @param object the object deserialized from it
+	 */
+	void put(SerializedObject serializedObject, OpenmrsObject object) {
+		if (serializedObject.getUuid() == null) {
+			return;
+		}
+		Entry existing;
+		synchronized (entries) {
+			existing = entries.get(serializedObject.getUuid());
+		}
+		if (existing != null && existing.isFrom(serializedObject)) {
+			// it is already cached or known not to be copyable
+			return;
+		}
+		byte[] bytes = null;
+		if (object instanceof Serializable) {
+			try {
+				bytes = serializer.toBytes(object);
+			}
+			catch (SerializationException e) {
+				log.debug("Not caching object {} since it cannot be copied", serializedObject.getUuid(), e);
+			}
+		}
+		// an entry without bytes remembers that the object cannot be copied
+		Entry entry = new Entry(serializedObject, bytes);
+		synchronized (entries) {
+			entries.put(serializedObject.getUuid(), entry);
+		}
+	}
+
+	/**
+	 * @param uuid the uuid of a serialized object that was changed or deleted
+	 */
+	void remove(String uuid) {
+		synchronized (entries) {
+			entries.remove(uuid);
+		}
+	}
+
+	void clear() {
+		synchronized (entries) {
+			entries.clear();
+		}
+	}
+
+	int size() {
+		synchronized (entries) {
+			return entries.size();
+		}
+	}
+
+	private static class Entry {
+
+		private final Long dateChanged;
+
+		private final String subtype;
+
+		private final Class<?> serializationClass;
+
+		private final String serializedData;
+
+		private final byte[] bytes;
+
+		Entry(SerializedObject serializedObject, byte[] bytes) {
+			this.dateChanged = toTime(serializedObject.getDateChanged());
+			this.subtype = serializedObject.getSubtype();
+			this.serializationClass = serializedObject.getSerializationClass();
+			this.serializedData = serializedObject.getSerializedData();
+			this.bytes = bytes;
+		}
+
+		boolean isFrom(SerializedObject serializedObject) {
+			return Objects.equals(dateChanged, toTime(serializedObject.getDateChanged()))
+			        && Objects.equals(subtype, serializedObject.getSubtype())
+			        && Objects.equals(serializationClass, serializedObject.getSerializationClass())
+			        && Objects.equals(serializedData, serializedObject.getSerializedData());
+		}
+
+		/**
+		 * Dates loaded from the database may be timestamps, which are not equal to dates
+		 */
+		private static Long toTime(Date date) {
+			return date == null ? null : date.getTime();
+		}
+	}
+}
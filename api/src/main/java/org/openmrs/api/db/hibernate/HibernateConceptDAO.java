@@ -82,6 +82,8 @@ public class HibernateConceptDAO implements ConceptDAO {
 	
 	private static final Logger log = LoggerFactory.getLogger(HibernateConceptDAO.class);
 	
+	private static final int CONCEPT_IDS_PER_QUERY = 500;
+	
 	private SessionFactory sessionFactory;
 	
 	/**
@@ -815,31 +817,33 @@ public class HibernateConceptDAO implements ConceptDAO {
 	}
 	
 	/**
-	 * returns a list of n-generations of parents of a concept in a concept set
-	 * 
-	 * @param Concept current
-	 * @return List&lt;Concept&gt;
-	 * @throws DAOException
+	 * @see org.openmrs.api.db.ConceptDAO#getAllConceptSetMembers()
 	 */
+	@Override
 	@SuppressWarnings("unchecked")
-	private List<Concept> getParents(Concept current) throws DAOException {
-		List<Concept> parents = new ArrayList<>();
-		if (current != null) {
-			Query query = sessionFactory.getCurrentSession().createQuery(
-			    "from Concept c join c.conceptSets sets where sets.concept = ?").setEntity(0, current);
-			List<Concept> immedParents = query.list();
-			for (Concept c : immedParents) {
-				parents.addAll(getParents(c));
-			}
-			parents.add(current);
-			if (log.isDebugEnabled()) {
-				log.debug("parents found: ");
-				for (Concept c : parents) {
-					log.debug("id: " + c.getConceptId());
-				}
-			}
+	public List<Object[]> getAllConceptSetMembers() throws DAOException {
+		return sessionFactory.getCurrentSession().createCriteria(ConceptSet.class).createAlias("conceptSet", "s")
+		        .createAlias("concept", "c").setProjection(
+		            Projections.projectionList().add(Projections.property("s.conceptId")).add(
+		                Projections.property("c.conceptId")).add(Projections.property("c.set"))).addOrder(
+		            Order.asc("s.conceptId")).addOrder(Order.asc("sortWeight")).list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptsByIds(java.util.Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Concept> getConceptsByIds(Collection<Integer> conceptIds) throws DAOException {
+		List<Concept> concepts = new ArrayList<>(conceptIds.size());
+		List<Integer> ids = new ArrayList<>(conceptIds);
+		// keep the number of parameters of a query well below the limits of the databases
+		for (int from = 0; from < ids.size(); from += CONCEPT_IDS_PER_QUERY) {
+			List<Integer> page = ids.subList(from, Math.min(from + CONCEPT_IDS_PER_QUERY, ids.size()));
+			concepts.addAll(sessionFactory.getCurrentSession().createCriteria(Concept.class).add(
+			    Restrictions.in("conceptId", page)).list());
 		}
-		return parents;
+		return concepts;
 	}
 	
 	/**
@@ -1078,8 +1082,7 @@ public class HibernateConceptDAO implements ConceptDAO {
 	 */
 	@Override
 	public ConceptClass getConceptClassByUuid(String uuid) {
-		return (ConceptClass) sessionFactory.getCurrentSession().createQuery("from ConceptClass cc where cc.uuid = :uuid")
-		        .setString("uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), ConceptClass.class, uuid);
 	}
 	
 	@Override
@@ -1111,8 +1114,28 @@ public class HibernateConceptDAO implements ConceptDAO {
 	 */
 	@Override
 	public ConceptDatatype getConceptDatatypeByUuid(String uuid) {
-		return (ConceptDatatype) sessionFactory.getCurrentSession().createQuery(
-		    "from ConceptDatatype cd where cd.uuid = :uuid").setString("uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), ConceptDatatype.class, uuid);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptDatatypeMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getConceptDatatypeMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select d.conceptDatatypeId, d.uuid, d.name, d.retired from ConceptDatatype d "
+		            + "order by d.conceptDatatypeId").list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.ConceptDAO#getConceptClassMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getConceptClassMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select c.conceptClassId, c.uuid, c.name, c.retired from ConceptClass c order by c.conceptClassId").list();
 	}
 	
 	/**
@@ -226,6 +226,22 @@ public class HibernateContextDAO implements ContextDAO {
 		return u;
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.ContextDAO#getUser(java.lang.Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public User getUser(Integer userId) {
+		User user = (User) sessionFactory.getCurrentSession().get(User.class, userId);
+		if (user != null) {
+			// hydrate the user object like on authentication, it may be used after the session closed
+			user.getAllRoles().size();
+			user.getUserProperties().size();
+			user.getPrivileges().size();
+		}
+		return user;
+	}
+	
 	/**
 	 * Call the UserService to save the given user while proxying the privileges needed to do so.
 	 * 
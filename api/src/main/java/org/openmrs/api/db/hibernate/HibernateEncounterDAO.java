@@ -261,7 +261,17 @@ public class HibernateEncounterDAO implements EncounterDAO {
 	 */
 	@Override
 	public EncounterType getEncounterTypeByUuid(String uuid) {
-		return getClassByUuid(EncounterType.class, uuid);
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), EncounterType.class, uuid);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.EncounterDAO#getEncounterTypeMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getEncounterTypeMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select t.encounterTypeId, t.uuid, t.name, t.retired from EncounterType t order by t.encounterTypeId").list();
 	}
 	
 	/**
@@ -10,7 +10,10 @@
 package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -35,6 +38,8 @@ import org.openmrs.api.db.LocationDAO;
  */
 public class HibernateLocationDAO implements LocationDAO {
 	
+	private static final int LOCATION_IDS_PER_QUERY = 500;
+	
 	private SessionFactory sessionFactory;
 	
 	/**
@@ -185,8 +190,17 @@ public class HibernateLocationDAO implements LocationDAO {
 	 */
 	@Override
 	public Location getLocationByUuid(String uuid) {
-		return (Location) sessionFactory.getCurrentSession().createQuery("from Location l where l.uuid = :uuid").setString(
-		    "uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), Location.class, uuid);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.LocationDAO#getLocationMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getLocationMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select l.locationId, l.uuid, l.name, l.retired from Location l order by l.locationId").list();
 	}
 	
 	/**
@@ -194,8 +208,17 @@ public class HibernateLocationDAO implements LocationDAO {
 	 */
 	@Override
 	public LocationTag getLocationTagByUuid(String uuid) {
-		return (LocationTag) sessionFactory.getCurrentSession().createQuery("from LocationTag where uuid = :uuid")
-		        .setString("uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), LocationTag.class, uuid);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.LocationDAO#getLocationTagMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getLocationTagMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select t.locationTagId, t.uuid, t.name, t.retired from LocationTag t order by t.locationTagId").list();
 	}
 	
 	/**
@@ -348,6 +371,61 @@ public class HibernateLocationDAO implements LocationDAO {
 		    Restrictions.eq("retired", false)).add(Subqueries.eq(Long.valueOf(tags.size()), numberOfMatchingTags)).list();
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.LocationDAO#getLocationHierarchy()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getLocationHierarchy() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select l.locationId, p.locationId, l.retired from Location l left join l.parentLocation p order by l.locationId")
+		        .list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.LocationDAO#getLocationTagMemberships()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getLocationTagMemberships() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select t.locationTagId, l.locationId from Location l join l.tags t").list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.LocationDAO#getLocationsByIds(java.util.Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Location> getLocationsByIds(Collection<Integer> locationIds) {
+		if (locationIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+		if (locationIds.size() <= LOCATION_IDS_PER_QUERY) {
+			return sessionFactory.getCurrentSession().createCriteria(Location.class).add(
+			    Restrictions.in("locationId", locationIds)).addOrder(Order.asc("name")).addOrder(Order.asc("locationId"))
+			        .list();
+		}
+		
+		// keep the number of parameters of a query well below the limits of the databases
+		List<Location> locations = new ArrayList<>(locationIds.size());
+		List<Integer> ids = new ArrayList<>(locationIds);
+		for (int from = 0; from < ids.size(); from += LOCATION_IDS_PER_QUERY) {
+			List<Integer> page = ids.subList(from, Math.min(from + LOCATION_IDS_PER_QUERY, ids.size()));
+			locations.addAll(sessionFactory.getCurrentSession().createCriteria(Location.class).add(
+			    Restrictions.in("locationId", page)).list());
+		}
+		// order them as the database orders names
+		List<Integer> orderedIds = sessionFactory.getCurrentSession().createQuery(
+		    "select l.locationId from Location l order by l.name, l.locationId").list();
+		Map<Integer, Integer> positions = new HashMap<>(orderedIds.size());
+		for (int i = 0; i < orderedIds.size(); i++) {
+			positions.put(orderedIds.get(i), i);
+		}
+		locations.sort(Comparator.comparing(l -> positions.getOrDefault(l.getLocationId(), Integer.MAX_VALUE)));
+		return locations;
+	}
+	
 	/**
 	 * Extract locationTagIds from the list of LocationTag objects provided.
 	 *
@@ -23,7 +23,6 @@ import org.hibernate.LockOptions;
 import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
-import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.metadata.ClassMetadata;
@@ -339,23 +338,56 @@ public class HibernateOrderDAO implements OrderDAO {
 	public List<Order> getActiveOrders(Patient patient, List<OrderType> orderTypes, CareSetting careSetting, Date asOfDate) {
 		Criteria crit = createOrderCriteria(patient, careSetting, orderTypes, false, false);
 		crit.add(Restrictions.le("dateActivated", asOfDate));
+		crit.add(notEndedBefore(asOfDate));
 		
-		Disjunction dateStoppedAndAutoExpDateDisjunction = Restrictions.disjunction();
-		Criterion stopAndAutoExpDateAreBothNull = Restrictions.and(Restrictions.isNull("dateStopped"), Restrictions
-		        .isNull("autoExpireDate"));
-		dateStoppedAndAutoExpDateDisjunction.add(stopAndAutoExpDateAreBothNull);
-		
-		Criterion autoExpireDateEqualToOrAfterAsOfDate = Restrictions.and(Restrictions.isNull("dateStopped"), Restrictions
-		        .ge("autoExpireDate", asOfDate));
-		dateStoppedAndAutoExpDateDisjunction.add(autoExpireDateEqualToOrAfterAsOfDate);
-		
-		dateStoppedAndAutoExpDateDisjunction.add(Restrictions.ge("dateStopped", asOfDate));
-		
-		crit.add(dateStoppedAndAutoExpDateDisjunction);
+		return crit.list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#getOrdersNotEndedBefore(org.openmrs.Patient, java.util.Date)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Order> getOrdersNotEndedBefore(Patient patient, Date date) {
+		Criteria crit = createOrderCriteria(patient, null, null, false, false);
+		crit.add(notEndedBefore(date));
 		
 		return crit.list();
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#isInSession(org.openmrs.Order)
+	 */
+	@Override
+	public boolean isInSession(Order order) {
+		return sessionFactory.getCurrentSession().contains(order);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#updateEffectiveStopDates()
+	 */
+	@Override
+	public int updateEffectiveStopDates() {
+		String effectiveStopDate = "COALESCE(date_stopped, auto_expire_date)";
+		String update = "UPDATE orders SET effective_stop_date = " + effectiveStopDate
+		        + " WHERE (effective_stop_date IS NULL AND " + effectiveStopDate + " IS NOT NULL)"
+		        + " OR (effective_stop_date IS NOT NULL AND (" + effectiveStopDate + " IS NULL OR effective_stop_date <> "
+		        + effectiveStopDate + "))";
+		return sessionFactory.getCurrentSession().createSQLQuery(update).executeUpdate();
+	}
+	
+	/**
+	 * Creates a Criterion matching orders that have neither been stopped nor expired before the
+	 * given date, the effective stop date is the date stopped if the order was stopped, otherwise
+	 * the auto expire date
+	 * 
+	 * @param date
+	 * @return
+	 */
+	private Criterion notEndedBefore(Date date) {
+		return Restrictions.or(Restrictions.isNull("effectiveStopDate"), Restrictions.ge("effectiveStopDate", date));
+	}
+	
 	/**
 	 * Creates and returns a Criteria Object filtering on the specified parameters
 	 * 
@@ -401,8 +433,7 @@ public class HibernateOrderDAO implements OrderDAO {
 	 */
 	@Override
 	public CareSetting getCareSettingByUuid(String uuid) {
-		return (CareSetting) sessionFactory.getCurrentSession().createQuery("from CareSetting cs where cs.uuid = :uuid")
-		        .setString("uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), CareSetting.class, uuid);
 	}
 	
 	/**
@@ -573,8 +604,7 @@ public class HibernateOrderDAO implements OrderDAO {
 	 */
 	@Override
 	public OrderType getOrderTypeByUuid(String uuid) {
-		return (OrderType) sessionFactory.getCurrentSession().createQuery("from OrderType o where o.uuid = :uuid")
-		        .setString("uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), OrderType.class, uuid);
 	}
 	
 	/**
@@ -629,6 +659,37 @@ public class HibernateOrderDAO implements OrderDAO {
 		return criteria.list();
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#getOrderTypeMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getOrderTypeMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select t.orderTypeId, t.uuid, t.name, t.retired, p.orderTypeId from OrderType t left join t.parent p "
+		            + "order by t.orderTypeId").list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#getOrderTypeConceptClasses()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getOrderTypeConceptClasses() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select c.conceptClassId, t.orderTypeId from OrderType t join t.conceptClasses c").list();
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.OrderDAO#getCareSettingMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getCareSettingMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select c.careSettingId, c.uuid, c.name, c.retired from CareSetting c order by c.careSettingId").list();
+	}
+	
 	@Override
 	public boolean isOrderTypeInUse(OrderType orderType) {
 		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Order.class);
@@ -10,6 +10,7 @@
 package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -44,6 +45,7 @@ import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.PatientDAO;
 import org.openmrs.api.db.hibernate.search.LuceneQuery;
 import org.openmrs.collection.ListPart;
+import org.openmrs.patient.DuplicatePatientCandidate;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.slf4j.Logger;
@@ -436,6 +438,54 @@ public class HibernatePatientDAO implements PatientDAO {
 		return patients;
 	}
 
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientCandidates()
+	 */
+	@Override
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates() {
+		return getDuplicatePatientCandidates("", Collections.emptyMap());
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientCandidates(Date)
+	 */
+	@Override
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidates(Date registeredSince) {
+		return getDuplicatePatientCandidates(" and p.dateCreated >= :registeredSince", Collections.singletonMap(
+		    "registeredSince", registeredSince));
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getDuplicatePatientCandidatesByFamilyNameInitials(Collection)
+	 */
+	@Override
+	public List<DuplicatePatientCandidate> getDuplicatePatientCandidatesByFamilyNameInitials(
+	        Collection<String> familyNameInitials) {
+		if (familyNameInitials.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return getDuplicatePatientCandidates(" and (upper(substring(pn.familyName, 1, 1)) in (:initials)"
+		        + " or upper(substring(pn.familyName, 1, 1)) not between 'A' and 'Z')", Collections.singletonMap(
+		    "initials", familyNameInitials));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<DuplicatePatientCandidate> getDuplicatePatientCandidates(String restriction, Map<String, ?> parameters) {
+		Query query = sessionFactory.getCurrentSession().createQuery(
+		    "select new org.openmrs.patient.DuplicatePatientCandidate(p.patientId, p.gender, p.birthdate, "
+		            + "pn.givenName, pn.middleName, pn.familyName, p.dateCreated) "
+		            + "from Patient p join p.names pn where p.voided = false and pn.voided = false" + restriction);
+		for (Map.Entry<String, ?> parameter : parameters.entrySet()) {
+			if (parameter.getValue() instanceof Collection) {
+				query.setParameterList(parameter.getKey(), (Collection<?>) parameter.getValue());
+			} else {
+				query.setParameter(parameter.getKey(), parameter.getValue());
+			}
+		}
+		query.setReadOnly(true);
+		return query.list();
+	}
+
 	private String getDuplicatePatientsSQLString(List<String> attributes) {
 		StringBuilder outerSelect = new StringBuilder("select distinct t1.patient_id from patient t1 ");
 		final String t5 = " = t5.";
@@ -590,8 +640,18 @@ public class HibernatePatientDAO implements PatientDAO {
 	 */
         @Override
 	public PatientIdentifierType getPatientIdentifierTypeByUuid(String uuid) {
-		return (PatientIdentifierType) sessionFactory.getCurrentSession().createQuery(
-		    "from PatientIdentifierType pit where pit.uuid = :uuid").setString("uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), PatientIdentifierType.class, uuid);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PatientDAO#getPatientIdentifierTypeMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getPatientIdentifierTypeMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select t.patientIdentifierTypeId, t.uuid, t.name, t.retired from PatientIdentifierType t "
+		            + "order by t.patientIdentifierTypeId").list();
 	}
 	
 	/**
@@ -10,6 +10,7 @@
 package org.openmrs.api.db.hibernate;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.LinkedHashSet;
 import java.util.List;
@@ -22,6 +23,7 @@ import org.hibernate.SQLQuery;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.metadata.ClassMetadata;
 import org.hibernate.type.StringType;
 import org.openmrs.Person;
 import org.openmrs.PersonAddress;
@@ -58,6 +60,8 @@ public class HibernatePersonDAO implements PersonDAO {
 	
 	private static final Logger log = LoggerFactory.getLogger(HibernatePersonDAO.class);
 	
+	private static final int IDS_PER_QUERY = 500;
+	
 	/**
 	 * Hibernate session factory
 	 */
@@ -347,6 +351,27 @@ public class HibernatePersonDAO implements PersonDAO {
 		return (PersonAttribute) sessionFactory.getCurrentSession().get(PersonAttribute.class, id);
 	}
 	
+	/**
+	 * @see org.openmrs.api.db.PersonDAO#getObjectsByIds(java.lang.Class, java.util.Collection)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<?> getObjectsByIds(Class<?> type, Collection<Integer> ids) {
+		ClassMetadata metadata = sessionFactory.getClassMetadata(type);
+		if (metadata == null || ids.isEmpty() || !Integer.class.equals(metadata.getIdentifierType().getReturnedClass())) {
+			return new ArrayList<>();
+		}
+		// keep the number of parameters of a query well below the limits of the databases
+		List<Object> objects = new ArrayList<>(ids.size());
+		List<Integer> idList = new ArrayList<>(ids);
+		for (int from = 0; from < idList.size(); from += IDS_PER_QUERY) {
+			List<Integer> page = idList.subList(from, Math.min(from + IDS_PER_QUERY, idList.size()));
+			objects.addAll(sessionFactory.getCurrentSession().createCriteria(type).add(
+			    Restrictions.in(metadata.getIdentifierPropertyName(), page)).list());
+		}
+		return objects;
+	}
+	
 	/**
 	 * @see org.openmrs.api.PersonService#getAllPersonAttributeTypes(boolean)
 	 * @see org.openmrs.api.db.PersonDAO#getAllPersonAttributeTypes(boolean)
@@ -622,8 +647,18 @@ public class HibernatePersonDAO implements PersonDAO {
 	 */
 	@Override
 	public PersonAttributeType getPersonAttributeTypeByUuid(String uuid) {
-		return (PersonAttributeType) sessionFactory.getCurrentSession().createQuery(
-		    "from PersonAttributeType pat where pat.uuid = :uuid").setString("uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), PersonAttributeType.class, uuid);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.PersonDAO#getPersonAttributeTypeMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getPersonAttributeTypeMetadata() {
+		return sessionFactory.getCurrentSession().createQuery(
+		    "select t.personAttributeTypeId, t.uuid, t.name, t.retired from PersonAttributeType t "
+		            + "order by t.personAttributeTypeId").list();
 	}
 	
 	/**
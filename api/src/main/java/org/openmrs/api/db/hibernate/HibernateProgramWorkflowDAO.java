@@ -9,20 +9,33 @@
  */
 package org.openmrs.api.db.hibernate;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+
 import org.apache.commons.lang3.StringUtils;
 
 import org.hibernate.Criteria;
 import org.hibernate.Query;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.FlushMode;
+import org.hibernate.engine.spi.EntityKey;
 import org.hibernate.type.StandardBasicTypes;
 import org.openmrs.Cohort;
 import org.openmrs.Concept;
@@ -35,9 +48,13 @@ import org.openmrs.Program;
 import org.openmrs.ProgramAttributeType;
 import org.openmrs.ProgramWorkflow;
 import org.openmrs.ProgramWorkflowState;
+import org.openmrs.User;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.ProgramWorkflowDAO;
 import org.openmrs.customdatatype.CustomDatatypeUtil;
+import org.openmrs.util.OpenmrsUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Hibernate specific ProgramWorkflow related functions.<br>
@@ -50,6 +67,13 @@ import org.openmrs.customdatatype.CustomDatatypeUtil;
  */
 public class HibernateProgramWorkflowDAO implements ProgramWorkflowDAO {
 	
+	private static final Logger log = LoggerFactory.getLogger(HibernateProgramWorkflowDAO.class);
+	
+	/**
+	 * The number of patients whose states are transitioned at once
+	 */
+	private static final int TRANSITION_BATCH_SIZE = 1000;
+	
 	private SessionFactory sessionFactory;
 	
 	public HibernateProgramWorkflowDAO() {
@@ -475,4 +499,210 @@ public class HibernateProgramWorkflowDAO implements ProgramWorkflowDAO {
             return patientProgramAttributes;
 
         }
+	
+	/**
+	 * @see org.openmrs.api.db.ProgramWorkflowDAO#transitionPatientStates(Collection, Map, Date, User)
+	 */
+	@Override
+	public int transitionPatientStates(Collection<Integer> patientIds, Map<ProgramWorkflowState, Set<Integer>> transitions,
+	        Date onDate, User user) {
+		if (patientIds.isEmpty() || transitions.isEmpty()) {
+			return 0;
+		}
+		Session session = sessionFactory.getCurrentSession();
+		// the states are written with jdbc so pending changes have to reach the database first
+		session.flush();
+		
+		Map<Integer, List<ProgramWorkflowState>> statesByProgram = new HashMap<>();
+		for (ProgramWorkflowState state : transitions.keySet()) {
+			statesByProgram.computeIfAbsent(state.getProgramWorkflow().getProgram().getProgramId(),
+			    programId -> new ArrayList<>()).add(state);
+		}
+		
+		Date now = new Date();
+		Set<Integer> changedPatientPrograms = new HashSet<>();
+		Set<Integer> endedStates = new HashSet<>();
+		int createdStates = 0;
+		List<Integer> ids = new ArrayList<>(new TreeSet<>(patientIds));
+		for (int i = 0; i < ids.size(); i += TRANSITION_BATCH_SIZE) {
+			List<Integer> batch = ids.subList(i, Math.min(i + TRANSITION_BATCH_SIZE, ids.size()));
+			List<Object[]> patientPrograms = session.createQuery(
+			    "select pp.patientProgramId, pp.program.programId from PatientProgram pp where pp.voided = false "
+			            + "and pp.dateCompleted is null and pp.patient.patientId in (:patientIds) "
+			            + "and pp.program.programId in (:programIds)").setParameterList("patientIds", batch)
+			        .setParameterList("programIds", statesByProgram.keySet()).list();
+			if (patientPrograms.isEmpty()) {
+				continue;
+			}
+			
+			Map<Integer, Integer> programIds = new HashMap<>();
+			for (Object[] row : patientPrograms) {
+				programIds.put((Integer) row[0], (Integer) row[1]);
+			}
+			Map<Integer, Map<Integer, Object[]>> currentStates = getCurrentPatientStates(session, programIds.keySet(), now);
+			
+			List<Integer> toEnd = new ArrayList<>();
+			List<Object[]> toCreate = new ArrayList<>();
+			List<Integer> toComplete = new ArrayList<>();
+			Map<Integer, Set<Integer>> completedWorkflows = new HashMap<>();
+			for (Map.Entry<Integer, Integer> patientProgram : programIds.entrySet()) {
+				Integer patientProgramId = patientProgram.getKey();
+				Map<Integer, Object[]> byWorkflow = currentStates.getOrDefault(patientProgramId, Collections.emptyMap());
+				int created = toCreate.size();
+				boolean completed = false;
+				Set<Integer> workflowIds = new HashSet<>();
+				for (ProgramWorkflowState state : statesByProgram.get(patientProgram.getValue())) {
+					Object[] current = byWorkflow.get(state.getProgramWorkflow().getProgramWorkflowId());
+					if (!transitions.get(state).contains(current == null ? null : (Integer) current[3])) {
+						continue;
+					}
+					if (current != null) {
+						Date startDate = (Date) current[4];
+						if (current[5] != null || (startDate != null && OpenmrsUtil.compare(startDate, onDate) > 0)) {
+							log.warn("Not moving patient program {} to state {} since its current state {} can't end on {}",
+							    patientProgramId, state, current[2], onDate);
+							continue;
+						}
+						toEnd.add((Integer) current[2]);
+					}
+					// like PatientProgram#transitionToState, states entered after the program completed end with it
+					toCreate.add(new Object[] { patientProgramId, state.getProgramWorkflowStateId(), null });
+					workflowIds.add(state.getProgramWorkflow().getProgramWorkflowId());
+					if (state.getTerminal() && !completed) {
+						completed = true;
+						toComplete.add(patientProgramId);
+					}
+				}
+				if (toCreate.size() > created) {
+					changedPatientPrograms.add(patientProgramId);
+				}
+				if (completed) {
+					// like ProgramWorkflowService#savePatientProgram, the latest state of each workflow ends with the program
+					for (Object[] state : toCreate.subList(created, toCreate.size())) {
+						state[2] = onDate;
+					}
+					completedWorkflows.put(patientProgramId, workflowIds);
+				}
+			}
+			
+			if (!completedWorkflows.isEmpty()) {
+				Map<Integer, Map<Integer, Object[]>> latestStates = getCurrentPatientStates(session,
+				    completedWorkflows.keySet(), null);
+				for (Map.Entry<Integer, Set<Integer>> completedProgram : completedWorkflows.entrySet()) {
+					for (Map.Entry<Integer, Object[]> latest : latestStates.getOrDefault(completedProgram.getKey(),
+					    Collections.emptyMap()).entrySet()) {
+						if (!completedProgram.getValue().contains(latest.getKey()) && latest.getValue()[5] == null) {
+							toEnd.add((Integer) latest.getValue()[2]);
+						}
+					}
+				}
+			}
+			
+			session.doWork(connection -> writeTransitions(connection, toEnd, toCreate, toComplete, onDate, user));
+			endedStates.addAll(toEnd);
+			createdStates += toCreate.size();
+		}
+		
+		// instances loaded before the changes are stale, they are loaded again when needed
+		for (EntityKey key : new ArrayList<EntityKey>(session.getStatistics().getEntityKeys())) {
+			if ((PatientProgram.class.getName().equals(key.getEntityName()) && changedPatientPrograms.contains(key
+			        .getIdentifier()))
+			        || (PatientState.class.getName().equals(key.getEntityName()) && endedStates.contains(key
+			                .getIdentifier()))) {
+				Object entity = session.get(key.getEntityName(), key.getIdentifier());
+				if (entity != null) {
+					session.evict(entity);
+				}
+			}
+		}
+		return createdStates;
+	}
+	
+	/**
+	 * Gets the current states of patient programs, i.e. the latest of the states of each workflow that
+	 * are active on a date, in the same order as {@link PatientProgram#getCurrentState(ProgramWorkflow)}
+	 * 
+	 * @param onDate the date the states are active on, or null for the latest state of each workflow
+	 *            like {@link PatientProgram#getMostRecentStateInEachWorkflow()}
+	 * @return the patient state id, state id, start date and end date of the current states by workflow
+	 *         id by patient program id, at indexes 2 to 5 of the arrays
+	 */
+	private Map<Integer, Map<Integer, Object[]>> getCurrentPatientStates(Session session,
+	        Collection<Integer> patientProgramIds, Date onDate) {
+		String hql = "select ps.patientProgram.patientProgramId, ps.state.programWorkflow.programWorkflowId, "
+		        + "ps.patientStateId, ps.state.programWorkflowStateId, ps.startDate, ps.endDate, ps.uuid "
+		        + "from PatientState ps where ps.voided = false and ps.patientProgram.patientProgramId in (:patientProgramIds)";
+		if (onDate != null) {
+			hql += " and (ps.startDate is null or ps.startDate <= :onDate) and (ps.endDate is null or ps.endDate > :onDate)";
+		}
+		Query query = session.createQuery(hql).setParameterList("patientProgramIds", patientProgramIds);
+		if (onDate != null) {
+			query.setTimestamp("onDate", onDate);
+		}
+		List<Object[]> rows = query.list();
+		Map<Integer, Map<Integer, Object[]>> currentStates = new HashMap<>();
+		for (Object[] row : rows) {
+			currentStates.computeIfAbsent((Integer) row[0], patientProgramId -> new HashMap<>()).merge((Integer) row[1],
+			    row, (current, other) -> compareStates(current, other) >= 0 ? current : other);
+		}
+		return currentStates;
+	}
+	
+	/**
+	 * @see PatientState#compareTo(PatientState)
+	 */
+	private static int compareStates(Object[] state, Object[] other) {
+		int result = OpenmrsUtil.compareWithNullAsEarliest((Date) state[4], (Date) other[4]);
+		if (result == 0) {
+			result = OpenmrsUtil.compareWithNullAsLatest((Date) state[5], (Date) other[5]);
+		}
+		if (result == 0) {
+			result = OpenmrsUtil.compareWithNullAsGreatest((String) state[6], (String) other[6]);
+		}
+		return result;
+	}
+	
+	private void writeTransitions(Connection connection, List<Integer> toEnd, List<Object[]> toCreate,
+	        List<Integer> toComplete, Date onDate, User user) throws SQLException {
+		Timestamp date = new Timestamp(onDate.getTime());
+		Timestamp changed = new Timestamp(System.currentTimeMillis());
+		try (PreparedStatement statement = connection
+		        .prepareStatement("update patient_state set end_date = ?, changed_by = ?, date_changed = ? where patient_state_id = ?")) {
+			for (Integer patientStateId : toEnd) {
+				statement.setTimestamp(1, date);
+				statement.setInt(2, user.getUserId());
+				statement.setTimestamp(3, changed);
+				statement.setInt(4, patientStateId);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+		try (PreparedStatement statement = connection
+		        .prepareStatement("insert into patient_state (patient_program_id, state, start_date, end_date, creator, "
+		                + "date_created, voided, uuid) values (?, ?, ?, ?, ?, ?, ?, ?)")) {
+			for (Object[] state : toCreate) {
+				statement.setInt(1, (Integer) state[0]);
+				statement.setInt(2, (Integer) state[1]);
+				statement.setTimestamp(3, date);
+				statement.setTimestamp(4, state[2] == null ? null : date);
+				statement.setInt(5, user.getUserId());
+				statement.setTimestamp(6, changed);
+				statement.setBoolean(7, false);
+				statement.setString(8, UUID.randomUUID().toString());
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+		try (PreparedStatement statement = connection
+		        .prepareStatement("update patient_program set date_completed = ?, changed_by = ?, date_changed = ? where patient_program_id = ?")) {
+			for (Integer patientProgramId : toComplete) {
+				statement.setTimestamp(1, date);
+				statement.setInt(2, user.getUserId());
+				statement.setTimestamp(3, changed);
+				statement.setInt(4, patientProgramId);
+				statement.addBatch();
+			}
+			statement.executeBatch();
+		}
+	}
 }
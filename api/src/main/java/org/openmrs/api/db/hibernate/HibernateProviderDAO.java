@@ -20,12 +20,10 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.Disjunction;
-import org.hibernate.criterion.Junction;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
-import org.hibernate.sql.JoinType;
 import org.openmrs.Person;
 import org.openmrs.Provider;
 import org.openmrs.ProviderAttribute;
@@ -33,6 +31,7 @@ import org.openmrs.ProviderAttributeType;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.ProviderDAO;
+import org.openmrs.api.db.hibernate.search.LuceneQuery;
 import org.openmrs.util.OpenmrsConstants;
 
 /**
@@ -148,6 +147,8 @@ public class HibernateProviderDAO implements ProviderDAO {
 			//push retired Provider to the end of the returned list
 			criteria.addOrder(Order.asc("retired"));
 		}
+		// so that every page of the results is in the same order
+		criteria.addOrder(Order.asc("providerId"));
 		
 		List<Provider> providers = criteria.list();
 		if (serializedAttributeValues != null) {
@@ -174,75 +175,57 @@ public class HibernateProviderDAO implements ProviderDAO {
 	}
 	
 	/**
-	 * Creates a Provider Criteria based on name
+	 * Creates a Provider Criteria based on name, which matches providers with an identifier matching
+	 * it according to the provider search match mode, with a name containing it or whose person has
+	 * unvoided names containing all its words. The person names are matched with the lucene index.
 	 *
 	 * @param name represents provider name
 	 * @param includeRetired
 	 * @return Criteria represents the hibernate criteria to search
 	 */
 	private Criteria prepareProviderCriteria(String name, boolean includeRetired) {
-		if (StringUtils.isBlank(name)) {
-			name = "%";
-		}
-		
-		Criteria criteria = sessionFactory.getCurrentSession().createCriteria(Provider.class).createAlias("person", "p",
-		    JoinType.LEFT_OUTER_JOIN);
+		Criteria criteria = getSession().createCriteria(Provider.class);
 		
 		if (!includeRetired) {
 			criteria.add(Restrictions.eq("retired", false));
 		}
 		
-		criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
-		
-		criteria.createAlias("p.names", "personName", JoinType.LEFT_OUTER_JOIN);
-		
-		Disjunction or = Restrictions.disjunction();
-		or.add(Restrictions.ilike("identifier", name, getMatchMode()));
-		or.add(Restrictions.ilike("name", name, MatchMode.ANYWHERE));
-		
-		Conjunction and = Restrictions.conjunction();
-		or.add(and);
-		
-		String[] splitNames = name.split(" ");
-		for (String splitName : splitNames) {
-			and.add(getNameSearchExpression(splitName));
+		if (StringUtils.isNotBlank(name)) {
+			Disjunction or = Restrictions.disjunction();
+			or.add(Restrictions.ilike("identifier", name, getMatchMode()));
+			or.add(Restrictions.ilike("name", name, MatchMode.ANYWHERE));
+			
+			Conjunction and = Restrictions.conjunction();
+			PersonLuceneQuery personLuceneQuery = new PersonLuceneQuery(sessionFactory);
+			for (String splitName : name.split(" ")) {
+				if (splitName.length() > 0) {
+					List<Integer> personIds = personLuceneQuery.getProviderPersonIdsByName(LuceneQuery
+					        .escapeQuery(splitName));
+					if (personIds.isEmpty()) {
+						and = null;
+						break;
+					}
+					and.add(Restrictions.in("person.personId", personIds));
+				}
+			}
+			if (and != null) {
+				or.add(and);
+			}
+			
+			criteria.add(or);
 		}
 		
-		criteria.add(or);
-		
 		return criteria;
 	}
 	
-	/**
-	 * Creates or that matches the input name with Provider-Person-Names (not voided)
-	 *
-	 * @param name
-	 * @return Junction
-	 */
-	private Junction getNameSearchExpression(String name) {
-		MatchMode mode = MatchMode.ANYWHERE;
-		
-		Conjunction and = Restrictions.conjunction();
-		and.add(Restrictions.eq("personName.voided", false));
-		
-		Disjunction or = Restrictions.disjunction();
-		and.add(or);
-		
-		or.add(Restrictions.ilike("personName.givenName", name, mode));
-		or.add(Restrictions.ilike("personName.middleName", name, mode));
-		or.add(Restrictions.ilike("personName.familyName", name, mode));
-		or.add(Restrictions.ilike("personName.familyName2", name, mode));
-		
-		return and;
-	}
-	
 	/**
 	 * @see org.openmrs.api.db.ProviderDAO#getCountOfProviders(String, boolean)
 	 */
 	@Override
 	public Long getCountOfProviders(String name, boolean includeRetired) {
-	  Criteria criteria = prepareProviderCriteria(name, includeRetired);
-	  return (long) criteria.list().size();
+		Criteria criteria = prepareProviderCriteria(name, includeRetired);
+		criteria.setProjection(Projections.rowCount());
+		return (Long) criteria.uniqueResult();
 	}
 	
 	/* (non-Javadoc)
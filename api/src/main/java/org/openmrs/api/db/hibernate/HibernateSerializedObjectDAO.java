@@ -36,12 +36,20 @@ public class HibernateSerializedObjectDAO implements SerializedObjectDAO {
 	
 	private static HibernateSerializedObjectDAO instance;
 	
+	/**
+	 * The number of deserialized objects kept in memory
+	 */
+	private static final int CACHE_SIZE = 500;
+	
 	//********* PROPERTIES **********
 	
 	private SessionFactory sessionFactory;
 	
 	private List<Class<? extends OpenmrsObject>> supportedTypes;
 	
+	private final DeserializedObjectCache cache = new DeserializedObjectCache(CACHE_SIZE, o -> sessionFactory
+	        .getCurrentSession().contains(o));
+	
 	/**
 	 * Private Constructor to support a singleton instance
 	 */
@@ -248,6 +256,7 @@ public class HibernateSerializedObjectDAO implements SerializedObjectDAO {
 		}
 		
 		sessionFactory.getCurrentSession().saveOrUpdate(serializedObject);
+		cache.remove(serializedObject.getUuid());
 		
 		object.setId(serializedObject.getId());
 		return object;
@@ -260,6 +269,9 @@ public class HibernateSerializedObjectDAO implements SerializedObjectDAO {
 	public void purgeObject(Integer id) throws DAOException {
 		SerializedObject o = getSerializedObject(id);
 		sessionFactory.getCurrentSession().delete(o);
+		if (o != null) {
+			cache.remove(o.getUuid());
+		}
 	}
 	
 	/**
@@ -294,6 +306,9 @@ public class HibernateSerializedObjectDAO implements SerializedObjectDAO {
 	}
 	
 	/**
+	 * Objects deserialized before are copied from the cache instead of being deserialized again as
+	 * long as the serialized object has not changed.
+	 * 
 	 * @see SerializedObjectDAO#convertSerializedObject(Class, SerializedObject)
 	 */
 	@Override
@@ -303,19 +318,22 @@ public class HibernateSerializedObjectDAO implements SerializedObjectDAO {
 		if (serializedObject == null) {
 			return null;
 		}
-		OpenmrsSerializer serializer = getSerializer(serializedObject);
-		T obj;
-		try {
-			Class<?> subtype = Context.loadClass(serializedObject.getSubtype());
-			obj = (T) serializer.deserialize(serializedObject.getSerializedData(), subtype);
-		}
-		catch (Exception e) {
-			ExceptionUtil.rethrowAPIAuthenticationException(e);
-			throw new DAOException("Unable to deserialize object: " + serializedObject, e);
-		}
+		T obj = (T) cache.get(serializedObject);
 		if (obj == null) {
-			// it's probably impossible to reach this code branch
-			throw new DAOException("Unable to deserialize object: " + serializedObject);
+			OpenmrsSerializer serializer = getSerializer(serializedObject);
+			try {
+				Class<?> subtype = Context.loadClass(serializedObject.getSubtype());
+				obj = (T) serializer.deserialize(serializedObject.getSerializedData(), subtype);
+			}
+			catch (Exception e) {
+				ExceptionUtil.rethrowAPIAuthenticationException(e);
+				throw new DAOException("Unable to deserialize object: " + serializedObject, e);
+			}
+			if (obj == null) {
+				// it's probably impossible to reach this code branch
+				throw new DAOException("Unable to deserialize object: " + serializedObject);
+			}
+			cache.put(serializedObject, obj);
 		}
 		obj.setId(serializedObject.getId());
 		obj.setUuid(serializedObject.getUuid());
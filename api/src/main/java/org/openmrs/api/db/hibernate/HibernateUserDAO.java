@@ -12,7 +12,6 @@ package org.openmrs.api.db.hibernate;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +31,7 @@ import org.openmrs.api.context.Daemon;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.LoginCredential;
 import org.openmrs.api.db.UserDAO;
+import org.openmrs.api.db.hibernate.search.LuceneQuery;
 import org.openmrs.patient.impl.LuhnIdentifierValidator;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.Security;
@@ -390,8 +390,17 @@ public class HibernateUserDAO implements UserDAO {
 	@SuppressWarnings("unchecked")
 	public List<User> getUsers(String name, List<Role> roles, boolean includeRetired, Integer start, Integer length) {
 		
-		String hqlSelectStart = "select distinct user from User as user inner join user.person.names as name ";
-		Query query = createUserSearchQuery(name, roles, includeRetired, hqlSelectStart);
+		// users are sorted by name in the query so that every page is in order, the name used is the
+		// preferred name or else the first unvoided name of the person
+		String hqlSelectStart = "select user from User as user inner join user.person as person "
+		        + "left join person.names as name with name.voided = false ";
+		String hqlOrderBy = "and (name is null or not exists (select n.personNameId from PersonName n "
+		        + "where n.person = person and n.voided = false and (n.preferred = true and name.preferred = false "
+		        + "or n.preferred = name.preferred and n.personNameId < name.personNameId))) order by "
+		        + orderByName("familyName") + ", " + orderByName("familyName2") + ", " + orderByName("givenName") + ", "
+		        + orderByName("middleName") + ", " + orderByName("familyNamePrefix") + ", "
+		        + orderByName("familyNameSuffix") + ", user.userId";
+		Query query = createUserSearchQuery(name, roles, includeRetired, hqlSelectStart, hqlOrderBy);
 		
 		if (start != null) {
 			query.setFirstResult(start);
@@ -400,13 +409,14 @@ public class HibernateUserDAO implements UserDAO {
 			query.setMaxResults(length);
 		}
 		
-		List<User> returnList = query.list();
-		
-		if (!CollectionUtils.isEmpty(returnList)) {
-			returnList.sort(new UserByNameComparator());
-		}
-		
-		return returnList;
+		return query.list();
+	}
+	
+	/**
+	 * Orders by a name field like {@link UserByNameComparator}, i.e. ignoring case with nulls last
+	 */
+	private String orderByName(String field) {
+		return "lower(name." + field + ") nulls last";
 	}
 	
 	/**
@@ -536,94 +546,96 @@ public class HibernateUserDAO implements UserDAO {
 	 */
 	@Override
 	public Integer getCountOfUsers(String name, List<Role> roles, boolean includeRetired) {
-		String hqlSelectStart = "select count(distinct user) from User as user inner join user.person.names as name ";
-		Query query = createUserSearchQuery(name, roles, includeRetired, hqlSelectStart);
+		String hqlSelectStart = "select count(user) from User as user ";
+		Query query = createUserSearchQuery(name, roles, includeRetired, hqlSelectStart, "");
 		
 		return ((Long) query.uniqueResult()).intValue();
 	}
 	
 	/**
-	 * Utility methods that creates a hibernate query object from the specified arguments
+	 * @see org.openmrs.api.db.UserDAO#getUserPropertyValues(String, List)
+	 */
+	@Override
+	public List<String> getUserPropertyValues(String key, List<Role> roles) {
+		String hqlSelectStart = "select property from User as user inner join user.userProperties as property ";
+		String hqlEnd = "and index(property) = :key and property <> '' order by user.userId";
+		Query query = createUserSearchQuery(null, roles, false, hqlSelectStart, hqlEnd);
+		query.setString("key", key);
+		
+		return query.list();
+	}
+	
+	/**
+	 * Utility methods that creates a hibernate query object from the specified arguments. Every
+	 * word of the name has to match the username, the system id or a name of the person of the
+	 * user, the names are matched with the lucene index.
 	 * 
 	 * @param name The name of the user to search against
 	 * @param roles the roles to match against
 	 * @param includeRetired Specifies if retired users should be included or not
 	 * @param hqlSelectStart The starting phrase of the select statement that includes the joined
 	 *            tables
+	 * @param hqlEnd the end of the statement, appended to the where clause
 	 * @return the created hibernate query object
 	 */
-	private Query createUserSearchQuery(String name, List<Role> roles, boolean includeRetired, String hqlSelectStart) {
+	private Query createUserSearchQuery(String name, List<Role> roles, boolean includeRetired, String hqlSelectStart,
+	        String hqlEnd) {
 		
 		log.debug("name: " + name);
 		
-		name = HibernateUtil.escapeSqlWildcards(name, sessionFactory);
-		
 		// Create an HQL query like this:
-		// select distinct user
-		// from User as user inner join user.person.names as name inner join user.roles as role
-		// where (user.username like :name1 or ...and for systemId givenName familyName familyName2...)
-		//   and (user.username like :name2 or ...and for systemId givenName familyName familyName2...)
-		//   ...repeat for all name fragments...
-		//	 and role in :roleList 
+		// select user
+		// from User as user
+		// where user.uuid != :DAEMON_USER_UUID
 		//   and user.retired = false
-		// order by username asc
-		List<String> criteria = new ArrayList<>();
-		int counter = 0;
-		Map<String, String> namesMap = new HashMap<>();
-		if (name != null) {
-			name = name.replace(", ", " ");
-			String[] names = name.split(" ");
-			for (String n : names) {
-				if (n != null && n.length() > 0) {
-					// compare each fragment of the query against username, systemId, given, middle, family, and family2
-					String key = "name" + ++counter;
-					String value = n + "%";
-					namesMap.put(key, value);
-					criteria.add("(user.username like :" + key + " or user.systemId like :" + key
-					        + " or name.givenName like :" + key + " or name.middleName like :" + key
-					        + " or name.familyName like :" + key + " or name.familyName2 like :" + key + ")");
-				}
-			}
-		}
-		
-		if (!includeRetired) {
-			criteria.add("user.retired = false");
-		}
-		
-		// build the hql query
+		//   and user.userId in (select u.userId from User u inner join u.roles as role where role in (:roleList))
+		//   and (user.username like :name1 or user.systemId like :name1 or user.person.personId in (:personIds1))
+		//   and (user.username like :name2 or user.systemId like :name2 or user.person.personId in (:personIds2))
+		//   ...repeat for all name fragments...
 		StringBuilder hql = new StringBuilder(hqlSelectStart);
-		boolean searchOnRoles = false;
-		
-		if (CollectionUtils.isNotEmpty(roles)) {
-			hql.append("inner join user.roles as role ");
-			searchOnRoles = true;
-		}
 		hql.append("where user.uuid != :DAEMON_USER_UUID ");
 		
-		if (!criteria.isEmpty() || searchOnRoles) {
-			hql.append("and ");
-		}
-		for (Iterator<String> i = criteria.iterator(); i.hasNext();) {
-			hql.append(i.next()).append(" ");
-			if (i.hasNext()) {
-				hql.append("and ");
-			}
+		if (!includeRetired) {
+			hql.append("and user.retired = false ");
 		}
 		
 		//Match against the specified roles
+		boolean searchOnRoles = CollectionUtils.isNotEmpty(roles);
 		if (searchOnRoles) {
-			if (!criteria.isEmpty()) {
-				hql.append(" and ");
+			hql.append("and user.userId in (select u.userId from User as u inner join u.roles as role where role in (:roleList)) ");
+		}
+		
+		Map<String, String> namesMap = new HashMap<>();
+		Map<String, List<Integer>> personIdsMap = new HashMap<>();
+		if (name != null) {
+			PersonLuceneQuery personLuceneQuery = new PersonLuceneQuery(sessionFactory);
+			for (String n : name.replace(", ", " ").split(" ")) {
+				if (n.length() > 0) {
+					// compare each fragment of the query against username, systemId and the names of the person
+					String key = "name" + (namesMap.size() + 1);
+					namesMap.put(key, HibernateUtil.escapeSqlWildcards(n, sessionFactory) + "%");
+					hql.append("and (user.username like :").append(key).append(" or user.systemId like :").append(key);
+					
+					List<Integer> personIds = personLuceneQuery.getUserPersonIdsByName(LuceneQuery.escapeQuery(n));
+					if (!personIds.isEmpty()) {
+						personIdsMap.put(key + "PersonIds", personIds);
+						hql.append(" or user.person.personId in (:").append(key).append("PersonIds)");
+					}
+					hql.append(") ");
+				}
 			}
-			hql.append(" role in (:roleList)");
 		}
 		
+		hql.append(hqlEnd);
+		
 		Query query = sessionFactory.getCurrentSession().createQuery(hql.toString());
 		query.setParameter("DAEMON_USER_UUID", Daemon.getDaemonUserUuid());
 		for (Map.Entry<String, String> e : namesMap.entrySet()) {
 			query.setString(e.getKey(), e.getValue());
 		}
-		
+		for (Map.Entry<String, List<Integer>> e : personIdsMap.entrySet()) {
+			query.setParameterList(e.getKey(), e.getValue());
+		}
 		if (searchOnRoles) {
 			query.setParameterList("roleList", roles);
 		}
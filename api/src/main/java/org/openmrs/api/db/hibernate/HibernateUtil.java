@@ -16,6 +16,7 @@ import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.hibernate.Criteria;
 import org.hibernate.Hibernate;
+import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Conjunction;
 import org.hibernate.criterion.DetachedCriteria;
@@ -169,4 +170,23 @@ public class HibernateUtil {
 		
 		return persistentObject;
 	}
+	
+	/**
+	 * Gets an object by its uuid through the natural id of its mapping. The session remembers which
+	 * id belongs to each uuid it has resolved, so looking up an object that is already in the
+	 * session does not query the database, and otherwise the object is loaded by id, which is
+	 * answered by the second level cache if the type is cached.
+	 * 
+	 * @param session the session to load the object in
+	 * @param clazz the mapped class, whose uuid must be mapped as its natural id
+	 * @param uuid the uuid of the object
+	 * @return the object or null if the uuid is null or no object has it
+	 * @since 2.2
+	 */
+	public static <T> T getByNaturalUuid(Session session, Class<T> clazz, String uuid) {
+		if (uuid == null) {
+			return null;
+		}
+		return session.bySimpleNaturalId(clazz).load(uuid);
+	}
 }
@@ -85,8 +85,17 @@ public class HibernateVisitDAO implements VisitDAO {
 	@Override
 	@Transactional(readOnly = true)
 	public VisitType getVisitTypeByUuid(String uuid) {
-		return (VisitType) sessionFactory.getCurrentSession().createQuery("from VisitType vt where vt.uuid = :uuid")
-		        .setString("uuid", uuid).uniqueResult();
+		return HibernateUtil.getByNaturalUuid(sessionFactory.getCurrentSession(), VisitType.class, uuid);
+	}
+	
+	/**
+	 * @see org.openmrs.api.db.VisitDAO#getVisitTypeMetadata()
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object[]> getVisitTypeMetadata() {
+		return getCurrentSession().createQuery(
+		    "select t.visitTypeId, t.uuid, t.name, t.retired from VisitType t order by t.visitTypeId").list();
 	}
 	
 	/**
@@ -11,7 +11,10 @@ package org.openmrs.api.db.hibernate;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.collections.CollectionUtils;
 import org.apache.commons.lang3.ArrayUtils;
@@ -34,12 +37,17 @@ import org.slf4j.LoggerFactory;
  * called last, if they make any changes other interceptors would never know about them.
  * </pre>
  * 
+ * The indexes of the immutable properties are worked out once for each entity class, assuming that
+ * the mutable property names do not change.
+ * 
  * @since 1.10
  */
-public abstract class ImmutableEntityInterceptor extends EmptyInterceptor {
+public abstract class ImmutableEntityInterceptor extends EmptyInterceptor implements SelectiveInterceptor {
 	
 	private static final Logger log = LoggerFactory.getLogger(ImmutableEntityInterceptor.class);
 	
+	private final Map<Class<?>, ImmutableProperties> immutablePropertiesByClass = new ConcurrentHashMap<>();
+	
 	/**
 	 * Returns the class handled by the interceptor
 	 */
@@ -65,6 +73,14 @@ public abstract class ImmutableEntityInterceptor extends EmptyInterceptor {
 		return false;
 	}
 	
+	/**
+	 * @see SelectiveInterceptor#getInterceptedTypes()
+	 */
+	@Override
+	public Class<?>[] getInterceptedTypes() {
+		return new Class<?>[] { getSupportedType() };
+	}
+	
 	/**
 	 * @see org.hibernate.EmptyInterceptor#onFlushDirty(Object, java.io.Serializable, Object[],
 	 *      Object[], String[], org.hibernate.type.Type[])
@@ -78,30 +94,26 @@ public abstract class ImmutableEntityInterceptor extends EmptyInterceptor {
 	                            String[] propertyNames, Type[] types) {
 		
 		if (getSupportedType().isAssignableFrom(entity.getClass())) {
+			boolean isVoidedOrRetired = false;
+			if (Voidable.class.isAssignableFrom(entity.getClass())) {
+				isVoidedOrRetired = ((Voidable) entity).getVoided();
+			} else if (Retireable.class.isAssignableFrom(entity.getClass())) {
+				isVoidedOrRetired = ((Retireable) entity).getRetired();
+			}
+			if (isVoidedOrRetired && ignoreVoidedOrRetiredObjects()) {
+				return false;
+			}
+			
 			List<String> changedProperties = null;
-			for (int i = 0; i < propertyNames.length; i++) {
-				String property = propertyNames[i];
-				if (ArrayUtils.contains(getMutablePropertyNames(), property)) {
-					continue;
-				}
-				
-				boolean isVoidedOrRetired = false;
-				if (Voidable.class.isAssignableFrom(entity.getClass())) {
-					isVoidedOrRetired = ((Voidable) entity).getVoided();
-				} else if (Retireable.class.isAssignableFrom(entity.getClass())) {
-					isVoidedOrRetired = ((Retireable) entity).getRetired();
-				}
-				if (isVoidedOrRetired && ignoreVoidedOrRetiredObjects()) {
-					continue;
-				}
-				
+			BitSet immutable = getImmutableProperties(entity.getClass(), propertyNames);
+			for (int i = immutable.nextSetBit(0); i >= 0; i = immutable.nextSetBit(i + 1)) {
 				Object previousValue = (previousState != null) ? previousState[i] : null;
 				Object currentValue = (currentState != null) ? currentState[i] : null;
 				if (!OpenmrsUtil.nullSafeEquals(currentValue, previousValue)) {
 					if (changedProperties == null) {
 						changedProperties = new ArrayList<>();
 					}
-					changedProperties.add(property);
+					changedProperties.add(propertyNames[i]);
 				}
 			}
 			if (CollectionUtils.isNotEmpty(changedProperties)) {
@@ -116,4 +128,41 @@ public abstract class ImmutableEntityInterceptor extends EmptyInterceptor {
 		
 		return false;
 	}
+	
+	/**
+	 * Gets the indexes of the properties that may not be changed. Hibernate passes the same property
+	 * names array for every entity of a class, so the indexes are only worked out again if a
+	 * different array is passed.
+	 * 
+	 * @param entityClass the class of the entity
+	 * @param propertyNames the names of the properties of the entity
+	 * @return the indexes of the immutable properties
+	 */
+	private BitSet getImmutableProperties(Class<?> entityClass, String[] propertyNames) {
+		ImmutableProperties properties = immutablePropertiesByClass.get(entityClass);
+		if (properties == null || properties.propertyNames != propertyNames) {
+			String[] mutablePropertyNames = getMutablePropertyNames();
+			BitSet immutable = new BitSet(propertyNames.length);
+			for (int i = 0; i < propertyNames.length; i++) {
+				if (!ArrayUtils.contains(mutablePropertyNames, propertyNames[i])) {
+					immutable.set(i);
+				}
+			}
+			properties = new ImmutableProperties(propertyNames, immutable);
+			immutablePropertiesByClass.put(entityClass, properties);
+		}
+		return properties.immutable;
+	}
+	
+	private static class ImmutableProperties {
+		
+		private final String[] propertyNames;
+		
+		private final BitSet immutable;
+		
+		ImmutableProperties(String[] propertyNames, BitSet immutable) {
+			this.propertyNames = propertyNames;
+			this.immutable = immutable;
+		}
+	}
 }
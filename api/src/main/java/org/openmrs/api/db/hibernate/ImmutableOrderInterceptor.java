@@ -22,8 +22,8 @@ import org.springframework.stereotype.Component;
 @Component("immutableOrderInterceptor")
 public class ImmutableOrderInterceptor extends ImmutableEntityInterceptor {
 	
-	private static final String[] MUTABLE_PROPERTY_NAMES = new String[] { "dateStopped", "voided", "dateVoided", "voidedBy",
-	        "voidReason", "patient", "fulfillerStatus", "fulfillerComment"};
+	private static final String[] MUTABLE_PROPERTY_NAMES = new String[] { "dateStopped", "effectiveStopDate", "voided",
+	        "dateVoided", "voidedBy", "voidReason", "patient", "fulfillerStatus", "fulfillerComment"};
 	
 	/**
 	 * @see ImmutableEntityInterceptor#getSupportedType()
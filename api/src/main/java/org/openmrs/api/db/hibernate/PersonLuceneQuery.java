@@ -13,6 +13,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
+import org.hibernate.Query;
 import org.hibernate.SessionFactory;
 import org.openmrs.PersonAttribute;
 import org.openmrs.PersonName;
@@ -30,6 +31,11 @@ import org.openmrs.util.OpenmrsConstants;
  */
 public class PersonLuceneQuery {
 
+	/**
+	 * The most ids of matching persons looked up as users or providers at once
+	 */
+	private static final int PERSON_IDS_PER_QUERY = 500;
+
 	private SessionFactory sessionFactory;
 
 	public PersonLuceneQuery(SessionFactory sessionFactory) {
@@ -103,6 +109,66 @@ public class PersonLuceneQuery {
 		return luceneQuery;
 	}
 
+	/**
+	 * Finds the users with a name starting with the query, including voided names, without
+	 * matching every patient with the same name.
+	 *
+	 * @param query the query escaped with {@link LuceneQuery#escapeQuery(String)}
+	 * @return the ids of the persons of the matching users
+	 * @since 2.2
+	 */
+	public List<Integer> getUserPersonIdsByName(String query) {
+		return getPersonIdsByName(query, "select distinct u.person.personId from User u where u.person.personId in (:personIds)", false, true);
+	}
+
+	/**
+	 * Finds the providers with an unvoided name containing the query, without matching every
+	 * patient with the same name.
+	 *
+	 * @param query the query escaped with {@link LuceneQuery#escapeQuery(String)}
+	 * @return the ids of the persons of the matching providers
+	 * @since 2.2
+	 */
+	public List<Integer> getProviderPersonIdsByName(String query) {
+		return getPersonIdsByName(query, "select distinct p.person.personId from Provider p where p.person.personId in (:personIds)", true, false);
+	}
+
+	/**
+	 * Matches the names in the index and keeps the persons that the given query selects out of its
+	 * personIds parameter, {@link #PERSON_IDS_PER_QUERY} at a time. Whether a person is a user or a
+	 * provider is not indexed, so that loading a person does not have to look it up.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Integer> getPersonIdsByName(String query, String selectPersonIds, boolean matchAnywhere,
+	        boolean includeVoidedNames) {
+		List<String> fields = new ArrayList<>();
+		fields.addAll(Arrays.asList("givenNameExact", "middleNameExact", "familyNameExact", "familyName2Exact"));
+		fields.addAll(Arrays.asList("givenNameStart", "middleNameStart", "familyNameStart", "familyName2Start"));
+		if (matchAnywhere) {
+			fields.addAll(Arrays.asList("givenNameAnywhere", "middleNameAnywhere", "familyNameAnywhere", "familyName2Anywhere"));
+		}
+
+		LuceneQuery<PersonName> luceneQuery = LuceneQuery
+				.newQuery(PersonName.class, sessionFactory.getCurrentSession(), query, fields);
+		if (!includeVoidedNames) {
+			luceneQuery.include("voided", false);
+		}
+		luceneQuery.skipSame("person.personId");
+
+		List<Integer> matches = new ArrayList<>();
+		for (Object[] row : luceneQuery.listProjection("person.personId")) {
+			matches.add((Integer) row[0]);
+		}
+
+		List<Integer> result = new ArrayList<>();
+		Query personIdsQuery = sessionFactory.getCurrentSession().createQuery(selectPersonIds);
+		for (int i = 0; i < matches.size(); i += PERSON_IDS_PER_QUERY) {
+			personIdsQuery.setParameterList("personIds", matches.subList(i, Math.min(i + PERSON_IDS_PER_QUERY, matches.size())));
+			result.addAll(personIdsQuery.list());
+		}
+		return result;
+	}
+
 	public LuceneQuery<PersonAttribute> getPersonAttributeQuery(String query, boolean includeVoided, LuceneQuery<?> skipSame) {
 		return getPersonAttributeQuery(query, false, includeVoided, false, skipSame);
 	}
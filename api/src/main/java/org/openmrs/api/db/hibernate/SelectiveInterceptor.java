@@ -0,0 +1,30 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import org.hibernate.Interceptor;
+
+/**
+ * An interceptor that only cares about entities of certain types. The {@link ChainingInterceptor}
+ * only calls its onSave, onFlushDirty, onDelete, onLoad and findDirty methods for entities that are
+ * instances of one of the types, other interceptors are called for every entity.
+ *
+ * @since 2.2
+ */
+public interface SelectiveInterceptor extends Interceptor {
+
+	/**
+	 * The types should not change once the interceptor has been added to the
+	 * {@link ChainingInterceptor} since it remembers which interceptors to call for each entity class.
+	 *
+	 * @return the classes or interfaces of the entities the interceptor should be called for
+	 */
+	Class<?>[] getInterceptedTypes();
+}
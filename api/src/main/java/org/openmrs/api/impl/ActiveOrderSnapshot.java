@@ -0,0 +1,166 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+
+import org.openmrs.CareSetting;
+import org.openmrs.Order;
+import org.openmrs.OrderType;
+import org.openmrs.Patient;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * The orders of one patient that had not ended when they were loaded, kept for the rest of the
+ * transaction so that the checks for duplicate and conflicting orders of every order saved in the
+ * transaction run in memory instead of querying the active orders for each order.
+ * <p>
+ * The snapshot holds the same instances as the session, so orders stopped or voided in the
+ * transaction drop out of it, and it is loaded again if any of its orders is no longer in the
+ * session, e.g. after the session was cleared. Orders saved through the order service are added to
+ * it. It is discarded when orders are voided, unvoided or purged and when encounters are saved,
+ * since their orders are saved by cascade.
+ *
+ * @since 2.2
+ */
+class ActiveOrderSnapshot {
+
+	/**
+	 * The key the snapshots of the current transaction are bound to
+	 */
+	private static final Object RESOURCE_KEY = ActiveOrderSnapshot.class;
+
+	private final Date loadedAsOf;
+
+	private final List<Order> orders;
+
+	private ActiveOrderSnapshot(Date loadedAsOf, List<Order> orders) {
+		this.loadedAsOf = loadedAsOf;
+		this.orders = new ArrayList<>(orders);
+	}
+
+	/**
+	 * Gets the snapshot of the patient's orders for the current transaction, loading it if needed
+	 *
+	 * @param patient the patient
+	 * @param asOfDate the date active orders will be looked up for
+	 * @param loader loads the orders of a patient that had not ended before a date
+	 * @param inSession tells whether an order is an instance held by the current session
+	 * @return the snapshot or null if there is no transaction, the patient has not been saved or the
+	 *         snapshot was loaded for a later date than asOfDate
+	 */
+	static ActiveOrderSnapshot get(Patient patient, Date asOfDate, BiFunction<Patient, Date, List<Order>> loader,
+	        Predicate<Order> inSession) {
+		if (patient == null || patient.getPatientId() == null
+		        || !TransactionSynchronizationManager.isSynchronizationActive()) {
+			return null;
+		}
+		Map<Integer, ActiveOrderSnapshot> snapshots = getSnapshots(true);
+		ActiveOrderSnapshot snapshot = snapshots.get(patient.getPatientId());
+		if (snapshot == null || !snapshot.orders.stream().allMatch(inSession)) {
+			snapshot = new ActiveOrderSnapshot(asOfDate, loader.apply(patient, asOfDate));
+			snapshots.put(patient.getPatientId(), snapshot);
+		} else if (asOfDate.before(snapshot.loadedAsOf)) {
+			// orders that ended between the two dates were not loaded
+			return null;
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Adds an order that was saved in the current transaction to the snapshot of its patient if
+	 * there is one
+	 *
+	 * @param order the saved order
+	 */
+	static void added(Order order) {
+		Patient patient = order.getPatient();
+		Map<Integer, ActiveOrderSnapshot> snapshots = getSnapshots(false);
+		ActiveOrderSnapshot snapshot = snapshots == null || patient == null ? null : snapshots.get(patient.getPatientId());
+		if (snapshot != null && !snapshot.orders.contains(order)) {
+			snapshot.orders.add(order);
+		}
+	}
+
+	/**
+	 * Discards the snapshot of a patient in the current transaction
+	 *
+	 * @param patient the patient, null discards the snapshots of every patient
+	 */
+	static void discard(Patient patient) {
+		Map<Integer, ActiveOrderSnapshot> snapshots = getSnapshots(false);
+		if (snapshots != null) {
+			if (patient == null) {
+				snapshots.clear();
+			} else {
+				snapshots.remove(patient.getPatientId());
+			}
+		}
+	}
+
+	/**
+	 * Gets the orders in the snapshot that are active on a date, matching the semantics of
+	 * {@link org.openmrs.api.db.OrderDAO#getActiveOrders(Patient, List, CareSetting, Date)}
+	 *
+	 * @param orderTypes the order types to include, null or empty for any
+	 * @param careSetting the care setting or null for any
+	 * @param asOfDate the date, not before the date the snapshot was loaded for
+	 * @return the active orders
+	 */
+	List<Order> getActiveOrders(Collection<OrderType> orderTypes, CareSetting careSetting, Date asOfDate) {
+		List<Order> result = new ArrayList<>();
+		for (Order order : orders) {
+			if (isActive(order, asOfDate) && (careSetting == null || careSetting.equals(order.getCareSetting()))
+			        && (orderTypes == null || orderTypes.isEmpty() || orderTypes.contains(order.getOrderType()))) {
+				result.add(order);
+			}
+		}
+		return result;
+	}
+
+	private static boolean isActive(Order order, Date asOfDate) {
+		if (order.getVoided() || order.getAction() == Order.Action.DISCONTINUE) {
+			return false;
+		}
+		if (order.getDateActivated() == null || order.getDateActivated().after(asOfDate)) {
+			return false;
+		}
+		if (order.getDateStopped() != null) {
+			return !order.getDateStopped().before(asOfDate);
+		}
+		return order.getAutoExpireDate() == null || !order.getAutoExpireDate().before(asOfDate);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<Integer, ActiveOrderSnapshot> getSnapshots(boolean create) {
+		Map<Integer, ActiveOrderSnapshot> snapshots = (Map<Integer, ActiveOrderSnapshot>) TransactionSynchronizationManager
+		        .getResource(RESOURCE_KEY);
+		if (snapshots == null && create) {
+			snapshots = new HashMap<>();
+			TransactionSynchronizationManager.bindResource(RESOURCE_KEY, snapshots);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(RESOURCE_KEY);
+				}
+			});
+		}
+		return snapshots;
+	}
+}
@@ -19,6 +19,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -89,6 +90,12 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 
 	private static final String errorMessage = "Error generated";
 	
+	private final ConceptSetIndex conceptSetIndex = new ConceptSetIndex(() -> dao.getAllConceptSetMembers());
+	
+	private final MetadataIndex conceptDatatypeIndex = new MetadataIndex(() -> dao.getConceptDatatypeMetadata());
+	
+	private final MetadataIndex conceptClassIndex = new MetadataIndex(() -> dao.getConceptClassMetadata());
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#setConceptDAO(org.openmrs.api.db.ConceptDAO)
 	 */
@@ -176,7 +183,36 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 			concept.setSet(true);
 		}
 
-		return dao.saveConcept(concept);
+		Concept savedConcept = dao.saveConcept(concept);
+		updateConceptSetIndex(savedConcept);
+		return savedConcept;
+	}
+	
+	/**
+	 * Replaces the members of the saved concept in the concept set index
+	 */
+	private void updateConceptSetIndex(Concept concept) {
+		if (concept.getConceptId() == null) {
+			return;
+		}
+		List<ConceptSet> conceptSets = new ArrayList<>();
+		if (concept.getConceptSets() != null) {
+			for (ConceptSet conceptSet : concept.getConceptSets()) {
+				if (conceptSet.getConcept() != null && conceptSet.getConcept().getConceptId() != null) {
+					conceptSets.add(conceptSet);
+				}
+			}
+		}
+		conceptSets.sort((a, b) -> OpenmrsUtil.compareWithNullAsLowest(a.getSortWeight(), b.getSortWeight()));
+		
+		int[] memberIds = new int[conceptSets.size()];
+		boolean[] memberIsSet = new boolean[conceptSets.size()];
+		for (int i = 0; i < memberIds.length; i++) {
+			Concept member = conceptSets.get(i).getConcept();
+			memberIds[i] = member.getConceptId();
+			memberIsSet[i] = Boolean.TRUE.equals(member.getSet());
+		}
+		conceptSetIndex.update(concept.getConceptId(), Boolean.TRUE.equals(concept.getSet()), memberIds, memberIsSet);
 	}
 
 	private void ensureConceptMapTypeIsSet(Concept concept) {
@@ -273,6 +309,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		}
 		
 		dao.purgeConcept(concept);
+		if (concept.getConceptId() != null) {
+			conceptSetIndex.remove(concept.getConceptId());
+		}
 	}
 	
 	/**
@@ -585,14 +624,16 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public ConceptClass getConceptClassByName(String name) {
-		List<ConceptClass> ccList = dao.getConceptClasses(name);
-		if (ccList.size() > 1) {
-			log.warn("More than one ConceptClass found with name: " + name);
-		}
-		if (ccList.size() == 1) {
-			return ccList.get(0);
-		}
-		return null;
+		return MetadataIndex.lookup(conceptClassIndex.getIdByName(name, true), dao::getConceptClass, () -> {
+			List<ConceptClass> ccList = dao.getConceptClasses(name);
+			if (ccList.size() > 1) {
+				log.warn("More than one ConceptClass found with name: " + name);
+			}
+			if (ccList.size() == 1) {
+				return ccList.get(0);
+			}
+			return null;
+		});
 	}
 	
 	/**
@@ -609,7 +650,9 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	 */
 	@Override
 	public ConceptClass saveConceptClass(ConceptClass cc) throws APIException {
-		return dao.saveConceptClass(cc);
+		ConceptClass savedClass = dao.saveConceptClass(cc);
+		conceptClassIndex.invalidate();
+		return savedClass;
 	}
 	
 	/**
@@ -618,6 +661,7 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	public void purgeConceptClass(ConceptClass cc) {
 		dao.purgeConceptClass(cc);
+		conceptClassIndex.invalidate();
 	}
 	
 	/**
@@ -661,7 +705,8 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public ConceptDatatype getConceptDatatypeByName(String name) {
-		return dao.getConceptDatatypeByName(name);
+		return MetadataIndex.lookup(conceptDatatypeIndex.getIdByName(name, true), dao::getConceptDatatype,
+		    () -> dao.getConceptDatatypeByName(name));
 	}
 	
 	/**
@@ -679,12 +724,65 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public List<Concept> getConceptsByConceptSet(Concept c) {
-		Set<Integer> alreadySeen = new HashSet<>();
-		List<Concept> ret = new ArrayList<>();
-		explodeConceptSetHelper(c, ret, alreadySeen);
+		int[] memberIds = getConceptIdsByConceptSet(c);
+		if (memberIds.length == 0) {
+			return new ArrayList<>();
+		}
+		Set<Integer> distinctIds = new LinkedHashSet<>();
+		for (int memberId : memberIds) {
+			distinctIds.add(memberId);
+		}
+		Map<Integer, Concept> membersById = new HashMap<>();
+		for (Concept member : dao.getConceptsByIds(distinctIds)) {
+			membersById.put(member.getConceptId(), member);
+		}
+		List<Concept> ret = new ArrayList<>(memberIds.length);
+		for (int memberId : memberIds) {
+			Concept member = membersById.get(memberId);
+			if (member != null) {
+				ret.add(member);
+			}
+		}
 		return ret;
 	}
 	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptIdsByConceptSet(Concept)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public int[] getConceptIdsByConceptSet(Concept conceptSet) {
+		if (conceptSet == null || conceptSet.getConceptId() == null) {
+			return new int[0];
+		}
+		return conceptSetIndex.getDescendants(conceptSet.getConceptId()).clone();
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#getConceptSetIdsContainingConcept(Concept)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public int[] getConceptSetIdsContainingConcept(Concept concept) {
+		if (concept == null || concept.getConceptId() == null) {
+			return new int[0];
+		}
+		return conceptSetIndex.getAncestors(concept.getConceptId()).clone();
+	}
+	
+	/**
+	 * @see org.openmrs.api.ConceptService#isConceptInSet(Concept, Concept)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public boolean isConceptInSet(Concept concept, Concept conceptSet) {
+		if (concept == null || concept.getConceptId() == null || conceptSet == null
+		        || conceptSet.getConceptId() == null) {
+			return false;
+		}
+		return conceptSetIndex.isInSet(concept.getConceptId(), conceptSet.getConceptId());
+	}
+	
 	/**
 	 * @see org.openmrs.api.ConceptService#getSetsContainingConcept(org.openmrs.Concept)
 	 */
@@ -887,30 +985,6 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 		return dao.getMaxConceptId();
 	}
 	
-	/**
-	 * Utility method used by getConceptsInSet(Concept concept)
-	 * 
-	 * @param concept
-	 * @param ret
-	 * @param alreadySeen
-	 */
-	private void explodeConceptSetHelper(Concept concept, Collection<Concept> ret, Collection<Integer> alreadySeen) {
-		if (alreadySeen.contains(concept.getConceptId())) {
-			return;
-		}
-		alreadySeen.add(concept.getConceptId());
-		List<ConceptSet> cs = getConceptSetsByConcept(concept);
-		for (ConceptSet set : cs) {
-			Concept c = set.getConcept();
-			if (c.getSet()) {
-				ret.add(c);
-				explodeConceptSetHelper(c, ret, alreadySeen);
-			} else {
-				ret.add(c);
-			}
-		}
-	}
-	
 	/**
 	 * @see org.openmrs.api.ConceptService#getConceptNameTagByName(java.lang.String)
 	 */
@@ -1007,7 +1081,8 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public ConceptClass getConceptClassByUuid(String uuid) {
-		return dao.getConceptClassByUuid(uuid);
+		return MetadataIndex.lookup(conceptClassIndex.getIdByUuid(uuid), dao::getConceptClass,
+		    () -> dao.getConceptClassByUuid(uuid));
 	}
 	
 	@Override
@@ -1039,7 +1114,8 @@ public class ConceptServiceImpl extends BaseOpenmrsService implements ConceptSer
 	@Override
 	@Transactional(readOnly = true)
 	public ConceptDatatype getConceptDatatypeByUuid(String uuid) {
-		return dao.getConceptDatatypeByUuid(uuid);
+		return MetadataIndex.lookup(conceptDatatypeIndex.getIdByUuid(uuid), dao::getConceptDatatype,
+		    () -> dao.getConceptDatatypeByUuid(uuid));
 	}
 	
 	/**
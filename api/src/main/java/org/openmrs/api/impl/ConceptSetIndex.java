@@ -0,0 +1,456 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * An in-memory index of concept set membership. The direct members of every set are loaded with a
+ * single query the first time the index is used and kept as arrays of concept ids, the members of
+ * nested sets (descendants) and the sets containing a concept (ancestors) are computed from them on
+ * demand and cached as primitive int arrays.
+ * <p>
+ * Saving a concept replaces the members of that concept only, purging a concept removes it. Inside a
+ * transaction these changes are applied to a private copy of the index that only that transaction
+ * sees, they are applied to the shared index when the transaction commits and dropped if it does
+ * not. If the transaction that built the index does not commit, the index is discarded and loaded
+ * again when it is next used.
+ *
+ * @since 2.2
+ */
+class ConceptSetIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * Supplies rows of [set concept id, member concept id, whether the member is a set] ordered by
+	 * set and sort weight
+	 */
+	private final Supplier<List<Object[]>> loader;
+
+	private volatile Graph graph;
+
+	private final Map<Integer, int[]> descendants = new ConcurrentHashMap<>();
+
+	private final Map<Integer, int[]> ancestors = new ConcurrentHashMap<>();
+
+	/**
+	 * The key the changes of the current transaction are bound to
+	 */
+	private final Object transactionKey = new Object();
+
+	ConceptSetIndex(Supplier<List<Object[]>> loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Returns the members of the given set and of the sets nested in it, in the order they are
+	 * encountered walking the sets depth first by sort weight. Nested sets are walked only once but a
+	 * concept that is a member of several sets is returned once for every set.
+	 *
+	 * @param conceptSetId the id of the set concept
+	 * @return the member ids, must not be modified
+	 */
+	int[] getDescendants(int conceptSetId) {
+		int[] result = descendants.get(conceptSetId);
+		if (result == null) {
+			Graph g = getGraph();
+			IntList members = new IntList();
+			collectDescendants(g, conceptSetId, members, new HashSet<>());
+			result = members.toArray();
+			if (g == graph) {
+				descendants.put(conceptSetId, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the sets that contain the given concept, either directly or through nested sets
+	 *
+	 * @param conceptId the id of the concept
+	 * @return the set concept ids in ascending order, must not be modified
+	 */
+	int[] getAncestors(int conceptId) {
+		int[] result = ancestors.get(conceptId);
+		if (result == null) {
+			Graph g = getGraph();
+			Set<Integer> found = new LinkedHashSet<>();
+			Set<Integer> visited = new HashSet<>();
+			Deque<Integer> queue = new ArrayDeque<>();
+			queue.add(conceptId);
+			visited.add(conceptId);
+			while (!queue.isEmpty()) {
+				for (int parent : g.getParents(queue.poll())) {
+					found.add(parent);
+					// a set only contains the members of a nested concept if that concept is a set
+					if (g.isSet(parent) && visited.add(parent)) {
+						queue.add(parent);
+					}
+				}
+			}
+			result = toSortedArray(found);
+			if (g == graph) {
+				ancestors.put(conceptId, result);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * @param conceptId the id of a concept
+	 * @param conceptSetId the id of a set concept
+	 * @return true if the set contains the concept, directly or through nested sets
+	 */
+	boolean isInSet(int conceptId, int conceptSetId) {
+		return Arrays.binarySearch(getAncestors(conceptId), conceptSetId) >= 0;
+	}
+
+	/**
+	 * Replaces the members of a concept that has been saved
+	 *
+	 * @param conceptId the id of the saved concept
+	 * @param isSet whether the concept is a set
+	 * @param memberIds the ids of its members ordered by sort weight
+	 * @param memberIsSet whether each member is a set
+	 */
+	void update(int conceptId, boolean isSet, int[] memberIds, boolean[] memberIsSet) {
+		apply(g -> {
+			g.setMembers(conceptId, memberIds);
+			g.setSet(conceptId, isSet);
+			for (int i = 0; i < memberIds.length; i++) {
+				g.setSet(memberIds[i], memberIsSet[i]);
+			}
+		});
+	}
+
+	/**
+	 * Removes a concept that has been purged from the sets it belongs to
+	 *
+	 * @param conceptId the id of the purged concept
+	 */
+	void remove(int conceptId) {
+		apply(g -> {
+			for (int parent : g.getParents(conceptId)) {
+				g.setMembers(parent, without(g.getMembers(parent), conceptId));
+			}
+			g.setMembers(conceptId, EMPTY);
+			g.setSet(conceptId, false);
+		});
+	}
+
+	/**
+	 * Applies a change to the private copy of the current transaction and to the shared index once
+	 * the transaction commits, or to the shared index right away outside of a transaction
+	 */
+	private void apply(Consumer<Graph> change) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			publish(Collections.singletonList(change));
+			return;
+		}
+		PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(transactionKey);
+		if (pending == null) {
+			PendingChanges newPending = new PendingChanges();
+			TransactionSynchronizationManager.bindResource(transactionKey, newPending);
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCommit() {
+					publish(newPending.changes);
+				}
+
+				@Override
+				public void afterCompletion(int status) {
+					TransactionSynchronizationManager.unbindResourceIfPossible(transactionKey);
+				}
+			});
+			pending = newPending;
+		}
+		if (pending.graph == null) {
+			Graph shared = graph;
+			pending.graph = shared == null ? null : shared.copy();
+		}
+		if (pending.graph != null) {
+			change.accept(pending.graph);
+		}
+		pending.changes.add(change);
+	}
+
+	/**
+	 * Applies committed changes to the shared index, changes that are already part of it are applied
+	 * again without effect
+	 */
+	private synchronized void publish(List<Consumer<Graph>> changes) {
+		Graph current = graph;
+		if (current != null) {
+			Graph updated = current.copy();
+			for (Consumer<Graph> change : changes) {
+				change.accept(updated);
+			}
+			graph = updated;
+		}
+		clearComputed();
+	}
+
+	/**
+	 * Discards the index, it is loaded again when it is next used
+	 */
+	synchronized void clear() {
+		graph = null;
+		clearComputed();
+	}
+
+	private void clearComputed() {
+		descendants.clear();
+		ancestors.clear();
+	}
+
+	private Graph getGraph() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(transactionKey);
+			if (pending != null) {
+				if (pending.graph == null) {
+					// the database already contains the changes of this transaction
+					pending.graph = Graph.load(loader.get());
+				}
+				return pending.graph;
+			}
+		}
+		Graph g = graph;
+		if (g == null) {
+			synchronized (this) {
+				g = graph;
+				if (g == null) {
+					g = Graph.load(loader.get());
+					graph = g;
+					discardOnRollback();
+				}
+			}
+		}
+		return g;
+	}
+
+	/**
+	 * The index may have been loaded with uncommitted changes of the current transaction, drop it if
+	 * the transaction does not commit
+	 */
+	private void discardOnRollback() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCompletion(int status) {
+					if (status != TransactionSynchronization.STATUS_COMMITTED) {
+						clear();
+					}
+				}
+			});
+		}
+	}
+
+	private static void collectDescendants(Graph g, int conceptSetId, IntList result, Set<Integer> alreadySeen) {
+		if (!alreadySeen.add(conceptSetId)) {
+			return;
+		}
+		for (int member : g.getMembers(conceptSetId)) {
+			result.add(member);
+			if (g.isSet(member)) {
+				collectDescendants(g, member, result, alreadySeen);
+			}
+		}
+	}
+
+	private static int[] without(int[] ids, int id) {
+		IntList result = new IntList();
+		for (int each : ids) {
+			if (each != id) {
+				result.add(each);
+			}
+		}
+		return result.toArray();
+	}
+
+	private static int[] toSortedArray(Set<Integer> ids) {
+		int[] result = new int[ids.size()];
+		int i = 0;
+		for (Integer id : ids) {
+			result[i++] = id;
+		}
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * The direct members and parents of every set, treated as immutable once published
+	 */
+	private static class Graph {
+
+		private final Map<Integer, int[]> members;
+
+		private final Map<Integer, int[]> parents;
+
+		private final Set<Integer> sets;
+
+		private Graph(Map<Integer, int[]> members, Map<Integer, int[]> parents, Set<Integer> sets) {
+			this.members = members;
+			this.parents = parents;
+			this.sets = sets;
+		}
+
+		static Graph load(List<Object[]> rows) {
+			Map<Integer, IntList> members = new HashMap<>();
+			Set<Integer> sets = new HashSet<>();
+			for (Object[] row : rows) {
+				Integer conceptSetId = (Integer) row[0];
+				Integer memberId = (Integer) row[1];
+				members.computeIfAbsent(conceptSetId, k -> new IntList()).add(memberId);
+				if (Boolean.TRUE.equals(row[2])) {
+					sets.add(memberId);
+				}
+			}
+			Map<Integer, int[]> memberArrays = new HashMap<>(members.size() * 2);
+			for (Map.Entry<Integer, IntList> entry : members.entrySet()) {
+				memberArrays.put(entry.getKey(), entry.getValue().toArray());
+			}
+			return new Graph(memberArrays, computeParents(memberArrays), sets);
+		}
+
+		private static Map<Integer, int[]> computeParents(Map<Integer, int[]> members) {
+			Map<Integer, IntList> parents = new HashMap<>();
+			for (Map.Entry<Integer, int[]> entry : members.entrySet()) {
+				for (int member : entry.getValue()) {
+					IntList memberParents = parents.computeIfAbsent(member, k -> new IntList());
+					if (!memberParents.contains(entry.getKey())) {
+						memberParents.add(entry.getKey());
+					}
+				}
+			}
+			Map<Integer, int[]> result = new HashMap<>(parents.size() * 2);
+			for (Map.Entry<Integer, IntList> entry : parents.entrySet()) {
+				result.put(entry.getKey(), entry.getValue().toArray());
+			}
+			return result;
+		}
+
+		Graph copy() {
+			return new Graph(new HashMap<>(members), new HashMap<>(parents), new HashSet<>(sets));
+		}
+
+		int[] getMembers(int conceptSetId) {
+			int[] result = members.get(conceptSetId);
+			return result == null ? EMPTY : result;
+		}
+
+		int[] getParents(int conceptId) {
+			int[] result = parents.get(conceptId);
+			return result == null ? EMPTY : result;
+		}
+
+		boolean isSet(int conceptId) {
+			return sets.contains(conceptId);
+		}
+
+		void setSet(int conceptId, boolean isSet) {
+			if (isSet) {
+				sets.add(conceptId);
+			} else {
+				sets.remove(conceptId);
+			}
+		}
+
+		/**
+		 * Only used on a copy before it is published
+		 */
+		void setMembers(int conceptSetId, int[] memberIds) {
+			for (int oldMember : getMembers(conceptSetId)) {
+				int[] remaining = without(getParents(oldMember), conceptSetId);
+				if (remaining.length == 0) {
+					parents.remove(oldMember);
+				} else {
+					parents.put(oldMember, remaining);
+				}
+			}
+			if (memberIds.length == 0) {
+				members.remove(conceptSetId);
+			} else {
+				members.put(conceptSetId, memberIds);
+			}
+			for (int newMember : memberIds) {
+				int[] memberParents = getParents(newMember);
+				boolean present = false;
+				for (int parent : memberParents) {
+					present |= parent == conceptSetId;
+				}
+				if (!present) {
+					int[] extended = Arrays.copyOf(memberParents, memberParents.length + 1);
+					extended[memberParents.length] = conceptSetId;
+					parents.put(newMember, extended);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The changes made by a transaction and the private copy of the index they have been applied to
+	 */
+	private static class PendingChanges {
+
+		private final List<Consumer<Graph>> changes = new ArrayList<>();
+
+		private Graph graph;
+	}
+
+	/**
+	 * A minimal growable list of primitive ints
+	 */
+	private static class IntList {
+
+		private int[] values = new int[8];
+
+		private int size;
+
+		void add(int value) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			values[size++] = value;
+		}
+
+		boolean contains(int value) {
+			for (int i = 0; i < size; i++) {
+				if (values[i] == value) {
+					return true;
+				}
+			}
+			return false;
+		}
+
+		int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+	}
+}
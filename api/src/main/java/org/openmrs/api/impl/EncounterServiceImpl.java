@@ -65,6 +65,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	
 	private EncounterDAO dao;
 	
+	private final MetadataIndex encounterTypeIndex = new MetadataIndex(() -> dao.getEncounterTypeMetadata());
+	
 	/**
 	 * @see org.openmrs.api.EncounterService#setEncounterDAO(org.openmrs.api.db.EncounterDAO)
 	 */
@@ -163,6 +165,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 
 		// do the actual saving to the database
 		dao.saveEncounter(encounter);
+		// orders of the encounter are saved by cascade without going through the order service
+		ActiveOrderSnapshot.discard(encounter.getPatient());
 
 		// save the new orderGroups
 		for (OrderGroup orderGroup : encounter.getOrderGroups()) {
@@ -521,6 +525,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 		Context.getEncounterService().checkIfEncounterTypesAreLocked();
 		
 		dao.saveEncounterType(encounterType);
+		encounterTypeIndex.invalidate();
 		return encounterType;
 	}
 	
@@ -539,7 +544,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Override
 	@Transactional(readOnly = true)
 	public EncounterType getEncounterType(String name) throws APIException {
-		return dao.getEncounterType(name);
+		return MetadataIndex.lookup(encounterTypeIndex.getIdByName(name, false), dao::getEncounterType,
+		    () -> dao.getEncounterType(name));
 	}
 	
 	/**
@@ -606,6 +612,7 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 		Context.getEncounterService().checkIfEncounterTypesAreLocked();
 		
 		dao.deleteEncounterType(encounterType);
+		encounterTypeIndex.invalidate();
 	}
 	
 	/**
@@ -623,7 +630,8 @@ public class EncounterServiceImpl extends BaseOpenmrsService implements Encounte
 	@Override
 	@Transactional(readOnly = true)
 	public EncounterType getEncounterTypeByUuid(String uuid) throws APIException {
-		return dao.getEncounterTypeByUuid(uuid);
+		return MetadataIndex.lookup(encounterTypeIndex.getIdByUuid(uuid), dao::getEncounterType,
+		    () -> dao.getEncounterTypeByUuid(uuid));
 	}
 	
 	/**
@@ -41,6 +41,7 @@ import org.openmrs.api.handler.SaveHandler;
 import org.openmrs.customdatatype.CustomDatatypeUtil;
 import org.openmrs.obs.ComplexObsHandler;
 import org.openmrs.obs.SerializableComplexObsHandler;
+import org.openmrs.util.FormUtil;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.validator.FormValidator;
@@ -440,6 +441,7 @@ public class FormServiceImpl extends BaseOpenmrsService implements FormService {
 			throw new APIException("general.not.yet.implemented", (Object[]) null);
 		} else {
 			dao.deleteField(field);
+			FormUtil.evictFormStructure(null);
 		}
 	}
 	
@@ -467,6 +469,7 @@ public class FormServiceImpl extends BaseOpenmrsService implements FormService {
 		}
 		
 		dao.deleteForm(form);
+		FormUtil.evictFormStructure(form.getFormId());
 	}
 	
 	/**
@@ -475,6 +478,7 @@ public class FormServiceImpl extends BaseOpenmrsService implements FormService {
 	@Override
 	public void purgeFormField(FormField formField) throws APIException {
 		dao.deleteFormField(formField);
+		evictFormStructure(formField);
 	}
 	
 	/**
@@ -495,6 +499,8 @@ public class FormServiceImpl extends BaseOpenmrsService implements FormService {
 	 */
 	@Override
 	public Field saveField(Field field) throws APIException {
+		// fields may be shared by many forms
+		FormUtil.evictFormStructure(null);
 		return dao.saveField(field);
 	}
 	
@@ -520,7 +526,9 @@ public class FormServiceImpl extends BaseOpenmrsService implements FormService {
 			}
 		}
 		
-		return dao.saveForm(form);
+		Form savedForm = dao.saveForm(form);
+		FormUtil.evictFormStructure(savedForm.getFormId());
+		return savedForm;
 	}
 	
 	/**
@@ -564,9 +572,14 @@ public class FormServiceImpl extends BaseOpenmrsService implements FormService {
 			}
 		}
 		
+		evictFormStructure(tmpFormField);
 		return tmpFormField;
 	}
 	
+	private void evictFormStructure(FormField formField) {
+		FormUtil.evictFormStructure(formField.getForm() == null ? null : formField.getForm().getFormId());
+	}
+	
 	/**
 	 * @see org.openmrs.api.FormService#unretireField(org.openmrs.Field)
 	 */
@@ -0,0 +1,339 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * An in-memory snapshot of the location tree and of the tags of every location. The snapshot is
+ * loaded with two queries the first time it is used. Locations are numbered in the order of a depth
+ * first walk of the tree so that the descendants of a location are the locations numbered after it
+ * up to the end of its subtree; checking whether a location is below another one compares two
+ * numbers and the descendants of a location are a contiguous range. The locations having a tag are
+ * kept as a bit set over the same numbering so tag queries are answered by combining bit sets.
+ * <p>
+ * Any change to a location or a tag discards the snapshot, it is loaded again when it is next used.
+ * It is also discarded when the transaction that made the change completes, so that a snapshot
+ * loaded by another thread before the change was committed is not kept.
+ *
+ * @since 2.2
+ */
+class LocationHierarchyIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	/**
+	 * Supplies rows of [location id, parent location id, retired] ordered by location id
+	 */
+	private final Supplier<List<Object[]>> locationLoader;
+
+	/**
+	 * Supplies rows of [location tag id, location id]
+	 */
+	private final Supplier<List<Object[]>> tagLoader;
+
+	private volatile Snapshot snapshot;
+
+	LocationHierarchyIndex(Supplier<List<Object[]>> locationLoader, Supplier<List<Object[]>> tagLoader) {
+		this.locationLoader = locationLoader;
+		this.tagLoader = tagLoader;
+	}
+
+	/**
+	 * @param locationId the id of a location
+	 * @param rootId the id of the location at the top of the hierarchy
+	 * @return true if the location is the root or somewhere below it
+	 */
+	boolean isInHierarchy(int locationId, int rootId) {
+		Snapshot s = getSnapshot();
+		int location = s.positionOf(locationId);
+		int root = s.positionOf(rootId);
+		if (location < 0 || root < 0) {
+			return false;
+		}
+		return root <= location && location < s.subtreeEnds[root];
+	}
+
+	/**
+	 * Returns the given location and all locations below it. If retired locations are excluded, the
+	 * locations below a retired location are excluded too since they can only be reached through it.
+	 * The given location itself is always included.
+	 *
+	 * @param rootId the id of the location at the top of the hierarchy
+	 * @param includeRetired whether to include retired locations
+	 * @return the location ids, parents before their children, or an empty array if the location is
+	 *         not known
+	 */
+	int[] getLocationIdsInHierarchy(int rootId, boolean includeRetired) {
+		Snapshot s = getSnapshot();
+		int root = s.positionOf(rootId);
+		if (root < 0) {
+			return EMPTY;
+		}
+		int end = s.subtreeEnds[root];
+		if (includeRetired) {
+			return Arrays.copyOfRange(s.locationIds, root, end);
+		}
+		int[] result = new int[end - root];
+		int size = 0;
+		result[size++] = s.locationIds[root];
+		int position = root + 1;
+		while (position < end) {
+			if (s.retired.get(position)) {
+				position = s.subtreeEnds[position];
+			} else {
+				result[size++] = s.locationIds[position++];
+			}
+		}
+		return Arrays.copyOf(result, size);
+	}
+
+	/**
+	 * @param tagIds the ids of the tags
+	 * @return the ids of the unretired locations that have every one of the tags
+	 */
+	int[] getLocationIdsHavingAllTags(int[] tagIds) {
+		Snapshot s = getSnapshot();
+		BitSet matches = s.getUnretired();
+		for (int tagId : tagIds) {
+			matches.and(s.getTagged(tagId));
+		}
+		return s.toLocationIds(matches);
+	}
+
+	/**
+	 * @param tagIds the ids of the tags
+	 * @return the ids of the unretired locations that have at least one of the tags
+	 */
+	int[] getLocationIdsHavingAnyTag(int[] tagIds) {
+		Snapshot s = getSnapshot();
+		BitSet matches = new BitSet();
+		for (int tagId : tagIds) {
+			matches.or(s.getTagged(tagId));
+		}
+		matches.and(s.getUnretired());
+		return s.toLocationIds(matches);
+	}
+
+	/**
+	 * Discards the snapshot now and again when the current transaction completes, called when a
+	 * location or a tag is changed
+	 */
+	void invalidate() {
+		clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCompletion(int status) {
+					clear();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Discards the snapshot, it is loaded again when it is next used
+	 */
+	synchronized void clear() {
+		snapshot = null;
+	}
+
+	private Snapshot getSnapshot() {
+		Snapshot s = snapshot;
+		if (s == null) {
+			synchronized (this) {
+				s = snapshot;
+				if (s == null) {
+					s = Snapshot.load(locationLoader.get(), tagLoader.get());
+					snapshot = s;
+					discardOnRollback();
+				}
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * The snapshot may contain uncommitted changes of the current transaction, drop it if the
+	 * transaction does not commit
+	 */
+	private void discardOnRollback() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCompletion(int status) {
+					if (status != TransactionSynchronization.STATUS_COMMITTED) {
+						clear();
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * The numbered locations and tags, immutable once loaded
+	 */
+	private static class Snapshot {
+
+		/**
+		 * The position of every location in the depth first walk
+		 */
+		private final Map<Integer, Integer> positions;
+
+		/**
+		 * The location id at every position
+		 */
+		private final int[] locationIds;
+
+		/**
+		 * The position after the last descendant of the location at every position
+		 */
+		private final int[] subtreeEnds;
+
+		private final BitSet retired;
+
+		private final Map<Integer, BitSet> tagged;
+
+		private Snapshot(Map<Integer, Integer> positions, int[] locationIds, int[] subtreeEnds, BitSet retired,
+		    Map<Integer, BitSet> tagged) {
+			this.positions = positions;
+			this.locationIds = locationIds;
+			this.subtreeEnds = subtreeEnds;
+			this.retired = retired;
+			this.tagged = tagged;
+		}
+
+		static Snapshot load(List<Object[]> locationRows, List<Object[]> tagRows) {
+			Map<Integer, Integer> parents = new LinkedHashMap<>(locationRows.size() * 2);
+			Map<Integer, Boolean> retiredLocations = new HashMap<>(locationRows.size() * 2);
+			for (Object[] row : locationRows) {
+				parents.put((Integer) row[0], (Integer) row[1]);
+				retiredLocations.put((Integer) row[0], Boolean.TRUE.equals(row[2]));
+			}
+			Map<Integer, List<Integer>> children = new HashMap<>();
+			List<Integer> roots = new ArrayList<>();
+			for (Map.Entry<Integer, Integer> entry : parents.entrySet()) {
+				Integer parent = entry.getValue();
+				if (parent == null || !parents.containsKey(parent)) {
+					roots.add(entry.getKey());
+				} else {
+					children.computeIfAbsent(parent, k -> new ArrayList<>()).add(entry.getKey());
+				}
+			}
+
+			int count = parents.size();
+			Map<Integer, Integer> positions = new HashMap<>(count * 2);
+			int[] locationIds = new int[count];
+			int[] subtreeEnds = new int[count];
+			BitSet retired = new BitSet(count);
+			int next = 0;
+			for (Integer root : roots) {
+				next = walk(root, next, children, positions, locationIds, subtreeEnds);
+			}
+			// locations whose parents form a cycle cannot be reached from a root, start a walk at each
+			for (Integer locationId : parents.keySet()) {
+				if (!positions.containsKey(locationId)) {
+					next = walk(locationId, next, children, positions, locationIds, subtreeEnds);
+				}
+			}
+			for (int position = 0; position < count; position++) {
+				if (retiredLocations.get(locationIds[position])) {
+					retired.set(position);
+				}
+			}
+
+			Map<Integer, BitSet> tagged = new HashMap<>();
+			for (Object[] row : tagRows) {
+				Integer position = positions.get((Integer) row[1]);
+				if (position != null) {
+					tagged.computeIfAbsent((Integer) row[0], k -> new BitSet(count)).set(position);
+				}
+			}
+			return new Snapshot(positions, locationIds, subtreeEnds, retired, tagged);
+		}
+
+		/**
+		 * Numbers the locations below the given one, without recursion so deep trees cannot overflow
+		 * the stack
+		 *
+		 * @return the next free position
+		 */
+		private static int walk(Integer start, int next, Map<Integer, List<Integer>> children,
+		        Map<Integer, Integer> positions, int[] locationIds, int[] subtreeEnds) {
+			List<Integer> pending = new ArrayList<>();
+			List<Integer> childIndexes = new ArrayList<>();
+			positions.put(start, next);
+			locationIds[next++] = start;
+			pending.add(start);
+			childIndexes.add(0);
+			while (!pending.isEmpty()) {
+				int top = pending.size() - 1;
+				Integer current = pending.get(top);
+				List<Integer> currentChildren = children.get(current);
+				int childIndex = childIndexes.get(top);
+				if (currentChildren != null && childIndex < currentChildren.size()) {
+					childIndexes.set(top, childIndex + 1);
+					Integer child = currentChildren.get(childIndex);
+					if (!positions.containsKey(child)) {
+						positions.put(child, next);
+						locationIds[next++] = child;
+						pending.add(child);
+						childIndexes.add(0);
+					}
+				} else {
+					subtreeEnds[positions.get(current)] = next;
+					pending.remove(top);
+					childIndexes.remove(top);
+				}
+			}
+			return next;
+		}
+
+		int positionOf(int locationId) {
+			Integer position = positions.get(locationId);
+			return position == null ? -1 : position;
+		}
+
+		BitSet getUnretired() {
+			BitSet result = new BitSet(locationIds.length);
+			result.set(0, locationIds.length);
+			result.andNot(retired);
+			return result;
+		}
+
+		BitSet getTagged(int tagId) {
+			BitSet result = tagged.get(tagId);
+			return result == null ? new BitSet() : result;
+		}
+
+		int[] toLocationIds(BitSet matches) {
+			int[] result = new int[matches.cardinality()];
+			int i = 0;
+			for (int position = matches.nextSetBit(0); position >= 0; position = matches.nextSetBit(position + 1)) {
+				result[i++] = locationIds[position];
+			}
+			Arrays.sort(result);
+			return result;
+		}
+	}
+}
@@ -10,6 +10,7 @@
 package org.openmrs.api.impl;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -45,6 +46,13 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	
 	private LocationDAO dao;
 	
+	private final LocationHierarchyIndex hierarchyIndex = new LocationHierarchyIndex(() -> dao.getLocationHierarchy(),
+	        () -> dao.getLocationTagMemberships());
+	
+	private final MetadataIndex locationIndex = new MetadataIndex(() -> dao.getLocationMetadata());
+	
+	private final MetadataIndex locationTagIndex = new MetadataIndex(() -> dao.getLocationTagMetadata());
+	
 	/**
 	 * @see org.openmrs.api.LocationService#setLocationDAO(org.openmrs.api.db.LocationDAO)
 	 */
@@ -85,7 +93,10 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 		
 		CustomDatatypeUtil.saveAttributesIfNecessary(location);
 		
-		return dao.saveLocation(location);
+		Location savedLocation = dao.saveLocation(location);
+		hierarchyIndex.invalidate();
+		locationIndex.invalidate();
+		return savedLocation;
 	}
 	
 	/**
@@ -103,7 +114,7 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	@Transactional(readOnly = true)
 	public Location getLocation(String name) throws APIException {
-		return dao.getLocation(name);
+		return MetadataIndex.lookup(locationIndex.getIdByName(name, true), dao::getLocation, () -> dao.getLocation(name));
 	}
 	
 	/**
@@ -159,7 +170,7 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	@Transactional(readOnly = true)
 	public Location getLocationByUuid(String uuid) throws APIException {
-		return dao.getLocationByUuid(uuid);
+		return MetadataIndex.lookup(locationIndex.getIdByUuid(uuid), dao::getLocation, () -> dao.getLocationByUuid(uuid));
 	}
 	
 	/**
@@ -168,7 +179,8 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	@Transactional(readOnly = true)
 	public LocationTag getLocationTagByUuid(String uuid) throws APIException {
-		return dao.getLocationTagByUuid(uuid);
+		return MetadataIndex.lookup(locationTagIndex.getIdByUuid(uuid), dao::getLocationTag,
+		    () -> dao.getLocationTagByUuid(uuid));
 	}
 	
 	/**
@@ -204,15 +216,7 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	@Transactional(readOnly = true)
 	public List<Location> getLocationsByTag(LocationTag tag) throws APIException {
-		List<Location> locations = new ArrayList<>();
-		
-		for (Location l : dao.getAllLocations(false)) {
-			if (l.getTags().contains(tag)) {
-				locations.add(l);
-			}
-		}
-		
-		return locations;
+		return getLocationsHavingAnyTag(Collections.singletonList(tag));
 	}
 	
 	/**
@@ -221,7 +225,20 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	@Transactional(readOnly = true)
 	public List<Location> getLocationsHavingAllTags(List<LocationTag> tags) throws APIException {
-		return CollectionUtils.isEmpty(tags) ? getAllLocations(false) : dao.getLocationsHavingAllTags(tags);
+		if (CollectionUtils.isEmpty(tags)) {
+			return getAllLocations(false);
+		}
+		List<Integer> tagIds = new ArrayList<>();
+		for (LocationTag tag : tags) {
+			if (tag != null) {
+				// a tag that has not been saved cannot be on any location
+				if (tag.getLocationTagId() == null) {
+					return new ArrayList<>();
+				}
+				tagIds.add(tag.getLocationTagId());
+			}
+		}
+		return dao.getLocationsByIds(toList(hierarchyIndex.getLocationIdsHavingAllTags(toArray(tagIds))));
 	}
 	
 	/**
@@ -230,17 +247,44 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	@Transactional(readOnly = true)
 	public List<Location> getLocationsHavingAnyTag(List<LocationTag> tags) throws APIException {
-		List<Location> locations = new ArrayList<>();
-		
-		for (Location loc : dao.getAllLocations(false)) {
-			for (LocationTag t : tags) {
-				if (loc.getTags().contains(t) && !locations.contains(loc)) {
-					locations.add(loc);
-				}
+		List<Integer> tagIds = new ArrayList<>();
+		for (LocationTag tag : tags) {
+			if (tag != null && tag.getLocationTagId() != null) {
+				tagIds.add(tag.getLocationTagId());
 			}
 		}
-		
-		return locations;
+		if (tagIds.isEmpty()) {
+			return new ArrayList<>();
+		}
+		return dao.getLocationsByIds(toList(hierarchyIndex.getLocationIdsHavingAnyTag(toArray(tagIds))));
+	}
+	
+	/**
+	 * @see org.openmrs.api.LocationService#isLocationInHierarchy(Location, Location)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public boolean isLocationInHierarchy(Location location, Location root) throws APIException {
+		if (location == null || root == null) {
+			return false;
+		}
+		if (location.getLocationId() == null || root.getLocationId() == null) {
+			// not saved yet so not in the index
+			return Location.isInHierarchy(location, root);
+		}
+		return hierarchyIndex.isInHierarchy(location.getLocationId(), root.getLocationId());
+	}
+	
+	/**
+	 * @see org.openmrs.api.LocationService#getLocationIdsInHierarchy(Location, boolean)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<Integer> getLocationIdsInHierarchy(Location root, boolean includeRetired) throws APIException {
+		if (root == null || root.getLocationId() == null) {
+			return new ArrayList<>();
+		}
+		return toList(hierarchyIndex.getLocationIdsInHierarchy(root.getLocationId(), includeRetired));
 	}
 	
 	/**
@@ -268,6 +312,8 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	public void purgeLocation(Location location) throws APIException {
 		dao.deleteLocation(location);
+		hierarchyIndex.invalidate();
+		locationIndex.invalidate();
 	}
 	
 	/**
@@ -275,7 +321,9 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	 */
 	@Override
 	public LocationTag saveLocationTag(LocationTag tag) throws APIException {
-		return dao.saveLocationTag(tag);
+		LocationTag savedTag = dao.saveLocationTag(tag);
+		locationTagIndex.invalidate();
+		return savedTag;
 	}
 	
 	/**
@@ -293,7 +341,8 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	@Transactional(readOnly = true)
 	public LocationTag getLocationTagByName(String tag) throws APIException {
-		return dao.getLocationTagByName(tag);
+		return MetadataIndex.lookup(locationTagIndex.getIdByName(tag, true), dao::getLocationTag,
+		    () -> dao.getLocationTagByName(tag));
 	}
 	
 	/**
@@ -364,6 +413,8 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	@Override
 	public void purgeLocationTag(LocationTag tag) throws APIException {
 		dao.deleteLocationTag(tag);
+		hierarchyIndex.invalidate();
+		locationTagIndex.invalidate();
 	}
 	
 	/**
@@ -508,4 +559,20 @@ public class LocationServiceImpl extends BaseOpenmrsService implements LocationS
 	public LocationAttributeType getLocationAttributeTypeByName(String name) {
 		return dao.getLocationAttributeTypeByName(name);
 	}
+	
+	private static int[] toArray(List<Integer> ids) {
+		int[] result = new int[ids.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ids.get(i);
+		}
+		return result;
+	}
+	
+	private static List<Integer> toList(int[] ids) {
+		List<Integer> result = new ArrayList<>(ids.length);
+		for (int id : ids) {
+			result.add(id);
+		}
+		return result;
+	}
 }
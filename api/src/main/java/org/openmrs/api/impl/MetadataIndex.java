@@ -0,0 +1,373 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.openmrs.OpenmrsMetadata;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * An immutable in-memory snapshot of one kind of metadata, e.g. order types or encounter types,
+ * mapping uuids, names and concept classes to ids and keeping the type hierarchy for types that have
+ * a parent. Every snapshot is loaded with one or two projection queries and gets a new version
+ * number. The services resolve lookups to ids through the snapshot and load the object by id, which
+ * is answered by the session or the second level cache.
+ * <p>
+ * The snapshot is discarded when metadata of its kind is saved, retired or purged and loaded again
+ * when it is next used. Lookups that miss the snapshot fall back to querying the database, so
+ * metadata that was inserted without going through the service is still found. Metadata that has no
+ * save method on its service, e.g. care settings, is registered with
+ * {@link #invalidateOnChangeOf(Class)} and discarded by {@link MetadataIndexInterceptor} whenever
+ * Hibernate saves, updates or deletes an object of its type. The interceptor is only called for
+ * metadata, and looking up the indexes of a type takes no lock.
+ *
+ * @since 2.2
+ */
+class MetadataIndex {
+
+	private static final int[] EMPTY = new int[0];
+
+	private static final AtomicLong versions = new AtomicLong();
+
+	/**
+	 * The indexes to discard when an object of a type is saved, updated or deleted, weakly held so
+	 * that the indexes of discarded services can be collected. The map and its lists are never
+	 * modified, registering an index replaces the map.
+	 */
+	private static volatile Map<Class<?>, List<WeakReference<MetadataIndex>>> indexesByType = Collections.emptyMap();
+
+	private static final Object registrationLock = new Object();
+
+	/**
+	 * Supplies rows of [id, uuid, name, retired] or [id, uuid, name, retired, parent id] ordered by id
+	 */
+	private final Supplier<List<Object[]>> loader;
+
+	/**
+	 * Supplies rows of [concept class id, id], may be null
+	 */
+	private final Supplier<List<Object[]>> conceptClassLoader;
+
+	private volatile Snapshot snapshot;
+
+	MetadataIndex(Supplier<List<Object[]>> loader) {
+		this(loader, null);
+	}
+
+	MetadataIndex(Supplier<List<Object[]>> loader, Supplier<List<Object[]>> conceptClassLoader) {
+		this.loader = loader;
+		this.conceptClassLoader = conceptClassLoader;
+	}
+
+	/**
+	 * Resolves an object through the index, falling back to a query if the index does not know it
+	 *
+	 * @param id the id found in the index or null
+	 * @param byId loads the object by id
+	 * @param query looks the object up in the database
+	 * @return the object or null if neither the index nor the query found it
+	 */
+	static <T> T lookup(Integer id, Function<Integer, T> byId, Supplier<T> query) {
+		T result = id == null ? null : byId.apply(id);
+		return result != null ? result : query.get();
+	}
+
+	/**
+	 * Discards this index whenever Hibernate saves, updates or deletes an object of the given type
+	 *
+	 * @param type the type of the metadata in this index
+	 * @return this index
+	 */
+	MetadataIndex invalidateOnChangeOf(Class<? extends OpenmrsMetadata> type) {
+		synchronized (registrationLock) {
+			Map<Class<?>, List<WeakReference<MetadataIndex>>> copy = new HashMap<>();
+			for (Map.Entry<Class<?>, List<WeakReference<MetadataIndex>>> entry : indexesByType.entrySet()) {
+				List<WeakReference<MetadataIndex>> live = new ArrayList<>();
+				for (WeakReference<MetadataIndex> reference : entry.getValue()) {
+					if (reference.get() != null) {
+						live.add(reference);
+					}
+				}
+				if (!live.isEmpty()) {
+					copy.put(entry.getKey(), live);
+				}
+			}
+			List<WeakReference<MetadataIndex>> indexes = new ArrayList<>(copy.getOrDefault(type, Collections.emptyList()));
+			indexes.add(new WeakReference<>(this));
+			copy.put(type, indexes);
+			for (Map.Entry<Class<?>, List<WeakReference<MetadataIndex>>> entry : copy.entrySet()) {
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+			indexesByType = Collections.unmodifiableMap(copy);
+		}
+		return this;
+	}
+
+	/**
+	 * Discards the indexes registered for the type of the given object
+	 *
+	 * @param entity an object that is being saved, updated or deleted
+	 */
+	static void invalidateIndexesOf(Object entity) {
+		for (Map.Entry<Class<?>, List<WeakReference<MetadataIndex>>> entry : indexesByType.entrySet()) {
+			if (entry.getKey().isInstance(entity)) {
+				for (WeakReference<MetadataIndex> reference : entry.getValue()) {
+					MetadataIndex index = reference.get();
+					if (index != null) {
+						index.invalidate();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param uuid the uuid of the metadata
+	 * @return the id or null if the uuid is not known
+	 */
+	Integer getIdByUuid(String uuid) {
+		return uuid == null ? null : getSnapshot().idsByUuid.get(uuid);
+	}
+
+	/**
+	 * @param name the exact name of the metadata
+	 * @param includeRetired whether retired metadata may be returned
+	 * @return the id or null if no metadata or more than one has the name
+	 */
+	Integer getIdByName(String name, boolean includeRetired) {
+		if (name == null) {
+			return null;
+		}
+		Snapshot s = getSnapshot();
+		Integer id = s.idsByName.get(name);
+		return id == null || (!includeRetired && s.retired.contains(id)) ? null : id;
+	}
+
+	/**
+	 * @param name the name of the metadata in any case
+	 * @return the id or null if no metadata or more than one has the name
+	 */
+	Integer getIdByNameIgnoreCase(String name) {
+		return name == null ? null : getSnapshot().idsByLowerCaseName.get(name.toLowerCase());
+	}
+
+	/**
+	 * @param conceptClassId the id of a concept class
+	 * @return the id of the metadata mapped to the concept class or null if none or more than one is
+	 */
+	Integer getIdByConceptClass(int conceptClassId) {
+		return getSnapshot().idsByConceptClass.get(conceptClassId);
+	}
+
+	/**
+	 * @param conceptClassId the id of a concept class
+	 * @return true if any metadata is mapped to the concept class, false means that a query would
+	 *         not find any either
+	 */
+	boolean isConceptClassMapped(int conceptClassId) {
+		return getSnapshot().mappedConceptClasses.contains(conceptClassId);
+	}
+
+	/**
+	 * Returns the children of the given metadata, then their children and so on. If retired metadata
+	 * is excluded, the descendants of retired metadata are excluded too.
+	 *
+	 * @param id the id of the metadata
+	 * @param includeRetired whether to include retired metadata
+	 * @return the ids of the descendants level by level, ordered by id within a level
+	 */
+	int[] getDescendantIds(int id, boolean includeRetired) {
+		Snapshot s = getSnapshot();
+		List<Integer> result = new ArrayList<>();
+		Set<Integer> seen = new HashSet<>();
+		seen.add(id);
+		int[] level = new int[] { id };
+		while (level.length > 0) {
+			List<Integer> nextLevel = new ArrayList<>();
+			for (int parent : level) {
+				for (int child : s.getChildren(parent)) {
+					if ((includeRetired || !s.retired.contains(child)) && seen.add(child)) {
+						result.add(child);
+						nextLevel.add(child);
+					}
+				}
+			}
+			level = toArray(nextLevel);
+		}
+		return toArray(result);
+	}
+
+	/**
+	 * @return the version of the current snapshot, loading it if necessary
+	 */
+	long getVersion() {
+		return getSnapshot().version;
+	}
+
+	/**
+	 * Discards the snapshot now and again when the current transaction completes, called when
+	 * metadata is saved, retired or purged
+	 */
+	void invalidate() {
+		clear();
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCompletion(int status) {
+					clear();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Discards the snapshot, it is loaded again when it is next used
+	 */
+	synchronized void clear() {
+		snapshot = null;
+	}
+
+	private Snapshot getSnapshot() {
+		Snapshot s = snapshot;
+		if (s == null) {
+			synchronized (this) {
+				s = snapshot;
+				if (s == null) {
+					List<Object[]> conceptClassRows = conceptClassLoader == null ? Collections.emptyList()
+					        : conceptClassLoader.get();
+					s = Snapshot.load(versions.incrementAndGet(), loader.get(), conceptClassRows);
+					snapshot = s;
+					discardOnRollback();
+				}
+			}
+		}
+		return s;
+	}
+
+	/**
+	 * The snapshot may contain uncommitted changes of the current transaction, drop it if the
+	 * transaction does not commit
+	 */
+	private void discardOnRollback() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCompletion(int status) {
+					if (status != TransactionSynchronization.STATUS_COMMITTED) {
+						clear();
+					}
+				}
+			});
+		}
+	}
+
+	private static int[] toArray(List<Integer> ids) {
+		int[] result = new int[ids.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = ids.get(i);
+		}
+		return result;
+	}
+
+	/**
+	 * The lookup maps of one version, never modified once loaded
+	 */
+	private static class Snapshot {
+
+		private final long version;
+
+		private final Map<String, Integer> idsByUuid = new HashMap<>();
+
+		private final Map<String, Integer> idsByName = new HashMap<>();
+
+		private final Map<String, Integer> idsByLowerCaseName = new HashMap<>();
+
+		private final Map<Integer, Integer> idsByConceptClass = new HashMap<>();
+
+		private final Set<Integer> mappedConceptClasses = new HashSet<>();
+
+		private final Map<Integer, int[]> children = new HashMap<>();
+
+		private final Set<Integer> retired = new HashSet<>();
+
+		private Snapshot(long version) {
+			this.version = version;
+		}
+
+		static Snapshot load(long version, List<Object[]> rows, List<Object[]> conceptClassRows) {
+			Snapshot s = new Snapshot(version);
+			Set<String> duplicateNames = new HashSet<>();
+			Set<String> duplicateLowerCaseNames = new HashSet<>();
+			Map<Integer, List<Integer>> childLists = new HashMap<>();
+			for (Object[] row : rows) {
+				Integer id = (Integer) row[0];
+				s.idsByUuid.put((String) row[1], id);
+				String name = (String) row[2];
+				if (name != null) {
+					putUnique(s.idsByName, duplicateNames, name, id);
+					putUnique(s.idsByLowerCaseName, duplicateLowerCaseNames, name.toLowerCase(), id);
+				}
+				if (Boolean.TRUE.equals(row[3])) {
+					s.retired.add(id);
+				}
+				if (row.length > 4 && row[4] != null) {
+					childLists.computeIfAbsent((Integer) row[4], k -> new ArrayList<>()).add(id);
+				}
+			}
+			for (Map.Entry<Integer, List<Integer>> entry : childLists.entrySet()) {
+				int[] ids = toArray(entry.getValue());
+				Arrays.sort(ids);
+				s.children.put(entry.getKey(), ids);
+			}
+			Set<Integer> duplicateConceptClasses = new HashSet<>();
+			for (Object[] row : conceptClassRows) {
+				putUnique(s.idsByConceptClass, duplicateConceptClasses, (Integer) row[0], (Integer) row[1]);
+				s.mappedConceptClasses.add((Integer) row[0]);
+			}
+			return s;
+		}
+
+		/**
+		 * Keys mapped to more than one id are left out so that lookups for them fall back to the
+		 * database and behave exactly as before
+		 */
+		private static <K> void putUnique(Map<K, Integer> map, Set<K> duplicates, K key, Integer id) {
+			if (duplicates.contains(key)) {
+				return;
+			}
+			Integer existing = map.put(key, id);
+			if (existing != null && !existing.equals(id)) {
+				map.remove(key);
+				duplicates.add(key);
+			}
+		}
+
+		int[] getChildren(int id) {
+			int[] result = children.get(id);
+			return result == null ? EMPTY : result;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import java.io.Serializable;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+import org.openmrs.OpenmrsMetadata;
+import org.openmrs.api.db.hibernate.SelectiveInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Discards the {@link MetadataIndex}es registered for the type of an object that Hibernate saves,
+ * updates or deletes, so that metadata changed without going through a service method that
+ * invalidates the index is not served from a stale snapshot. Only metadata can be indexed, so the
+ * interceptor is not called for clinical data.
+ *
+ * @since 2.2
+ */
+@Component("metadataIndexInterceptor")
+public class MetadataIndexInterceptor extends EmptyInterceptor implements SelectiveInterceptor {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @see org.openmrs.api.db.hibernate.SelectiveInterceptor#getInterceptedTypes()
+	 */
+	@Override
+	public Class<?>[] getInterceptedTypes() {
+		return new Class<?>[] { OpenmrsMetadata.class };
+	}
+
+	@Override
+	public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		MetadataIndex.invalidateIndexesOf(entity);
+		return false;
+	}
+
+	@Override
+	public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+	        String[] propertyNames, Type[] types) {
+		MetadataIndex.invalidateIndexesOf(entity);
+		return false;
+	}
+
+	@Override
+	public void onDelete(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+		MetadataIndex.invalidateIndexesOf(entity);
+	}
+}
@@ -80,6 +80,12 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	
 	protected OrderDAO dao;
 	
+	private final MetadataIndex orderTypeIndex = new MetadataIndex(() -> dao.getOrderTypeMetadata(),
+	        () -> dao.getOrderTypeConceptClasses());
+	
+	private final MetadataIndex careSettingIndex = new MetadataIndex(() -> dao.getCareSettingMetadata())
+	        .invalidateOnChangeOf(CareSetting.class);
+	
 	private static OrderNumberGenerator orderNumberGenerator = null;
 
 	public OrderServiceImpl() {
@@ -101,6 +107,18 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 		return saveOrder(order, orderContext, false);
 	}
 	
+	/**
+	 * @see org.openmrs.api.OrderService#saveOrders(java.util.List, org.openmrs.api.OrderContext)
+	 */
+	@Override
+	public synchronized List<Order> saveOrders(List<Order> orders, OrderContext orderContext) throws APIException {
+		List<Order> savedOrders = new ArrayList<>(orders.size());
+		for (Order order : orders) {
+			savedOrders.add(saveOrder(order, orderContext, false));
+		}
+		return savedOrders;
+	}
+	
 	/**
 	 * @see org.openmrs.api.OrderService#saveOrderGroup(org.openmrs.OrderGroup)
 	 */
@@ -164,7 +182,7 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 			if (isRetrospective) {
 				asOfDate = order.getDateActivated();
 			}
-			List<Order> activeOrders = getActiveOrders(order.getPatient(), null, order.getCareSetting(), asOfDate);
+			List<Order> activeOrders = getActiveOrdersToCheck(order.getPatient(), null, order.getCareSetting(), asOfDate);
 			List<String> parallelOrders = Collections.emptyList();
 			if (orderContext != null && orderContext.getAttribute(PARALLEL_ORDERS) != null) {
 				parallelOrders = Arrays.asList((String[]) orderContext.getAttribute(PARALLEL_ORDERS));
@@ -312,7 +330,29 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 			}
 		}
 		
-		return dao.saveOrder(order);
+		Order savedOrder = dao.saveOrder(order);
+		ActiveOrderSnapshot.added(savedOrder);
+		return savedOrder;
+	}
+	
+	/**
+	 * Gets the active orders that new orders are checked against for duplicates and conflicts. They
+	 * are taken from the snapshot of the patient's orders in the current transaction, so saving
+	 * several orders for a patient only queries the orders once.
+	 * 
+	 * @see #getActiveOrders(Patient, OrderType, CareSetting, Date)
+	 */
+	private List<Order> getActiveOrdersToCheck(Patient patient, OrderType orderType, CareSetting careSetting,
+	        Date asOfDate) {
+		if (asOfDate == null) {
+			asOfDate = new Date();
+		}
+		ActiveOrderSnapshot snapshot = ActiveOrderSnapshot.get(patient, asOfDate, dao::getOrdersNotEndedBefore,
+		    dao::isInSession);
+		if (snapshot == null) {
+			return getActiveOrders(patient, orderType, careSetting, asOfDate);
+		}
+		return snapshot.getActiveOrders(getOrderTypeAndSubtypes(orderType), careSetting, asOfDate);
 	}
 	
 	private void setProperty(Order order, String propertyName, Object value) {
@@ -382,8 +422,8 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 		if (isRetrospective) {
 			asOfDate = order.getDateActivated();
 		}
-		List<? extends Order> orders = getActiveOrders(order.getPatient(), order.getOrderType(), order.getCareSetting(),
-		    asOfDate);
+		List<? extends Order> orders = getActiveOrdersToCheck(order.getPatient(), order.getOrderType(),
+		    order.getCareSetting(), asOfDate);
 		boolean isDrugOrderAndHasADrug = isDrugOrder(order)
 		        && (((DrugOrder) order).getDrug() != null || ((DrugOrder) order).isNonCodedDrug());
 		Order orderToBeDiscontinued = null;
@@ -448,6 +488,7 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 		}
 		
 		dao.deleteOrder(order);
+		ActiveOrderSnapshot.discard(order.getPatient());
 	}
 	
 	/**
@@ -463,6 +504,8 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 		if (previousOrder != null && isDiscontinueOrReviseOrder(order)) {
 			setProperty(previousOrder, "dateStopped", null);
 		}
+		// the previous order may be active again
+		ActiveOrderSnapshot.discard(order.getPatient());
 		
 		return saveOrderInternal(order, null);
 	}
@@ -480,6 +523,7 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 			}
 			stopOrder(previousOrder, aMomentBefore(order.getDateActivated()), false);
 		}
+		ActiveOrderSnapshot.discard(order.getPatient());
 		
 		return saveOrderInternal(order, null);
 	}
@@ -638,13 +682,25 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 		if (asOfDate == null) {
 			asOfDate = new Date();
 		}
+		return dao.getActiveOrders(patient, getOrderTypeAndSubtypes(orderType), careSetting, asOfDate);
+	}
+	
+	/**
+	 * @see org.openmrs.api.OrderService#updateEffectiveStopDates()
+	 */
+	@Override
+	public int updateEffectiveStopDates() {
+		return dao.updateEffectiveStopDates();
+	}
+	
+	private List<OrderType> getOrderTypeAndSubtypes(OrderType orderType) {
 		List<OrderType> orderTypes = null;
 		if (orderType != null) {
 			orderTypes = new ArrayList<>();
 			orderTypes.add(orderType);
 			orderTypes.addAll(getSubtypes(orderType, true));
 		}
-		return dao.getActiveOrders(patient, orderTypes, careSetting, asOfDate);
+		return orderTypes;
 	}
 	
 	/**
@@ -660,7 +716,8 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 */
 	@Override
 	public CareSetting getCareSettingByUuid(String uuid) {
-		return dao.getCareSettingByUuid(uuid);
+		return MetadataIndex.lookup(careSettingIndex.getIdByUuid(uuid), dao::getCareSetting,
+		    () -> dao.getCareSettingByUuid(uuid));
 	}
 	
 	/**
@@ -668,7 +725,8 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 */
 	@Override
 	public CareSetting getCareSettingByName(String name) {
-		return dao.getCareSettingByName(name);
+		return MetadataIndex.lookup(careSettingIndex.getIdByNameIgnoreCase(name), dao::getCareSetting,
+		    () -> dao.getCareSettingByName(name));
 	}
 	
 	/**
@@ -684,7 +742,8 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 */
 	@Override
 	public OrderType getOrderTypeByName(String orderTypeName) {
-		return dao.getOrderTypeByName(orderTypeName);
+		return MetadataIndex.lookup(orderTypeIndex.getIdByName(orderTypeName, true), dao::getOrderType,
+		    () -> dao.getOrderTypeByName(orderTypeName));
 	}
 	
 	/**
@@ -895,7 +954,8 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	@Override
 	@Transactional(readOnly = true)
 	public OrderType getOrderTypeByUuid(String uuid) {
-		return dao.getOrderTypeByUuid(uuid);
+		return MetadataIndex.lookup(orderTypeIndex.getIdByUuid(uuid), dao::getOrderType,
+		    () -> dao.getOrderTypeByUuid(uuid));
 	}
 	
 	/**
@@ -912,7 +972,9 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	 */
 	@Override
 	public OrderType saveOrderType(OrderType orderType) {
-		return dao.saveOrderType(orderType);
+		OrderType savedOrderType = dao.saveOrderType(orderType);
+		orderTypeIndex.invalidate();
+		return savedOrderType;
 	}
 	
 	/**
@@ -924,6 +986,7 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 			throw new CannotDeleteObjectInUseException("Order.type.cannot.delete", (Object[]) null);
 		}
 		dao.purgeOrderType(orderType);
+		orderTypeIndex.invalidate();
 	}
 	
 	/**
@@ -949,14 +1012,11 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	@Transactional(readOnly = true)
 	public List<OrderType> getSubtypes(OrderType orderType, boolean includeRetired) {
 		List<OrderType> allSubtypes = new ArrayList<>();
-		List<OrderType> immediateAncestors = dao.getOrderSubtypes(orderType, includeRetired);
-		while (!immediateAncestors.isEmpty()) {
-			List<OrderType> ancestorsAtNextLevel = new ArrayList<>();
-			for (OrderType type : immediateAncestors) {
-				allSubtypes.add(type);
-				ancestorsAtNextLevel.addAll(dao.getOrderSubtypes(type, includeRetired));
-			}
-			immediateAncestors = ancestorsAtNextLevel;
+		if (orderType == null || orderType.getOrderTypeId() == null) {
+			return allSubtypes;
+		}
+		for (int subtypeId : orderTypeIndex.getDescendantIds(orderType.getOrderTypeId(), includeRetired)) {
+			allSubtypes.add(dao.getOrderType(subtypeId));
 		}
 		return allSubtypes;
 	}
@@ -967,7 +1027,15 @@ public class OrderServiceImpl extends BaseOpenmrsService implements OrderService
 	@Override
 	@Transactional(readOnly = true)
 	public OrderType getOrderTypeByConceptClass(ConceptClass conceptClass) {
-		return dao.getOrderTypeByConceptClass(conceptClass);
+		Integer orderTypeId = null;
+		if (conceptClass != null && conceptClass.getConceptClassId() != null) {
+			if (!orderTypeIndex.isConceptClassMapped(conceptClass.getConceptClassId())) {
+				// the index knows every mapping, the query would not find an order type either
+				return null;
+			}
+			orderTypeId = orderTypeIndex.getIdByConceptClass(conceptClass.getConceptClassId());
+		}
+		return MetadataIndex.lookup(orderTypeId, dao::getOrderType, () -> dao.getOrderTypeByConceptClass(conceptClass));
 	}
 	
 	/**
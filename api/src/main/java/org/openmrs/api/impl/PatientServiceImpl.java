@@ -48,6 +48,9 @@ import org.openmrs.api.context.Context;
 import org.openmrs.api.db.PatientDAO;
 import org.openmrs.parameter.EncounterSearchCriteria;
 import org.openmrs.parameter.EncounterSearchCriteriaBuilder;
+import org.openmrs.patient.DuplicatePatientCandidate;
+import org.openmrs.patient.DuplicatePatientDetector;
+import org.openmrs.patient.DuplicatePatientMatch;
 import org.openmrs.patient.IdentifierValidator;
 import org.openmrs.patient.impl.LuhnIdentifierValidator;
 import org.openmrs.person.PersonMergeLog;
@@ -89,6 +92,8 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	
 	private PatientDAO dao;
 	
+	private final MetadataIndex identifierTypeIndex = new MetadataIndex(() -> dao.getPatientIdentifierTypeMetadata());
+	
 	/**
 	 * PatientIdentifierValidators registered through spring's applicationContext-service.xml
 	 */
@@ -397,7 +402,9 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	@Override
 	public PatientIdentifierType savePatientIdentifierType(PatientIdentifierType patientIdentifierType) throws APIException {
 		checkIfPatientIdentifierTypesAreLocked();
-		return dao.savePatientIdentifierType(patientIdentifierType);
+		PatientIdentifierType savedType = dao.savePatientIdentifierType(patientIdentifierType);
+		identifierTypeIndex.invalidate();
+		return savedType;
 	}
 	
 	/**
@@ -448,13 +455,15 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	@Override
 	@Transactional(readOnly = true)
 	public PatientIdentifierType getPatientIdentifierTypeByName(String name) throws APIException {
-		List<PatientIdentifierType> types = getPatientIdentifierTypes(name, null, null, null);
-		
-		if (!types.isEmpty()) {
-			return types.get(0);
-		}
-		
-		return null;
+		return MetadataIndex.lookup(identifierTypeIndex.getIdByName(name, false), dao::getPatientIdentifierType, () -> {
+			List<PatientIdentifierType> types = getPatientIdentifierTypes(name, null, null, null);
+			
+			if (!types.isEmpty()) {
+				return types.get(0);
+			}
+			
+			return null;
+		});
 	}
 	
 	/**
@@ -497,6 +506,7 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	public void purgePatientIdentifierType(PatientIdentifierType patientIdentifierType) throws APIException {
 		checkIfPatientIdentifierTypesAreLocked();
 		dao.deletePatientIdentifierType(patientIdentifierType);
+		identifierTypeIndex.invalidate();
 	}
 	
 	// end patient identifier _type_ section
@@ -541,6 +551,25 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 		return dao.getDuplicatePatientsByAttributes(attributes);
 	}
 	
+	/**
+	 * @see org.openmrs.api.PatientService#getDuplicatePatientMatches(java.util.Date, Integer, Integer)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<DuplicatePatientMatch> getDuplicatePatientMatches(Date registeredSince, Integer start, Integer length)
+	        throws APIException {
+		DuplicatePatientDetector detector = new DuplicatePatientDetector();
+		List<DuplicatePatientCandidate> candidates;
+		if (registeredSince == null) {
+			candidates = dao.getDuplicatePatientCandidates();
+		} else {
+			// only patients that can share a blocking key with a new patient are loaded
+			Set<String> initials = detector.getFamilyNameInitials(dao.getDuplicatePatientCandidates(registeredSince));
+			candidates = dao.getDuplicatePatientCandidatesByFamilyNameInitials(initials);
+		}
+		return detector.findDuplicates(candidates, registeredSince, start, length);
+	}
+	
 	/**
 	 * generate a relationship hash for use in mergePatients; follows the convention:
 	 * [relationshipType][A|B][relativeId]
@@ -1238,7 +1267,8 @@ public class PatientServiceImpl extends BaseOpenmrsService implements PatientSer
 	@Override
 	@Transactional(readOnly = true)
 	public PatientIdentifierType getPatientIdentifierTypeByUuid(String uuid) throws APIException {
-		return dao.getPatientIdentifierTypeByUuid(uuid);
+		return MetadataIndex.lookup(identifierTypeIndex.getIdByUuid(uuid), dao::getPatientIdentifierType,
+		    () -> dao.getPatientIdentifierTypeByUuid(uuid));
 	}
 	
 	/**
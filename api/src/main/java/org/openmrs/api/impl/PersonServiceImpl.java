@@ -10,13 +10,17 @@
 package org.openmrs.api.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
+import org.openmrs.Attributable;
 import org.openmrs.GlobalProperty;
 import org.openmrs.Person;
 import org.openmrs.PersonAddress;
@@ -36,6 +40,7 @@ import org.openmrs.person.PersonMergeLogData;
 import org.openmrs.serialization.SerializationException;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsConstants.PERSON_TYPE;
+import org.openmrs.util.PersonAttributeHydrator;
 import org.openmrs.validator.ValidateUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,6 +64,8 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 	
 	private PersonDAO dao;
 	
+	private final MetadataIndex attributeTypeIndex = new MetadataIndex(() -> dao.getPersonAttributeTypeMetadata());
+	
 	/**
 	 * @see org.openmrs.api.PersonService#setPersonDAO(org.openmrs.api.db.PersonDAO)
 	 */
@@ -117,13 +124,15 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 	@Override
 	@Transactional(readOnly = true)
 	public PersonAttributeType getPersonAttributeTypeByName(String typeName) throws APIException {
-		List<PersonAttributeType> types = Context.getPersonService().getPersonAttributeTypes(typeName, null, null, null);
-		
-		if (types.isEmpty()) {
-			return null;
-		} else {
-			return types.get(0);
-		}
+		return MetadataIndex.lookup(attributeTypeIndex.getIdByName(typeName, true), dao::getPersonAttributeType, () -> {
+			List<PersonAttributeType> types = Context.getPersonService().getPersonAttributeTypes(typeName, null, null, null);
+			
+			if (types.isEmpty()) {
+				return null;
+			} else {
+				return types.get(0);
+			}
+		});
 	}
 	
 	/**
@@ -133,6 +142,7 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 	public void purgePersonAttributeType(PersonAttributeType type) throws APIException {
 		checkIfPersonAttributeTypesAreLocked();
 		dao.deletePersonAttributeType(type);
+		attributeTypeIndex.invalidate();
 	}
 	
 	/**
@@ -181,6 +191,7 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 		}
 		
 		PersonAttributeType attributeType = dao.savePersonAttributeType(type);
+		attributeTypeIndex.invalidate();
 		
 		if (updateExisting) {
 			//we need to update index in case searchable property has changed
@@ -206,7 +217,9 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 		type.setRetireReason(retiredReason);
 		type.setDateRetired(new Date());
 		
-		return dao.savePersonAttributeType(type);
+		PersonAttributeType retiredType = dao.savePersonAttributeType(type);
+		attributeTypeIndex.invalidate();
+		return retiredType;
 	}
 	
 	/**
@@ -249,6 +262,67 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 		return dao.getPersonAttribute(id);
 	}
 	
+	/**
+	 * @see org.openmrs.api.PersonService#getHydratedAttributeValues(java.util.Collection)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public Map<PersonAttribute, Object> getHydratedAttributeValues(Collection<? extends Person> persons) {
+		List<PersonAttribute> attributes = new ArrayList<>();
+		Map<String, Set<Integer>> idsByFormat = new HashMap<>();
+		for (Person person : persons) {
+			for (PersonAttribute attribute : person.getActiveAttributes()) {
+				attributes.add(attribute);
+				Integer id = toId(attribute.getValue());
+				if (id != null && attribute.getAttributeType() != null && attribute.getAttributeType().getFormat() != null) {
+					idsByFormat.computeIfAbsent(attribute.getAttributeType().getFormat(), format -> new HashSet<>()).add(id);
+				}
+			}
+		}
+		
+		// load the objects the values refer to so that hydrating the values finds them in the session
+		for (Map.Entry<String, Set<Integer>> entry : idsByFormat.entrySet()) {
+			try {
+				Class<?> type = PersonAttributeHydrator.getType(entry.getKey());
+				if (Attributable.class.isAssignableFrom(type)) {
+					dao.getObjectsByIds(type, entry.getValue());
+				}
+			}
+			catch (ReflectiveOperationException e) {
+				log.debug("Unable to load the class of format {}", entry.getKey(), e);
+			}
+		}
+		
+		Map<PersonAttribute, Object> values = new HashMap<>();
+		Map<List<String>, Object> hydrated = new HashMap<>();
+		for (PersonAttribute attribute : attributes) {
+			String format = attribute.getAttributeType() == null ? null : attribute.getAttributeType().getFormat();
+			if (format == null) {
+				// there is no class to hydrate the value into
+				values.put(attribute, attribute.getValue());
+				continue;
+			}
+			List<String> key = Arrays.asList(format, attribute.getValue());
+			if (!hydrated.containsKey(key)) {
+				hydrated.put(key, attribute.getHydratedObject());
+			}
+			values.put(attribute, hydrated.get(key));
+		}
+		return values;
+	}
+	
+	private Integer toId(String value) {
+		if (!StringUtils.isNumeric(value)) {
+			return null;
+		}
+		try {
+			return Integer.valueOf(value);
+		}
+		catch (NumberFormatException e) {
+			return null;
+		}
+	}
+	
 	/**
 	 * @see org.openmrs.api.PersonService#getRelationship(java.lang.Integer)
 	 */
@@ -759,7 +833,8 @@ public class PersonServiceImpl extends BaseOpenmrsService implements PersonServi
 	@Override
 	@Transactional(readOnly = true)
 	public PersonAttributeType getPersonAttributeTypeByUuid(String uuid) {
-		return dao.getPersonAttributeTypeByUuid(uuid);
+		return MetadataIndex.lookup(attributeTypeIndex.getIdByUuid(uuid), dao::getPersonAttributeType,
+		    () -> dao.getPersonAttributeTypeByUuid(uuid));
 	}
 	
 	/**
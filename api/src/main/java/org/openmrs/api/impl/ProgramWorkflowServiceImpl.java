@@ -13,6 +13,8 @@ import java.util.ArrayList;
 import java.util.Set;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import org.openmrs.Cohort;
@@ -491,6 +493,49 @@ public class ProgramWorkflowServiceImpl extends BaseOpenmrsService implements Pr
 		}
 	}
 	
+	/**
+	 * @see org.openmrs.api.ProgramWorkflowService#triggerStateConversion(org.openmrs.Cohort,
+	 *      org.openmrs.Concept, java.util.Date)
+	 */
+	@Override
+	public int triggerStateConversion(Cohort cohort, Concept trigger, Date dateConverted) throws APIException {
+		if (cohort == null) {
+			throw new APIException("convert.state.invalid.patient", (Object[]) null);
+		}
+		if (trigger == null) {
+			throw new APIException("convert.state.patient.without.valid.trigger", (Object[]) null);
+		}
+		if (dateConverted == null) {
+			throw new APIException("convert.state.invalid.date", (Object[]) null);
+		}
+		
+		// the states each state for the trigger may be entered from, null standing for no current state
+		Map<ProgramWorkflowState, Set<Integer>> transitions = new HashMap<>();
+		for (Program program : getAllPrograms(true)) {
+			for (ProgramWorkflow workflow : program.getWorkflows()) {
+				ProgramWorkflowState transitionState = workflow.getState(trigger);
+				if (transitionState == null) {
+					continue;
+				}
+				Set<Integer> fromStates = new HashSet<>();
+				if (workflow.isLegalTransition(null, transitionState)) {
+					fromStates.add(null);
+				}
+				for (ProgramWorkflowState state : workflow.getStates()) {
+					if (workflow.isLegalTransition(state, transitionState)) {
+						fromStates.add(state.getProgramWorkflowStateId());
+					}
+				}
+				transitions.put(transitionState, fromStates);
+			}
+		}
+		
+		int created = dao.transitionPatientStates(cohort.getMemberIds(), transitions, dateConverted, Context
+		        .getAuthenticatedUser());
+		log.debug("State conversion triggered by {} created {} patient states", trigger, created);
+		return created;
+	}
+	
 	/**
 	 * @see org.openmrs.api.ProgramWorkflowService#getConceptStateConversion(org.openmrs.ProgramWorkflow,
 	 *      org.openmrs.Concept)
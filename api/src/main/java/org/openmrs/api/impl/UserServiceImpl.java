@@ -29,6 +29,7 @@ import org.openmrs.api.APIAuthenticationException;
 import org.openmrs.api.APIException;
 import org.openmrs.api.CannotDeleteRoleWithChildrenException;
 import org.openmrs.api.UserService;
+import org.openmrs.api.context.AuthenticatedPrincipal;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.DAOException;
 import org.openmrs.api.db.LoginCredential;
@@ -154,6 +155,8 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			        + " is already in use.");
 		}
 		
+		// the roles of the user may have changed
+		AuthenticatedPrincipal.invalidate(user.getUserId());
 		return dao.saveUser(user, null);
 	}
 	
@@ -234,6 +237,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deletePrivilege(privilege);
+		AuthenticatedPrincipal.invalidateAll();
 	}
 	
 	/**
@@ -241,6 +245,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	 */
 	@Override
 	public Privilege savePrivilege(Privilege privilege) throws APIException {
+		AuthenticatedPrincipal.invalidateAll();
 		return dao.savePrivilege(privilege);
 	}
 
@@ -280,6 +285,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deleteRole(role);
+		AuthenticatedPrincipal.invalidateAll();
 	}
 	
 	/**
@@ -295,6 +301,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		
 		checkPrivileges(role);
 		
+		AuthenticatedPrincipal.invalidateAll();
 		return dao.saveRole(role);
 	}
 	
@@ -494,6 +501,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 	@Override
 	public void purgeUser(User user) throws APIException {
 		dao.deleteUser(user);
+		AuthenticatedPrincipal.invalidate(user.getUserId());
 	}
 	
 	/**
@@ -506,6 +514,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 		}
 		
 		dao.deleteUser(user);
+		AuthenticatedPrincipal.invalidate(user.getUserId());
 	}
 	
 	/**
@@ -563,14 +572,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			name = StringUtils.replace(name,", ", " ");
 		}
 		
-		// if the authenticated role is in the list of searched roles, then all
-		// persons should be searched
-		Role authRole = getRole(RoleConstants.AUTHENTICATED);
-		if (roles.contains(authRole)) {
-			return dao.getCountOfUsers(name, new ArrayList<>(), includeRetired);
-		}
-		
-		return dao.getCountOfUsers(name, roles, includeRetired);
+		return dao.getCountOfUsers(name, getSearchRoles(roles), includeRetired);
 	}
 	
 	/**
@@ -584,17 +586,37 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			name = StringUtils.replace(name,", ", " ");
 		}
 		
+		return dao.getUsers(name, getSearchRoles(roles), includeRetired, start, length);
+	}
+	
+	/**
+	 * @see UserService#getUserPropertyValues(String, List)
+	 */
+	@Override
+	@Transactional(readOnly = true)
+	public List<String> getUserPropertyValues(String key, List<Role> roles) {
+		return dao.getUserPropertyValues(key, getSearchRoles(roles));
+	}
+	
+	/**
+	 * Gets the roles users have to have one of to match a search, so that the users and the count
+	 * of users returned for a search agree
+	 * 
+	 * @param roles the searched roles
+	 * @return the roles and all their child roles or an empty list if all users should be searched
+	 */
+	private List<Role> getSearchRoles(List<Role> roles) {
 		if (roles == null) {
-			roles = new ArrayList<>();
+			return new ArrayList<>();
 		}
-
+		
 		// if the authenticated role is in the list of searched roles, then all
 		// persons should be searched
 		Role authRole = getRole(RoleConstants.AUTHENTICATED);
 		if (roles.contains(authRole)) {
-			return dao.getUsers(name, new ArrayList<>(), includeRetired, start, length);
+			return new ArrayList<>();
 		}
-
+		
 		// add the requested roles and all child roles for consideration
 		Set<Role> allRoles = new HashSet<>();
 		for (Role r : roles) {
@@ -602,7 +624,7 @@ public class UserServiceImpl extends BaseOpenmrsService implements UserService {
 			allRoles.addAll(r.getAllChildRoles());
 		}
 		
-		return dao.getUsers(name, new ArrayList<>(allRoles), includeRetired, start, length);
+		return new ArrayList<>(allRoles);
 	}
 	
 	@Override
@@ -46,6 +46,8 @@ public class VisitServiceImpl extends BaseOpenmrsService implements VisitService
 	
 	private VisitDAO dao;
 	
+	private final MetadataIndex visitTypeIndex = new MetadataIndex(() -> getVisitDAO().getVisitTypeMetadata());
+	
 	/**
 	 * Method used to inject the visit data access object.
 	 *
@@ -92,7 +94,8 @@ public class VisitServiceImpl extends BaseOpenmrsService implements VisitService
 	@Override
 	@Transactional(readOnly = true)
 	public VisitType getVisitTypeByUuid(String uuid) {
-		return getVisitDAO().getVisitTypeByUuid(uuid);
+		return MetadataIndex.lookup(visitTypeIndex.getIdByUuid(uuid), getVisitDAO()::getVisitType,
+		    () -> getVisitDAO().getVisitTypeByUuid(uuid));
 	}
 	
 	/**
@@ -110,7 +113,9 @@ public class VisitServiceImpl extends BaseOpenmrsService implements VisitService
 	@Override
 	public VisitType saveVisitType(VisitType visitType) throws APIException {
 		ValidateUtil.validate(visitType);
-		return getVisitDAO().saveVisitType(visitType);
+		VisitType savedVisitType = getVisitDAO().saveVisitType(visitType);
+		visitTypeIndex.invalidate();
+		return savedVisitType;
 	}
 	
 	/**
@@ -135,6 +140,7 @@ public class VisitServiceImpl extends BaseOpenmrsService implements VisitService
 	@Override
 	public void purgeVisitType(VisitType visitType) {
 		getVisitDAO().purgeVisitType(visitType);
+		visitTypeIndex.invalidate();
 	}
 	
 	/**
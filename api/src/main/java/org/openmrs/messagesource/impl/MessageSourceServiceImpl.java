@@ -100,12 +100,12 @@ public class MessageSourceServiceImpl implements MessageSourceService {
 	 */
 	@Override
 	public String getMessage(MessageSourceResolvable resolvable, Locale locale) {
-		if((resolvable.getCodes()[0]).equals((activeMessageSource.getMessage(resolvable, locale)))){
-			return (resolvable.getCodes()[(resolvable.getCodes().length) - 1]);
-		}
-		else{
-			return activeMessageSource.getMessage(resolvable, locale);
+		String message = activeMessageSource.getMessage(resolvable, locale);
+		String[] codes = resolvable.getCodes();
+		if (codes[0].equals(message)) {
+			return codes[codes.length - 1];
 		}
+		return message;
 	}
 	
 	/**
@@ -10,6 +10,7 @@
 package org.openmrs.messagesource.impl;
 
 import java.io.IOException;
+import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -21,6 +22,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openmrs.messagesource.MutableMessageSource;
 import org.openmrs.messagesource.PresentationMessage;
@@ -40,6 +42,12 @@ import org.springframework.core.io.support.ResourcePatternResolver;
 /**
  * ResourceBundleMessageSource extends ReloadableResourceBundleMessageSource to provide the
  * additional features of a MutableMessageSource.
+ * <p>
+ * Instead of searching the properties files of every basename and fallback locale for each code,
+ * messages are looked up in an index holding the merged messages of each locale with the fallback
+ * already applied, along with the message formats compiled from them. The index of a locale is
+ * replaced as a whole when one of its properties files is reloaded and the whole index is discarded
+ * when the basenames change, i.e. when modules are started or stopped.
  */
 public class MutableResourceBundleMessageSource extends ReloadableResourceBundleMessageSource implements MutableMessageSource {
 
@@ -50,6 +58,11 @@ public class MutableResourceBundleMessageSource extends ReloadableResourceBundle
 	 */
 	private String[] basenames = new String[0];
 	
+	/**
+	 * The basenames passed to the superclass, including those of the started modules.
+	 */
+	private String[] resolvedBasenames = new String[0];
+	
 	private int cacheMilliseconds = -1;
 	
 	private long lastCached = System.currentTimeMillis();
@@ -57,6 +70,9 @@ public class MutableResourceBundleMessageSource extends ReloadableResourceBundle
 	/** Cached list of available locales. */
 	private Collection<Locale> locales;
 	
+	/** The merged messages of every locale looked up so far. */
+	private volatile Map<Locale, LocaleMessages> messageIndex = new ConcurrentHashMap<>();
+	
 	/**
 	 * @see org.openmrs.messagesource.MessageSourceService#getLocales()
 	 */
@@ -194,6 +210,68 @@ public class MutableResourceBundleMessageSource extends ReloadableResourceBundle
 		}
 		
 		super.setBasenames(basenames);
+		resolvedBasenames = basenames == null ? new String[0] : basenames;
+		messageIndex = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * @see org.springframework.context.support.ReloadableResourceBundleMessageSource#clearCache()
+	 */
+	@Override
+	public void clearCache() {
+		super.clearCache();
+		messageIndex = new ConcurrentHashMap<>();
+	}
+	
+	/**
+	 * Looks the code up in the merged messages of the locale instead of searching every properties
+	 * file.
+	 *
+	 * @see org.springframework.context.support.ReloadableResourceBundleMessageSource#resolveCodeWithoutArguments(java.lang.String,
+	 *      java.util.Locale)
+	 */
+	@Override
+	protected String resolveCodeWithoutArguments(String code, Locale locale) {
+		return getLocaleMessages(locale).getMessage(code);
+	}
+	
+	/**
+	 * Returns the message format compiled from the merged message of the locale, it is compiled
+	 * once per code and locale.
+	 *
+	 * @see org.springframework.context.support.ReloadableResourceBundleMessageSource#resolveCode(java.lang.String,
+	 *      java.util.Locale)
+	 */
+	@Override
+	protected MessageFormat resolveCode(String code, Locale locale) {
+		return getLocaleMessages(locale).getMessageFormat(code);
+	}
+	
+	/**
+	 * Gets the merged messages of a locale, merging them if they have not been merged yet or if one
+	 * of the properties files they were merged from has been reloaded since.
+	 *
+	 * @param locale the locale
+	 * @return the merged messages
+	 */
+	private LocaleMessages getLocaleMessages(Locale locale) {
+		Map<Locale, LocaleMessages> index = messageIndex;
+		LocaleMessages messages = index.get(locale);
+		long now = System.currentTimeMillis();
+		if (messages == null || (cacheMilliseconds >= 0 && now - messages.checked >= cacheMilliseconds)) {
+			List<PropertiesHolder> holders = new ArrayList<>();
+			for (String basename : resolvedBasenames) {
+				for (String filename : calculateAllFilenames(basename, locale)) {
+					holders.add(getProperties(filename));
+				}
+			}
+			if (messages == null || !messages.isMergedFrom(holders)) {
+				messages = new LocaleMessages(locale, holders);
+				index.put(locale, messages);
+			}
+			messages.checked = now;
+		}
+		return messages;
 	}
 	
 	/**
@@ -371,4 +449,64 @@ public class MutableResourceBundleMessageSource extends ReloadableResourceBundle
 		return null;
 	}
 	
+	/**
+	 * The messages of one locale merged from the properties files of every basename and fallback
+	 * locale, earlier basenames and more specific locales taking precedence. Only the time it was last
+	 * checked against the properties files changes once created.
+	 */
+	private class LocaleMessages {
+		
+		private final Locale locale;
+		
+		private final List<PropertiesHolder> mergedFrom;
+		
+		private final Map<String, String> messages = new HashMap<>();
+		
+		private final Map<String, MessageFormat> messageFormats = new ConcurrentHashMap<>();
+		
+		private volatile long checked;
+		
+		LocaleMessages(Locale locale, List<PropertiesHolder> holders) {
+			this.locale = locale;
+			this.mergedFrom = holders;
+			for (int i = holders.size() - 1; i >= 0; i--) {
+				Properties properties = holders.get(i).getProperties();
+				if (properties != null) {
+					for (Map.Entry<Object, Object> property : properties.entrySet()) {
+						messages.put(property.getKey().toString(), property.getValue().toString());
+					}
+				}
+			}
+		}
+		
+		boolean isMergedFrom(List<PropertiesHolder> holders) {
+			if (holders.size() != mergedFrom.size()) {
+				return false;
+			}
+			for (int i = 0; i < holders.size(); i++) {
+				// a properties file that has been reloaded gets a new holder
+				if (holders.get(i) != mergedFrom.get(i)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		String getMessage(String code) {
+			return messages.get(code);
+		}
+		
+		MessageFormat getMessageFormat(String code) {
+			MessageFormat messageFormat = messageFormats.get(code);
+			if (messageFormat == null) {
+				String message = messages.get(code);
+				if (message == null) {
+					return null;
+				}
+				messageFormat = createMessageFormat(message, locale);
+				messageFormats.put(code, messageFormat);
+			}
+			return messageFormat;
+		}
+	}
 }
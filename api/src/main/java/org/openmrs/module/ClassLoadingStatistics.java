@@ -0,0 +1,94 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters describing how classes are looked up by the {@link ModuleClassLoader}s. The counters are
+ * updated without locking from every class loading thread and are logged once modules have started
+ * so that slow startups can be attributed to class loading.
+ *
+ * @since 2.2
+ */
+public class ClassLoadingStatistics {
+
+	private static final LongAdder classesFound = new LongAdder();
+
+	private static final LongAdder classesNotFound = new LongAdder();
+
+	private static final LongAdder negativeCacheHits = new LongAdder();
+
+	private static final LongAdder findClassNanos = new LongAdder();
+
+	private ClassLoadingStatistics() {
+	}
+
+	static void classFound(long nanos) {
+		classesFound.increment();
+		findClassNanos.add(nanos);
+	}
+
+	static void classNotFound(long nanos) {
+		classesNotFound.increment();
+		findClassNanos.add(nanos);
+	}
+
+	static void negativeCacheHit() {
+		negativeCacheHits.increment();
+	}
+
+	/**
+	 * @return the number of classes defined by module class loaders
+	 */
+	public static long getClassesFound() {
+		return classesFound.sum();
+	}
+
+	/**
+	 * @return the number of times a module class loader searched its own urls without finding a class
+	 */
+	public static long getClassesNotFound() {
+		return classesNotFound.sum();
+	}
+
+	/**
+	 * @return the number of times a search was skipped because the class was known to be missing
+	 */
+	public static long getNegativeCacheHits() {
+		return negativeCacheHits.sum();
+	}
+
+	/**
+	 * @return the total time module class loaders spent searching their own urls, in milliseconds
+	 */
+	public static long getFindClassMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(findClassNanos.sum());
+	}
+
+	/**
+	 * Resets all counters
+	 */
+	public static void reset() {
+		classesFound.reset();
+		classesNotFound.reset();
+		negativeCacheHits.reset();
+		findClassNanos.reset();
+	}
+
+	/**
+	 * @return a one line summary of the counters, suitable for logging
+	 */
+	public static String getSummary() {
+		return "classes found: " + getClassesFound() + ", not found: " + getClassesNotFound() + ", negative cache hits: "
+		        + getNegativeCacheHits() + ", time searching: " + getFindClassMillis() + "ms";
+	}
+}
@@ -37,6 +37,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -56,11 +57,21 @@ public class ModuleClassLoader extends URLClassLoader {
 	
 	static Logger log = LoggerFactory.getLogger(ModuleClassLoader.class);
 	
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
+	
+	/**
+	 * The maximum number of class names remembered as missing, the set is cleared when it grows
+	 * beyond this size
+	 */
+	private static final int MAX_NOT_FOUND_CLASSES = 10000;
+	
 	private final Module module;
 	
-	private Module[] requiredModules;
+	private volatile Module[] requiredModules;
 	
-	private Module[] awareOfModules;
+	private volatile Module[] awareOfModules;
 	
 	private Map<URI, File> libraryCache;
 	
@@ -68,8 +79,13 @@ public class ModuleClassLoader extends URLClassLoader {
 	
 	private Set<String> providedPackages = new LinkedHashSet<>();
 	
-	private boolean disposed = false;
-
+	private volatile boolean disposed = false;
+	
+	/**
+	 * Names of classes that are not in this module's own urls, so that lookups which walk through
+	 * this module on their way to another one do not have to search the urls again
+	 */
+	private final Set<String> notFoundClasses = ConcurrentHashMap.newKeySet();
 	
 	/**
 	 * @param module Module
@@ -522,6 +538,7 @@ public class ModuleClassLoader extends URLClassLoader {
 		}
 		requiredModules = collectRequiredModuleImports(getModule());
 		awareOfModules = collectAwareOfModuleImports(getModule());
+		notFoundClasses.clear();
 		libraryCache.entrySet().removeIf(uriFileEntry -> uriFileEntry.getValue() == null);
 	}
 	
@@ -537,6 +554,7 @@ public class ModuleClassLoader extends URLClassLoader {
 		}
 		
 		libraryCache.clear();
+		notFoundClasses.clear();
 		requiredModules = null;
 		awareOfModules = null;
 		disposed = true;
@@ -605,7 +623,7 @@ public class ModuleClassLoader extends URLClassLoader {
 	 * @return Class that has been loaded
 	 * @throws ClassNotFoundException if no class found
 	 */
-	protected synchronized Class<?> loadClass(final String name, final boolean resolve, final ModuleClassLoader requestor,
+	protected Class<?> loadClass(final String name, final boolean resolve, final ModuleClassLoader requestor,
 	        Set<String> seenModules) throws ClassNotFoundException {
 		
 		if (log.isTraceEnabled()) {
@@ -637,28 +655,50 @@ public class ModuleClassLoader extends URLClassLoader {
 			throw new ClassNotFoundException(msg);
 		}
 		
-		// Check if the class has already been loaded by this class loader
-		Class<?> result = findLoadedClass(name);
-		
-		// Try loading the class with this class loader 
+		Class<?> result = loadClassFromModules(name, requestor, seenModules);
 		if (result == null) {
-			try {
-				result = findClass(name);
-			}
-			catch (ClassNotFoundException e) {
-				// Continue trying...
-			}
+			throw new ClassNotFoundException(name);
+		}
+		if (resolve) {
+			resolveClass(result);
+		}
+		return result;
+	}
+	
+	/**
+	 * Looks for the class in this module and then in its imports. Misses are reported by returning
+	 * null rather than by throwing, since most lookups in a module graph are misses. Imports that
+	 * provide the package of the class are tried before the others so that a class normally resolves
+	 * directly to its owning module.
+	 * 
+	 * @return the class or null if neither this module nor its imports can load it
+	 */
+	private Class<?> loadClassFromModules(final String name, final ModuleClassLoader requestor, Set<String> seenModules) {
+		if (log.isTraceEnabled()) {
+			log.trace("Searching " + name + " in " + getModule() + ", seenModules: " + seenModules + ", requestor: "
+			        + requestor);
 		}
 		
+		Class<?> result = findLocalClass(name);
+		
 		// We were able to "find" a class
 		if (result != null) {
-			checkClassVisibility(result, requestor);
-			
-			return result;
+			try {
+				checkClassVisibility(result, requestor);
+				return result;
+			}
+			catch (ClassNotFoundException e) {
+				return null;
+			}
 		}
 		
 		// Look through this module's imports to see if the class
 		// can be loaded from them.
+		Module[] required = requiredModules;
+		Module[] awareOf = awareOfModules;
+		if ((required == null || required.length == 0) && (awareOf == null || awareOf.length == 0)) {
+			return null;
+		}
 		
 		if (seenModules == null) {
 			seenModules = new HashSet<>();
@@ -667,14 +707,32 @@ public class ModuleClassLoader extends URLClassLoader {
 		// Add this module to the list of modules we've tried already
 		seenModules.add(getModule().getModuleId());
 		
-		List<Module> importedModules = new ArrayList<>();
-		if (requiredModules != null) {
-			Collections.addAll(importedModules, requiredModules);
-		}
-		if (awareOfModules != null) {
-			Collections.addAll(importedModules, awareOfModules);
+		Set<ModuleClassLoader> owners = ModuleFactory.getModuleClassLoadersProvidingPackage(StringUtils.substringBeforeLast(
+		    name, "."));
+		
+		if (!owners.isEmpty()) {
+			result = loadClassFromImports(name, requestor, seenModules, required, owners, true);
+			if (result == null) {
+				result = loadClassFromImports(name, requestor, seenModules, awareOf, owners, true);
+			}
+			if (result != null) {
+				return result;
+			}
 		}
 		
+		// the package index may not know about every library of a module so fall back to the others
+		result = loadClassFromImports(name, requestor, seenModules, required, owners, false);
+		if (result == null) {
+			result = loadClassFromImports(name, requestor, seenModules, awareOf, owners, false);
+		}
+		return result;
+	}
+	
+	private Class<?> loadClassFromImports(final String name, final ModuleClassLoader requestor, Set<String> seenModules,
+	        Module[] importedModules, Set<ModuleClassLoader> owners, boolean owningModulesOnly) {
+		if (importedModules == null) {
+			return null;
+		}
 		for (Module importedModule : importedModules) {
 			if (seenModules.contains(importedModule.getModuleId())) {
 				continue;
@@ -683,19 +741,61 @@ public class ModuleClassLoader extends URLClassLoader {
 			ModuleClassLoader moduleClassLoader = ModuleFactory.getModuleClassLoader(importedModule);
 			
 			// Module class loader may be null if module has not been started yet
-			if (moduleClassLoader != null) {
-				try {
-					result = moduleClassLoader.loadClass(name, resolve, requestor, seenModules);
-					
-					return result;
-				}
-				catch (ClassNotFoundException e) {
-					// Continue trying...
-				}
+			if (moduleClassLoader == null || moduleClassLoader == this) {
+				continue;
+			}
+			if (owners.contains(moduleClassLoader) != owningModulesOnly) {
+				continue;
+			}
+			if (moduleClassLoader != requestor && !ModuleFactory.isModuleStarted(importedModule)) {
+				log.warn("Can't load class " + name + ", because module " + importedModule.getModuleId()
+				        + " is not yet started.");
+				continue;
+			}
+			
+			Class<?> result = moduleClassLoader.loadClassFromModules(name, requestor, seenModules);
+			if (result != null) {
+				return result;
 			}
 		}
+		return null;
+	}
+	
+	/**
+	 * Finds a class in this module's own urls. Concurrent lookups of different classes do not block
+	 * each other, only lookups of the same class name share a lock.
+	 * 
+	 * @param name the name of the class
+	 * @return the class or null if it is not in this module
+	 */
+	private Class<?> findLocalClass(final String name) {
+		if (notFoundClasses.contains(name)) {
+			ClassLoadingStatistics.negativeCacheHit();
+			return null;
+		}
 		
-		throw new ClassNotFoundException(name);
+		synchronized (getClassLoadingLock(name)) {
+			// Check if the class has already been loaded by this class loader
+			Class<?> result = findLoadedClass(name);
+			if (result != null) {
+				return result;
+			}
+			
+			long start = System.nanoTime();
+			try {
+				result = findClass(name);
+				ClassLoadingStatistics.classFound(System.nanoTime() - start);
+				return result;
+			}
+			catch (ClassNotFoundException e) {
+				ClassLoadingStatistics.classNotFound(System.nanoTime() - start);
+				if (notFoundClasses.size() >= MAX_NOT_FOUND_CLASSES) {
+					notFoundClasses.clear();
+				}
+				notFoundClasses.add(name);
+				return null;
+			}
+		}
 	}
 	
 	/**
@@ -22,6 +22,7 @@ import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +30,12 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.jar.JarFile;
 import java.util.zip.ZipEntry;
 
@@ -84,6 +90,18 @@ public class ModuleFactory {
 	
 	private static volatile Set<String> actualStartupOrder;
 	
+	/**
+	 * Class loaders created ahead of time by {@link #startModules()}, they are taken over by
+	 * {@link #startModuleInternal(Module, boolean, AbstractRefreshableApplicationContext)}
+	 */
+	private static final Map<Module, ModuleClassLoader> preparedClassLoaders = new ConcurrentHashMap<>();
+	
+	/**
+	 * How long each module took to start during the last call to {@link #startModules()}, in
+	 * milliseconds and in startup order
+	 */
+	private static volatile Map<String, Long> moduleStartupTimes = Collections.emptyMap();
+	
 	/**
 	 * Add a module (in the form of a jar file) to the list of openmrs modules Returns null if an
 	 * error occurred and/or module was not successfully loaded
@@ -245,36 +263,138 @@ public class ModuleFactory {
 				modules = (List<Module>)ex.getExtraData();
 			}
 			
-			// try and start the modules that should be started
-			for (Module mod : modules) {
+			Map<String, Long> startupTimes = new LinkedHashMap<>();
+			long startupStart = System.currentTimeMillis();
+			
+			// modules in the same wave do not depend on each other, so the expensive work that
+			// does not touch the database or spring can be done for all of them at the same time
+			for (List<Module> wave : getStartupWaves(modules)) {
+				prepareClassLoaders(wave);
 				
-				if (mod.isStarted()) {
-					// skip over modules that are already started
-					continue;
+				// try and start the modules that should be started
+				for (Module mod : wave) {
+					
+					if (mod.isStarted()) {
+						// skip over modules that are already started
+						continue;
+					}
+					
+					// Skip module if required ones are not started
+					if (!requiredModulesStarted(mod)) {
+						String message = getFailedToStartModuleMessage(mod);
+						log.error(message);
+						mod.setStartupErrorMessage(message);
+						notifySuperUsersAboutModuleFailure(mod);
+						continue;
+					}
+					
+					long moduleStart = System.currentTimeMillis();
+					try {
+						if (log.isDebugEnabled()) {
+							log.debug("starting module: " + mod.getModuleId());
+						}
+						startModule(mod);
+					}
+					catch (Exception e) {
+						log.error("Error while starting module: " + mod.getName(), e);
+						mod.setStartupErrorMessage("Error while starting module", e);
+						notifySuperUsersAboutModuleFailure(mod);
+					}
+					startupTimes.put(mod.getModuleId(), System.currentTimeMillis() - moduleStart);
 				}
-				
-				// Skip module if required ones are not started
-				if (!requiredModulesStarted(mod)) {
-					String message = getFailedToStartModuleMessage(mod);
-					log.error(message);
-					mod.setStartupErrorMessage(message);
-					notifySuperUsersAboutModuleFailure(mod);
-					continue;
+			}
+			
+			// class loaders of modules that did not get started are not needed anymore
+			for (ModuleClassLoader unused : preparedClassLoaders.values()) {
+				unused.dispose();
+			}
+			preparedClassLoaders.clear();
+			
+			moduleStartupTimes = Collections.unmodifiableMap(startupTimes);
+			log.info("Started {} modules in {}ms, per module: {}", startupTimes.size(), System.currentTimeMillis()
+			        - startupStart, startupTimes);
+			log.info("Module class loading after startup, {}", ClassLoadingStatistics.getSummary());
+		}
+	}
+	
+	/**
+	 * Splits modules into waves such that every module only depends on modules in earlier waves
+	 * 
+	 * @param modules the modules in startup order
+	 * @return the waves, each in startup order
+	 * @should put modules without dependencies in the first wave
+	 * @should put modules after the modules they depend on
+	 */
+	static List<List<Module>> getStartupWaves(List<Module> modules) {
+		Map<Module, Integer> waveOf = new HashMap<>();
+		List<List<Module>> waves = new ArrayList<>();
+		for (Module mod : modules) {
+			int wave = 0;
+			List<String> dependencies = new ArrayList<>(mod.getRequiredModules());
+			dependencies.addAll(mod.getAwareOfModules());
+			for (String dependency : dependencies) {
+				Integer dependencyWave = waveOf.get(getModuleByPackage(dependency));
+				if (dependencyWave != null) {
+					wave = Math.max(wave, dependencyWave + 1);
 				}
-				
+			}
+			waveOf.put(mod, wave);
+			while (waves.size() <= wave) {
+				waves.add(new ArrayList<>());
+			}
+			waves.get(wave).add(mod);
+		}
+		return waves;
+	}
+	
+	/**
+	 * Creates the class loaders of the given modules concurrently. Creating a class loader copies
+	 * the module's libraries into the library cache and scans them for packages which is the part of
+	 * starting a module that does not depend on other modules, the database or spring.
+	 * 
+	 * @param modules modules that do not depend on each other
+	 */
+	private static void prepareClassLoaders(List<Module> modules) {
+		List<Callable<ModuleClassLoader>> tasks = new ArrayList<>();
+		for (Module mod : modules) {
+			if (!mod.isStarted() && !preparedClassLoaders.containsKey(mod)) {
+				tasks.add(() -> preparedClassLoaders.computeIfAbsent(mod,
+				    m -> new ModuleClassLoader(m, ModuleFactory.class.getClassLoader())));
+			}
+		}
+		if (tasks.size() < 2) {
+			// nothing to gain, the class loader is created when the module starts
+			return;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(tasks.size(), Runtime.getRuntime()
+		        .availableProcessors()));
+		try {
+			for (Future<ModuleClassLoader> future : executor.invokeAll(tasks)) {
 				try {
-					if (log.isDebugEnabled()) {
-						log.debug("starting module: " + mod.getModuleId());
-					}
-					startModule(mod);
+					future.get();
 				}
-				catch (Exception e) {
-					log.error("Error while starting module: " + mod.getName(), e);
-					mod.setStartupErrorMessage("Error while starting module", e);
-					notifySuperUsersAboutModuleFailure(mod);
+				catch (ExecutionException e) {
+					// the module reports the error when its class loader is created again while starting
+					log.debug("Unable to prepare module class loader", e.getCause());
 				}
-			}		
+			}
 		}
+		catch (InterruptedException e) {
+			log.warn("Interrupted while preparing module class loaders", e);
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+	
+	/**
+	 * @return how long each module took to start during the last startup of all modules, in
+	 *         milliseconds and in startup order
+	 */
+	public static Map<String, Long> getModuleStartupTimes() {
+		return moduleStartupTimes;
 	}
 	
 	/**
@@ -287,11 +407,14 @@ public class ModuleFactory {
 		
 		AdministrationService adminService = Context.getAdministrationService();
 		
+		// fetch the started and mandatory properties of all modules at once instead of querying twice per module
+		Map<String, String> startedProps = getGlobalPropertyValuesBySuffix(adminService, ".started");
+		Map<String, String> mandatoryProps = getGlobalPropertyValuesBySuffix(adminService, ".mandatory");
+		
 		for (Module mod : getLoadedModulesCoreFirst()) {
 			
-			String key = mod.getModuleId() + ".started";
-			String startedProp = adminService.getGlobalProperty(key, null);
-			String mandatoryProp = adminService.getGlobalProperty(mod.getModuleId() + ".mandatory", null);
+			String startedProp = startedProps.get((mod.getModuleId() + ".started").toLowerCase());
+			String mandatoryProp = mandatoryProps.get((mod.getModuleId() + ".mandatory").toLowerCase());
 			
 			boolean isCoreToOpenmrs = mod.isCore() && !ModuleUtil.ignoreCoreModules();
 			
@@ -305,6 +428,15 @@ public class ModuleFactory {
 		return modules;
 	}
 	
+	private static Map<String, String> getGlobalPropertyValuesBySuffix(AdministrationService adminService, String suffix) {
+		Map<String, String> values = new HashMap<>();
+		for (GlobalProperty gp : adminService.getGlobalPropertiesBySuffix(suffix)) {
+			// global property names are matched case insensitively by the database
+			values.put(gp.getProperty().toLowerCase(), gp.getPropertyValue());
+		}
+		return values;
+	}
+	
 	/**
 	 * Sort modules in startup order based on required and aware-of dependencies
 	 * 
@@ -660,8 +792,11 @@ public class ModuleFactory {
 					throw new ModuleException(getFailedToStartModuleMessage(module));
 				}
 				
-				// fire up the classloader for this module
-				ModuleClassLoader moduleClassLoader = new ModuleClassLoader(module, ModuleFactory.class.getClassLoader());
+				// fire up the classloader for this module, unless it has been prepared already
+				ModuleClassLoader moduleClassLoader = preparedClassLoaders.remove(module);
+				if (moduleClassLoader == null) {
+					moduleClassLoader = new ModuleClassLoader(module, ModuleFactory.class.getClassLoader());
+				}
 				getModuleClassLoaderMap().put(module, moduleClassLoader);
 				registerProvidedPackages(moduleClassLoader);
 				
@@ -843,6 +978,18 @@ public class ModuleFactory {
 		}
 	}
 	
+	/**
+	 * Same as {@link #getModuleClassLoadersForPackage(String)} but without copying, the returned set
+	 * is never modified since the index replaces the set of a package whenever it changes
+	 * 
+	 * @param packageName the package name
+	 * @return the class loaders providing the package, must not be modified
+	 */
+	static Set<ModuleClassLoader> getModuleClassLoadersProvidingPackage(String packageName) {
+		Set<ModuleClassLoader> set = providedPackages.get(packageName);
+		return set == null ? Collections.emptySet() : set;
+	}
+	
 	public static Set<ModuleClassLoader> getModuleClassLoadersForPackage(String packageName) {
 		Set<ModuleClassLoader> set = providedPackages.get(packageName);
 		if (set == null) {
@@ -9,7 +9,32 @@
  */
 package org.openmrs.notification;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public interface MessageSender {
 	
 	public void send(Message message) throws MessageException;
+	
+	/**
+	 * Sends several messages at once, e.g. over a single connection to the mail server. A message
+	 * that cannot be sent does not keep the others from being sent.
+	 * 
+	 * @param messages the messages to send
+	 * @return the exceptions of the messages that could not be sent by their index in the list
+	 * @since 2.2
+	 */
+	public default Map<Integer, MessageException> sendAll(List<Message> messages) {
+		Map<Integer, MessageException> failures = new LinkedHashMap<>();
+		for (int i = 0; i < messages.size(); i++) {
+			try {
+				send(messages.get(i));
+			}
+			catch (MessageException e) {
+				failures.put(i, e);
+			}
+		}
+		return failures;
+	}
 }
@@ -36,6 +36,7 @@ public interface MessageService {
 	 * @param message
 	 * @throws MessageException
 	 * @should send message
+	 * @should queue the message only after the transaction commits
 	 */
 	public void sendMessage(Message message) throws MessageException;
 	
@@ -0,0 +1,478 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.notification.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.openmrs.aop.LatencyHistogram;
+import org.openmrs.api.context.Context;
+import org.openmrs.notification.Message;
+import org.openmrs.notification.MessageException;
+import org.openmrs.notification.MessageSender;
+import org.openmrs.serialization.BinarySerializer;
+import org.openmrs.serialization.SerializationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers outbound messages in the background so that sending a message does not wait for the
+ * mail server. Each queued message is written to an outbox directory until it is delivered, so the
+ * messages that were not delivered before a restart are delivered after it.
+ * <p>
+ * A fixed number of workers take the messages that are due, up to {@link #BATCH_SIZE} at a time,
+ * and pass them to {@link MessageSender#sendAll(List)} so that they can be delivered over one
+ * connection. Messages with more recipients than the maximum are split into several messages. A
+ * message that cannot be delivered is retried after a delay that doubles with each attempt, and
+ * after the last attempt it is moved to the dead letter directory where it stays until
+ * {@link #retryDeadLetters()} is called.
+ *
+ * @since 2.2
+ */
+public class MessageDeliveryQueue implements MessageDeliveryQueueMXBean {
+	
+	private static final Logger log = LoggerFactory.getLogger(MessageDeliveryQueue.class);
+	
+	/**
+	 * The most messages a worker passes to the sender at once
+	 */
+	static final int BATCH_SIZE = 20;
+	
+	private static final long MAX_RETRY_DELAY = TimeUnit.HOURS.toMillis(1);
+	
+	private static final String FILE_SUFFIX = ".msg";
+	
+	private final DelayQueue<QueuedMessage> queue = new DelayQueue<>();
+	
+	private final AtomicInteger inFlight = new AtomicInteger();
+	
+	private final LongAdder delivered = new LongAdder();
+	
+	private final LongAdder retried = new LongAdder();
+	
+	private final LongAdder totalLatency = new LongAdder();
+	
+	private final LongAccumulator maxLatency = new LongAccumulator(Long::max, 0);
+	
+	private final LatencyHistogram latencies = new LatencyHistogram();
+	
+	private final BinarySerializer serializer = new OutboxSerializer();
+	
+	private volatile MessageSender messageSender;
+	
+	private int workers = 2;
+	
+	private volatile int maxAttempts = 6;
+	
+	private volatile long retryDelay = TimeUnit.MINUTES.toMillis(1);
+	
+	private volatile int maxRecipients = 50;
+	
+	private File outbox;
+	
+	private File deadLetters;
+	
+	private ExecutorService executor;
+	
+	/**
+	 * @param messageSender the sender the messages are delivered with
+	 */
+	public void setMessageSender(MessageSender messageSender) {
+		this.messageSender = messageSender;
+	}
+	
+	/**
+	 * @param workers the number of messages batches delivered at the same time, only used when the
+	 *            queue is started
+	 */
+	public void setWorkers(int workers) {
+		this.workers = Math.max(1, workers);
+	}
+	
+	/**
+	 * @param maxAttempts the number of times a message is tried before it is dead lettered
+	 */
+	public void setMaxAttempts(int maxAttempts) {
+		this.maxAttempts = Math.max(1, maxAttempts);
+	}
+	
+	/**
+	 * @param retryDelay the milliseconds to wait before the first retry of a message
+	 */
+	public void setRetryDelay(long retryDelay) {
+		this.retryDelay = Math.max(0, retryDelay);
+	}
+	
+	/**
+	 * @param maxRecipients the most recipients of a message, 0 for no limit
+	 */
+	public void setMaxRecipients(int maxRecipients) {
+		this.maxRecipients = maxRecipients;
+	}
+	
+	/**
+	 * @return whether the queue is started
+	 */
+	public synchronized boolean isStarted() {
+		return executor != null;
+	}
+	
+	/**
+	 * Starts the workers and queues the messages that are left in the outbox
+	 * 
+	 * @param directory the directory to keep the outbox and the dead letters in
+	 * @throws MessageException if the directories cannot be created
+	 * @should move outbox files with classes other than queued messages to the dead letters
+	 */
+	public synchronized void start(File directory) throws MessageException {
+		if (executor != null) {
+			return;
+		}
+		outbox = new File(directory, "outbox");
+		deadLetters = new File(directory, "dead");
+		if (!(outbox.isDirectory() || outbox.mkdirs()) || !(deadLetters.isDirectory() || deadLetters.mkdirs())) {
+			throw new MessageException("Unable to create the message queue directories in " + directory);
+		}
+		for (File file : listMessageFiles(outbox)) {
+			QueuedMessage queued = read(file);
+			if (queued != null) {
+				queued.due = System.currentTimeMillis();
+				queue.add(queued);
+			}
+		}
+		if (!queue.isEmpty()) {
+			log.info("Delivering {} messages left in {}", queue.size(), outbox);
+		}
+		AtomicInteger threads = new AtomicInteger();
+		executor = Executors.newFixedThreadPool(workers, runnable -> {
+			Thread thread = new Thread(runnable, "message-delivery-" + threads.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		});
+		for (int i = 0; i < workers; i++) {
+			executor.execute(this::work);
+		}
+	}
+	
+	/**
+	 * Stops the workers, the messages that were not delivered stay in the outbox
+	 */
+	public synchronized void shutdown() {
+		if (executor != null) {
+			executor.shutdownNow();
+			executor = null;
+			queue.clear();
+		}
+	}
+	
+	/**
+	 * Queues a message for delivery
+	 * 
+	 * @param message the message to deliver
+	 * @throws MessageException if the message has no recipients or cannot be written to the outbox
+	 * @should split messages with more recipients than the maximum
+	 */
+	public void add(Message message) throws MessageException {
+		if (!isStarted()) {
+			throw new MessageException("The message queue is not started");
+		}
+		List<String> recipients = Arrays.stream(message.getRecipients().split(",")).map(String::trim)
+		        .filter(recipient -> !recipient.isEmpty()).collect(Collectors.toList());
+		if (recipients.isEmpty()) {
+			throw new MessageException("Message must contain at least one recipient");
+		}
+		int batchSize = maxRecipients > 0 ? maxRecipients : recipients.size();
+		for (int i = 0; i < recipients.size(); i += batchSize) {
+			QueuedMessage queued;
+			try {
+				Message part = message;
+				if (recipients.size() > batchSize) {
+					part = serializer.fromBytes(serializer.toBytes(message), Message.class);
+					part.setRecipients(String.join(",", recipients.subList(i, Math.min(i + batchSize, recipients.size()))));
+				}
+				queued = new QueuedMessage(part, System.currentTimeMillis());
+				queued.file = new File(outbox, queued.queuedAt + "-" + UUID.randomUUID() + FILE_SUFFIX);
+				write(queued);
+			}
+			catch (IOException | SerializationException e) {
+				throw new MessageException("Unable to queue message", e);
+			}
+			queue.add(queued);
+		}
+	}
+	
+	/**
+	 * Sends messages on a worker thread, in a session of its own since senders may use the API
+	 */
+	Map<Integer, MessageException> send(MessageSender sender, List<Message> messages) {
+		Context.openSession();
+		try {
+			return sender.sendAll(messages);
+		}
+		finally {
+			Context.closeSession();
+		}
+	}
+	
+	private void work() {
+		while (!Thread.currentThread().isInterrupted()) {
+			List<QueuedMessage> batch = new ArrayList<>();
+			try {
+				batch.add(queue.take());
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			queue.drainTo(batch, BATCH_SIZE - 1);
+			inFlight.addAndGet(batch.size());
+			try {
+				deliver(batch);
+			}
+			finally {
+				inFlight.addAndGet(-batch.size());
+			}
+		}
+	}
+	
+	private void deliver(List<QueuedMessage> batch) {
+		List<Message> messages = batch.stream().map(queued -> queued.message).collect(Collectors.toList());
+		Map<Integer, MessageException> failures;
+		try {
+			failures = send(messageSender, messages);
+		}
+		catch (RuntimeException e) {
+			log.error("Unable to deliver messages", e);
+			for (QueuedMessage queued : batch) {
+				failed(queued, e);
+			}
+			return;
+		}
+		long now = System.currentTimeMillis();
+		for (int i = 0; i < batch.size(); i++) {
+			QueuedMessage queued = batch.get(i);
+			if (failures.containsKey(i)) {
+				failed(queued, failures.get(i));
+			} else {
+				delete(queued.file);
+				long latency = Math.max(0, now - queued.queuedAt);
+				delivered.increment();
+				totalLatency.add(latency);
+				maxLatency.accumulate(latency);
+				latencies.record(TimeUnit.MILLISECONDS.toNanos(latency));
+			}
+		}
+	}
+	
+	private void failed(QueuedMessage queued, Exception cause) {
+		queued.attempts++;
+		try {
+			write(queued);
+			if (queued.attempts >= maxAttempts) {
+				log.error("Giving up on message '{}' to {} after {} attempts", queued.message.getSubject(),
+				    queued.message.getRecipients(), queued.attempts, cause);
+				Files.move(queued.file.toPath(), new File(deadLetters, queued.file.getName()).toPath(),
+				    StandardCopyOption.REPLACE_EXISTING);
+				return;
+			}
+		}
+		catch (IOException e) {
+			log.error("Unable to update queued message {}", queued.file, e);
+		}
+		long delay = Math.min(retryDelay << Math.min(queued.attempts - 1, 30), MAX_RETRY_DELAY);
+		log.warn("Unable to deliver message '{}' to {}, retrying in {} seconds", queued.message.getSubject(),
+		    queued.message.getRecipients(), TimeUnit.MILLISECONDS.toSeconds(delay));
+		queued.due = System.currentTimeMillis() + delay;
+		retried.increment();
+		queue.add(queued);
+	}
+	
+	/**
+	 * @see MessageDeliveryQueueMXBean#retryDeadLetters()
+	 * @should queue dead lettered messages again
+	 */
+	@Override
+	public synchronized int retryDeadLetters() {
+		if (executor == null) {
+			return 0;
+		}
+		int count = 0;
+		for (File file : listMessageFiles(deadLetters)) {
+			File target = new File(outbox, file.getName());
+			try {
+				Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (IOException e) {
+				log.error("Unable to move {} back to the outbox", file, e);
+				continue;
+			}
+			QueuedMessage queued = read(target);
+			if (queued != null) {
+				queued.attempts = 0;
+				queued.due = System.currentTimeMillis();
+				queue.add(queued);
+				count++;
+			}
+		}
+		return count;
+	}
+	
+	@Override
+	public int getQueueDepth() {
+		return queue.size() + inFlight.get();
+	}
+	
+	@Override
+	public long getDeliveredCount() {
+		return delivered.sum();
+	}
+	
+	@Override
+	public long getRetryCount() {
+		return retried.sum();
+	}
+	
+	@Override
+	public int getDeadLetterCount() {
+		return deadLetters == null ? 0 : listMessageFiles(deadLetters).length;
+	}
+	
+	@Override
+	public double getMeanLatencyMillis() {
+		long count = delivered.sum();
+		return count == 0 ? 0 : (double) totalLatency.sum() / count;
+	}
+	
+	@Override
+	public double getMaxLatencyMillis() {
+		return maxLatency.get();
+	}
+	
+	@Override
+	public double getP95LatencyMillis() {
+		return LatencyHistogram.getPercentile(latencies.getCounts(), 0.95) / 1000000.0;
+	}
+	
+	private void write(QueuedMessage queued) throws IOException {
+		File temp = new File(queued.file.getParentFile(), queued.file.getName() + ".tmp");
+		try {
+			Files.write(temp.toPath(), serializer.toBytes(queued));
+		}
+		catch (SerializationException e) {
+			throw new IOException(e);
+		}
+		Files.move(temp.toPath(), queued.file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+		    StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	private QueuedMessage read(File file) {
+		try {
+			QueuedMessage queued = serializer.fromBytes(Files.readAllBytes(file.toPath()), QueuedMessage.class);
+			queued.file = file;
+			return queued;
+		}
+		catch (IOException | SerializationException e) {
+			log.error("Unable to read queued message {}, moving it to the dead letters", file, e);
+			try {
+				Files.move(file.toPath(), new File(deadLetters, file.getName() + ".unreadable").toPath(),
+				    StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (IOException ex) {
+				log.error("Unable to move {}", file, ex);
+			}
+			return null;
+		}
+	}
+	
+	private static void delete(File file) {
+		if (!file.delete() && file.exists()) {
+			log.error("Unable to delete delivered message {}, it will be delivered again", file);
+		}
+	}
+	
+	private static File[] listMessageFiles(File directory) {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(FILE_SUFFIX));
+		if (files == null) {
+			return new File[0];
+		}
+		// oldest first
+		Arrays.sort(files);
+		return files;
+	}
+	
+	/**
+	 * Reads back only the classes a queued message is made of, since anything that can write to the
+	 * application data directory can put files in the outbox
+	 */
+	static class OutboxSerializer extends BinarySerializer {
+		
+		private static final Set<Class<?>> ALLOWED_CLASSES = new HashSet<>(Arrays.asList(QueuedMessage.class,
+		    Message.class, String.class, StringBuilder.class, Integer.class, Number.class, Date.class, char[].class));
+		
+		@Override
+		protected boolean isAllowed(Class<?> c) {
+			return ALLOWED_CLASSES.contains(c);
+		}
+	}
+	
+	/**
+	 * A message in the outbox, only the message, the time it was queued and the attempts are written
+	 */
+	static class QueuedMessage implements Delayed, Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		final Message message;
+		
+		final long queuedAt;
+		
+		int attempts;
+		
+		transient File file;
+		
+		transient long due;
+		
+		QueuedMessage(Message message, long queuedAt) {
+			this.message = message;
+			this.queuedAt = queuedAt;
+			this.due = queuedAt;
+		}
+		
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(due - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+		}
+		
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+		}
+	}
+}
@@ -0,0 +1,61 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.notification.impl;
+
+/**
+ * The JMX interface of {@link MessageDeliveryQueue}, registered as
+ * <code>org.openmrs:type=MessageDeliveryQueue</code>
+ *
+ * @since 2.2
+ */
+public interface MessageDeliveryQueueMXBean {
+	
+	/**
+	 * @return the number of messages waiting to be delivered or being delivered
+	 */
+	int getQueueDepth();
+	
+	/**
+	 * @return the number of messages delivered since the queue was started
+	 */
+	long getDeliveredCount();
+	
+	/**
+	 * @return the number of failed attempts that were scheduled to be retried
+	 */
+	long getRetryCount();
+	
+	/**
+	 * @return the number of messages in the dead letter directory
+	 */
+	int getDeadLetterCount();
+	
+	/**
+	 * @return the mean time in milliseconds from queueing a message until it was delivered
+	 */
+	double getMeanLatencyMillis();
+	
+	/**
+	 * @return the longest time in milliseconds from queueing a message until it was delivered
+	 */
+	double getMaxLatencyMillis();
+	
+	/**
+	 * @return the time in milliseconds in which 95 percent of the messages were delivered
+	 */
+	double getP95LatencyMillis();
+	
+	/**
+	 * Queues the messages in the dead letter directory again, with their attempts reset
+	 * 
+	 * @return the number of messages that were queued again
+	 */
+	int retryDeadLetters();
+}
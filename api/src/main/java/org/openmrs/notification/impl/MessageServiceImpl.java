@@ -13,9 +13,13 @@ import java.util.Collection;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import org.openmrs.GlobalProperty;
 import org.openmrs.Role;
 import org.openmrs.User;
+import org.openmrs.api.AdministrationService;
+import org.openmrs.api.GlobalPropertyListener;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.db.TemplateDAO;
 import org.openmrs.notification.Message;
@@ -25,12 +29,15 @@ import org.openmrs.notification.MessageSender;
 import org.openmrs.notification.MessageService;
 import org.openmrs.notification.Template;
 import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.OpenmrsUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 @Transactional
-public class MessageServiceImpl implements MessageService {
+public class MessageServiceImpl implements MessageService, GlobalPropertyListener {
 	
 	private static final Logger log = LoggerFactory.getLogger(MessageServiceImpl.class);
 	
@@ -40,10 +47,23 @@ public class MessageServiceImpl implements MessageService {
 	
 	private MessagePreparator messagePreparator; // Prepares message for delivery 
 	
+	private MessageDeliveryQueue deliveryQueue; // Delivers messages in the background
+	
 	public void setTemplateDAO(TemplateDAO dao) {
 		this.templateDAO = dao;
 	}
 	
+	/**
+	 * Set the queue messages are delivered through when {@link OpenmrsConstants#GP_MAIL_QUEUE_ENABLED}
+	 * is true, without one messages are always sent on the caller's thread.
+	 *
+	 * @param deliveryQueue
+	 * @since 2.2
+	 */
+	public void setDeliveryQueue(MessageDeliveryQueue deliveryQueue) {
+		this.deliveryQueue = deliveryQueue;
+	}
+	
 	/**
 	 * Public constructor Required for use with spring's method injection. Be careful because this
 	 * class requires a DAO Context in order to work properly. Please set the DAO context
@@ -74,6 +94,9 @@ public class MessageServiceImpl implements MessageService {
 	@Override
 	public void setMessageSender(MessageSender messageSender) {
 		this.messageSender = messageSender;
+		if (deliveryQueue != null) {
+			deliveryQueue.setMessageSender(messageSender);
+		}
 	}
 	
 	@Override
@@ -82,13 +105,38 @@ public class MessageServiceImpl implements MessageService {
 	}
 	
 	/**
-	 * Send the message. All send calls go through this method.
+	 * Send the message. All send calls go through this method. The message is queued for delivery
+	 * in the background if the delivery queue is enabled, failures are then retried by the queue
+	 * instead of being thrown. Within a transaction the message is only queued once the transaction
+	 * commits, so that it is not sent for changes that are rolled back and the outbox is not
+	 * written while the transaction holds its locks.
 	 *
 	 * @param message the Message to be sent
 	 * @see org.openmrs.notification.MessageService#sendMessage(org.openmrs.notification.Message)
 	 */
 	@Override
-	public void sendMessage(Message message) throws MessageException {
+	public void sendMessage(final Message message) throws MessageException {
+		if (deliveryQueue != null && Context.getAdministrationService().getGlobalPropertyValue(
+		    OpenmrsConstants.GP_MAIL_QUEUE_ENABLED, Boolean.FALSE)) {
+			startDeliveryQueue();
+			if (TransactionSynchronizationManager.isSynchronizationActive()) {
+				TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+					
+					@Override
+					public void afterCommit() {
+						try {
+							deliveryQueue.add(message);
+						}
+						catch (MessageException e) {
+							log.error("Message '" + message.getSubject() + "' could not be queued", e);
+						}
+					}
+				});
+			} else {
+				deliveryQueue.add(message);
+			}
+			return;
+		}
 		try {
 			messageSender.send(message);
 		}
@@ -98,6 +146,63 @@ public class MessageServiceImpl implements MessageService {
 		}
 	}
 	
+	/**
+	 * Starts the delivery queue with the settings from the global properties if it is not started yet
+	 */
+	private void startDeliveryQueue() throws MessageException {
+		synchronized (deliveryQueue) {
+			if (deliveryQueue.isStarted()) {
+				return;
+			}
+			AdministrationService as = Context.getAdministrationService();
+			deliveryQueue.setMessageSender(messageSender);
+			deliveryQueue.setWorkers(as.getGlobalPropertyValue(OpenmrsConstants.GP_MAIL_QUEUE_WORKERS, 2));
+			configureDeliveryQueue();
+			deliveryQueue.start(OpenmrsUtil.getDirectoryInApplicationDataDirectory("mail"));
+		}
+	}
+	
+	/**
+	 * Sets the settings of the delivery queue that can be changed while it is running
+	 */
+	private void configureDeliveryQueue() {
+		AdministrationService as = Context.getAdministrationService();
+		deliveryQueue.setMaxAttempts(as.getGlobalPropertyValue(OpenmrsConstants.GP_MAIL_QUEUE_MAX_ATTEMPTS, 6));
+		deliveryQueue.setRetryDelay(TimeUnit.SECONDS.toMillis(as.getGlobalPropertyValue(
+		    OpenmrsConstants.GP_MAIL_QUEUE_RETRY_DELAY, 60)));
+		deliveryQueue.setMaxRecipients(as.getGlobalPropertyValue(OpenmrsConstants.GP_MAIL_MAX_RECIPIENTS, 50));
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#supportsPropertyName(String)
+	 */
+	@Override
+	public boolean supportsPropertyName(String propertyName) {
+		return OpenmrsConstants.GP_MAIL_QUEUE_MAX_ATTEMPTS.equals(propertyName)
+		        || OpenmrsConstants.GP_MAIL_QUEUE_RETRY_DELAY.equals(propertyName)
+		        || OpenmrsConstants.GP_MAIL_MAX_RECIPIENTS.equals(propertyName);
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyChanged(GlobalProperty)
+	 */
+	@Override
+	public void globalPropertyChanged(GlobalProperty newValue) {
+		if (deliveryQueue != null && deliveryQueue.isStarted()) {
+			configureDeliveryQueue();
+		}
+	}
+	
+	/**
+	 * @see GlobalPropertyListener#globalPropertyDeleted(String)
+	 */
+	@Override
+	public void globalPropertyDeleted(String propertyName) {
+		if (deliveryQueue != null && deliveryQueue.isStarted()) {
+			configureDeliveryQueue();
+		}
+	}
+	
 	/**
 	 * Create a message object with the given parts.
 	 *
@@ -229,10 +334,15 @@ public class MessageServiceImpl implements MessageService {
 		List<Role> roles = new ArrayList<>();
 		roles.add(role);
 		
-		Collection<User> users = Context.getUserService().getUsers(null, roles, false);
+		// the addresses are read in one query instead of loading the properties of each user
+		List<String> addresses = Context.getUserService().getUserPropertyValues(
+		    OpenmrsConstants.USER_PROPERTY_NOTIFICATION_ADDRESS, roles);
 		
-		log.debug("Sending message " + message + " to " + users);
-		Context.getMessageService().sendMessage(message, users);
+		log.debug("Sending message " + message + " to " + addresses);
+		for (String address : addresses) {
+			message.addRecipient(address);
+		}
+		Context.getMessageService().sendMessage(message);
 	}
 	
 	/**
@@ -9,6 +9,11 @@
  */
 package org.openmrs.notification.mail;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.mail.MessagingException;
 import javax.mail.Session;
 import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
@@ -76,6 +81,64 @@ public class MailMessageSender implements MessageSender {
 		}
 	}
 	
+	/**
+	 * Sends the messages over a single connection to the mail server, which is opened again if it
+	 * gets closed in between
+	 *
+	 * @see MessageSender#sendAll(List)
+	 */
+	@Override
+	public Map<Integer, MessageException> sendAll(List<Message> messages) {
+		Map<Integer, MessageException> failures = new LinkedHashMap<>();
+		Transport transport = null;
+		try {
+			for (int i = 0; i < messages.size(); i++) {
+				MimeMessage mimeMessage;
+				try {
+					mimeMessage = createMimeMessage(messages.get(i));
+					mimeMessage.saveChanges();
+				}
+				catch (Exception e) {
+					log.error("failed to create message", e);
+					failures.put(i, new MessageException(e));
+					continue;
+				}
+				try {
+					if (transport == null || !transport.isConnected()) {
+						transport = session.getTransport();
+						transport.connect();
+					}
+				}
+				catch (MessagingException e) {
+					log.error("failed to connect to the mail server", e);
+					// none of the remaining messages can be sent either
+					for (int j = i; j < messages.size(); j++) {
+						failures.put(j, new MessageException(e));
+					}
+					break;
+				}
+				try {
+					transport.sendMessage(mimeMessage, mimeMessage.getAllRecipients());
+				}
+				catch (MessagingException e) {
+					log.error("failed to send message", e);
+					failures.put(i, new MessageException(e));
+				}
+			}
+		}
+		finally {
+			if (transport != null) {
+				try {
+					transport.close();
+				}
+				catch (MessagingException e) {
+					log.debug("failed to close the connection to the mail server", e);
+				}
+			}
+		}
+		return failures;
+	}
+	
 	/**
 	 * Converts the message object to a mime message in order to prepare it to be sent.
 	 *
@@ -0,0 +1,90 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.patient;
+
+import java.util.Date;
+
+/**
+ * A flat, read-only projection of the demographic fields of a patient that are used when searching
+ * for duplicate patients. Instances are built straight from a single projection query so that the
+ * duplicate detection does not need to load full {@link org.openmrs.Patient} entity graphs.
+ *
+ * @since 2.2
+ * @see DuplicatePatientDetector
+ */
+public class DuplicatePatientCandidate {
+
+	private final Integer patientId;
+
+	private final String gender;
+
+	private final Date birthdate;
+
+	private final String givenName;
+
+	private final String middleName;
+
+	private final String familyName;
+
+	private final Date dateCreated;
+
+	public DuplicatePatientCandidate(Integer patientId, String gender, Date birthdate, String givenName,
+	    String middleName, String familyName, Date dateCreated) {
+		this.patientId = patientId;
+		this.gender = gender;
+		this.birthdate = birthdate;
+		this.givenName = givenName;
+		this.middleName = middleName;
+		this.familyName = familyName;
+		this.dateCreated = dateCreated;
+	}
+
+	public Integer getPatientId() {
+		return patientId;
+	}
+
+	public String getGender() {
+		return gender;
+	}
+
+	public Date getBirthdate() {
+		return birthdate;
+	}
+
+	public String getGivenName() {
+		return givenName;
+	}
+
+	public String getMiddleName() {
+		return middleName;
+	}
+
+	public String getFamilyName() {
+		return familyName;
+	}
+
+	public Date getDateCreated() {
+		return dateCreated;
+	}
+
+	/**
+	 * @param since the cut off date, may be null
+	 * @return true if this patient was registered on or after the given date, always true if the
+	 *         date is null
+	 */
+	public boolean isRegisteredSince(Date since) {
+		return since == null || (dateCreated != null && !dateCreated.before(since));
+	}
+
+	@Override
+	public String toString() {
+		return "DuplicatePatientCandidate#" + patientId;
+	}
+}
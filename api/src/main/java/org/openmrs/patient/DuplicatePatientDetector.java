@@ -0,0 +1,444 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.patient;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds likely duplicate patients using blocking keys. Every candidate is assigned to a small number
+ * of blocks (phonetic family name, gender and birth year; phonetic given and family name) and only
+ * candidates that share a block are compared with each other, which keeps the number of comparisons
+ * close to linear instead of comparing every patient with every other patient.
+ * <p>
+ * Blocks are compared in the order of their keys, and the matches of a block are ordered by
+ * descending score. A pair found in several blocks is reported once, in the first of them, with the
+ * best score of its names in that block. Since that order does not depend on how many matches are
+ * wanted, a page of matches is found by comparing blocks until the page is filled, so the first
+ * pages are cheap and later ones only cost the blocks before them.
+ * <p>
+ * Blocks larger than the maximum block size are split by a secondary key: the phonetic given name
+ * for the family name blocks, the birth year for the name blocks. Candidates lacking the secondary
+ * key are added to every part. Pairs that differ in the secondary key score at most 0.8, so at
+ * thresholds above that, the default included, splitting does not lose any pair.
+ * <p>
+ * When a registration date is given only pairs involving at least one patient registered on or
+ * after that date are compared, so the detector can be run incrementally for newly registered
+ * patients. Since every blocking key starts with the first letter of the family name, only the
+ * patients whose family name starts with one of the {@link #getFamilyNameInitials(Collection)
+ * initials} of the new patients need to be loaded for that.
+ * <p>
+ * Birthdates are compared as calendar dates. Dates loaded from a date column already are, other
+ * dates are converted in the time zone of the server, which is the zone birthdates are entered in.
+ *
+ * @since 2.2
+ */
+public class DuplicatePatientDetector {
+
+	private static final Logger log = LoggerFactory.getLogger(DuplicatePatientDetector.class);
+
+	public static final double DEFAULT_THRESHOLD = 0.85;
+
+	public static final int DEFAULT_MAX_BLOCK_SIZE = 1000;
+
+	private static final int MAX_BLOCKS_PER_BATCH = 64;
+
+	private static final String FAMILY_NAME_KEY = "F:";
+
+	private static final String NAME_KEY = "N:";
+
+	private static final double FAMILY_NAME_WEIGHT = 0.35;
+
+	private static final double GIVEN_NAME_WEIGHT = 0.30;
+
+	private static final double BIRTHDATE_WEIGHT = 0.20;
+
+	private static final double GENDER_WEIGHT = 0.10;
+
+	private static final double MIDDLE_NAME_WEIGHT = 0.05;
+
+	private final double threshold;
+
+	private final int maxBlockSize;
+
+	public DuplicatePatientDetector() {
+		this(DEFAULT_THRESHOLD, DEFAULT_MAX_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param threshold the minimum score for a pair to be reported
+	 * @param maxBlockSize blocks larger than this are split by a secondary key before they are
+	 *            compared pairwise
+	 */
+	public DuplicatePatientDetector(double threshold, int maxBlockSize) {
+		this.threshold = threshold;
+		this.maxBlockSize = maxBlockSize;
+	}
+
+	/**
+	 * Finds all pairs of candidates scoring at or above the threshold.
+	 *
+	 * @param candidates the patients to search
+	 * @param registeredSince if not null only pairs where at least one patient was registered on or
+	 *            after this date are returned
+	 * @return the matches ordered by block, then by descending score
+	 * @should find patients with the same names gender and birthdate
+	 * @should not match patients with different names
+	 * @should only compare new patients when registered since is given
+	 * @should report each pair only once
+	 * @should compare oversized blocks split by a secondary key
+	 */
+	public List<DuplicatePatientMatch> findDuplicates(Collection<DuplicatePatientCandidate> candidates,
+	        Date registeredSince) {
+		return findDuplicates(candidates, registeredSince, null, null);
+	}
+
+	/**
+	 * Finds one page of the pairs of candidates scoring at or above the threshold, comparing blocks
+	 * only until the page is filled.
+	 *
+	 * @param candidates the patients to search
+	 * @param registeredSince if not null only pairs where at least one patient was registered on or
+	 *            after this date are returned
+	 * @param start the index of the first match to return, null for the first
+	 * @param length the number of matches to return, null for all remaining
+	 * @return the matches ordered by block, then by descending score
+	 * @should stop comparing blocks once the page is filled
+	 * @should return the same matches by page as in one list
+	 */
+	public List<DuplicatePatientMatch> findDuplicates(Collection<DuplicatePatientCandidate> candidates,
+	        Date registeredSince, Integer start, Integer length) {
+		List<List<DuplicatePatientCandidate>> blocks = new ArrayList<>();
+		for (Map.Entry<String, List<DuplicatePatientCandidate>> entry : buildBlocks(candidates).entrySet()) {
+			for (List<DuplicatePatientCandidate> block : split(entry.getKey(), entry.getValue())) {
+				if (block.size() > 1 && isComparable(block, registeredSince)) {
+					blocks.add(block);
+				}
+			}
+		}
+
+		long wanted = length == null ? Long.MAX_VALUE : (long) Math.max(start == null ? 0 : start, 0)
+		        + Math.max(length, 0);
+		Map<Long, DuplicatePatientMatch> matches = new LinkedHashMap<>();
+		int next = 0;
+		while (next < blocks.size() && matches.size() < wanted) {
+			// compare a batch of blocks in parallel, no larger than the number of matches still needed
+			int batchSize = (int) Math.min(Math.min(MAX_BLOCKS_PER_BATCH, wanted - matches.size()), blocks.size() - next);
+			List<List<DuplicatePatientMatch>> batch = blocks.subList(next, next + batchSize).parallelStream()
+			        .map(block -> compareBlock(block, registeredSince)).collect(Collectors.toList());
+			for (List<DuplicatePatientMatch> blockMatches : batch) {
+				for (DuplicatePatientMatch match : blockMatches) {
+					matches.putIfAbsent(match.getPairKey(), match);
+				}
+			}
+			next += batchSize;
+		}
+		return getPage(new ArrayList<>(matches.values()), start, length);
+	}
+
+	/**
+	 * Returns one page of the given matches
+	 *
+	 * @param matches the ordered matches
+	 * @param start the index of the first match to return, null for the first
+	 * @param length the number of matches to return, null for all remaining
+	 * @return the page
+	 * @should return the requested page
+	 * @should return an empty list when start is beyond the end
+	 */
+	public static List<DuplicatePatientMatch> getPage(List<DuplicatePatientMatch> matches, Integer start,
+	        Integer length) {
+		int from = start == null ? 0 : Math.max(start, 0);
+		if (from >= matches.size()) {
+			return new ArrayList<>();
+		}
+		int to = length == null ? matches.size() : (int) Math.min((long) from + Math.max(length, 0), matches.size());
+		return new ArrayList<>(matches.subList(from, to));
+	}
+
+	/**
+	 * Computes the similarity of two candidates as a weighted sum of field agreements
+	 *
+	 * @param a a candidate
+	 * @param b another candidate
+	 * @return the score, between 0 and 1
+	 * @should return one for identical candidates
+	 * @should give partial credit for names that sound alike
+	 * @should compare birthdates loaded from the database as calendar dates
+	 */
+	public double score(DuplicatePatientCandidate a, DuplicatePatientCandidate b) {
+		double score = 0;
+		score += FAMILY_NAME_WEIGHT * compareNames(a.getFamilyName(), b.getFamilyName());
+		score += GIVEN_NAME_WEIGHT * compareNames(a.getGivenName(), b.getGivenName());
+		score += BIRTHDATE_WEIGHT * compareBirthdates(a.getBirthdate(), b.getBirthdate());
+		if (a.getGender() != null && a.getGender().equalsIgnoreCase(b.getGender())) {
+			score += GENDER_WEIGHT;
+		}
+		boolean aHasMiddleName = StringUtils.isNotBlank(a.getMiddleName());
+		boolean bHasMiddleName = StringUtils.isNotBlank(b.getMiddleName());
+		if (!aHasMiddleName && !bHasMiddleName) {
+			score += MIDDLE_NAME_WEIGHT;
+		} else if (!aHasMiddleName || !bHasMiddleName) {
+			// a missing middle name is weak evidence either way
+			score += MIDDLE_NAME_WEIGHT / 2;
+		} else {
+			score += MIDDLE_NAME_WEIGHT * compareNames(a.getMiddleName(), b.getMiddleName());
+		}
+		return score;
+	}
+
+	/**
+	 * Gets the first letters of the family names of the candidates, every candidate that shares a
+	 * blocking key with one of them has a family name starting with one of these letters
+	 *
+	 * @param candidates the candidates
+	 * @return the upper case initials
+	 * @should return the initials of the family names that sound alike
+	 */
+	public Set<String> getFamilyNameInitials(Collection<DuplicatePatientCandidate> candidates) {
+		Set<String> initials = new TreeSet<>();
+		for (DuplicatePatientCandidate candidate : candidates) {
+			String family = soundex(candidate.getFamilyName());
+			if (!family.isEmpty()) {
+				initials.add(family.substring(0, 1));
+			}
+		}
+		return initials;
+	}
+
+	/**
+	 * @param candidate the candidate
+	 * @return the blocking keys of the candidate, a candidate without a family name has none
+	 * @should return keys that are equal for names that sound alike
+	 */
+	public List<String> getBlockingKeys(DuplicatePatientCandidate candidate) {
+		List<String> keys = new ArrayList<>(2);
+		String family = soundex(candidate.getFamilyName());
+		if (family.isEmpty()) {
+			return keys;
+		}
+		keys.add(FAMILY_NAME_KEY + family + "|" + StringUtils.upperCase(candidate.getGender()) + "|"
+		        + getYear(candidate.getBirthdate()));
+		String given = soundex(candidate.getGivenName());
+		if (!given.isEmpty()) {
+			keys.add(NAME_KEY + given + "|" + family);
+		}
+		return keys;
+	}
+
+	private Map<String, List<DuplicatePatientCandidate>> buildBlocks(Collection<DuplicatePatientCandidate> candidates) {
+		Map<String, List<DuplicatePatientCandidate>> blocks = new TreeMap<>();
+		for (DuplicatePatientCandidate candidate : candidates) {
+			for (String key : getBlockingKeys(candidate)) {
+				blocks.computeIfAbsent(key, k -> new ArrayList<>()).add(candidate);
+			}
+		}
+		return blocks;
+	}
+
+	/**
+	 * Splits a block larger than the maximum block size by the secondary key of its kind. Parts that
+	 * are still too large are compared as they are, their candidates agree on every key.
+	 */
+	private List<List<DuplicatePatientCandidate>> split(String key, List<DuplicatePatientCandidate> block) {
+		if (block.size() <= maxBlockSize) {
+			return Collections.singletonList(block);
+		}
+		Function<DuplicatePatientCandidate, String> secondaryKey = key.startsWith(FAMILY_NAME_KEY) ? c -> soundex(c
+		        .getGivenName()) : c -> getYear(c.getBirthdate());
+		Map<String, List<DuplicatePatientCandidate>> parts = new TreeMap<>();
+		List<DuplicatePatientCandidate> withoutKey = new ArrayList<>();
+		for (DuplicatePatientCandidate candidate : block) {
+			String subKey = secondaryKey.apply(candidate);
+			if (subKey.isEmpty()) {
+				withoutKey.add(candidate);
+			} else {
+				parts.computeIfAbsent(subKey, k -> new ArrayList<>()).add(candidate);
+			}
+		}
+		if (parts.size() < 2) {
+			log.debug("Comparing duplicate patient block {} of size {} that has no secondary key to split by", key,
+			    block.size());
+			return Collections.singletonList(block);
+		}
+		for (List<DuplicatePatientCandidate> part : parts.values()) {
+			part.addAll(withoutKey);
+		}
+		log.debug("Split duplicate patient block {} of size {} into {} blocks", key, block.size(), parts.size());
+		return new ArrayList<>(parts.values());
+	}
+
+	private boolean isComparable(List<DuplicatePatientCandidate> block, Date registeredSince) {
+		if (registeredSince == null) {
+			return true;
+		}
+		for (DuplicatePatientCandidate candidate : block) {
+			if (candidate.isRegisteredSince(registeredSince)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the matches of the block, the best one per pair, ordered by descending score
+	 */
+	private List<DuplicatePatientMatch> compareBlock(List<DuplicatePatientCandidate> block, Date registeredSince) {
+		Map<Long, DuplicatePatientMatch> matches = new HashMap<>();
+		for (int i = 0; i < block.size(); i++) {
+			DuplicatePatientCandidate a = block.get(i);
+			boolean aIsNew = a.isRegisteredSince(registeredSince);
+			for (int j = i + 1; j < block.size(); j++) {
+				DuplicatePatientCandidate b = block.get(j);
+				if (a.getPatientId().equals(b.getPatientId())) {
+					continue;
+				}
+				if (!aIsNew && !b.isRegisteredSince(registeredSince)) {
+					continue;
+				}
+				double score = score(a, b);
+				if (score >= threshold) {
+					DuplicatePatientMatch match = new DuplicatePatientMatch(a.getPatientId(), b.getPatientId(), score);
+					matches.merge(match.getPairKey(), match, (x, y) -> x.getScore() >= y.getScore() ? x : y);
+				}
+			}
+		}
+		List<DuplicatePatientMatch> result = new ArrayList<>(matches.values());
+		Collections.sort(result);
+		return result;
+	}
+
+	private static double compareNames(String a, String b) {
+		String normalizedA = normalize(a);
+		String normalizedB = normalize(b);
+		if (normalizedA.isEmpty() || normalizedB.isEmpty()) {
+			return 0;
+		}
+		if (normalizedA.equals(normalizedB)) {
+			return 1;
+		}
+		if (soundex(normalizedA).equals(soundex(normalizedB))) {
+			return 0.7;
+		}
+		return 0;
+	}
+
+	private static double compareBirthdates(Date a, Date b) {
+		if (a == null || b == null) {
+			return 0.5;
+		}
+		LocalDate dateA = toLocalDate(a);
+		LocalDate dateB = toLocalDate(b);
+		if (dateA.getYear() != dateB.getYear()) {
+			return 0;
+		}
+		return dateA.equals(dateB) ? 1 : 0.5;
+	}
+
+	private static String getYear(Date date) {
+		return date == null ? "" : String.valueOf(toLocalDate(date).getYear());
+	}
+
+	private static LocalDate toLocalDate(Date date) {
+		if (date instanceof java.sql.Date) {
+			return ((java.sql.Date) date).toLocalDate();
+		}
+		return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	private static String normalize(String name) {
+		if (name == null) {
+			return "";
+		}
+		StringBuilder sb = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = Character.toUpperCase(name.charAt(i));
+			if (Character.isLetter(c)) {
+				sb.append(c);
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * American soundex code of the given name, or an empty string if the name has no letters
+	 */
+	static String soundex(String name) {
+		String normalized = normalize(name);
+		if (normalized.isEmpty()) {
+			return "";
+		}
+		StringBuilder code = new StringBuilder(4);
+		code.append(normalized.charAt(0));
+		char previous = soundexDigit(normalized.charAt(0));
+		for (int i = 1; i < normalized.length() && code.length() < 4; i++) {
+			char c = normalized.charAt(i);
+			char digit = soundexDigit(c);
+			if (digit != '0' && digit != previous) {
+				code.append(digit);
+			}
+			// H and W do not separate letters with the same code, vowels do
+			if (c != 'H' && c != 'W') {
+				previous = digit;
+			}
+		}
+		while (code.length() < 4) {
+			code.append('0');
+		}
+		return code.toString();
+	}
+
+	private static char soundexDigit(char c) {
+		switch (c) {
+			case 'B':
+			case 'F':
+			case 'P':
+			case 'V':
+				return '1';
+			case 'C':
+			case 'G':
+			case 'J':
+			case 'K':
+			case 'Q':
+			case 'S':
+			case 'X':
+			case 'Z':
+				return '2';
+			case 'D':
+			case 'T':
+				return '3';
+			case 'L':
+				return '4';
+			case 'M':
+			case 'N':
+				return '5';
+			case 'R':
+				return '6';
+			default:
+				return '0';
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.patient;
+
+/**
+ * A scored pair of patients that are likely to be the same person. The lower patient id is always
+ * held in {@link #getPatientId()} so that two matches for the same pair are equal regardless of
+ * the order in which the patients were compared.
+ *
+ * @since 2.2
+ * @see DuplicatePatientDetector
+ */
+public class DuplicatePatientMatch implements Comparable<DuplicatePatientMatch> {
+
+	private final Integer patientId;
+
+	private final Integer otherPatientId;
+
+	private final double score;
+
+	public DuplicatePatientMatch(Integer patientId, Integer otherPatientId, double score) {
+		if (patientId <= otherPatientId) {
+			this.patientId = patientId;
+			this.otherPatientId = otherPatientId;
+		} else {
+			this.patientId = otherPatientId;
+			this.otherPatientId = patientId;
+		}
+		this.score = score;
+	}
+
+	/**
+	 * @return the lower of the two patient ids
+	 */
+	public Integer getPatientId() {
+		return patientId;
+	}
+
+	/**
+	 * @return the higher of the two patient ids
+	 */
+	public Integer getOtherPatientId() {
+		return otherPatientId;
+	}
+
+	/**
+	 * @return the similarity of the two patients, between 0 and 1
+	 */
+	public double getScore() {
+		return score;
+	}
+
+	/**
+	 * @return a key that is unique for the pair of patient ids
+	 */
+	long getPairKey() {
+		return ((long) patientId << 32) | (otherPatientId & 0xffffffffL);
+	}
+
+	/**
+	 * Orders matches by descending score, then by patient ids so that paging is stable
+	 *
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	@Override
+	public int compareTo(DuplicatePatientMatch other) {
+		int result = Double.compare(other.score, score);
+		if (result == 0) {
+			result = patientId.compareTo(other.patientId);
+		}
+		if (result == 0) {
+			result = otherPatientId.compareTo(other.otherPatientId);
+		}
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof DuplicatePatientMatch)) {
+			return false;
+		}
+		DuplicatePatientMatch other = (DuplicatePatientMatch) obj;
+		return patientId.equals(other.patientId) && otherPatientId.equals(other.otherPatientId);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(getPairKey());
+	}
+
+	@Override
+	public String toString() {
+		return "DuplicatePatientMatch[" + patientId + ", " + otherPatientId + ", score=" + score + "]";
+	}
+}
@@ -0,0 +1,50 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.scheduler.tasks;
+
+import org.openmrs.api.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A scheduled task that updates the effective stop date active orders are looked up by for orders
+ * that were stopped or given an auto expire date without going through the API, so that they no
+ * longer show up as active orders. Existing orders are filled in when the column is added and the
+ * task is registered as started so that it runs daily without being scheduled by hand.
+ *
+ * @see org.openmrs.api.OrderService#updateEffectiveStopDates()
+ * @since 2.2
+ */
+public class UpdateOrderEffectiveStopDatesTask extends AbstractTask {
+	
+	private static final Logger log = LoggerFactory.getLogger(UpdateOrderEffectiveStopDatesTask.class);
+	
+	/**
+	 * @see org.openmrs.scheduler.tasks.AbstractTask#execute()
+	 */
+	@Override
+	public void execute() {
+		if (!isExecuting) {
+			log.debug("Starting Update Order Effective Stop Dates Task...");
+			
+			startExecuting();
+			try {
+				int updated = Context.getOrderService().updateEffectiveStopDates();
+				log.debug("Updated the effective stop date of {} orders", updated);
+			}
+			catch (Exception e) {
+				log.error("Error while updating the effective stop dates of orders:", e);
+			}
+			finally {
+				stopExecuting();
+			}
+		}
+	}
+}
@@ -0,0 +1,217 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.serialization;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.hibernate.collection.spi.PersistentCollection;
+import org.hibernate.proxy.HibernateProxy;
+import org.openmrs.util.OpenmrsClassLoader;
+
+/**
+ * This serializer uses java serialization to turn objects into a compact binary form, which is
+ * compressed and base64 encoded so that it can be stored as a string. It is much faster than
+ * {@link SimpleXStreamSerializer} but can only serialize objects that implement
+ * {@link java.io.Serializable}, and the serialized form has to be read by compatible versions of the
+ * classes.
+ * <br>
+ * Only classes of the org.openmrs packages, e.g. domain objects and the domain objects of modules,
+ * and the common JDK value and collection types they contain are deserialized, any other class in
+ * the data fails the deserialization. Subclasses that need to deserialize other types can override
+ * {@link #isAllowed(Class)}.
+ * <br>
+ * It is not the default serializer, to use it either pass it to
+ * {@link org.openmrs.api.db.SerializedObjectDAO#saveObject(org.openmrs.OpenmrsObject, OpenmrsSerializer)}
+ * or set it as the {@link org.openmrs.util.OpenmrsConstants#GLOBAL_PROPERTY_DEFAULT_SERIALIZER}.
+ *
+ * @since 2.2
+ */
+public class BinarySerializer implements OpenmrsSerializer {
+
+	/**
+	 * The classes outside of the org.openmrs packages that may be deserialized
+	 */
+	private static final Set<String> ALLOWED_CLASSES = new HashSet<>(Arrays.asList("java.lang.Boolean",
+	    "java.lang.Byte", "java.lang.Character", "java.lang.Short", "java.lang.Integer", "java.lang.Long",
+	    "java.lang.Float", "java.lang.Double", "java.lang.Number", "java.lang.String", "java.lang.StringBuilder",
+	    "java.lang.StringBuffer", "java.lang.Enum", "java.lang.String$CaseInsensitiveComparator",
+	    "java.math.BigDecimal", "java.math.BigInteger", "java.util.ArrayList", "java.util.Arrays$ArrayList",
+	    "java.util.LinkedList", "java.util.Vector", "java.util.HashMap", "java.util.LinkedHashMap",
+	    "java.util.TreeMap", "java.util.HashSet", "java.util.LinkedHashSet", "java.util.TreeSet", "java.util.Date",
+	    "java.util.Locale", "java.util.UUID", "java.sql.Date", "java.sql.Time", "java.sql.Timestamp"));
+
+	/**
+	 * @see OpenmrsSerializer#serialize(java.lang.Object)
+	 * @should serialize an object that can be deserialized again
+	 * @should not serialize proxies
+	 */
+	@Override
+	public String serialize(Object o) throws SerializationException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (OutputStream out = new DeflaterOutputStream(bytes)) {
+			writeObject(o, out);
+		}
+		catch (IOException e) {
+			throw new SerializationException("Unable to serialize object: " + o, e);
+		}
+		return Base64.getEncoder().encodeToString(bytes.toByteArray());
+	}
+
+	/**
+	 * @see OpenmrsSerializer#deserialize(String, Class)
+	 * @should fail for data that was not serialized by this serializer
+	 * @should fail for classes that are not allowed
+	 * @should fail for classes that are not allowed nested in allowed ones
+	 */
+	@Override
+	public <T> T deserialize(String serializedObject, Class<? extends T> clazz) throws SerializationException {
+		try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(
+		    serializedObject)))) {
+			return readObject(in, clazz);
+		}
+		catch (IOException | IllegalArgumentException e) {
+			throw new SerializationException("Unable to deserialize class: " + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * Serializes an object without compressing or encoding it, e.g. to keep a copy of it in memory
+	 *
+	 * @param o the object to serialize
+	 * @return the serialized object
+	 * @throws SerializationException if the object cannot be serialized
+	 */
+	public byte[] toBytes(Object o) throws SerializationException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try {
+			writeObject(o, bytes);
+		}
+		catch (IOException e) {
+			throw new SerializationException("Unable to serialize object: " + o, e);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Deserializes an object serialized by {@link #toBytes(Object)}
+	 *
+	 * @param bytes the serialized object
+	 * @param clazz the class of the object
+	 * @return a new instance of the object
+	 * @throws SerializationException if the object cannot be deserialized
+	 * @should return a new copy each time
+	 */
+	public <T> T fromBytes(byte[] bytes, Class<? extends T> clazz) throws SerializationException {
+		try {
+			return readObject(new ByteArrayInputStream(bytes), clazz);
+		}
+		catch (IOException e) {
+			throw new SerializationException("Unable to deserialize class: " + clazz.getName(), e);
+		}
+	}
+
+	/**
+	 * Called for every object that is serialized, it may return a replacement for the object or
+	 * throw an exception to refuse serializing it. By default hibernate proxies and collections are
+	 * refused since they cannot be used without the session they were loaded in.
+	 *
+	 * @param o the object about to be serialized
+	 * @return the object to serialize instead
+	 * @throws IOException to refuse serializing the object
+	 */
+	protected Object replaceObject(Object o) throws IOException {
+		if (o instanceof HibernateProxy || o instanceof PersistentCollection) {
+			throw new InvalidClassException(o.getClass().getName(), "Can't serialize proxies");
+		}
+		return o;
+	}
+
+	/**
+	 * Called for every class found in the data that is deserialized, before any instance of it is
+	 * created. By default only classes of the org.openmrs packages, primitives, arrays of allowed
+	 * classes and common JDK value and collection types are allowed.
+	 *
+	 * @param c the class about to be deserialized
+	 * @return true if the class may be deserialized
+	 */
+	protected boolean isAllowed(Class<?> c) {
+		while (c.isArray()) {
+			c = c.getComponentType();
+		}
+		String name = c.getName();
+		return c.isPrimitive() || name.startsWith("org.openmrs.") || ALLOWED_CLASSES.contains(name)
+		        || name.startsWith("java.util.Collections$");
+	}
+
+	private void writeObject(Object o, OutputStream out) throws IOException {
+		try (ObjectOutputStream objects = new ObjectOutputStream(out) {
+
+			{
+				enableReplaceObject(true);
+			}
+
+			@Override
+			protected Object replaceObject(Object obj) throws IOException {
+				return BinarySerializer.this.replaceObject(obj);
+			}
+		}) {
+			objects.writeObject(o);
+		}
+	}
+
+	private <T> T readObject(InputStream in, Class<? extends T> clazz) throws IOException, SerializationException {
+		try (ObjectInputStream objects = new ObjectInputStream(in) {
+
+			@Override
+			protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+				Class<?> c;
+				try {
+					// module classes are only visible to the openmrs class loader
+					c = Class.forName(desc.getName(), false, OpenmrsClassLoader.getInstance());
+				}
+				catch (ClassNotFoundException e) {
+					c = super.resolveClass(desc);
+				}
+				if (!isAllowed(c)) {
+					throw new InvalidClassException(desc.getName(), "Class is not allowed to be deserialized");
+				}
+				return c;
+			}
+
+			@Override
+			protected Class<?> resolveProxyClass(String[] interfaces) throws IOException {
+				throw new InvalidClassException("Can't deserialize proxies");
+			}
+		}) {
+			Object o = objects.readObject();
+			if (o != null && !clazz.isInstance(o)) {
+				throw new SerializationException("Deserialized object is not a " + clazz.getName() + ": " + o);
+			}
+			return clazz.cast(o);
+		}
+		catch (ClassNotFoundException e) {
+			throw new SerializationException("Unable to deserialize class: " + clazz.getName(), e);
+		}
+	}
+}
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.IOUtils;
 import org.openmrs.annotation.Authorized;
@@ -83,6 +84,19 @@ public class DatabaseUpdater {
 	 */
 	private static volatile List<String> updateWarnings = null;
 	
+	/**
+	 * The callback of the changelog that is being executed, progress reported by custom changesets
+	 * is passed on to it
+	 */
+	private static volatile ChangeSetExecutorCallback currentCallback = null;
+	
+	/**
+	 * The changelogs that have no unrun changesets in the core context, keyed by database url and
+	 * file name, so that they are not parsed again when checking for updates, e.g. right after a
+	 * new database was set up
+	 */
+	private static final Set<String> upToDateChangelogs = ConcurrentHashMap.newKeySet();
+	
 	/**
 	 * Convenience method to run the changesets using Liquibase to bring the database up to a
 	 * version compatible with the code
@@ -125,6 +139,16 @@ public class DatabaseUpdater {
 		 * @param numChangeSetsToRun the total number of changesets in the current file
 		 */
 		public void executing(ChangeSet changeSet, int numChangeSetsToRun);
+		
+		/**
+		 * This method is called by long running custom changesets to tell how far they got, e.g.
+		 * after each chunk of rows they migrated.
+		 *
+		 * @param message describes the progress of the changeset that is running
+		 * @since 2.2
+		 */
+		public default void progress(String message) {
+		}
 	}
 	
 	/**
@@ -217,12 +241,17 @@ public class DatabaseUpdater {
 			ChangeLogIterator logIterator = new ChangeLogIterator(changeLog, new ShouldRunChangeSetFilter(database),
 			        new ContextChangeSetFilter(contexts), new DbmsChangeSetFilter(database));
 			database.checkDatabaseChangeLogTable(true, changeLog, new String[] { contexts });
+			currentCallback = callback;
 			logIterator.run(new OpenmrsUpdateVisitor(database, callback, numChangeSetsToRun), database);
+			if (CONTEXT.equals(contexts)) {
+				upToDateChangelogs.add(getUpToDateKey(changeLogFile));
+			}
 		}
 		catch (LiquibaseException e) {
 			throw e;
 		}
 		finally {
+			currentCallback = null;
 			try {
 				lockHandler.releaseLock();
 			}
@@ -612,9 +641,15 @@ public class DatabaseUpdater {
 			
 			List<OpenMRSChangeSet> results = new ArrayList<>();
 			for (String changelogFile : changeLogFilenames) {
+				if (upToDateChangelogs.contains(getUpToDateKey(changelogFile))) {
+					continue;
+				}
 				Liquibase liquibase = getLiquibase(changelogFile, null);
 				database = liquibase.getDatabase();
 				List<ChangeSet> changeSets = liquibase.listUnrunChangeSets(CONTEXT);
+				if (changeSets.isEmpty()) {
+					upToDateChangelogs.add(getUpToDateKey(changelogFile));
+				}
 				
 				for (ChangeSet changeSet : changeSets) {
 					OpenMRSChangeSet omrschangeset = new OpenMRSChangeSet(changeSet, database);
@@ -639,6 +674,11 @@ public class DatabaseUpdater {
 		}
 	}
 	
+	private static String getUpToDateKey(String changeLogFile) {
+		Properties props = Context.getRuntimeProperties();
+		return props.getProperty("hibernate.connection.url", props.getProperty("connection.url")) + " " + changeLogFile;
+	}
+	
 	/**
 	 * @return the authenticatedUserId
 	 */
@@ -665,6 +705,21 @@ public class DatabaseUpdater {
 		updateWarnings.addAll(warnings);
 	}
 	
+	/**
+	 * This method is called by an executing custom changeset to report its progress, the message is
+	 * logged and passed on to the callback of the changelog being executed if there is one.
+	 *
+	 * @param message describes the progress of the changeset
+	 * @since 2.2
+	 */
+	public static void reportProgress(String message) {
+		log.info(message);
+		ChangeSetExecutorCallback callback = currentCallback;
+		if (callback != null) {
+			callback.progress(message);
+		}
+	}
+	
 	/**
 	 * This method writes the given text to the database updates log file located in the application
 	 * data directory.
@@ -0,0 +1,393 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.openmrs.Field;
+import org.openmrs.Form;
+import org.openmrs.FormField;
+
+/**
+ * An immutable, precompiled tree of the fields of a form. The children of each node are in the
+ * order of {@link FormField.DefaultComparator} and each node holds the ids and metadata of its
+ * form field, field and concept, so that form entry can walk the tree without loading the form
+ * fields, fields and concepts again. The trees are cached by {@link FormUtil#getCompiledFormStructure(Form)}.
+ *
+ * @since 2.2
+ */
+public final class FormStructure {
+	
+	private final Integer formId;
+	
+	private final String version;
+	
+	private final List<Node> roots;
+	
+	private final Map<Integer, Node> nodes;
+	
+	private final Map<Integer, List<Node>> nodesByConceptId;
+	
+	/**
+	 * The position of each form field in a depth first walk of the tree
+	 */
+	private final Map<Integer, Integer> positions;
+	
+	private FormStructure(Form form, List<Node> roots) {
+		this.formId = form.getFormId();
+		this.version = form.getVersion();
+		this.roots = Collections.unmodifiableList(roots);
+		Map<Integer, Node> nodes = new HashMap<>();
+		Map<Integer, List<Node>> nodesByConceptId = new HashMap<>();
+		Map<Integer, Integer> positions = new HashMap<>();
+		index(roots, nodes, nodesByConceptId, positions);
+		this.nodes = Collections.unmodifiableMap(nodes);
+		this.nodesByConceptId = Collections.unmodifiableMap(nodesByConceptId);
+		this.positions = Collections.unmodifiableMap(positions);
+	}
+	
+	/**
+	 * Builds the tree of the fields of a form
+	 *
+	 * @param form the form
+	 * @return the tree
+	 * @should order the children of each node like FormUtil.getFormStructure
+	 */
+	public static FormStructure compile(Form form) {
+		Map<Object, TreeSet<FormField>> children = new HashMap<>();
+		TreeSet<FormField> roots = new TreeSet<>();
+		for (FormField formField : form.getFormFields()) {
+			FormField parent = formField.getParent();
+			if (parent == null) {
+				roots.add(formField);
+			} else {
+				children.computeIfAbsent(getKey(parent), k -> new TreeSet<>()).add(formField);
+			}
+		}
+		return new FormStructure(form, toNodes(roots, children));
+	}
+	
+	/**
+	 * The parent of a form field may be a proxy, so saved form fields are matched by id
+	 */
+	private static Object getKey(FormField formField) {
+		return formField.getFormFieldId() != null ? formField.getFormFieldId() : formField;
+	}
+	
+	private static List<Node> toNodes(Collection<FormField> formFields, Map<Object, TreeSet<FormField>> children) {
+		List<Node> nodes = new ArrayList<>(formFields.size());
+		for (FormField formField : formFields) {
+			TreeSet<FormField> formFieldChildren = children.get(getKey(formField));
+			nodes.add(new Node(formField, formFieldChildren == null ? Collections.emptyList() : toNodes(
+			    formFieldChildren, children)));
+		}
+		return nodes;
+	}
+	
+	private static void index(List<Node> nodes, Map<Integer, Node> byId, Map<Integer, List<Node>> byConceptId,
+	        Map<Integer, Integer> positions) {
+		for (Node node : nodes) {
+			if (node.formFieldId != null) {
+				byId.put(node.formFieldId, node);
+				positions.put(node.formFieldId, positions.size());
+			}
+			if (node.conceptId != null) {
+				byConceptId.computeIfAbsent(node.conceptId, c -> new ArrayList<>()).add(node);
+			}
+			index(node.children, byId, byConceptId, positions);
+		}
+	}
+	
+	/**
+	 * @param form a form
+	 * @return whether the tree was built from the same version of the form with the same saved form
+	 *         fields, each with the same parent, ordering and occurrences, even if the changes to the
+	 *         form fields have not been saved yet
+	 * @should return false if the parent of a form field changed
+	 * @should return false if the sort weight of a form field changed
+	 * @should not initialize the fields of the form fields
+	 */
+	boolean isOf(Form form) {
+		if (!Objects.equals(formId, form.getFormId()) || !Objects.equals(version, form.getVersion())
+		        || form.getFormFields().size() != nodes.size()) {
+			return false;
+		}
+		for (FormField formField : form.getFormFields()) {
+			Node node = formField.getFormFieldId() == null ? null : nodes.get(formField.getFormFieldId());
+			if (node == null || !node.isOf(formField)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param form the form the tree was compiled from
+	 * @return whether every form field of the form has a node in the tree, which is cheaper than
+	 *         {@link #isOf(Form)} for a tree that was just compiled from the form
+	 */
+	boolean isComplete(Form form) {
+		return form.getFormFields().size() == nodes.size() && countNodes(roots) == nodes.size();
+	}
+	
+	/**
+	 * @return whether every form field in the tree was saved, trees of unsaved form fields are not
+	 *         cached
+	 */
+	boolean isSaved() {
+		return formId != null && countNodes(roots) == nodes.size();
+	}
+	
+	private static int countNodes(List<Node> nodes) {
+		int count = nodes.size();
+		for (Node node : nodes) {
+			count += countNodes(node.children);
+		}
+		return count;
+	}
+	
+	/**
+	 * @return a comparator that orders form fields of the form like the tree, form fields that are
+	 *         not in the tree come after the ones that are
+	 */
+	Comparator<FormField> getComparator() {
+		Comparator<FormField> defaultComparator = new FormField.DefaultComparator();
+		return (ff1, ff2) -> {
+			Integer p1 = ff1.getFormFieldId() == null ? null : positions.get(ff1.getFormFieldId());
+			Integer p2 = ff2.getFormFieldId() == null ? null : positions.get(ff2.getFormFieldId());
+			if (p1 != null && p2 != null) {
+				return p1.compareTo(p2);
+			}
+			if (p1 != null || p2 != null) {
+				return p1 != null ? -1 : 1;
+			}
+			return defaultComparator.compare(ff1, ff2);
+		};
+	}
+	
+	/**
+	 * @return the id of the form
+	 */
+	public Integer getFormId() {
+		return formId;
+	}
+	
+	/**
+	 * @return the version of the form
+	 */
+	public String getVersion() {
+		return version;
+	}
+	
+	/**
+	 * @return the top-level sections of the form in order
+	 */
+	public List<Node> getRoots() {
+		return roots;
+	}
+	
+	/**
+	 * @param formFieldId the id of a form field
+	 * @return the node of the form field or null if it is not part of the form
+	 */
+	public Node getNode(Integer formFieldId) {
+		return nodes.get(formFieldId);
+	}
+	
+	/**
+	 * @param conceptId the id of a concept
+	 * @return the nodes of the fields of the concept in the order of the tree
+	 * @should return the nodes of the fields of the concept
+	 */
+	public List<Node> getNodesForConcept(Integer conceptId) {
+		List<Node> conceptNodes = nodesByConceptId.get(conceptId);
+		return conceptNodes == null ? Collections.emptyList() : Collections.unmodifiableList(conceptNodes);
+	}
+	
+	/**
+	 * @return the ids of the concepts of the fields of the form
+	 */
+	public Set<Integer> getConceptIds() {
+		return Collections.unmodifiableSet(new HashSet<>(nodesByConceptId.keySet()));
+	}
+	
+	/**
+	 * A form field of the tree with its children
+	 */
+	public static final class Node {
+		
+		private final Integer formFieldId;
+		
+		private final Integer parentFormFieldId;
+		
+		private final Integer fieldId;
+		
+		private final String fieldName;
+		
+		private final Integer fieldTypeId;
+		
+		private final Integer conceptId;
+		
+		private final String tableName;
+		
+		private final String attributeName;
+		
+		private final String defaultValue;
+		
+		private final Boolean selectMultiple;
+		
+		private final Integer fieldNumber;
+		
+		private final String fieldPart;
+		
+		private final Integer pageNumber;
+		
+		private final Integer minOccurs;
+		
+		private final Integer maxOccurs;
+		
+		private final Boolean required;
+		
+		private final Float sortWeight;
+		
+		private final List<Node> children;
+		
+		private Node(FormField formField, List<Node> children) {
+			this.formFieldId = formField.getFormFieldId();
+			this.parentFormFieldId = formField.getParent() == null ? null : formField.getParent().getFormFieldId();
+			Field field = formField.getField();
+			this.fieldId = field == null ? null : field.getFieldId();
+			this.fieldName = field == null ? null : field.getName();
+			this.fieldTypeId = field == null || field.getFieldType() == null ? null : field.getFieldType()
+			        .getFieldTypeId();
+			this.conceptId = field == null || field.getConcept() == null ? null : field.getConcept().getConceptId();
+			this.tableName = field == null ? null : field.getTableName();
+			this.attributeName = field == null ? null : field.getAttributeName();
+			this.defaultValue = field == null ? null : field.getDefaultValue();
+			this.selectMultiple = field == null ? null : field.getSelectMultiple();
+			this.fieldNumber = formField.getFieldNumber();
+			this.fieldPart = formField.getFieldPart();
+			this.pageNumber = formField.getPageNumber();
+			this.minOccurs = formField.getMinOccurs();
+			this.maxOccurs = formField.getMaxOccurs();
+			this.required = formField.getRequired();
+			this.sortWeight = formField.getSortWeight();
+			this.children = Collections.unmodifiableList(children);
+		}
+		
+		public Integer getFormFieldId() {
+			return formFieldId;
+		}
+		
+		/**
+		 * @return the form field id of the parent or null for top-level sections
+		 */
+		public Integer getParentFormFieldId() {
+			return parentFormFieldId;
+		}
+		
+		public Integer getFieldId() {
+			return fieldId;
+		}
+		
+		public String getFieldName() {
+			return fieldName;
+		}
+		
+		public Integer getFieldTypeId() {
+			return fieldTypeId;
+		}
+		
+		public Integer getConceptId() {
+			return conceptId;
+		}
+		
+		public String getTableName() {
+			return tableName;
+		}
+		
+		public String getAttributeName() {
+			return attributeName;
+		}
+		
+		public String getDefaultValue() {
+			return defaultValue;
+		}
+		
+		public Boolean getSelectMultiple() {
+			return selectMultiple;
+		}
+		
+		public Integer getFieldNumber() {
+			return fieldNumber;
+		}
+		
+		public String getFieldPart() {
+			return fieldPart;
+		}
+		
+		public Integer getPageNumber() {
+			return pageNumber;
+		}
+		
+		public Integer getMinOccurs() {
+			return minOccurs;
+		}
+		
+		public Integer getMaxOccurs() {
+			return maxOccurs;
+		}
+		
+		public Boolean getRequired() {
+			return required;
+		}
+		
+		public Float getSortWeight() {
+			return sortWeight;
+		}
+		
+		/**
+		 * @param formField a form field with the id of this node
+		 * @return whether this node still has the parent, field, position and occurrences of the
+		 *         form field, the parent and field are compared by id so that proxies are not
+		 *         initialized and saving a field evicts the trees instead
+		 */
+		private boolean isOf(FormField formField) {
+			Field field = formField.getField();
+			return Objects.equals(parentFormFieldId, formField.getParent() == null ? null : formField.getParent()
+			        .getFormFieldId())
+			        && Objects.equals(fieldId, field == null ? null : field.getFieldId())
+			        && Objects.equals(sortWeight, formField.getSortWeight())
+			        && Objects.equals(pageNumber, formField.getPageNumber())
+			        && Objects.equals(fieldNumber, formField.getFieldNumber())
+			        && Objects.equals(fieldPart, formField.getFieldPart())
+			        && Objects.equals(minOccurs, formField.getMinOccurs())
+			        && Objects.equals(maxOccurs, formField.getMaxOccurs())
+			        && Objects.equals(required, formField.getRequired());
+		}
+		
+		/**
+		 * @return the children of the form field in order
+		 */
+		public List<Node> getChildren() {
+			return children;
+		}
+	}
+}
@@ -20,6 +20,8 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
@@ -27,6 +29,8 @@ import org.openmrs.Drug;
 import org.openmrs.Form;
 import org.openmrs.FormField;
 import org.openmrs.hl7.HL7Constants;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * OpenMRS utilities related to forms.
@@ -43,6 +47,11 @@ public class FormUtil {
 	}
 	
 	private static final String DATE_TIME_FORMAT = "yyyy-MM-dd'T'HH:mm:ssZ";
+	
+	/**
+	 * The compiled structures of the saved forms by form id
+	 */
+	private static final Map<Integer, FormStructure> formStructures = new ConcurrentHashMap<>();
 
 	/**
 	 * Converts a string into a valid XML token (tag name)
@@ -160,8 +169,21 @@ public class FormUtil {
 	public static Map<Integer, TreeSet<FormField>> getFormStructure(Form form) {
 		Map<Integer, TreeSet<FormField>> formStructure = new TreeMap<>();
 		Integer base = 0;
-		formStructure.put(base, new TreeSet<>());
 		
+		FormStructure compiled = getCompiledFormStructure(form);
+		if (compiled.isComplete(form)) {
+			// use the compiled tree to arrange the form fields without loading their parents and fields
+			Comparator<FormField> comparator = compiled.getComparator();
+			formStructure.put(base, new TreeSet<>(comparator));
+			for (FormField formField : form.getFormFields()) {
+				Integer parentId = compiled.getNode(formField.getFormFieldId()).getParentFormFieldId();
+				formStructure.computeIfAbsent(parentId == null ? base : parentId, k -> new TreeSet<>(comparator)).add(
+				    formField);
+			}
+			return formStructure;
+		}
+		
+		formStructure.put(base, new TreeSet<>());
 		for (FormField formField : form.getFormFields()) {
 			FormField parent = formField.getParent();
 			if (parent == null) {
@@ -179,6 +201,59 @@ public class FormUtil {
 		return formStructure;
 	}
 	
+	/**
+	 * Gets the precompiled tree of the fields of a form. The trees of saved forms are cached until
+	 * the form or its fields are saved through the form service, a cached tree is only returned for
+	 * the same version of the form with the same form fields.
+	 *
+	 * @param form the form
+	 * @return the tree of the fields of the form
+	 * @since 2.2
+	 * @should return the cached structure for the same form
+	 * @should compile the structure again after it was evicted
+	 */
+	public static FormStructure getCompiledFormStructure(Form form) {
+		if (form.getFormId() != null) {
+			FormStructure cached = formStructures.get(form.getFormId());
+			if (cached != null && cached.isOf(form)) {
+				return cached;
+			}
+		}
+		FormStructure compiled = FormStructure.compile(form);
+		if (compiled.isSaved()) {
+			formStructures.put(form.getFormId(), compiled);
+		}
+		return compiled;
+	}
+	
+	/**
+	 * Evicts the compiled structure of a form, now and again when the current transaction completes
+	 * so that a structure compiled from the old form fields in the meantime is not kept
+	 *
+	 * @param formId the id of the form or null to evict the structures of all forms
+	 * @since 2.2
+	 */
+	public static void evictFormStructure(final Integer formId) {
+		evict(formId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+				
+				@Override
+				public void afterCompletion(int status) {
+					evict(formId);
+				}
+			});
+		}
+	}
+	
+	private static void evict(Integer formId) {
+		if (formId == null) {
+			formStructures.clear();
+		} else {
+			formStructures.remove(formId);
+		}
+	}
+	
 	public static String dateToString() {
 		return dateToString(new Date());
 	}
@@ -54,9 +54,11 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	
 	private static Logger log = LoggerFactory.getLogger(OpenmrsClassLoader.class);
 	
-	private static File libCacheFolder;
+	static {
+		ClassLoader.registerAsParallelCapable();
+	}
 	
-	private static boolean libCacheFolderInitialized = false;
+	private static volatile File libCacheFolder;
 	
 	// placeholder to hold mementos to restore
 	private static Map<String, OpenmrsMemento> mementos = new WeakHashMap<>();
@@ -141,10 +143,31 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	 * @should load class if two module class loaders have same packages
 	 */
 	@Override
-	public synchronized Class<?> loadClass(String name, final boolean resolve) throws ClassNotFoundException {
+	public Class<?> loadClass(String name, final boolean resolve) throws ClassNotFoundException {
 		// Check if the class has already been requested from this class loader
 		Class<?> c = getCachedClass(name);
 		if (c == null) {
+			c = loadUncachedClass(name);
+		}
+		
+		if (resolve) {
+			resolveClass(c);
+		}
+		
+		return c;
+	}
+	
+	/**
+	 * Only threads loading the same class name wait for each other, other classes are loaded
+	 * concurrently.
+	 */
+	private Class<?> loadUncachedClass(String name) throws ClassNotFoundException {
+		synchronized (getClassLoadingLock(name)) {
+			Class<?> c = getCachedClass(name);
+			if (c != null) {
+				return c;
+			}
+			
 			// We do not try to load classes using this.findClass on purpose.
 			// All classes are loaded by web container or by module class loaders.
 			
@@ -170,13 +193,8 @@ public class OpenmrsClassLoader extends URLClassLoader {
 			}
 			
 			cacheClass(name, c);
+			return c;
 		}
-		
-		if (resolve) {
-			resolveClass(c);
-		}
-		
-		return c;
 	}
 	
 	private Class<?> getCachedClass(String name) {
@@ -380,6 +398,7 @@ public class OpenmrsClassLoader extends URLClassLoader {
 		}
 		
 		OpenmrsClassScanner.destroyInstance();
+		PersonAttributeHydrator.clear();
 		
 		OpenmrsClassLoaderHolder.INSTANCE = null;
 	}
@@ -703,38 +722,45 @@ public class OpenmrsClassLoader extends URLClassLoader {
 	 */
 	public static File getLibCacheFolder() {
 		// cache the location for all calls until OpenMRS is restarted
-		if (libCacheFolder != null) {
-			return libCacheFolderInitialized ? libCacheFolder : null;
+		File folder = libCacheFolder;
+		if (folder != null) {
+			return folder;
 		}
 		
+		// module class loaders may be created in parallel, only the first one prepares the folder
 		synchronized (ModuleClassLoader.class) {
-			libCacheFolder = new File(OpenmrsUtil.getApplicationDataDirectory(), LIBCACHESUFFIX);
+			folder = libCacheFolder;
+			if (folder != null) {
+				return folder;
+			}
+			
+			folder = new File(OpenmrsUtil.getApplicationDataDirectory(), LIBCACHESUFFIX);
 			
-			log.debug("libraries cache folder is {}", libCacheFolder);
+			log.debug("libraries cache folder is {}", folder);
 			
-			if (libCacheFolder.exists()) {
+			if (folder.exists()) {
 				// clean up and empty the folder if it exists (and is not locked)
 				try {
-					OpenmrsUtil.deleteDirectory(libCacheFolder);
+					OpenmrsUtil.deleteDirectory(folder);
 					
-					libCacheFolder.mkdirs();
+					folder.mkdirs();
 				}
 				catch (IOException io) {
-					log.warn("Unable to delete: {}", libCacheFolder.getName());
+					log.warn("Unable to delete: {}", folder.getName());
 				}
 			} else {
 				// otherwise just create the dir structure
-				libCacheFolder.mkdirs();
+				folder.mkdirs();
 			}
 			
 			// mark the lock and entire library cache to be deleted when the jvm exits
-			libCacheFolder.deleteOnExit();
+			folder.deleteOnExit();
 			
-			// mark the lib cache folder as ready
-			libCacheFolderInitialized = true;
+			// only publish the folder once it is ready
+			libCacheFolder = folder;
 		}
 		
-		return libCacheFolder;
+		return folder;
 	}
 	
 	/**
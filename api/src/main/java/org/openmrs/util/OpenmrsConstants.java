@@ -556,6 +556,31 @@ public final class OpenmrsConstants {
 	
 	public static final String GP_MAIL_SMTP_STARTTLS_ENABLE = "mail.smtp.starttls.enable";
 	
+	/**
+	 * @since 2.2
+	 */
+	public static final String GP_MAIL_QUEUE_ENABLED = "mail.queue_enabled";
+	
+	/**
+	 * @since 2.2
+	 */
+	public static final String GP_MAIL_QUEUE_WORKERS = "mail.queue_workers";
+	
+	/**
+	 * @since 2.2
+	 */
+	public static final String GP_MAIL_QUEUE_MAX_ATTEMPTS = "mail.queue_max_attempts";
+	
+	/**
+	 * @since 2.2
+	 */
+	public static final String GP_MAIL_QUEUE_RETRY_DELAY = "mail.queue_retry_delay";
+	
+	/**
+	 * @since 2.2
+	 */
+	public static final String GP_MAIL_MAX_RECIPIENTS = "mail.max_recipients";
+	
 	public static final String GP_NEXT_ORDER_NUMBER_SEED = "order.nextOrderNumberSeed";
 	
 	public static final String GP_ORDER_NUMBER_GENERATOR_BEAN_ID = "order.orderNumberGeneratorBeanId";
@@ -702,6 +727,18 @@ public final class OpenmrsConstants {
 		props.add(new GlobalProperty("mail.password", "test", "Password for the SMTP user (if smtp_auth is enabled)"));
 		props.add(new GlobalProperty("mail.default_content_type", "text/plain",
 		        "Content type to append to the mail messages"));
+		props.add(new GlobalProperty(GP_MAIL_QUEUE_ENABLED, "false",
+		        "true/false whether to queue messages and deliver them in the background instead of while sending them",
+		        BooleanDatatype.class, null));
+		props.add(new GlobalProperty(GP_MAIL_QUEUE_WORKERS, "2",
+		        "Number of threads delivering queued messages, read when the first message is queued so a change "
+		                + "takes effect after a restart"));
+		props.add(new GlobalProperty(GP_MAIL_QUEUE_MAX_ATTEMPTS, "6",
+		        "Number of times a queued message is tried before it is moved to the dead letters"));
+		props.add(new GlobalProperty(GP_MAIL_QUEUE_RETRY_DELAY, "60",
+		        "Seconds to wait before retrying a queued message, doubled with each further attempt"));
+		props.add(new GlobalProperty(GP_MAIL_MAX_RECIPIENTS, "50",
+		        "Most recipients of a queued message, messages with more are split. 0 for no limit"));
 		
 		props.add(new GlobalProperty(ModuleConstants.REPOSITORY_FOLDER_PROPERTY,
 		        ModuleConstants.REPOSITORY_FOLDER_PROPERTY_DEFAULT, "Name of the folder in which to store the modules"));
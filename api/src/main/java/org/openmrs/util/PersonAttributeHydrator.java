@@ -0,0 +1,178 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import java.lang.reflect.Constructor;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.openmrs.Attributable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Turns the values of person attributes into objects of the class named by the format of their
+ * attribute type, see {@link org.openmrs.PersonAttribute#getHydratedObject()}. The class of each
+ * format is only resolved once, until the {@link OpenmrsClassLoader} is destroyed when modules are
+ * started or stopped.
+ * <p>
+ * Hydrated values that are immutable or dates are cached by format and value so that they are not
+ * parsed again for every person in a list, dates are copied since they can be changed. Other
+ * objects, e.g. concepts, locations and users, are not cached since they are looked up by id and
+ * are therefore already kept by the hibernate session, while sharing them between sessions would
+ * hand out detached objects.
+ *
+ * @since 2.2
+ */
+public final class PersonAttributeHydrator {
+	
+	private static final Logger log = LoggerFactory.getLogger(PersonAttributeHydrator.class);
+	
+	private static final int MAX_CACHED_VALUES = 1000;
+	
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+	    Character.class, Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, BigInteger.class,
+	    BigDecimal.class));
+	
+	private static final Map<String, Hydrator> hydrators = new ConcurrentHashMap<>();
+	
+	private static final Map<List<String>, Object> values = Collections.synchronizedMap(new LinkedHashMap<List<String>, Object>(
+	        16, 0.75f, true) {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<List<String>, Object> eldest) {
+			return size() > MAX_CACHED_VALUES;
+		}
+	});
+	
+	private PersonAttributeHydrator() {
+	}
+	
+	/**
+	 * Creates an object of the class named by the format from the value. If the class implements
+	 * {@link Attributable} the value is passed to {@link Attributable#hydrate(String)}, if it can't
+	 * be created with its no-arg constructor it is created with its String constructor, otherwise
+	 * the value itself is returned.
+	 * 
+	 * @param format the name of the class
+	 * @param value the value
+	 * @return the hydrated object or the value
+	 * @throws ReflectiveOperationException if the class can't be loaded or created
+	 * @should hydrate attributable values
+	 * @should create values with the string constructor
+	 * @should return the value if the class is not attributable
+	 * @should return a copy of cached dates
+	 */
+	public static Object hydrate(String format, String value) throws ReflectiveOperationException {
+		Hydrator hydrator = getHydrator(format);
+		List<String> key = Arrays.asList(format, value);
+		Object cached = values.get(key);
+		if (cached != null) {
+			return copy(cached);
+		}
+		
+		Object hydrated = hydrator.hydrate(value);
+		if (hydrated != null && (hydrated instanceof Date || isImmutable(hydrated))) {
+			values.put(key, copy(hydrated));
+		}
+		return hydrated;
+	}
+	
+	/**
+	 * @param format the name of a class
+	 * @return the class
+	 * @throws ReflectiveOperationException if the format is null or the class can't be loaded or
+	 *             created
+	 * @should fail for a null format
+	 */
+	public static Class<?> getType(String format) throws ReflectiveOperationException {
+		return getHydrator(format).type;
+	}
+	
+	/**
+	 * Forgets the classes of all formats and the cached values
+	 */
+	public static void clear() {
+		hydrators.clear();
+		values.clear();
+	}
+	
+	private static Hydrator getHydrator(String format) throws ReflectiveOperationException {
+		if (format == null) {
+			throw new ClassNotFoundException("The attribute type has no format");
+		}
+		Hydrator hydrator = hydrators.get(format);
+		if (hydrator == null) {
+			// classes that can't be loaded are not remembered since their module may be started later
+			hydrator = Hydrator.resolve(format);
+			hydrators.put(format, hydrator);
+		}
+		return hydrator;
+	}
+	
+	private static boolean isImmutable(Object o) {
+		return IMMUTABLE_TYPES.contains(o.getClass()) || o instanceof Enum;
+	}
+	
+	private static Object copy(Object o) {
+		return o instanceof Date ? ((Date) o).clone() : o;
+	}
+	
+	private static class Hydrator {
+		
+		private final Class<?> type;
+		
+		private final boolean attributable;
+		
+		/**
+		 * The String constructor, for classes that can't be created with the no-arg constructor
+		 */
+		private final Constructor<?> valueConstructor;
+		
+		private Hydrator(Class<?> type, boolean attributable, Constructor<?> valueConstructor) {
+			this.type = type;
+			this.attributable = attributable;
+			this.valueConstructor = valueConstructor;
+		}
+		
+		static Hydrator resolve(String format) throws ReflectiveOperationException {
+			Class<?> type = OpenmrsClassLoader.getInstance().loadClass(format);
+			try {
+				return new Hydrator(type, type.newInstance() instanceof Attributable, null);
+			}
+			catch (InstantiationException e) {
+				log.trace("Unable to call no-arg constructor for class: {}", type.getName());
+				return new Hydrator(type, false, type.getConstructor(String.class));
+			}
+		}
+		
+		Object hydrate(String value) throws ReflectiveOperationException {
+			if (valueConstructor != null) {
+				return valueConstructor.newInstance(value);
+			}
+			if (attributable) {
+				// a new instance each time since implementations are not required to be stateless
+				return ((Attributable<?>) type.newInstance()).hydrate(value);
+			}
+			return value;
+		}
+	}
+}
@@ -0,0 +1,363 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.api.context.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A prebuilt snapshot of the OpenMRS schema and core data, i.e. of a database that
+ * liquibase-schema-only.xml and liquibase-core-data.xml were run against, including the rows of
+ * the liquibase changelog table that mark their changesets as run. Loading the snapshot into an
+ * empty database is much faster than running the changelogs, after it the update changelogs only
+ * run the changesets that are newer than the snapshot.
+ * <p>
+ * The snapshots are created by running {@link #main} and are packaged as
+ * {@value #SNAPSHOT_RESOURCE_PATH}openmrs-schema-&lt;database type&gt;.sql, where the database type
+ * is the one of the jdbc url, e.g. "mysql" or "h2". They are only built when the api module is
+ * built with one of its opt-in profiles: schema-snapshot for H2 and schema-snapshot-mysql for MySQL,
+ * a default build packages no snapshot and new databases are set up by running the changelogs as
+ * before. A snapshot is only loaded if its header names the OpenMRS version that is running, a
+ * snapshot of another version is ignored.
+ *
+ * @since 2.2
+ */
+public final class SchemaSnapshot {
+	
+	private static final Logger log = LoggerFactory.getLogger(SchemaSnapshot.class);
+	
+	public static final String SNAPSHOT_RESOURCE_PATH = "org/openmrs/liquibase/snapshot/";
+	
+	public static final String SCHEMA_CHANGELOG = "liquibase-schema-only.xml";
+	
+	public static final String CORE_DATA_CHANGELOG = "liquibase-core-data.xml";
+	
+	private static final String VERSION_HEADER = "-- OpenMRS schema snapshot ";
+	
+	/**
+	 * The number of statements loaded per batch and the number of rows per insert statement
+	 */
+	private static final int BATCH_SIZE = 500;
+	
+	private SchemaSnapshot() {
+	}
+	
+	/**
+	 * @param url a jdbc url
+	 * @return the type of the database, e.g. "mysql" for jdbc:mysql://localhost/openmrs
+	 * @should return the sub protocol of the url
+	 */
+	public static String getDatabaseType(String url) {
+		String[] parts = StringUtils.split(url, ':');
+		return parts != null && parts.length > 1 ? parts[1].toLowerCase() : null;
+	}
+	
+	/**
+	 * @param databaseType the type of a database
+	 * @return whether a snapshot is packaged for the type of database
+	 */
+	public static boolean isAvailable(String databaseType) {
+		return databaseType != null && OpenmrsClassLoader.getInstance().getResource(getResourceName(databaseType)) != null;
+	}
+	
+	/**
+	 * Loads the snapshot for the type of the database if there is one and the database has not been
+	 * set up by liquibase yet. The statements are run in batches and committed at the end, note that
+	 * databases like mysql commit each create table statement so a failed load may leave tables
+	 * behind.
+	 *
+	 * @param connection a connection to the database
+	 * @param databaseType the type of the database, see {@link #getDatabaseType(String)}
+	 * @return true if the snapshot was loaded, false if there is no snapshot for the type of
+	 *         database, it was made for another version or the database is not empty
+	 * @throws SQLException if a statement of the snapshot fails
+	 * @throws IOException if the snapshot cannot be read
+	 */
+	public static boolean load(Connection connection, String databaseType) throws SQLException, IOException {
+		if (!isAvailable(databaseType)) {
+			return false;
+		}
+		try (InputStream in = OpenmrsClassLoader.getInstance().getResourceAsStream(getResourceName(databaseType));
+		        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+			return load(connection, databaseType, reader);
+		}
+	}
+	
+	/**
+	 * Loads a snapshot script written by {@link #write(Connection, String, Writer)}
+	 *
+	 * @param connection a connection to the database
+	 * @param databaseType the type of the database the script was written for
+	 * @param reader the script
+	 * @return true if the snapshot was loaded, false if it was made for another version or the
+	 *         database is not empty
+	 * @throws SQLException if a statement of the snapshot fails
+	 * @throws IOException if the snapshot cannot be read
+	 * @should load a snapshot written from an h2 database
+	 * @should not load a snapshot of another version
+	 */
+	static boolean load(Connection connection, String databaseType, Reader reader) throws SQLException, IOException {
+		String expectedHeader = VERSION_HEADER + OpenmrsConstants.OPENMRS_VERSION_SHORT;
+		String header = readLine(reader);
+		if (!expectedHeader.equals(header)) {
+			log.warn("Not loading the schema snapshot since it was made for another version: {}", header);
+			return false;
+		}
+		if (hasTable(connection, "liquibasechangelog")) {
+			log.info("Not loading the schema snapshot since the database already has a liquibase changelog table");
+			return false;
+		}
+		
+		// the mysql snapshot escapes quotes and line breaks with backslashes, the h2 one doubles quotes
+		boolean backslashEscapes = "mysql".equals(databaseType);
+		boolean initialAutoCommit = connection.getAutoCommit();
+		try (Statement statement = connection.createStatement()) {
+			connection.setAutoCommit(false);
+			int batched = 0;
+			int loaded = 0;
+			for (String sql = nextStatement(reader, backslashEscapes); sql != null; sql = nextStatement(reader,
+			    backslashEscapes)) {
+				statement.addBatch(sql);
+				if (++batched == BATCH_SIZE) {
+					statement.executeBatch();
+					loaded += batched;
+					batched = 0;
+					DatabaseUpdater.reportProgress("Loaded " + loaded + " statements of the schema snapshot");
+				}
+			}
+			statement.executeBatch();
+			connection.commit();
+		}
+		catch (SQLException | IOException e) {
+			connection.rollback();
+			throw e;
+		}
+		finally {
+			connection.setAutoCommit(initialAutoCommit);
+		}
+		return true;
+	}
+	
+	private static String readLine(Reader reader) throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (int c = reader.read(); c != -1 && c != '\n'; c = reader.read()) {
+			line.append((char) c);
+		}
+		return StringUtils.removeEnd(line.toString(), "\r");
+	}
+	
+	/**
+	 * Reads the next statement of a script, statements end with a semicolon that is not in a quoted
+	 * string and lines starting with -- between statements are comments. Quotes in strings are
+	 * doubled, a backslash only escapes the next character if backslash escapes are enabled.
+	 *
+	 * @param reader the script
+	 * @param backslashEscapes whether a backslash in a string escapes the next character, as it does
+	 *            in mysql but not in h2
+	 * @return the statement without its semicolon or null at the end of the script
+	 * @throws IOException if the script cannot be read
+	 * @should not split statements at semicolons in quoted strings
+	 * @should skip comment lines
+	 * @should treat backslashes as literal characters unless they are escapes
+	 */
+	static String nextStatement(Reader reader, boolean backslashEscapes) throws IOException {
+		StringBuilder sql = new StringBuilder();
+		boolean quoted = false;
+		int c;
+		while ((c = reader.read()) != -1) {
+			if (quoted) {
+				sql.append((char) c);
+				if (c == '\\' && backslashEscapes) {
+					int escaped = reader.read();
+					if (escaped != -1) {
+						sql.append((char) escaped);
+					}
+				} else if (c == '\'') {
+					quoted = false;
+				}
+			} else if (c == ';') {
+				return sql.toString().trim();
+			} else if (c == '-' && StringUtils.isBlank(sql)) {
+				// a comment line, a statement can't start with a minus
+				while (c != -1 && c != '\n') {
+					c = reader.read();
+				}
+			} else {
+				quoted = c == '\'';
+				sql.append((char) c);
+			}
+		}
+		return StringUtils.isBlank(sql) ? null : sql.toString().trim();
+	}
+	
+	/**
+	 * Creates a snapshot by running the schema and core data changelogs against an empty database
+	 * and writing out its tables and rows, it is run by the build.
+	 *
+	 * @param args the jdbc url, user name and password of an empty database and the directory to
+	 *            write the snapshot to
+	 * @throws Exception if the changelogs fail or the snapshot cannot be written
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length != 4) {
+			throw new IllegalArgumentException("Expected the arguments: <jdbc url> <user name> <password> <directory>");
+		}
+		String url = args[0];
+		String databaseType = getDatabaseType(url);
+		Properties properties = new Properties();
+		properties.setProperty("hibernate.connection.url", url);
+		properties.setProperty("hibernate.connection.username", args[1]);
+		properties.setProperty("hibernate.connection.password", args[2]);
+		properties.setProperty("hibernate.connection.driver_class", "h2".equals(databaseType) ? "org.h2.Driver"
+		        : "com.mysql.jdbc.Driver");
+		Context.setRuntimeProperties(properties);
+		
+		DatabaseUpdater.executeChangelog(SCHEMA_CHANGELOG, null);
+		DatabaseUpdater.executeChangelog(CORE_DATA_CHANGELOG, null);
+		
+		File file = new File(args[3], getResourceName(databaseType));
+		if (!file.getParentFile().isDirectory() && !file.getParentFile().mkdirs()) {
+			throw new IOException("Unable to create the directory of " + file);
+		}
+		try (Connection connection = DatabaseUpdater.getConnection();
+		        Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			write(connection, databaseType, writer);
+		}
+		log.info("Wrote the schema snapshot to {}", file);
+	}
+	
+	/**
+	 * Writes the tables and rows of a database as a script that {@link #load(Connection, String)}
+	 * can run
+	 *
+	 * @param connection a connection to the database
+	 * @param databaseType the type of the database, only "h2" and "mysql" are supported
+	 * @param writer the writer to write the script to
+	 * @throws SQLException if the database cannot be read
+	 * @throws IOException if the script cannot be written
+	 */
+	static void write(Connection connection, String databaseType, Writer writer) throws SQLException, IOException {
+		writer.write(VERSION_HEADER + OpenmrsConstants.OPENMRS_VERSION_SHORT + "\n");
+		try (Statement statement = connection.createStatement()) {
+			if ("h2".equals(databaseType)) {
+				try (ResultSet rs = statement.executeQuery("SCRIPT NOPASSWORDS NOSETTINGS")) {
+					while (rs.next()) {
+						String sql = StringUtils.removeEnd(rs.getString(1).trim(), ";");
+						// the user running the script already exists
+						if (!StringUtils.startsWithIgnoreCase(sql, "CREATE USER")) {
+							writer.write(sql + ";\n");
+						}
+					}
+				}
+			} else if ("mysql".equals(databaseType)) {
+				writer.write("SET FOREIGN_KEY_CHECKS = 0;\n");
+				for (String table : getTables(connection)) {
+					try (ResultSet rs = statement.executeQuery("SHOW CREATE TABLE `" + table + "`")) {
+						rs.next();
+						writer.write(rs.getString(2) + ";\n");
+					}
+					writeRows(statement, table, writer);
+				}
+				writer.write("SET FOREIGN_KEY_CHECKS = 1;\n");
+			} else {
+				throw new IllegalArgumentException("Schema snapshots are not supported for " + databaseType);
+			}
+		}
+	}
+	
+	/**
+	 * Writes the rows of a mysql table as insert statements of up to {@link #BATCH_SIZE} rows
+	 */
+	private static void writeRows(Statement statement, String table, Writer writer) throws SQLException, IOException {
+		try (ResultSet rs = statement.executeQuery("SELECT * FROM `" + table + "`")) {
+			ResultSetMetaData metaData = rs.getMetaData();
+			int rows = 0;
+			while (rs.next()) {
+				writer.write(rows++ % BATCH_SIZE == 0 ? "INSERT INTO `" + table + "` VALUES\n(" : ",\n(");
+				for (int i = 1; i <= metaData.getColumnCount(); i++) {
+					writer.write((i > 1 ? "," : "") + toLiteral(rs.getObject(i)));
+				}
+				writer.write(rows % BATCH_SIZE == 0 ? ");\n" : ")");
+			}
+			if (rows % BATCH_SIZE != 0) {
+				writer.write(";\n");
+			}
+		}
+	}
+	
+	private static String toLiteral(Object value) {
+		if (value == null) {
+			return "NULL";
+		} else if (value instanceof Boolean) {
+			return (Boolean) value ? "1" : "0";
+		} else if (value instanceof Number) {
+			return value.toString();
+		} else if (value instanceof byte[]) {
+			StringBuilder hex = new StringBuilder("X'");
+			for (byte b : (byte[]) value) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.append("'").toString();
+		}
+		String escaped = value.toString().replace("\\", "\\\\").replace("'", "\\'").replace("\n", "\\n")
+		        .replace("\r", "\\r");
+		return "'" + escaped + "'";
+	}
+	
+	private static List<String> getTables(Connection connection) throws SQLException {
+		List<String> tables = new ArrayList<>();
+		try (ResultSet rs = connection.getMetaData().getTables(connection.getCatalog(), null, "%",
+		    new String[] { "TABLE" })) {
+			while (rs.next()) {
+				tables.add(rs.getString("TABLE_NAME"));
+			}
+		}
+		return tables;
+	}
+	
+	private static boolean hasTable(Connection connection, String table) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		// databases differ in the case they store unquoted names in
+		for (String name : new String[] { table, table.toUpperCase() }) {
+			try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, name, new String[] { "TABLE" })) {
+				if (rs.next()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	private static String getResourceName(String databaseType) {
+		return SNAPSHOT_RESOURCE_PATH + "openmrs-schema-" + databaseType + ".sql";
+	}
+}
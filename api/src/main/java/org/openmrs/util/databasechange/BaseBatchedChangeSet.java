@@ -0,0 +1,498 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util.databasechange;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.lang3.StringUtils;
+import org.openmrs.util.DatabaseUpdater;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.SetupException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+/**
+ * Base class for custom changesets that migrate the rows of one or more tables. The rows to migrate
+ * are read in chunks ordered by their integer primary key, each chunk starting after the last key
+ * of the previous one, so no chunk gets slower as the migration goes on. Each chunk is passed to
+ * {@link #processChunk(Connection, String, List)} and committed together with a checkpoint holding
+ * its last key, so that a migration that was interrupted continues after the last committed chunk
+ * when the changeset is run again. The checkpoints are kept in the {@link #CHECKPOINT_TABLE} which
+ * is created when needed and dropped once all migrations are done.
+ * <br/>
+ * Tables whose id column is not a unique integer key, e.g. tables with a varchar or composite
+ * primary key, can't be read in chunks. They are passed to {@link #processTable(Connection, String)}
+ * instead, which migrates them the way they were migrated before chunks were introduced.
+ * <br/>
+ * Accepts parameter: "chunkSize" : the number of rows to migrate per chunk. Default: 1000 <br/>
+ * Accepts parameter: "workers" : the number of tables to migrate in parallel, each worker uses its
+ * own connection. Default: 1
+ *
+ * @since 2.2
+ */
+public abstract class BaseBatchedChangeSet implements CustomTaskChange {
+	
+	private static final Logger log = LoggerFactory.getLogger(BaseBatchedChangeSet.class);
+	
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+	
+	/**
+	 * The table holding the last migrated key of the migrations that are not done yet
+	 */
+	public static final String CHECKPOINT_TABLE = "liquibase_batch_checkpoint";
+	
+	/**
+	 * The "chunkSize" parameter defined in the liquibase xml changeSet element that is calling this
+	 * class
+	 */
+	private String chunkSize = null;
+	
+	/**
+	 * The "workers" parameter defined in the liquibase xml changeSet element that is calling this
+	 * class
+	 */
+	private String workers = null;
+	
+	private int chunkSizeValue = DEFAULT_CHUNK_SIZE;
+	
+	private int workerCount = 1;
+	
+	/**
+	 * @return the names of the tables to migrate
+	 */
+	protected abstract List<String> getTableNames();
+	
+	/**
+	 * @param tableName the name of a table to migrate
+	 * @return the name of the primary key column of the table
+	 */
+	protected abstract String getIdColumn(String tableName);
+	
+	/**
+	 * @param tableName the name of a table to migrate
+	 * @return an sql condition the rows that need migrating meet or null to migrate every row
+	 */
+	protected String getRowCondition(String tableName) {
+		return null;
+	}
+	
+	/**
+	 * Migrates a chunk of rows, the changes are committed by the caller
+	 *
+	 * @param connection the connection to use, it is not in auto commit mode
+	 * @param tableName the name of the table
+	 * @param ids the primary keys of the rows in ascending order
+	 * @throws SQLException if the rows cannot be migrated
+	 */
+	protected abstract void processChunk(Connection connection, String tableName, List<Integer> ids)
+	        throws SQLException;
+	
+	/**
+	 * Migrates all rows of a table whose id column is not a unique integer key, so that its rows
+	 * can't be read in chunks and no checkpoint can be kept for it. The implementation may commit
+	 * in between, the remaining changes are committed by the caller. By default such tables are
+	 * refused.
+	 *
+	 * @param connection the connection to use, it is not in auto commit mode
+	 * @param tableName the name of the table
+	 * @throws SQLException if the rows cannot be migrated
+	 */
+	protected void processTable(Connection connection, String tableName) throws SQLException {
+		throw new SQLException("Unable to migrate " + tableName + " in chunks since " + getIdColumn(tableName)
+		        + " is not a unique integer key");
+	}
+	
+	/**
+	 * Opens the connection a table is migrated with when tables are migrated in parallel
+	 *
+	 * @return a new connection to the database being updated
+	 * @throws Exception if the connection cannot be opened
+	 */
+	protected Connection openConnection() throws Exception {
+		return DatabaseUpdater.getConnection();
+	}
+	
+	/**
+	 * Subclasses whose chunks depend on each other, e.g. because they keep state across chunks,
+	 * should return false so that their tables are never migrated in parallel.
+	 *
+	 * @return whether more than one table may be migrated at a time
+	 */
+	protected boolean isParallelizable() {
+		return true;
+	}
+	
+	/**
+	 * @param tableName the name of a table to migrate
+	 * @return the key the checkpoint of the migration of the table is stored under
+	 */
+	protected String getCheckpointKey(String tableName) {
+		return StringUtils.left(getClass().getName() + ":" + tableName, 255);
+	}
+	
+	/**
+	 * @see liquibase.change.custom.CustomTaskChange#execute(liquibase.database.Database)
+	 */
+	@Override
+	public void execute(Database database) throws CustomChangeException {
+		Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+		List<String> tableNames = getTableNames();
+		boolean initialAutoCommit = true;
+		try {
+			initialAutoCommit = connection.getAutoCommit();
+			connection.setAutoCommit(false);
+			createCheckpointTableIfNeeded(connection);
+			connection.commit();
+			
+			int threads = isParallelizable() ? Math.min(workerCount, tableNames.size()) : 1;
+			if (threads <= 1) {
+				for (String tableName : tableNames) {
+					migrateTable(connection, tableName);
+				}
+			} else {
+				migrateInParallel(tableNames, threads);
+			}
+			
+			dropCheckpointTableIfEmpty(connection);
+			connection.commit();
+		}
+		catch (SQLException e) {
+			throw new CustomChangeException(e);
+		}
+		finally {
+			try {
+				connection.setAutoCommit(initialAutoCommit);
+			}
+			catch (SQLException e) {
+				//silently ignore so that the actual error is not hidden
+			}
+		}
+	}
+	
+	private void migrateInParallel(List<String> tableNames, int threads) throws CustomChangeException {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Void>> results = new ArrayList<>();
+			for (final String tableName : tableNames) {
+				results.add(executor.submit(() -> {
+					try (Connection connection = openConnection()) {
+						connection.setAutoCommit(false);
+						migrateTable(connection, tableName);
+					}
+					return null;
+				}));
+			}
+			for (Future<Void> result : results) {
+				result.get();
+			}
+		}
+		catch (ExecutionException e) {
+			throw new CustomChangeException(e.getCause());
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new CustomChangeException(e);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Migrates the rows of a table chunk by chunk, starting after the checkpoint of a previous run
+	 */
+	private void migrateTable(Connection connection, String tableName) throws CustomChangeException {
+		String checkpointKey = getCheckpointKey(tableName);
+		String idColumn = getIdColumn(tableName);
+		try {
+			if (!hasUniqueIntegerKey(connection, tableName, idColumn)) {
+				log.info("Migrating {} without chunks since {} is not a unique integer key", tableName, idColumn);
+				processTable(connection, tableName);
+				connection.commit();
+				return;
+			}
+		}
+		catch (SQLException e) {
+			rollback(connection);
+			throw new CustomChangeException("Unable to migrate table: " + tableName, e);
+		}
+		
+		String condition = getRowCondition(tableName);
+		String where = " where " + (condition == null ? "" : "(" + condition + ") and ") + idColumn + " > ?";
+		String idSql = "select " + idColumn + " from " + tableName + where + " order by " + idColumn;
+		String countSql = "select count(*) from " + tableName + where;
+		
+		try (PreparedStatement idStatement = connection.prepareStatement(idSql)) {
+			idStatement.setMaxRows(chunkSizeValue);
+			
+			Integer checkpoint = getCheckpoint(connection, checkpointKey);
+			int lastId = checkpoint == null ? Integer.MIN_VALUE : checkpoint;
+			if (checkpoint != null) {
+				log.info("Resuming the migration of {} after {} {}", tableName, idColumn, lastId);
+			}
+			long total = count(connection, countSql, lastId);
+			long done = 0;
+			
+			List<Integer> ids = nextChunk(idStatement, lastId);
+			while (!ids.isEmpty()) {
+				processChunk(connection, tableName, ids);
+				lastId = ids.get(ids.size() - 1);
+				saveCheckpoint(connection, checkpointKey, lastId);
+				connection.commit();
+				
+				done += ids.size();
+				DatabaseUpdater.reportProgress(getClass().getSimpleName() + " migrated " + done + " of " + total
+				        + " rows in " + tableName);
+				ids = nextChunk(idStatement, lastId);
+			}
+			
+			deleteCheckpoint(connection, checkpointKey);
+			connection.commit();
+		}
+		catch (SQLException e) {
+			rollback(connection);
+			throw new CustomChangeException("Unable to migrate table: " + tableName, e);
+		}
+	}
+	
+	private void rollback(Connection connection) {
+		try {
+			connection.rollback();
+		}
+		catch (SQLException rbe) {
+			log.warn("Failed to roll back the chunk", rbe);
+		}
+	}
+	
+	/**
+	 * Keyset pagination needs an integer id column that is the only column of the primary key or of
+	 * a unique index
+	 */
+	private boolean hasUniqueIntegerKey(Connection connection, String tableName, String idColumn) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		// databases differ in the case they store unquoted names in
+		for (String name : new String[] { tableName, tableName.toUpperCase(), tableName.toLowerCase() }) {
+			Integer dataType = null;
+			try (ResultSet rs = metaData.getColumns(connection.getCatalog(), null, name, null)) {
+				while (rs.next()) {
+					if (idColumn.equalsIgnoreCase(rs.getString("COLUMN_NAME"))) {
+						dataType = rs.getInt("DATA_TYPE");
+					}
+				}
+			}
+			if (dataType == null) {
+				continue;
+			}
+			if (dataType != Types.INTEGER && dataType != Types.SMALLINT && dataType != Types.TINYINT) {
+				return false;
+			}
+			
+			List<String> primaryKey = new ArrayList<>();
+			try (ResultSet rs = metaData.getPrimaryKeys(connection.getCatalog(), null, name)) {
+				while (rs.next()) {
+					primaryKey.add(rs.getString("COLUMN_NAME"));
+				}
+			}
+			if (primaryKey.size() == 1 && idColumn.equalsIgnoreCase(primaryKey.get(0))) {
+				return true;
+			}
+			
+			Map<String, List<String>> uniqueIndexes = new HashMap<>();
+			try (ResultSet rs = metaData.getIndexInfo(connection.getCatalog(), null, name, true, false)) {
+				while (rs.next()) {
+					String indexName = rs.getString("INDEX_NAME");
+					String columnName = rs.getString("COLUMN_NAME");
+					if (indexName != null && columnName != null) {
+						uniqueIndexes.computeIfAbsent(indexName, k -> new ArrayList<>()).add(columnName);
+					}
+				}
+			}
+			for (List<String> columns : uniqueIndexes.values()) {
+				if (columns.size() == 1 && idColumn.equalsIgnoreCase(columns.get(0))) {
+					return true;
+				}
+			}
+			return false;
+		}
+		return false;
+	}
+	
+	private List<Integer> nextChunk(PreparedStatement idStatement, int lastId) throws SQLException {
+		List<Integer> ids = new ArrayList<>(chunkSizeValue);
+		idStatement.setInt(1, lastId);
+		try (ResultSet rs = idStatement.executeQuery()) {
+			while (rs.next() && ids.size() < chunkSizeValue) {
+				ids.add(rs.getInt(1));
+			}
+		}
+		return ids;
+	}
+	
+	private long count(Connection connection, String countSql, int lastId) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement(countSql)) {
+			statement.setInt(1, lastId);
+			try (ResultSet rs = statement.executeQuery()) {
+				return rs.next() ? rs.getLong(1) : 0;
+			}
+		}
+	}
+	
+	private Integer getCheckpoint(Connection connection, String checkpointKey) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("select last_id from " + CHECKPOINT_TABLE
+		        + " where checkpoint_key = ?")) {
+			statement.setString(1, checkpointKey);
+			try (ResultSet rs = statement.executeQuery()) {
+				return rs.next() ? rs.getInt(1) : null;
+			}
+		}
+	}
+	
+	private void saveCheckpoint(Connection connection, String checkpointKey, int lastId) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("update " + CHECKPOINT_TABLE
+		        + " set last_id = ? where checkpoint_key = ?")) {
+			statement.setInt(1, lastId);
+			statement.setString(2, checkpointKey);
+			if (statement.executeUpdate() > 0) {
+				return;
+			}
+		}
+		try (PreparedStatement statement = connection.prepareStatement("insert into " + CHECKPOINT_TABLE
+		        + " (checkpoint_key, last_id) values (?, ?)")) {
+			statement.setString(1, checkpointKey);
+			statement.setInt(2, lastId);
+			statement.executeUpdate();
+		}
+	}
+	
+	private void deleteCheckpoint(Connection connection, String checkpointKey) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("delete from " + CHECKPOINT_TABLE
+		        + " where checkpoint_key = ?")) {
+			statement.setString(1, checkpointKey);
+			statement.executeUpdate();
+		}
+	}
+	
+	private void createCheckpointTableIfNeeded(Connection connection) throws SQLException {
+		if (!checkpointTableExists(connection)) {
+			try (Statement statement = connection.createStatement()) {
+				statement.execute("create table " + CHECKPOINT_TABLE
+				        + " (checkpoint_key varchar(255) not null primary key, last_id int not null)");
+			}
+		}
+	}
+	
+	private void dropCheckpointTableIfEmpty(Connection connection) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			boolean empty;
+			try (ResultSet rs = statement.executeQuery("select count(*) from " + CHECKPOINT_TABLE)) {
+				empty = !rs.next() || rs.getInt(1) == 0;
+			}
+			if (empty) {
+				statement.execute("drop table " + CHECKPOINT_TABLE);
+			}
+		}
+	}
+	
+	private boolean checkpointTableExists(Connection connection) throws SQLException {
+		DatabaseMetaData metaData = connection.getMetaData();
+		// databases differ in the case they store unquoted names in
+		for (String name : new String[] { CHECKPOINT_TABLE, CHECKPOINT_TABLE.toUpperCase() }) {
+			try (ResultSet rs = metaData.getTables(connection.getCatalog(), null, name, new String[] { "TABLE" })) {
+				if (rs.next()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Subclasses overriding this method must call it
+	 *
+	 * @see liquibase.change.custom.CustomChange#setUp()
+	 */
+	@Override
+	public void setUp() throws SetupException {
+		try {
+			if (StringUtils.isNotBlank(chunkSize)) {
+				chunkSizeValue = Integer.parseInt(chunkSize.trim());
+			}
+			if (StringUtils.isNotBlank(workers)) {
+				workerCount = Integer.parseInt(workers.trim());
+			}
+		}
+		catch (NumberFormatException e) {
+			throw new SetupException("The 'chunkSize' and 'workers' parameters must be numbers: " + e.getMessage());
+		}
+		if (chunkSizeValue < 1 || workerCount < 1) {
+			throw new SetupException("The 'chunkSize' and 'workers' parameters must be at least 1");
+		}
+	}
+	
+	/**
+	 * @see liquibase.change.custom.CustomChange#setFileOpener(ResourceAccessor)
+	 */
+	@Override
+	public void setFileOpener(ResourceAccessor fileOpener) {
+	}
+	
+	/**
+	 * @see liquibase.change.custom.CustomChange#validate(liquibase.database.Database)
+	 */
+	@Override
+	public ValidationErrors validate(Database database) {
+		return new ValidationErrors();
+	}
+	
+	/**
+	 * @return the number of rows migrated per chunk
+	 */
+	protected int getChunkSize() {
+		return chunkSizeValue;
+	}
+	
+	/**
+	 * This is called by liquibase to set the parameter "chunkSize" onto this change.
+	 *
+	 * @param chunkSize the chunkSize to set
+	 */
+	public void setChunkSize(String chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+	
+	/**
+	 * This is called by liquibase to set the parameter "workers" onto this change.
+	 *
+	 * @param workers the number of workers to set
+	 */
+	public void setWorkers(String workers) {
+		this.workers = workers;
+	}
+}
@@ -10,6 +10,7 @@
 package org.openmrs.util.databasechange;
 
 import java.sql.BatchUpdateException;
+import java.sql.Connection;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -17,6 +18,7 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -43,16 +45,13 @@ import liquibase.database.Database;
 import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.CustomChangeException;
 import liquibase.exception.DatabaseException;
-import liquibase.exception.SetupException;
-import liquibase.exception.ValidationErrors;
-import liquibase.resource.ResourceAccessor;
 
 /**
  * This change set is run just after the conversion of core concept name tags to concept name types'
  * it runs through all the rows in the concept table and checks if all its conceptNames conform to
  * the constraints added with the conversion of the tags.
  */
-public class ConceptValidatorChangeSet implements CustomTaskChange {
+public class ConceptValidatorChangeSet extends BaseBatchedChangeSet {
 	
 	private static final Logger log = LoggerFactory.getLogger(ConceptValidatorChangeSet.class);
 	
@@ -62,9 +61,14 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 	//List to store info messages
 	private List<String> logMessages = new LinkedList<>();
 	
-	//A set to store unique concept names that have been updated and changes have to be persisted to the database
+	//A set to store unique concept names of the current chunk that have been updated and changes have to be persisted to the database
 	private Set<ConceptName> updatedConceptNames = new HashSet<>();
 	
+	private int updatedConceptNameCount = 0;
+	
+	//a map to store all duplicates names found for each locale
+	private Map<Locale, Set<String>> localeDuplicateNamesMap = null;
+	
 	private Locale defaultLocale = new Locale("en");
 	
 	private List<Locale> allowedLocales = null;
@@ -78,16 +82,14 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 		JdbcConnection connection = (JdbcConnection) database.getConnection();
 		//In the liquibase changelog file, there is a precondition that checks if this is a fresh installation
 		//with no rows in the concept table or if it has some active concepts, we don't need to check again.
+		allowedLocales = getAllowedLocalesList(connection);
+		//default locale(if none, then 'en') is always the last in the list.
+		defaultLocale = allowedLocales.get(allowedLocales.size() - 1);
 		
-		//validate all concepts and try to fix those that can be fixed, note that updates are not committed inside this methods
-		validateAndCleanUpConcepts(connection);
+		//validate all concepts a chunk at a time and try to fix those that can be fixed, see processChunk
+		super.execute(database);
 		
-		//commit as a batch update
-		if (!updatedConceptNames.isEmpty()) {
-			runBatchUpdate(connection);
-		} else {
-			log.debug("No concept names to update");
-		}
+		reportDuplicateNames();
 		
 		if (!logMessages.isEmpty() || !updateWarnings.isEmpty()) {
 			writeWarningsToFile();
@@ -100,24 +102,74 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 		//we need this memory in case the lists are large
 		updateWarnings = null;
 		updatedConceptNames = null;
+		localeDuplicateNamesMap = null;
 		logMessages = null;
 	}
 	
 	/**
-	 * This method is called by the execute {@link #execute(Database)} method to run through all
-	 * concept and their conceptNames and validates them, It also tries to fix any constraints that
+	 * @see BaseBatchedChangeSet#getTableNames()
+	 */
+	@Override
+	protected List<String> getTableNames() {
+		return Collections.singletonList("concept");
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#getIdColumn(String)
+	 */
+	@Override
+	protected String getIdColumn(String tableName) {
+		return "concept_id";
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#getRowCondition(String)
+	 */
+	@Override
+	protected String getRowCondition(String tableName) {
+		return "retired = '0'";
+	}
+	
+	/**
+	 * The duplicate names are collected across all concepts
+	 *
+	 * @see BaseBatchedChangeSet#isParallelizable()
+	 */
+	@Override
+	protected boolean isParallelizable() {
+		return false;
+	}
+	
+	/**
+	 * Validates a chunk of un retired concepts and writes the changes to their names as a batch
+	 * update
+	 *
+	 * @see BaseBatchedChangeSet#processChunk(Connection, String, List)
+	 */
+	@Override
+	protected void processChunk(Connection connection, String tableName, List<Integer> conceptIds) throws SQLException {
+		JdbcConnection jdbcConnection = new JdbcConnection(connection);
+		validateAndCleanUpConcepts(jdbcConnection, conceptIds);
+		
+		if (!updatedConceptNames.isEmpty()) {
+			runBatchUpdate(jdbcConnection);
+			updatedConceptNameCount += updatedConceptNames.size();
+			updatedConceptNames.clear();
+		} else {
+			log.debug("No concept names to update");
+		}
+	}
+	
+	/**
+	 * This method is called by {@link #processChunk(Connection, String, List)} to run through the
+	 * concepts and their conceptNames and validates them, It also tries to fix any constraints that
 	 * are being violated.
 	 *
 	 * @param connection The database connection
+	 * @param conceptIds the ids of the concepts to validate
+	 * @throws SQLException if the names of a concept cannot be read
 	 */
-	private void validateAndCleanUpConcepts(JdbcConnection connection) {
-		List<Integer> conceptIds = getAllUnretiredConceptIds(connection);
-		allowedLocales = getAllowedLocalesList(connection);
-		//default locale(if none, then 'en') is always the last in the list.
-		defaultLocale = allowedLocales.get(allowedLocales.size() - 1);
-		//a map to store all duplicates names found for each locale
-		Map<Locale, Set<String>> localeDuplicateNamesMap = null;
-		
+	private void validateAndCleanUpConcepts(JdbcConnection connection, List<Integer> conceptIds) throws SQLException {
 		for (Integer conceptId : conceptIds) {
 			
 			Map<Locale, List<ConceptName>> localeConceptNamesMap = getLocaleConceptNamesMap(connection, conceptId);
@@ -320,7 +372,13 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 			}
 			
 		}
-		
+	}
+	
+	/**
+	 * Adds the duplicate names found in all concepts and the number of updated names to the
+	 * warnings and messages to report
+	 */
+	private void reportDuplicateNames() {
 		if (!MapUtils.isEmpty(localeDuplicateNamesMap)) {
 			for (Map.Entry<Locale, Set<String>> entry : localeDuplicateNamesMap.entrySet()) {
 				//no duplicates found in the locale
@@ -335,7 +393,7 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 			}
 		}
 		
-		logMessages.add("Number of Updated ConceptNames: " + updatedConceptNames.size());
+		logMessages.add("Number of Updated ConceptNames: " + updatedConceptNameCount);
 	}
 	
 	/**
@@ -427,46 +485,6 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 		logMessages.add(updateMessage);
 	}
 	
-	/**
-	 * Fetches all conceptIds for un retired concepts from the database.
-	 *
-	 * @param connection The database connection
-	 * @return A list of all fetched conceptIds
-	 */
-	private List<Integer> getAllUnretiredConceptIds(JdbcConnection connection) {
-		
-		LinkedList<Integer> conceptIds = null;
-		Statement stmt = null;
-		
-		try {
-			stmt = connection.createStatement();
-			ResultSet rs = stmt.executeQuery("SELECT concept_id FROM concept WHERE retired = '0'");
-			
-			while (rs.next()) {
-				if (conceptIds == null) {
-					conceptIds = new LinkedList<>();
-				}
-				
-				conceptIds.add(rs.getInt("concept_id"));
-			}
-		}
-		catch (DatabaseException | SQLException e) {
-			log.warn("Error generated", e);
-		}
-		finally {
-			if (stmt != null) {
-				try {
-					stmt.close();
-				}
-				catch (SQLException e) {
-					log.warn("Failed to close the statement object");
-				}
-			}
-		}
-		
-		return conceptIds;
-	}
-	
 	/**
 	 * Checks if the conceptName is unique among all unvoided preferred and fully specified names
 	 * across all other un-retired concepts except the concept it is associated to.
@@ -572,8 +590,10 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 	 * @param conceptId the conceptId for the conceptNames to fetch
 	 * @return a map of Locale with ConceptNames in them associated to the concept identified by the
 	 *         given conceptId
+	 * @throws SQLException if the names cannot be read, so that the concept is not skipped
 	 */
-	private Map<Locale, List<ConceptName>> getLocaleConceptNamesMap(JdbcConnection connection, int conceptId) {
+	private Map<Locale, List<ConceptName>> getLocaleConceptNamesMap(JdbcConnection connection, int conceptId)
+	        throws SQLException {
 		PreparedStatement pStmt = null;
 		Map<Locale, List<ConceptName>> localeConceptNamesMap = null;
 		
@@ -616,8 +636,8 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 				localeConceptNamesMap.get(conceptName.getLocale()).add(conceptName);
 			}
 		}
-		catch (DatabaseException | SQLException e) {
-			log.warn("Error generated", e);
+		catch (DatabaseException e) {
+			throw new SQLException("Unable to read the names of concept " + conceptId, e);
 		}
 		finally {
 			if (pStmt != null) {
@@ -634,15 +654,17 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 	}
 	
 	/**
-	 * Executes all the changes to the concept names as a batch update.
+	 * Executes all the changes to the concept names of the current chunk as a batch update, the
+	 * changes are committed with the chunk.
 	 *
 	 * @param connection The database connection
+	 * @throws SQLException if the update fails, so that the chunk is rolled back and its checkpoint
+	 *             is not saved
 	 */
-	private void runBatchUpdate(JdbcConnection connection) {
+	private void runBatchUpdate(JdbcConnection connection) throws SQLException {
 		PreparedStatement pStmt = null;
 		
 		try {
-			connection.setAutoCommit(false);
 			pStmt = connection
 			        .prepareStatement("UPDATE concept_name SET locale = ?, concept_name_type = ?, locale_preferred = ?, voided = ?, date_voided = ?, void_reason = ?, voided_by = ? WHERE concept_name_id = ?");
 			
@@ -679,17 +701,13 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 					} else if (updateCount == Statement.SUCCESS_NO_INFO) {
 						log.debug("Successfully executed; No Success info");
 					} else if (updateCount == Statement.EXECUTE_FAILED) {
-						log.warn("Failed to execute update");
+						throw new SQLException("Failed to update the concept names of the chunk");
 					}
 				}
-				
-				log.debug("Committing updates...");
-				connection.commit();
 			}
 			catch (BatchUpdateException be) {
-				log.warn("Error generated while processsing batch update", be);
 				int[] updateCounts = be.getUpdateCounts();
-
+				
 				for (int updateCount : updateCounts) {
 					if (updateCount > -1) {
 						log.warn("Executed with exception: updateCount=" + updateCount);
@@ -699,28 +717,14 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 						log.warn("Failed to execute update with exception");
 					}
 				}
-				
-				try {
-					log.warn("Rolling back batch", be);
-					connection.rollback();
-				}
-				catch (Exception rbe) {
-					log.warn("Error generated while rolling back batch update", be);
-				}
+				// the chunk is rolled back by the caller
+				throw be;
 			}
 		}
-		catch (SQLException | DatabaseException e) {
-			log.warn("Error generated", e);
+		catch (DatabaseException e) {
+			throw new SQLException("Unable to update the concept names of the chunk", e);
 		}
 		finally {
-			//reset to auto commit mode
-			try {
-				connection.setAutoCommit(true);
-			}
-			catch (DatabaseException e) {
-				log.warn("Failed to reset auto commit back to true", e);
-			}
-			
 			if (pStmt != null) {
 				try {
 					pStmt.close();
@@ -782,26 +786,4 @@ public class ConceptValidatorChangeSet implements CustomTaskChange {
 	public String getConfirmationMessage() {
 		return "Finished validating concepts";
 	}
-	
-	/**
-	 * @see liquibase.change.custom.CustomChange#setFileOpener(ResourceAccessor)
-	 */
-	@Override
-	public void setFileOpener(ResourceAccessor fileOpener) {
-	}
-	
-	/**
-	 * @see liquibase.change.custom.CustomChange#setUp()
-	 */
-	@Override
-	public void setUp() throws SetupException {
-	}
-	
-	/**
-	 * @see liquibase.change.custom.CustomChange#validate(liquibase.database.Database)
-	 */
-	@Override
-	public ValidationErrors validate(Database database) {
-		return new ValidationErrors();
-	}
 }
@@ -9,33 +9,32 @@
  */
 package org.openmrs.util.databasechange;
 
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
 import org.apache.commons.lang3.StringUtils;
 import org.openmrs.util.OpenmrsUtil;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
-import liquibase.change.custom.CustomTaskChange;
 import liquibase.database.Database;
-import liquibase.database.jvm.JdbcConnection;
 import liquibase.exception.CustomChangeException;
-import liquibase.exception.DatabaseException;
 import liquibase.exception.SetupException;
-import liquibase.exception.ValidationErrors;
-import liquibase.resource.ResourceAccessor;
 
 /**
  * Generates UUIDs for all rows in all tables in the tableNames
  * parameter.
  * <br/>
  * If run on MySQL, it generates SQL statements using the in-built uuid() MySQL function,
- * otherwise it uses Java's {@link UUID} class, which is less efficient.<br/>
+ * otherwise it uses Java's {@link UUID} class, which is less efficient. The rows of tables with a
+ * unique integer key are updated in chunks and an interrupted run continues where it stopped, see
+ * {@link BaseBatchedChangeSet}.<br/>
  * <br/>
  * Expects parameter: "tableNames" : whitespace delimited list of table names to add <br/>
  * Expects parameter: "columnName" : name of the column to change. Default: "uuid" <br/>
@@ -45,10 +44,12 @@ import liquibase.resource.ResourceAccessor;
  * field_answer table is 'field_id' rather than 'field_answer_id', etc:
  * "field_answer_id=field_id|role_id=role|privilege_id=privilege"
  */
-public class GenerateUuid implements CustomTaskChange {
-	
-	private static final Logger log = LoggerFactory.getLogger(GenerateUuid.class);
+public class GenerateUuid extends BaseBatchedChangeSet {
 	
+	/**
+	 * @deprecated as of 2.2, the rows are committed in chunks of the "chunkSize" parameter
+	 */
+	@Deprecated
 	public static final Integer TRANSACTION_BATCH_SIZE_LIMIT = 512;
 	
 	/**
@@ -81,132 +82,116 @@ public class GenerateUuid implements CustomTaskChange {
 	private String[] tableNamesArray = null;
 	
 	/**
-	 * The sql statement to select out the ids. Generated in the {@link #setUp()} method.
+	 * Set by the {@link #execute(Database)} method, MySQL generates the uuids itself
 	 */
-	private String genericIdSql;
+	private boolean mysql = false;
 	
 	/**
-	 * The sql statement to update the rows with the uuids. Generated in the {@link #setUp()}
-	 * method.
-	 */
-	private String genericUpdateSql;
-	
-	/**
-	 * Adds UUIDs to all rows for the specified tables. It generates UUIDs using Java and updates one row at a time, thus
-	 * it is not very efficient. When running on the MySQL database, we generate SQL statements using the uuid MySQL function,
-	 * which is much faster.
+	 * Adds UUIDs to all rows for the specified tables, a chunk of rows at a time. When running on
+	 * the MySQL database, each chunk is updated with one statement using the uuid MySQL function,
+	 * otherwise the UUIDs are generated using Java and the rows of a chunk are updated as a batch.
 	 *
 	 * @see liquibase.change.custom.CustomTaskChange#execute(liquibase.database.Database)
 	 */
 	@Override
 	public void execute(Database database) throws CustomChangeException {
-		JdbcConnection connection = (JdbcConnection) database.getConnection();
-		boolean initialAutoCommit = true;
-		try {
-			initialAutoCommit = connection.getAutoCommit();
-			connection.setAutoCommit(false);
-			
-			if ("mysql".equals(database.getTypeName())) {
-				String updateSql = "update %s set " + columnName + " = uuid() where " + columnName + " is null";
-				for (String tablename : tableNamesArray) {
-					String rawSql = String.format(updateSql, tablename);
-					
-					Statement statement = null;
-					try {
-						statement = connection.createStatement();
-						statement.execute(rawSql);
-						statement.close();
-						connection.commit();
-					}
-					catch (SQLException e) {
-						throw new CustomChangeException(e);
-					}
-					finally {
-						if (statement != null) {
-							try {
-								statement.close();
-							}
-							catch (SQLException e) {
-								log.warn("Failed to close the statement", e);
-							}
-						}
-					}
-					
-				}
-			} else {
-				int transactionBatchSize = 0;
-				// loop over all tables
-				for (String tableName : tableNamesArray) {
-					try {
-						Statement idStatement = null;
-						PreparedStatement updateStatement = null;
-						try {
-							String idSql = genericIdSql.replaceAll("tablename", tableName);
-							String updateSql = genericUpdateSql.replaceAll("tablename", tableName);
-							
-							// hacky way to deal with tables that don't follow the tableNam_id convention
-							for (Map.Entry<String, String> idException : idExceptionsMap.entrySet()) {
-								idSql = idSql.replaceFirst(idException.getKey(), idException.getValue());
-								updateSql = updateSql.replaceFirst(idException.getKey(), idException.getValue());
-							}
-							
-							idStatement = connection.createStatement();
-							updateStatement = connection.prepareStatement(updateSql);
-							
-							ResultSet ids = idStatement.executeQuery(idSql);
-							while (ids.next()) {
-								updateStatement.setObject(2, ids.getObject(1)); // set the primary key number
-								updateStatement.setString(1, UUID.randomUUID().toString()); // set the uuid for this row
-								updateStatement.executeUpdate();
-								
-								transactionBatchSize++;
-								if (transactionBatchSize > TRANSACTION_BATCH_SIZE_LIMIT) {
-									transactionBatchSize = 0;
-									connection.commit();
-								}
-							}
-							
-							idStatement.close();
-							updateStatement.close();
-						}
-						finally {
-							if (idStatement != null) {
-								try {
-									idStatement.close();
-								}
-								catch (SQLException e) {
-									log.warn("Failed to close statement", e);
-								}
-							}
-							if (updateStatement != null) {
-								try {
-									updateStatement.close();
-								}
-								catch (SQLException e) {
-									log.warn("Failed to close the statement", e);
-								}
-							}
-						}
-					}
-					catch (DatabaseException | SQLException e) {
-						throw new CustomChangeException("Unable to set uuid on table: " + tableName, e);
-					}
+		mysql = "mysql".equals(database.getTypeName());
+		super.execute(database);
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#getTableNames()
+	 */
+	@Override
+	protected List<String> getTableNames() {
+		return Arrays.asList(tableNamesArray);
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#getIdColumn(String)
+	 */
+	@Override
+	protected String getIdColumn(String tableName) {
+		// deals with tables that don't follow the tableName_id convention
+		String idColumn = tableName + "_id";
+		return idExceptionsMap.getOrDefault(idColumn, idColumn);
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#getRowCondition(String)
+	 */
+	@Override
+	protected String getRowCondition(String tableName) {
+		return columnName + " is null";
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#processChunk(Connection, String, List)
+	 */
+	@Override
+	protected void processChunk(Connection connection, String tableName, List<Integer> ids) throws SQLException {
+		String idColumn = getIdColumn(tableName);
+		if (mysql) {
+			try (PreparedStatement statement = connection.prepareStatement("update " + tableName + " set " + columnName
+			        + " = uuid() where " + columnName + " is null and " + idColumn + " between ? and ?")) {
+				statement.setInt(1, ids.get(0));
+				statement.setInt(2, ids.get(ids.size() - 1));
+				statement.executeUpdate();
+			}
+		} else {
+			try (PreparedStatement statement = connection.prepareStatement("update " + tableName + " set " + columnName
+			        + " = ? where " + idColumn + " = ?")) {
+				for (Integer id : ids) {
+					statement.setString(1, UUID.randomUUID().toString()); // set the uuid for this row
+					statement.setInt(2, id); // set the primary key number
+					statement.addBatch();
 				}
-				
-				connection.commit();
+				statement.executeBatch();
 			}
-			
-			connection.setAutoCommit(initialAutoCommit);
 		}
-		catch (DatabaseException e) {
-			throw new CustomChangeException(e);
+	}
+	
+	/**
+	 * Updates the rows of tables without a unique integer key, e.g. role and field_answer, the way
+	 * all tables were updated before: with one statement on MySQL, otherwise row by row by the
+	 * value of the id column, committing after every chunk
+	 *
+	 * @see BaseBatchedChangeSet#processTable(Connection, String)
+	 */
+	@Override
+	protected void processTable(Connection connection, String tableName) throws SQLException {
+		if (mysql) {
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate("update " + tableName + " set " + columnName + " = uuid() where " + columnName
+				        + " is null");
+			}
+			return;
+		}
+		
+		String idColumn = getIdColumn(tableName);
+		List<Object> ids = new ArrayList<>();
+		try (Statement statement = connection.createStatement();
+		        ResultSet rs = statement.executeQuery("select " + idColumn + " from " + tableName + " where "
+		                + columnName + " is null")) {
+			while (rs.next()) {
+				ids.add(rs.getObject(1));
+			}
 		}
-		finally {
-			try {
-				connection.setAutoCommit(initialAutoCommit);
+		try (PreparedStatement statement = connection.prepareStatement("update " + tableName + " set " + columnName
+		        + " = ? where " + idColumn + " = ? and " + columnName + " is null")) {
+			int pending = 0;
+			for (Object id : ids) {
+				statement.setString(1, UUID.randomUUID().toString()); // set the uuid for this row
+				statement.setObject(2, id); // set the primary key
+				statement.addBatch();
+				if (++pending == getChunkSize()) {
+					statement.executeBatch();
+					connection.commit();
+					pending = 0;
+				}
 			}
-			catch (DatabaseException e) {
-				//silently ignore so that the actual error is not hidden
+			if (pending > 0) {
+				statement.executeBatch();
 			}
 		}
 	}
@@ -219,14 +204,6 @@ public class GenerateUuid implements CustomTaskChange {
 		return "Finished adding uuids to all rows in all tables";
 	}
 	
-	/**
-	 * @see liquibase.change.custom.CustomChange#setFileOpener(ResourceAccessor)
-	 */
-	@Override
-	public void setFileOpener(ResourceAccessor fileOpener) {
-		
-	}
-	
 	/**
 	 * Get the values of the parameters passed in and set them to the local variables on this class.
 	 *
@@ -234,27 +211,13 @@ public class GenerateUuid implements CustomTaskChange {
 	 */
 	@Override
 	public void setUp() throws SetupException {
+		super.setUp();
 		if (StringUtils.isBlank(tableNames)) {
 			throw new SetupException("At least one table name in the 'tableNames' parameter is required");
 		}
 		
 		tableNamesArray = StringUtils.split(tableNames);
 		idExceptionsMap = OpenmrsUtil.parseParameterList(idExceptions);
-		
-		genericIdSql = "select tablename_id from tablename where columnName is null";
-		genericIdSql = genericIdSql.replace("columnName", columnName);
-		
-		genericUpdateSql = "update tablename set columnName = ? where tablename_id = ?";
-		genericUpdateSql = genericUpdateSql.replace("columnName", columnName);
-		
-	}
-	
-	/**
-	 * @see liquibase.change.custom.CustomChange#validate(liquibase.database.Database)
-	 */
-	@Override
-	public ValidationErrors validate(Database database) {
-		return new ValidationErrors();
 	}
 	
 	/**
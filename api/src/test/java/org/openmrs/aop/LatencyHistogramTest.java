@@ -0,0 +1,70 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+	
+	/**
+	 * @see LatencyHistogram#indexOf(long)
+	 */
+	@Test
+	public void indexOf_shouldGiveEachValueBelowTheSubBucketCountItsOwnBucket() {
+		for (int value = 0; value < LatencyHistogram.SUB_BUCKETS; value++) {
+			assertEquals(value, LatencyHistogram.indexOf(value));
+		}
+	}
+	
+	/**
+	 * @see LatencyHistogram#indexOf(long)
+	 */
+	@Test
+	public void indexOf_shouldPutValuesIntoTheBucketWhoseRangeContainsThem() {
+		long[] values = { 8, 9, 15, 16, 17, 1000, 123456789, 1L << 40, Long.MAX_VALUE };
+		for (long value : values) {
+			int index = LatencyHistogram.indexOf(value);
+			assertTrue(index < LatencyHistogram.BUCKETS);
+			assertTrue(LatencyHistogram.getLowestValue(index) <= value);
+			assertTrue(LatencyHistogram.getHighestValue(index) >= value);
+		}
+		assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.indexOf(Long.MAX_VALUE));
+	}
+	
+	/**
+	 * @see LatencyHistogram#getPercentile(long[], double)
+	 */
+	@Test
+	public void getPercentile_shouldReturnTheHighestValueOfTheBucketThePercentileFallsIn() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (int i = 0; i < 99; i++) {
+			histogram.record(3);
+		}
+		histogram.record(1000);
+		
+		long[] counts = histogram.getCounts();
+		
+		assertEquals(3, LatencyHistogram.getPercentile(counts, 0.5));
+		assertEquals(3, LatencyHistogram.getPercentile(counts, 0.99));
+		long max = LatencyHistogram.getPercentile(counts, 1);
+		assertTrue(max >= 1000 && max <= 1000 + 1000 / LatencyHistogram.SUB_BUCKETS);
+	}
+	
+	/**
+	 * @see LatencyHistogram#getPercentile(long[], double)
+	 */
+	@Test
+	public void getPercentile_shouldReturnZeroIfNothingWasRecorded() {
+		assertEquals(0, LatencyHistogram.getPercentile(new LatencyHistogram().getCounts(), 0.99));
+	}
+}
@@ -0,0 +1,78 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Patient;
+import org.openmrs.api.APIException;
+import org.openmrs.api.PatientService;
+
+public class MetricsAdviceTest {
+	
+	private ServiceMetrics serviceMetrics;
+	
+	private MetricsAdvice advice;
+	
+	private MethodInvocation invocation;
+	
+	@Before
+	public void setUp() throws Exception {
+		serviceMetrics = new ServiceMetrics();
+		advice = new MetricsAdvice(serviceMetrics);
+		invocation = mock(MethodInvocation.class);
+		when(invocation.getMethod()).thenReturn(PatientService.class.getMethod("getPatient", Integer.class));
+	}
+	
+	/**
+	 * @see MetricsAdvice#invoke(MethodInvocation)
+	 */
+	@Test
+	public void invoke_shouldRecordCallsAndErrorsOfTheInvokedMethod() throws Throwable {
+		Patient patient = new Patient(2);
+		when(invocation.proceed()).thenReturn(patient).thenThrow(new APIException("failed"));
+		
+		assertEquals(patient, advice.invoke(invocation));
+		try {
+			advice.invoke(invocation);
+			fail("the exception should be rethrown");
+		}
+		catch (APIException e) {
+			assertEquals("failed", e.getMessage());
+		}
+		
+		List<ServiceMethodStatistics> statistics = serviceMetrics.getStatistics();
+		assertEquals(1, statistics.size());
+		assertEquals(2, statistics.get(0).getCalls());
+		assertEquals(1, statistics.get(0).getErrors());
+	}
+	
+	/**
+	 * @see MetricsAdvice#invoke(MethodInvocation)
+	 */
+	@Test
+	public void invoke_shouldNotRecordCallsIfRecordingIsDisabled() throws Throwable {
+		serviceMetrics.disableService(PatientService.class.getName());
+		Patient patient = new Patient(2);
+		when(invocation.proceed()).thenReturn(patient);
+		
+		assertEquals(patient, advice.invoke(invocation));
+		
+		assertEquals(0, serviceMetrics.getStatistics().size());
+	}
+}
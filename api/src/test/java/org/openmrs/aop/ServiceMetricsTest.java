@@ -0,0 +1,91 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.aop;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+import org.openmrs.api.PatientService;
+
+public class ServiceMetricsTest {
+	
+	private ServiceMetrics serviceMetrics = new ServiceMetrics();
+	
+	/**
+	 * @see ServiceMetrics#getMethodMetrics(Method)
+	 */
+	@Test
+	public void getMethodMetrics_shouldReturnTheSameMetricsForEachCallOfAMethod() throws Exception {
+		Method method = PatientService.class.getMethod("getPatient", Integer.class);
+		
+		assertNotNull(serviceMetrics.getMethodMetrics(method));
+		assertSame(serviceMetrics.getMethodMetrics(method), serviceMetrics.getMethodMetrics(method));
+	}
+	
+	/**
+	 * @see ServiceMetrics#getMethodMetrics(Method)
+	 */
+	@Test
+	public void getMethodMetrics_shouldReturnNullIfRecordingIsDisabled() throws Exception {
+		serviceMetrics.setEnabled(false);
+		
+		assertNull(serviceMetrics.getMethodMetrics(PatientService.class.getMethod("getPatient", Integer.class)));
+	}
+	
+	/**
+	 * @see ServiceMetrics#getMethodMetrics(Method)
+	 */
+	@Test
+	public void getMethodMetrics_shouldReturnNullIfRecordingIsDisabledForTheServiceOfTheMethod() throws Exception {
+		Method method = PatientService.class.getMethod("getPatient", Integer.class);
+		assertNotNull(serviceMetrics.getMethodMetrics(method));
+		
+		serviceMetrics.disableService(PatientService.class.getName());
+		
+		assertNull(serviceMetrics.getMethodMetrics(method));
+		assertEquals(Collections.singletonList(PatientService.class.getName()), serviceMetrics.getDisabledServices());
+		
+		serviceMetrics.enableService(PatientService.class.getName());
+		
+		assertNotNull(serviceMetrics.getMethodMetrics(method));
+	}
+	
+	/**
+	 * @see ServiceMetrics#getStatistics()
+	 */
+	@Test
+	public void getStatistics_shouldReturnTheStatisticsOfTheCalledMethods() throws Exception {
+		Method method = PatientService.class.getMethod("getPatient", Integer.class);
+		serviceMetrics.getMethodMetrics(method).record(2000000, false);
+		serviceMetrics.getMethodMetrics(method).record(4000000, true);
+		
+		List<ServiceMethodStatistics> statistics = serviceMetrics.getStatistics();
+		
+		assertEquals(1, statistics.size());
+		ServiceMethodStatistics methodStatistics = statistics.get(0);
+		assertEquals(PatientService.class.getName(), methodStatistics.getService());
+		assertEquals("getPatient(Integer)", methodStatistics.getMethod());
+		assertEquals(2, methodStatistics.getCalls());
+		assertEquals(1, methodStatistics.getErrors());
+		assertEquals(3.0, methodStatistics.getMeanMillis(), 0);
+		assertEquals(4.0, methodStatistics.getMaxMillis(), 0);
+		
+		serviceMetrics.reset();
+		
+		assertEquals(0, serviceMetrics.getStatistics().size());
+	}
+}
@@ -765,6 +765,24 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		Assert.assertNull(Context.getConceptService().getConceptClassByUuid("some invalid uuid"));
 	}
 	
+	/**
+	 * @see ConceptService#getConceptClassByName(String)
+	 */
+	@Test
+	public void getConceptClassByName_shouldFindAConceptClassSavedInTheSameTransaction() {
+		ConceptService cs = Context.getConceptService();
+		// loads the metadata index before the class is saved
+		assertNotNull(cs.getConceptClassByName("Finding"));
+		
+		ConceptClass conceptClass = new ConceptClass();
+		conceptClass.setName("New Concept Class");
+		conceptClass.setDescription("For testing");
+		cs.saveConceptClass(conceptClass);
+		
+		assertEquals(conceptClass, cs.getConceptClassByName("New Concept Class"));
+		assertEquals(conceptClass, cs.getConceptClassByUuid(conceptClass.getUuid()));
+	}
+	
 	/**
 	 * @see ConceptService#getConceptDatatypeByUuid(String)
 	 */
@@ -1539,6 +1557,67 @@ public class ConceptServiceTest extends BaseContextSensitiveTest {
 		assertThat(conceptSet, containsInAnyOrder(hasId(2), hasId(3), hasId(4), hasId(5), hasId(6)));
 	}
 	
+	/**
+	 * @see ConceptService#getConceptIdsByConceptSet(Concept)
+	 */
+	@Test
+	public void getConceptIdsByConceptSet_shouldReturnTheIdsOfAllConceptsInTheSetAndItsNestedSets() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		int[] ids = conceptService.getConceptIdsByConceptSet(conceptService.getConcept(1));
+		
+		Arrays.sort(ids);
+		Assert.assertArrayEquals(new int[] { 2, 3, 4, 5, 6 }, ids);
+	}
+	
+	/**
+	 * @see ConceptService#getConceptIdsByConceptSet(Concept)
+	 */
+	@Test
+	public void getConceptIdsByConceptSet_shouldReflectMembersAddedBySavingTheConceptSet() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		Concept set = conceptService.getConcept(3);
+		Concept concept = conceptService.getConcept(2);
+		Assert.assertFalse(conceptService.isConceptInSet(concept, set));
+		
+		set.addSetMember(concept);
+		conceptService.saveConcept(set);
+		
+		Assert.assertTrue(conceptService.isConceptInSet(concept, set));
+		Assert.assertTrue(Arrays.binarySearch(conceptService.getConceptSetIdsContainingConcept(concept), 3) >= 0);
+	}
+	
+	/**
+	 * @see ConceptService#getConceptSetIdsContainingConcept(Concept)
+	 */
+	@Test
+	public void getConceptSetIdsContainingConcept_shouldReturnTheIdsOfAllSetsContainingTheConcept() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		Assert.assertArrayEquals(new int[] { 1, 3, 4 }, conceptService.getConceptSetIdsContainingConcept(conceptService
+		        .getConcept(6)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept, Concept)
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnTrueForMembersOfNestedSets() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		Assert.assertTrue(conceptService.isConceptInSet(conceptService.getConcept(6), conceptService.getConcept(1)));
+	}
+	
+	/**
+	 * @see ConceptService#isConceptInSet(Concept, Concept)
+	 */
+	@Test
+	public void isConceptInSet_shouldReturnFalseForConceptsNotInTheSet() {
+		executeDataSet(GET_CONCEPTS_BY_SET_XML);
+		
+		Assert.assertFalse(conceptService.isConceptInSet(conceptService.getConcept(2), conceptService.getConcept(3)));
+	}
+	
 	/**
 	 * @see ConceptService#saveConceptStopWord(org.openmrs.ConceptStopWord)
 	 */
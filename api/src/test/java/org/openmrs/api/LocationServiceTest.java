@@ -17,6 +17,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -229,6 +230,22 @@ public class LocationServiceTest extends BaseContextSensitiveTest {
 		Assert.assertNull(Context.getLocationService().getLocation("Princeton Plainsboro"));
 	}
 	
+	/**
+	 * @see LocationService#getLocation(String)
+	 */
+	@Test
+	public void getLocation_shouldFindALocationByItsNewNameAfterItWasRenamed() {
+		LocationService ls = Context.getLocationService();
+		Location location = ls.getLocation("Unknown Location");
+		
+		location.setName("Renamed Location");
+		ls.saveLocation(location);
+		
+		assertNull(ls.getLocation("Unknown Location"));
+		assertEquals(location, ls.getLocation("Renamed Location"));
+		assertEquals(location, ls.getLocationByUuid(location.getUuid()));
+	}
+	
 	/**
 	 * @see LocationService#getAllLocations()
 	 */
@@ -446,6 +463,87 @@ public class LocationServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(0, ls.getLocationsHavingAnyTag(new ArrayList<>()).size());
 	}
 	
+	/**
+	 * @see LocationService#isLocationInHierarchy(Location,Location)
+	 */
+	@Test
+	public void isLocationInHierarchy_shouldReturnTrueGivenTheSameLocationInBothParameters() {
+		LocationService ls = Context.getLocationService();
+		assertTrue(ls.isLocationInHierarchy(ls.getLocation(3), ls.getLocation(3)));
+	}
+	
+	/**
+	 * @see LocationService#isLocationInHierarchy(Location,Location)
+	 */
+	@Test
+	public void isLocationInHierarchy_shouldReturnTrueGivenALocationBelowTheRoot() {
+		LocationService ls = Context.getLocationService();
+		assertTrue(ls.isLocationInHierarchy(ls.getLocation(4), ls.getLocation(1)));
+		assertTrue(ls.isLocationInHierarchy(ls.getLocation(4), ls.getLocation(3)));
+	}
+	
+	/**
+	 * @see LocationService#isLocationInHierarchy(Location,Location)
+	 */
+	@Test
+	public void isLocationInHierarchy_shouldReturnFalseGivenALocationThatIsNotBelowTheRoot() {
+		LocationService ls = Context.getLocationService();
+		assertFalse(ls.isLocationInHierarchy(ls.getLocation(4), ls.getLocation(2)));
+		assertFalse(ls.isLocationInHierarchy(ls.getLocation(1), ls.getLocation(4)));
+		assertFalse(ls.isLocationInHierarchy(ls.getLocation(6), ls.getLocation(1)));
+	}
+	
+	/**
+	 * @see LocationService#isLocationInHierarchy(Location,Location)
+	 */
+	@Test
+	public void isLocationInHierarchy_shouldReturnFalseGivenAnyNullParameter() {
+		LocationService ls = Context.getLocationService();
+		assertFalse(ls.isLocationInHierarchy(null, ls.getLocation(1)));
+		assertFalse(ls.isLocationInHierarchy(ls.getLocation(1), null));
+	}
+	
+	/**
+	 * @see LocationService#getLocationIdsInHierarchy(Location,boolean)
+	 */
+	@Test
+	public void getLocationIdsInHierarchy_shouldReturnTheIdsOfTheLocationAndAllItsDescendants() {
+		LocationService ls = Context.getLocationService();
+		assertEquals(Arrays.asList(1, 2, 3, 4), ls.getLocationIdsInHierarchy(ls.getLocation(1), true));
+		assertEquals(Arrays.asList(3, 4), ls.getLocationIdsInHierarchy(ls.getLocation(3), true));
+	}
+	
+	/**
+	 * @see LocationService#getLocationIdsInHierarchy(Location,boolean)
+	 */
+	@Test
+	public void getLocationIdsInHierarchy_shouldExcludeRetiredLocationsWhenIncludeRetiredIsFalse() {
+		LocationService ls = Context.getLocationService();
+		assertEquals(Arrays.asList(1, 2, 3, 4), ls.getLocationIdsInHierarchy(ls.getLocation(1), false));
+	
+		ls.retireLocation(ls.getLocation(3), "test");
+	
+		assertEquals(Arrays.asList(1, 2), ls.getLocationIdsInHierarchy(ls.getLocation(1), false));
+		assertEquals(Arrays.asList(1, 2, 3, 4), ls.getLocationIdsInHierarchy(ls.getLocation(1), true));
+	}
+	
+	/**
+	 * @see LocationService#getLocationIdsInHierarchy(Location,boolean)
+	 */
+	@Test
+	public void getLocationIdsInHierarchy_shouldReflectChangesToTheParentOfALocation() {
+		LocationService ls = Context.getLocationService();
+		assertEquals(Arrays.asList(2), ls.getLocationIdsInHierarchy(ls.getLocation(2), true));
+	
+		Location location = ls.getLocation(4);
+		location.setParentLocation(ls.getLocation(2));
+		ls.saveLocation(location);
+	
+		assertEquals(Arrays.asList(2, 4), ls.getLocationIdsInHierarchy(ls.getLocation(2), true));
+		assertTrue(ls.isLocationInHierarchy(location, ls.getLocation(2)));
+		assertFalse(ls.isLocationInHierarchy(location, ls.getLocation(3)));
+	}
+	
 	/**
 	 * @see LocationService#retireLocation(Location,String)
 	 */
@@ -735,6 +833,22 @@ public class LocationServiceTest extends BaseContextSensitiveTest {
 		Assert.assertNull(Context.getLocationService().getLocationTagByName("Hospital of the year 2222"));
 	}
 	
+	/**
+	 * @see LocationService#getLocationTagByName(String)
+	 */
+	@Test
+	public void getLocationTagByName_shouldFindALocationTagByItsNewNameAfterItWasRenamed() {
+		LocationService ls = Context.getLocationService();
+		LocationTag tag = ls.getLocationTagByName("General Hospital");
+		
+		tag.setName("Renamed Hospital");
+		ls.saveLocationTag(tag);
+		
+		assertNull(ls.getLocationTagByName("General Hospital"));
+		assertEquals(tag, ls.getLocationTagByName("Renamed Hospital"));
+		assertEquals(tag, ls.getLocationTagByUuid(tag.getUuid()));
+	}
+	
 	/**
 	 * @see LocationService#getLocationTags(String)
 	 */
@@ -28,6 +28,7 @@ import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashSet;
@@ -387,6 +388,24 @@ public class OrderServiceTest extends BaseContextSensitiveTest {
 		assertTrue(containsId(orderFrequencies, 3));
 	}
 	
+	/**
+	 * @see OrderService#updateEffectiveStopDates()
+	 */
+	@Test
+	public void updateEffectiveStopDates_shouldUpdateTheEffectiveStopDateOfOrdersThatWereStoppedWithoutTheApi() {
+		Patient patient = patientService.getPatient(2);
+		Order order = orderService.getOrder(3);
+		adminService.executeSQL("UPDATE orders SET date_stopped = '2008-03-01 00:00:00' WHERE order_id = 3", false);
+		Context.clearSession();
+		assertTrue(orderService.getActiveOrders(patient, null, null, null).contains(order));
+		
+		assertEquals(1, orderService.updateEffectiveStopDates());
+		
+		Context.clearSession();
+		assertFalse(orderService.getActiveOrders(patient, null, null, null).contains(order));
+		assertEquals(0, orderService.updateEffectiveStopDates());
+	}
+	
 	/**
 	 * @see OrderService#getActiveOrders(org.openmrs.Patient, org.openmrs.OrderType,
 	 *      org.openmrs.CareSetting, java.util.Date)
@@ -1056,6 +1075,30 @@ public class OrderServiceTest extends BaseContextSensitiveTest {
 		assertEquals(2, cs.getId().intValue());
 	}
 	
+	/**
+	 * @see OrderService#getCareSettingByName(String)
+	 */
+	@Test
+	public void getCareSettingByName_shouldNotReturnACareSettingByItsOldNameAfterItIsRenamed() {
+		CareSetting cs = orderService.getCareSettingByName("INPATIENT");
+		cs.setName("Ward");
+		Context.flushSession();
+		
+		assertNull(orderService.getCareSettingByName("INPATIENT"));
+		assertEquals(cs, orderService.getCareSettingByName("ward"));
+	}
+	
+	/**
+	 * @see OrderService#getOrderTypeByConceptClass(ConceptClass)
+	 */
+	@Test
+	public void getOrderTypeByConceptClass_shouldReturnNullForAConceptClassThatIsNotMapped() {
+		ConceptClass conceptClass = Context.getConceptService().getConceptClassByName("Misc");
+		assertNotNull(conceptClass);
+		
+		assertNull(orderService.getOrderTypeByConceptClass(conceptClass));
+	}
+	
 	/**
 	 * @see OrderService#getCareSettings(boolean)
 	 */
@@ -1649,6 +1692,63 @@ public class OrderServiceTest extends BaseContextSensitiveTest {
 		orderService.saveOrder(drugOrder, null);
 	}
 	
+	/**
+	 * @see OrderService#saveOrders(List, OrderContext)
+	 */
+	@Test
+	public void saveOrders_shouldSaveAllTheOrders() {
+		Patient patient = patientService.getPatient(7);
+		Order testOrder = new TestOrder();
+		testOrder.setPatient(patient);
+		testOrder.setCareSetting(orderService.getCareSetting(1));
+		testOrder.setConcept(conceptService.getConcept(5497));
+		testOrder.setEncounter(encounterService.getEncounter(3));
+		testOrder.setOrderer(providerService.getProvider(1));
+		DrugOrder drugOrder = newDrugOrderLike((DrugOrder) orderService.getOrder(3), patient);
+		
+		List<Order> savedOrders = orderService.saveOrders(Arrays.asList(testOrder, drugOrder), null);
+		
+		assertEquals(2, savedOrders.size());
+		assertNotNull(savedOrders.get(0).getOrderId());
+		assertNotNull(savedOrders.get(1).getOrderId());
+		List<Order> activeOrders = orderService.getActiveOrders(patient, null, null, null);
+		assertTrue(activeOrders.contains(testOrder));
+		assertTrue(activeOrders.contains(drugOrder));
+	}
+	
+	/**
+	 * @see OrderService#saveOrders(List, OrderContext)
+	 */
+	@Test
+	public void saveOrders_shouldFailIfTwoOfTheOrdersAreDrugOrdersForTheSameDrug() {
+		Patient patient = patientService.getPatient(7);
+		DrugOrder existing = (DrugOrder) orderService.getOrder(3);
+		
+		expectedException.expect(AmbiguousOrderException.class);
+		expectedException.expectMessage("Order.cannot.have.more.than.one");
+		orderService.saveOrders(Arrays.asList(newDrugOrderLike(existing, patient), newDrugOrderLike(existing, patient)),
+		    null);
+	}
+	
+	private DrugOrder newDrugOrderLike(DrugOrder existing, Patient patient) {
+		DrugOrder drugOrder = new DrugOrder();
+		drugOrder.setPatient(patient);
+		drugOrder.setCareSetting(existing.getCareSetting());
+		drugOrder.setConcept(existing.getConcept());
+		drugOrder.setEncounter(encounterService.getEncounter(3));
+		drugOrder.setOrderer(providerService.getProvider(1));
+		drugOrder.setDrug(existing.getDrug());
+		drugOrder.setDosingType(existing.getDosingType());
+		drugOrder.setDose(existing.getDose());
+		drugOrder.setDoseUnits(existing.getDoseUnits());
+		drugOrder.setRoute(existing.getRoute());
+		drugOrder.setFrequency(existing.getFrequency());
+		drugOrder.setQuantity(existing.getQuantity());
+		drugOrder.setQuantityUnits(existing.getQuantityUnits());
+		drugOrder.setNumRefills(existing.getNumRefills());
+		return drugOrder;
+	}
+	
 	/**
 	 * @see OrderService#saveOrder(org.openmrs.Order, OrderContext)
 	 */
@@ -2296,6 +2396,27 @@ public class OrderServiceTest extends BaseContextSensitiveTest {
 		assertEquals(6, orderTypeList.size());
 	}
 	
+	/**
+	 * @see OrderService#getSubtypes(org.openmrs.OrderType, boolean)
+	 */
+	@Test
+	public void getSubtypes_shouldIncludeSubtypesAddedBySavingAnOrderType() {
+		OrderType parent = orderService.getOrderType(2);
+		int subtypeCount = orderService.getSubtypes(parent, true).size();
+		OrderType orderType = new OrderType();
+		orderType.setName("New Sub Order");
+		orderType.setJavaClassName("org.openmrs.NewTestOrder");
+		orderType.setParent(parent);
+		orderService.saveOrderType(orderType);
+	
+		List<OrderType> subtypes = orderService.getSubtypes(parent, true);
+	
+		assertEquals(subtypeCount + 1, subtypes.size());
+		assertTrue(subtypes.contains(orderType));
+		assertEquals(orderType, orderService.getOrderTypeByUuid(orderType.getUuid()));
+		assertEquals(orderType, orderService.getOrderTypeByName("New Sub Order"));
+	}
+	
 	/**
 	 * @see OrderService#saveOrder(org.openmrs.Order, OrderContext)
 	 */
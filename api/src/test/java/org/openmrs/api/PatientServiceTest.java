@@ -1304,6 +1304,34 @@ public class PatientServiceTest extends BaseContextSensitiveTest {
 		Assert.assertNull(identifierType);
 	}
 	
+	/**
+	 * @see PatientService#getPatientIdentifierTypeByName(String)
+	 */
+	@Test
+	public void getPatientIdentifierTypeByName_shouldNotReturnARetiredPatientIdentifierType() throws Exception {
+		assertNull(patientService.getPatientIdentifierTypeByName("Social Security Number"));
+		
+		PatientIdentifierType identifierType = patientService.getPatientIdentifierTypeByName("Old Identification Number");
+		patientService.retirePatientIdentifierType(identifierType, "Not used anymore");
+		
+		assertNull(patientService.getPatientIdentifierTypeByName("Old Identification Number"));
+	}
+	
+	/**
+	 * @see PatientService#getPatientIdentifierTypeByName(String)
+	 */
+	@Test
+	public void getPatientIdentifierTypeByName_shouldFindAPatientIdentifierTypeByItsNewNameAfterItWasRenamed()
+	    throws Exception {
+		PatientIdentifierType identifierType = patientService.getPatientIdentifierTypeByName("Old Identification Number");
+		
+		identifierType.setName("Renamed Identification Number");
+		patientService.savePatientIdentifierType(identifierType);
+		
+		assertNull(patientService.getPatientIdentifierTypeByName("Old Identification Number"));
+		assertEquals(identifierType, patientService.getPatientIdentifierTypeByName("Renamed Identification Number"));
+	}
+	
 	/**
 	 * @see PatientService#getPatientIdentifierTypeByUuid(String)
 	 */
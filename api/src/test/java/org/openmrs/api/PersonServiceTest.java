@@ -24,6 +24,8 @@ import static org.openmrs.test.TestUtil.containsId;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -755,6 +757,36 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 		    PersonAttribute.class));
 	}
 	
+	/**
+	 * @see PersonService#getHydratedAttributeValues(java.util.Collection)
+	 */
+	@Test
+	public void getHydratedAttributeValues_shouldReturnTheHydratedValuesOfTheActiveAttributesOfAllThePersons() {
+		Person person = personService.getPerson(2);
+		Person otherPerson = personService.getPerson(6);
+		
+		Map<PersonAttribute, Object> values = personService.getHydratedAttributeValues(Arrays.asList(person, otherPerson));
+		
+		assertEquals(person.getActiveAttributes().size() + otherPerson.getActiveAttributes().size(), values.size());
+		assertEquals("London", values.get(personService.getPersonAttribute(6)));
+		assertEquals(Context.getConceptService().getConcept(6), values.get(personService.getPersonAttribute(8)));
+		assertEquals(Context.getConceptService().getConcept(5), values.get(personService.getPersonAttribute(11)));
+	}
+	
+	/**
+	 * @see PersonService#getHydratedAttributeValues(java.util.Collection)
+	 */
+	@Test
+	public void getHydratedAttributeValues_shouldReturnTheValueOfAttributesWhoseTypeHasNoFormat() {
+		Person person = personService.getPerson(2);
+		personService.getPersonAttributeType(8).setFormat(null);
+		
+		Map<PersonAttribute, Object> values = personService.getHydratedAttributeValues(Collections.singletonList(person));
+		
+		assertEquals("6", values.get(personService.getPersonAttribute(8)));
+		assertEquals("London", values.get(personService.getPersonAttribute(6)));
+	}
+	
 	/**
 	 * @see PersonService#getPersonAttributeType(Integer)
 	 */
@@ -1784,6 +1816,24 @@ public class PersonServiceTest extends BaseContextSensitiveTest {
 		Assert.assertNull(Context.getPersonService().getPersonAttributeTypeByUuid("some invalid uuid"));
 	}
 	
+	/**
+	 * @see PersonService#getPersonAttributeTypeByUuid(String)
+	 */
+	@Test
+	public void getPersonAttributeTypeByUuid_shouldFindATypeSavedInTheSameTransaction() throws Exception {
+		PersonService service = Context.getPersonService();
+		// loads the metadata index before the type is saved
+		assertNotNull(service.getPersonAttributeTypeByUuid("b3b6d540-a32e-44c7-91b3-292d97667518"));
+		
+		PersonAttributeType pat = new PersonAttributeType();
+		pat.setName("attr type name");
+		pat.setFormat("java.lang.String");
+		service.savePersonAttributeType(pat);
+		
+		assertEquals(pat, service.getPersonAttributeTypeByUuid(pat.getUuid()));
+		assertEquals(pat, service.getPersonAttributeTypeByName("attr type name"));
+	}
+	
 	/**
 	 * @see PersonService#getPersonByUuid(String)
 	 */
@@ -25,6 +25,7 @@ import java.util.Set;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.Cohort;
 import org.openmrs.Concept;
 import org.openmrs.ConceptName;
 import org.openmrs.ConceptStateConversion;
@@ -657,6 +658,84 @@ public class ProgramWorkflowServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(originalDateCompleted, pp.getDateCompleted());
 	}
 	
+	/**
+	 * @see ProgramWorkflowService#triggerStateConversion(Cohort,Concept,Date)
+	 */
+	@Test
+	public void triggerStateConversion_shouldTransitionThePatientProgramsOfThePatientsInTheCohort() {
+		Concept diedConcept = cs.getConcept(16);
+		ProgramWorkflow workflow = pws.getWorkflow(1);
+		Date dateConverted = new Date(System.currentTimeMillis() - 60000);
+		//loaded before the conversion to make sure it does not stay stale in the session
+		PatientProgram pp = pws.getPatientProgram(1);
+		PatientState previousState = pp.getCurrentState(workflow);
+		
+		assertEquals(1, pws.triggerStateConversion(new Cohort(Arrays.asList(2, 7)), diedConcept, dateConverted));
+		
+		pp = pws.getPatientProgram(1);
+		assertEquals(dateConverted.getTime(), pp.getDateCompleted().getTime());
+		PatientState lastState = getMostRecentState(pp, workflow);
+		assertEquals(workflow.getState(diedConcept), lastState.getState());
+		assertEquals(dateConverted.getTime(), lastState.getStartDate().getTime());
+		assertEquals(dateConverted.getTime(), lastState.getEndDate().getTime());
+		assertNotNull(lastState.getUuid());
+		assertEquals(dateConverted.getTime(), pws.getPatientStateByUuid(previousState.getUuid()).getEndDate().getTime());
+	}
+	
+	/**
+	 * @see ProgramWorkflowService#triggerStateConversion(Cohort,Concept,Date)
+	 */
+	@Test
+	public void triggerStateConversion_shouldEndTheStatesOfTheOtherWorkflowsOfTheCompletedPatientPrograms() {
+		Concept diedConcept = cs.getConcept(16);
+		ProgramWorkflow otherWorkflow = pws.getWorkflow(2);
+		Date dateConverted = new Date(System.currentTimeMillis() - 60000);
+		PatientProgram pp = pws.getPatientProgram(1);
+		pp.transitionToState(otherWorkflow.getState(17), new Date(dateConverted.getTime() - 60000));
+		pws.savePatientProgram(pp);
+		PatientState otherState = pp.getCurrentState(otherWorkflow);
+		
+		assertEquals(1, pws.triggerStateConversion(new Cohort(Arrays.asList(2)), diedConcept, dateConverted));
+		
+		pp = pws.getPatientProgram(1);
+		assertEquals(dateConverted.getTime(), pp.getDateCompleted().getTime());
+		PatientState lastOtherState = getMostRecentState(pp, otherWorkflow);
+		assertEquals(otherState.getUuid(), lastOtherState.getUuid());
+		assertEquals(dateConverted.getTime(), lastOtherState.getEndDate().getTime());
+		assertEquals(dateConverted.getTime(), getMostRecentState(pp, pws.getWorkflow(1)).getEndDate().getTime());
+	}
+	
+	private PatientState getMostRecentState(PatientProgram patientProgram, ProgramWorkflow workflow) {
+		for (PatientState state : patientProgram.getMostRecentStateInEachWorkflow()) {
+			if (state.getState().getProgramWorkflow().equals(workflow)) {
+				return state;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * @see ProgramWorkflowService#triggerStateConversion(Cohort,Concept,Date)
+	 */
+	@Test
+	public void triggerStateConversion_shouldSkipPatientProgramsThatAreAlreadyCompleted() {
+		PatientProgram pp = pws.getPatientProgram(1);
+		Date originalDateCompleted = new Date();
+		pp.setDateCompleted(originalDateCompleted);
+		pws.savePatientProgram(pp);
+		
+		assertEquals(0, pws.triggerStateConversion(new Cohort(Arrays.asList(2)), cs.getConcept(16), new Date()));
+		assertEquals(originalDateCompleted, pws.getPatientProgram(1).getDateCompleted());
+	}
+	
+	/**
+	 * @see ProgramWorkflowService#triggerStateConversion(Cohort,Concept,Date)
+	 */
+	@Test(expected = APIException.class)
+	public void triggerStateConversion_shouldFailIfTheTriggerIsNull() {
+		pws.triggerStateConversion(new Cohort(Arrays.asList(2)), null, new Date());
+	}
+	
 	@Test
 	public void getProgramByName_shouldReturnProgramWhenNameMatches() {
 		Program p = pws.getProgramByName("program name");
@@ -17,6 +17,7 @@ import static org.junit.Assert.assertTrue;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -58,6 +59,7 @@ public class ProviderServiceTest extends BaseContextSensitiveTest {
 		service = Context.getProviderService();
 		executeDataSet(PROVIDERS_INITIAL_XML);
 		executeDataSet(PROVIDER_ATTRIBUTE_TYPES_XML);
+		updateSearchIndex();
 	}
 	
 	/**
@@ -494,6 +496,37 @@ public class ProviderServiceTest extends BaseContextSensitiveTest {
 		assertEquals(4, service.getCountOfProviders("provider", true).intValue());
 	}
 	
+	/**
+	 * @see ProviderService#getProviders(String, Integer, Integer, java.util.Map, boolean)
+	 */
+	@Test
+	public void getProviders_shouldOnlyMatchPersonsWithANameContainingEveryWord() {
+		List<Provider> providers = service.getProviders("Horatio Hornblower", null, null, null, false);
+		assertEquals(1, providers.size());
+		assertEquals(Integer.valueOf(2), providers.get(0).getProviderId());
+		assertEquals(0, service.getProviders("Horatio Otterbourg", null, null, null, false).size());
+	}
+	
+	/**
+	 * @see ProviderService#getProviders(String, Integer, Integer, java.util.Map, boolean)
+	 */
+	@Test
+	public void getProviders_shouldReturnPagesOfTheProvidersMatchingTheCount() {
+		List<Provider> providers = service.getProviders("provider", null, null, null, true);
+		assertEquals(service.getCountOfProviders("provider", true).intValue(), providers.size());
+		
+		List<Provider> pages = new ArrayList<>();
+		for (int start = 0; start < providers.size(); start += 3) {
+			pages.addAll(service.getProviders("provider", start, 3, null, true));
+		}
+		assertEquals(providers, pages);
+		
+		//retired providers come last
+		for (int i = 1; i < providers.size(); i++) {
+			assertTrue(!providers.get(i - 1).getRetired() || providers.get(i).getRetired());
+		}
+	}
+	
 	/**
 	 * @see ProviderService#getUnknownProvider()
 	 */
@@ -47,6 +47,7 @@ import org.openmrs.test.SkipBaseSetup;
 import org.openmrs.util.PrivilegeConstants;
 import org.openmrs.util.RoleConstants;
 import org.openmrs.util.Security;
+import org.openmrs.util.UserByNameComparator;
 
 /**
  * TODO add more tests to cover the methods in <code>UserService</code>
@@ -414,6 +415,7 @@ public class UserServiceTest extends BaseContextSensitiveTest {
 	@Test
 	public void getUsers_shouldMatchSearchToFamilyName2() {
 		executeDataSet("org/openmrs/api/include/PersonServiceTest-extranames.xml");
+		updateSearchIndex();
 
 		List<User> users = userService.getUsers("Johnson", null, false);
 		Assert.assertEquals(3, users.size());
@@ -699,6 +701,7 @@ public class UserServiceTest extends BaseContextSensitiveTest {
 	@Test
 	public void getUsers_shouldFetchUsersWithAtLeastOneOfTheGivenRoleObjects() {
 		executeDataSet(XML_FILENAME);
+		updateSearchIndex();
 		
 		List<Role> roles = Collections.singletonList(new Role("Some Role"));
 		Assert.assertEquals(1, userService.getUsers("Susy Kingman", roles, false).size());
@@ -743,6 +746,7 @@ public class UserServiceTest extends BaseContextSensitiveTest {
 	@Test
 	public void getUsers_shouldNotFetchDuplicateUsers() {
 		executeDataSet(XML_FILENAME);
+		updateSearchIndex();
 		
 		List<User> users = userService.getUsers("John Doe", null, false);
 		Assert.assertEquals(1, users.size());
@@ -756,6 +760,81 @@ public class UserServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(0, userService.getUsers("Bruno", null, false).size());
 	}
 	
+	/**
+	 * @see UserService#getUsers(String, List, boolean)
+	 */
+	@Test
+	public void getUsers_shouldMatchWordsSplitAcrossTheUsernameAndTheName() {
+		executeDataSet(XML_FILENAME);
+		updateSearchIndex();
+		
+		List<User> users = userService.getUsers("Susy incorrectly", null, false);
+		assertEquals(1, users.size());
+		assertEquals(Integer.valueOf(5505), users.get(0).getUserId());
+	}
+	
+	/**
+	 * @see UserService#getUsers(String, List, boolean)
+	 */
+	@Test
+	public void getUsers_shouldNotMatchUsersMatchingOnlySomeOfTheWords() {
+		executeDataSet(XML_FILENAME);
+		updateSearchIndex();
+		
+		assertEquals(0, userService.getUsers("Susy Black", null, false).size());
+		assertEquals(0, userService.getUsers("Susy correctly", null, false).size());
+	}
+	
+	/**
+	 * @see UserService#getUsers(String, List, boolean)
+	 */
+	@Test
+	public void getUsers_shouldOnlyMatchTheNamesOfPersonsWithAUserAccount() {
+		updateSearchIndex();
+		assertEquals(0, userService.getUsers("Chebaskwony", null, false).size());
+		
+		User user = new User(Context.getPersonService().getPerson(7));
+		user.setUsername("collet");
+		userService.createUser(user, "Openmr5xy");
+		
+		assertEquals(1, userService.getUsers("Chebaskwony", null, false).size());
+	}
+	
+	/**
+	 * @see UserService#getUsers(String, List, boolean, Integer, Integer)
+	 */
+	@Test
+	public void getUsers_shouldReturnEveryPageSortedByName() {
+		executeDataSet(XML_FILENAME);
+		updateSearchIndex();
+		
+		List<User> users = userService.getUsers(null, null, true, null, null);
+		UserByNameComparator comparator = new UserByNameComparator();
+		for (int i = 1; i < users.size(); i++) {
+			assertTrue(comparator.compare(users.get(i - 1), users.get(i)) <= 0);
+		}
+		assertEquals(users.size(), userService.getCountOfUsers(null, null, true).intValue());
+		
+		List<User> pages = new ArrayList<>();
+		for (int start = 0; start < users.size(); start += 2) {
+			pages.addAll(userService.getUsers(null, null, true, start, 2));
+		}
+		assertEquals(users, pages);
+	}
+	
+	/**
+	 * @see UserService#getCountOfUsers(String, List, boolean)
+	 */
+	@Test
+	public void getCountOfUsers_shouldCountUsersWithChildRolesOfTheGivenRoles() {
+		executeDataSet(XML_FILENAME);
+		updateSearchIndex();
+		
+		List<Role> roles = Collections.singletonList(userService.getRole("Parent"));
+		assertEquals(3, userService.getUsers(null, roles, true).size());
+		assertEquals(3, userService.getCountOfUsers(null, roles, true).intValue());
+	}
+	
 	/**
 	 * @see UserService#getUsersByRole(Role)
 	 */
@@ -1142,6 +1221,42 @@ public class UserServiceTest extends BaseContextSensitiveTest {
 		Assert.assertEquals(3, userService.getUsers(null, roles, true, null, null).size());
 	}
 	
+	/**
+	 * @see UserService#getUserPropertyValues(String,List)
+	 */
+	@Test
+	public void getUserPropertyValues_shouldReturnTheValuesOfTheUsersWithTheRoles() {
+		executeDataSet(XML_FILENAME);
+		
+		assertEquals(Collections.singletonList("some value"), userService.getUserPropertyValues("some key", Collections
+		        .singletonList(userService.getRole("Some Role"))));
+		assertEquals(0, userService.getUserPropertyValues("some key",
+		    Collections.singletonList(userService.getRole("Some Role To Delete"))).size());
+	}
+	
+	/**
+	 * @see UserService#getUserPropertyValues(String,List)
+	 */
+	@Test
+	public void getUserPropertyValues_shouldReturnTheValuesOfUsersWhoseRolesInheritTheRoles() {
+		executeDataSet(XML_FILENAME);
+		
+		assertEquals(Collections.singletonList("some value"), userService.getUserPropertyValues("some key", Collections
+		        .singletonList(userService.getRole("Parent"))));
+	}
+	
+	/**
+	 * @see UserService#getUserPropertyValues(String,List)
+	 */
+	@Test
+	public void getUserPropertyValues_shouldNotReturnTheValuesOfRetiredUsers() {
+		executeDataSet(XML_FILENAME);
+		userService.retireUser(userService.getUser(5505), "testing");
+		
+		assertEquals(0, userService.getUserPropertyValues("some key",
+		    Collections.singletonList(userService.getRole("Some Role"))).size());
+	}
+	
 	@Test
 	public void saveUserProperty_shouldAddNewPropertyToExistingUserProperties() {
 		executeDataSet(XML_FILENAME);
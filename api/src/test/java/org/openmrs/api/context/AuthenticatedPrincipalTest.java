@@ -0,0 +1,150 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
+import org.openmrs.User;
+import org.openmrs.util.RoleConstants;
+
+/**
+ * Tests {@link AuthenticatedPrincipal}
+ */
+public class AuthenticatedPrincipalTest {
+	
+	private User newUser(Integer userId, Role role) {
+		User user = new User(userId);
+		user.setUsername("user" + userId);
+		user.addRole(role);
+		return user;
+	}
+	
+	private Role newRole(String name, String privilege) {
+		Role role = new Role(name);
+		if (privilege != null) {
+			role.addPrivilege(new Privilege(privilege));
+		}
+		return role;
+	}
+	
+	/**
+	 * @see AuthenticatedPrincipal#of(User, Role)
+	 */
+	@Test
+	public void of_shouldIncludeThePrivilegesOfInheritedRoles() {
+		Role parent = newRole("Parent", "Parent Privilege");
+		Role child = newRole("Child", "Child Privilege");
+		child.setInheritedRoles(Collections.singleton(parent));
+		
+		AuthenticatedPrincipal principal = AuthenticatedPrincipal.of(newUser(1, child), null);
+		
+		assertTrue(principal.hasPrivilege("Parent Privilege"));
+		assertTrue(principal.hasPrivilege("Child Privilege"));
+		assertFalse(principal.hasPrivilege("Other Privilege"));
+		assertEquals(2, principal.getRoles().size());
+		assertEquals("user1", principal.getUsername());
+	}
+	
+	/**
+	 * @see AuthenticatedPrincipal#of(User, Role)
+	 */
+	@Test
+	public void of_shouldIncludeThePrivilegesOfTheAuthenticatedRole() {
+		AuthenticatedPrincipal principal = AuthenticatedPrincipal.of(newUser(1, newRole("Role", null)), newRole(
+		    RoleConstants.AUTHENTICATED, "Authenticated Privilege"));
+		
+		assertTrue(principal.hasPrivilege("Authenticated Privilege"));
+		assertTrue(principal.getRoles().contains(RoleConstants.AUTHENTICATED));
+	}
+	
+	/**
+	 * @see AuthenticatedPrincipal#hasPrivilege(String)
+	 */
+	@Test
+	public void hasPrivilege_shouldAuthorizeTheEmptyPrivilege() {
+		AuthenticatedPrincipal principal = AuthenticatedPrincipal.of(newUser(1, newRole("Role", null)), null);
+		
+		assertTrue(principal.hasPrivilege(""));
+		assertTrue(principal.hasPrivilege(null));
+	}
+	
+	/**
+	 * @see AuthenticatedPrincipal#hasPrivilege(String)
+	 */
+	@Test
+	public void hasPrivilege_shouldAuthorizeSuperusersForAnyPrivilege() {
+		AuthenticatedPrincipal principal = AuthenticatedPrincipal.of(newUser(1, newRole(RoleConstants.SUPERUSER, null)),
+		    null);
+		
+		assertTrue(principal.isSuperUser());
+		assertTrue(principal.hasPrivilege("Any Privilege"));
+	}
+	
+	/**
+	 * @see AuthenticatedPrincipal#isStale()
+	 */
+	@Test
+	public void isStale_shouldBeStaleOnceItsUserChanged() {
+		AuthenticatedPrincipal principal = AuthenticatedPrincipal.of(newUser(10, newRole("Role", null)), null);
+		AuthenticatedPrincipal other = AuthenticatedPrincipal.of(newUser(11, newRole("Role", null)), null);
+		assertFalse(principal.isStale());
+		
+		AuthenticatedPrincipal.invalidate(10);
+		
+		assertTrue(principal.isStale());
+		assertFalse(other.isStale());
+		assertFalse(AuthenticatedPrincipal.of(newUser(10, newRole("Role", null)), null).isStale());
+	}
+	
+	/**
+	 * @see AuthenticatedPrincipal#isStale()
+	 */
+	@Test
+	public void isStale_shouldBeStaleOnceAnyRoleOrPrivilegeChanged() {
+		AuthenticatedPrincipal principal = AuthenticatedPrincipal.of(newUser(12, newRole("Role", null)), null);
+		
+		AuthenticatedPrincipal.invalidateAll();
+		
+		assertTrue(principal.isStale());
+		assertFalse(AuthenticatedPrincipal.of(newUser(12, newRole("Role", null)), null).isStale());
+	}
+	
+	/**
+	 * @see AuthenticatedPrincipal#isStale()
+	 */
+	@Test
+	public void isStale_shouldBeStaleOnceDeserialized() throws Exception {
+		AuthenticatedPrincipal principal = AuthenticatedPrincipal.of(newUser(13, newRole("Role", "Privilege")), null);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(principal);
+		}
+		
+		AuthenticatedPrincipal deserialized;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			deserialized = (AuthenticatedPrincipal) in.readObject();
+		}
+		
+		assertFalse(principal.isStale());
+		assertTrue(deserialized.isStale());
+		assertTrue(deserialized.hasPrivilege("Privilege"));
+	}
+}
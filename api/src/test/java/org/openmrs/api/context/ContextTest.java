@@ -18,6 +18,8 @@ import org.junit.Test;
 import org.openmrs.Location;
 import org.openmrs.Person;
 import org.openmrs.PersonName;
+import org.openmrs.Privilege;
+import org.openmrs.Role;
 import org.openmrs.User;
 import org.openmrs.api.APIException;
 import org.openmrs.api.PatientService;
@@ -27,6 +29,7 @@ import org.openmrs.api.handler.ExistingOrNewVisitAssignmentHandler;
 import org.openmrs.test.BaseContextSensitiveTest;
 import org.openmrs.util.LocaleUtility;
 import org.openmrs.util.OpenmrsConstants;
+import org.openmrs.util.PrivilegeConstants;
 import org.springframework.validation.Validator;
 
 /**
@@ -221,4 +224,60 @@ public class ContextTest extends BaseContextSensitiveTest {
 		
 		Context.logout();
 	}
+	
+	/**
+	 * @see UserContext#getAuthenticatedUser()
+	 */
+	@Test
+	public void getAuthenticatedUser_shouldLoadTheUserOfThePrincipalIfItWasReleased() {
+		User user = Context.getAuthenticatedUser();
+		
+		Context.getUserContext().releaseAuthenticatedUser();
+		
+		Assert.assertTrue(Context.isAuthenticated());
+		Assert.assertEquals(user, Context.getAuthenticatedUser());
+	}
+	
+	/**
+	 * @see UserContext#releaseAuthenticatedUser()
+	 */
+	@Test
+	public void releaseAuthenticatedUser_shouldOnlyReleaseTheUserOfTheCurrentThread() throws Exception {
+		final UserContext userContext = Context.getUserContext();
+		User user = userContext.getAuthenticatedUser();
+		
+		Thread thread = new Thread(userContext::releaseAuthenticatedUser);
+		thread.start();
+		thread.join();
+		
+		Assert.assertSame(user, userContext.getAuthenticatedUser());
+	}
+	
+	/**
+	 * @see UserContext#getAuthenticatedPrincipal()
+	 */
+	@Test
+	public void getAuthenticatedPrincipal_shouldRebuildThePrincipalWhenTheRolesOfTheUserChanged() {
+		UserService userService = Context.getUserService();
+		Privilege privilege = userService.savePrivilege(new Privilege("Some New Privilege", "For testing"));
+		
+		Context.becomeUser("butch");
+		Assert.assertFalse(Context.hasPrivilege(privilege.getPrivilege()));
+		
+		Role role = userService.getRole("Provider");
+		role.addPrivilege(privilege);
+		Context.addProxyPrivilege(PrivilegeConstants.MANAGE_ROLES);
+		Context.addProxyPrivilege(privilege.getPrivilege());
+		try {
+			userService.saveRole(role);
+		}
+		finally {
+			Context.removeProxyPrivilege(PrivilegeConstants.MANAGE_ROLES);
+			Context.removeProxyPrivilege(privilege.getPrivilege());
+		}
+		
+		Assert.assertTrue(Context.hasPrivilege(privilege.getPrivilege()));
+		
+		Context.logout();
+	}
 }
@@ -0,0 +1,91 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.context;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+import org.openmrs.api.APIException;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+/**
+ * Tests {@link ServiceContext}
+ */
+public class ServiceContextTest extends BaseContextSensitiveTest {
+
+	public interface TestService {
+
+		String getName();
+	}
+
+	public interface UnknownService {
+	}
+
+	/**
+	 * @see ServiceContext#getService(Class)
+	 */
+	@Test
+	public void getService_shouldReturnTheServiceSetForTheClass() {
+		ServiceContext serviceContext = ServiceContext.getInstance();
+		serviceContext.setService(TestService.class, (TestService) () -> "first");
+
+		assertEquals("first", serviceContext.getService(TestService.class).getName());
+
+		serviceContext.setService(TestService.class, (TestService) () -> "second");
+
+		assertEquals("second", serviceContext.getService(TestService.class).getName());
+	}
+
+	/**
+	 * @see ServiceContext#getService(Class)
+	 */
+	@Test(expected = APIException.class)
+	public void getService_shouldFailIfNoServiceHasBeenSetForTheClass() {
+		ServiceContext.getInstance().getService(UnknownService.class);
+	}
+
+	/**
+	 * @see ServiceContext#getService(Class)
+	 */
+	@Test
+	public void getService_shouldWaitUntilTheContextIsDoneRefreshing() throws Exception {
+		ServiceContext serviceContext = ServiceContext.getInstance();
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		serviceContext.startRefreshingContext();
+		try {
+			serviceContext.setService(TestService.class, (TestService) () -> "refreshed");
+			Future<TestService> service = executor.submit(() -> serviceContext.getService(TestService.class));
+			try {
+				service.get(200, TimeUnit.MILLISECONDS);
+				fail("The service should not be returned while the context is refreshing");
+			}
+			catch (TimeoutException e) {
+				// expected
+			}
+
+			serviceContext.doneRefreshingContext();
+
+			assertEquals("refreshed", service.get(5, TimeUnit.SECONDS).getName());
+		}
+		finally {
+			if (serviceContext.isRefreshingContext()) {
+				serviceContext.doneRefreshingContext();
+			}
+			executor.shutdownNow();
+		}
+	}
+}
@@ -19,6 +19,7 @@ import java.util.Set;
 
 import javax.annotation.Resource;
 
+import org.hibernate.Hibernate;
 import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
@@ -393,6 +394,19 @@ public class ContextDAOTest extends BaseContextSensitiveTest {
 		assertThat(testUserSessionListener.logouts, empty());
 	}
 
+	/**
+	 * @see ContextDAO#getUser(Integer)
+	 */
+	@Test
+	public void getUser_shouldLoadTheUserPropertiesOfTheUser() {
+		Context.clearSession();
+		
+		User user = dao.getUser(1);
+		
+		Assert.assertTrue(Hibernate.isInitialized(user.getUserProperties()));
+		Assert.assertTrue(Hibernate.isInitialized(user.getRoles()));
+	}
+	
 	@Test
 	public void logout_shouldRightlyTriggerUserSessionListener() {
 		testUserSessionListener.clear();
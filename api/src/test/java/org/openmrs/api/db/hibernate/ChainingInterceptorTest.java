@@ -0,0 +1,152 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.Interceptor;
+import org.hibernate.type.Type;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.Obs;
+import org.openmrs.Order;
+import org.openmrs.TestOrder;
+
+/**
+ * Tests {@link ChainingInterceptor}
+ */
+public class ChainingInterceptorTest {
+	
+	private List<String> calls;
+	
+	private ChainingInterceptor chainingInterceptor;
+	
+	@Before
+	public void setUp() {
+		calls = new ArrayList<>();
+		chainingInterceptor = new ChainingInterceptor();
+	}
+	
+	/**
+	 * @see ChainingInterceptor#onSave(Object, Serializable, Object[], String[], Type[])
+	 */
+	@Test
+	public void onSave_shouldOnlyCallSelectiveInterceptorsForTheTypesTheyIntercept() {
+		chainingInterceptor.addInterceptor(new RecordingInterceptor("all"));
+		chainingInterceptor.addInterceptor(new SelectiveRecordingInterceptor("orders", Order.class));
+		chainingInterceptor.addInterceptor(new SelectiveRecordingInterceptor("obs", Obs.class));
+		
+		chainingInterceptor.onSave(new TestOrder(), null, null, null, null);
+		chainingInterceptor.onSave(new Concept(), null, null, null, null);
+		chainingInterceptor.onSave(new Obs(), null, null, null, null);
+		
+		assertEquals(5, calls.size());
+		assertEquals("all onSave TestOrder", calls.get(0));
+		assertEquals("orders onSave TestOrder", calls.get(1));
+		assertEquals("all onSave Concept", calls.get(2));
+		assertEquals("all onSave Obs", calls.get(3));
+		assertEquals("obs onSave Obs", calls.get(4));
+	}
+	
+	/**
+	 * @see ChainingInterceptor#onFlushDirty(Object, Serializable, Object[], Object[], String[],
+	 *      Type[])
+	 */
+	@Test
+	public void onFlushDirty_shouldReturnTrueIfAnyCalledInterceptorChangedTheEntity() {
+		chainingInterceptor.addInterceptor(new SelectiveRecordingInterceptor("orders", Order.class));
+		chainingInterceptor.addInterceptor(new RecordingInterceptor("all"));
+		
+		assertTrue(chainingInterceptor.onFlushDirty(new Order(), null, null, null, null, null));
+		assertFalse(chainingInterceptor.onFlushDirty(new Obs(), null, null, null, null, null));
+	}
+	
+	/**
+	 * @see ChainingInterceptor#addInterceptor(Interceptor)
+	 */
+	@Test
+	public void addInterceptor_shouldIncludeTheInterceptorForEntityClassesSeenBefore() {
+		chainingInterceptor.addInterceptor(new RecordingInterceptor("all"));
+		assertEquals(1, chainingInterceptor.getInterceptors(new Order()).length);
+		
+		Interceptor orders = new SelectiveRecordingInterceptor("orders", Order.class);
+		chainingInterceptor.addInterceptor(orders);
+		assertEquals(2, chainingInterceptor.getInterceptors(new Order()).length);
+		
+		chainingInterceptor.interceptors.remove(orders);
+		assertEquals(1, chainingInterceptor.getInterceptors(new Order()).length);
+	}
+	
+	/**
+	 * @see ChainingInterceptor#findDirty(Object, Serializable, Object[], Object[], String[], Type[])
+	 */
+	@Test
+	public void findDirty_shouldSkipInterceptorsThatDoNotInterceptTheEntity() {
+		chainingInterceptor.addInterceptor(new SelectiveRecordingInterceptor("orders", Order.class));
+		
+		assertArrayEquals(new int[] { 0 }, chainingInterceptor.findDirty(new Order(), null, null, null, null, null));
+		assertEquals(null, chainingInterceptor.findDirty(new Obs(), null, null, null, null, null));
+	}
+	
+	private class RecordingInterceptor extends EmptyInterceptor {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final String name;
+		
+		RecordingInterceptor(String name) {
+			this.name = name;
+		}
+		
+		@Override
+		public boolean onSave(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+			calls.add(name + " onSave " + entity.getClass().getSimpleName());
+			return false;
+		}
+	}
+	
+	private class SelectiveRecordingInterceptor extends RecordingInterceptor implements SelectiveInterceptor {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private final Class<?> type;
+		
+		SelectiveRecordingInterceptor(String name, Class<?> type) {
+			super(name);
+			this.type = type;
+		}
+		
+		@Override
+		public Class<?>[] getInterceptedTypes() {
+			return new Class<?>[] { type };
+		}
+		
+		@Override
+		public boolean onFlushDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+		        String[] propertyNames, Type[] types) {
+			return true;
+		}
+		
+		@Override
+		public int[] findDirty(Object entity, Serializable id, Object[] currentState, Object[] previousState,
+		        String[] propertyNames, Type[] types) {
+			return new int[] { 0 };
+		}
+	}
+}
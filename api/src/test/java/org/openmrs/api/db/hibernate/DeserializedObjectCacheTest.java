@@ -0,0 +1,135 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.db.hibernate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+import java.sql.Timestamp;
+import java.util.Date;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.Program;
+import org.openmrs.api.db.SerializedObject;
+import org.openmrs.serialization.SimpleXStreamSerializer;
+
+/**
+ * Tests {@link DeserializedObjectCache}
+ */
+public class DeserializedObjectCacheTest {
+	
+	private Concept managedConcept;
+	
+	private DeserializedObjectCache cache;
+	
+	@Before
+	public void setUp() {
+		managedConcept = new Concept(5089);
+		cache = new DeserializedObjectCache(2, o -> o == managedConcept);
+	}
+	
+	/**
+	 * @see DeserializedObjectCache#get(SerializedObject)
+	 */
+	@Test
+	public void get_shouldReturnANewCopyOfTheCachedObject() {
+		SerializedObject serializedObject = serializedObject("uuid-1", "<program/>", new Date(1000));
+		cache.put(serializedObject, program("Program 1", null));
+		
+		Program first = (Program) cache.get(serializedObject);
+		first.setName("changed");
+		Program second = (Program) cache.get(serializedObject);
+		
+		assertNotSame(first, second);
+		assertEquals("Program 1", second.getName());
+	}
+	
+	/**
+	 * @see DeserializedObjectCache#get(SerializedObject)
+	 */
+	@Test
+	public void get_shouldNotReturnAnObjectDeserializedFromOtherData() {
+		cache.put(serializedObject("uuid-1", "<program/>", new Date(1000)), program("Program 1", null));
+		
+		assertNull(cache.get(serializedObject("uuid-1", "<program/>", new Date(2000))));
+		assertNull(cache.get(serializedObject("uuid-1", "<program>changed</program>", new Date(1000))));
+		assertNull(cache.get(serializedObject("uuid-2", "<program/>", new Date(1000))));
+		assertNotNull(cache.get(serializedObject("uuid-1", "<program/>", new Timestamp(1000))));
+	}
+	
+	/**
+	 * @see DeserializedObjectCache#put(SerializedObject, org.openmrs.OpenmrsObject)
+	 */
+	@Test
+	public void put_shouldNotCacheObjectsReferencingEntitiesOfTheSession() {
+		SerializedObject serializedObject = serializedObject("uuid-1", "<program/>", null);
+		cache.put(serializedObject, program("Program 1", managedConcept));
+		
+		assertNull(cache.get(serializedObject));
+		
+		SerializedObject other = serializedObject("uuid-2", "<program/>", null);
+		cache.put(other, program("Program 2", new Concept(5497)));
+		
+		assertEquals(5497, ((Program) cache.get(other)).getConcept().getConceptId().intValue());
+	}
+	
+	/**
+	 * @see DeserializedObjectCache#put(SerializedObject, org.openmrs.OpenmrsObject)
+	 */
+	@Test
+	public void put_shouldDropTheLeastRecentlyUsedObjects() {
+		SerializedObject first = serializedObject("uuid-1", "<program/>", null);
+		SerializedObject second = serializedObject("uuid-2", "<program/>", null);
+		SerializedObject third = serializedObject("uuid-3", "<program/>", null);
+		cache.put(first, program("Program 1", null));
+		cache.put(second, program("Program 2", null));
+		cache.get(first);
+		cache.put(third, program("Program 3", null));
+		
+		assertEquals(2, cache.size());
+		assertNotNull(cache.get(first));
+		assertNull(cache.get(second));
+	}
+	
+	/**
+	 * @see DeserializedObjectCache#remove(String)
+	 */
+	@Test
+	public void remove_shouldDropTheObjectWithTheUuid() {
+		SerializedObject serializedObject = serializedObject("uuid-1", "<program/>", null);
+		cache.put(serializedObject, program("Program 1", null));
+		
+		cache.remove("uuid-1");
+		
+		assertNull(cache.get(serializedObject));
+	}
+	
+	private SerializedObject serializedObject(String uuid, String data, Date dateChanged) {
+		SerializedObject serializedObject = new SerializedObject();
+		serializedObject.setUuid(uuid);
+		serializedObject.setType(Program.class.getName());
+		serializedObject.setSubtype(Program.class.getName());
+		serializedObject.setSerializationClass(SimpleXStreamSerializer.class);
+		serializedObject.setSerializedData(data);
+		serializedObject.setDateChanged(dateChanged);
+		return serializedObject;
+	}
+	
+	private Program program(String name, Concept concept) {
+		Program program = new Program();
+		program.setName(name);
+		program.setConcept(concept);
+		return program;
+	}
+}
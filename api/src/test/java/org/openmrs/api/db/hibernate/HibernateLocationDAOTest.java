@@ -18,6 +18,7 @@ import java.util.List;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.Location;
 import org.openmrs.LocationTag;
 import org.openmrs.test.BaseContextSensitiveTest;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -75,4 +76,24 @@ public class HibernateLocationDAOTest extends BaseContextSensitiveTest {
 		assertEquals(1, dao.getLocationsHavingAllTags(list1).size());
 	}
 	
+	/**
+	 * @see HibernateLocationDAO#getLocationsByIds(java.util.Collection)
+	 */
+	@Test
+	public void getLocationsByIds_shouldOrderMoreLocationsThanFitInOneQueryByName() {
+		List<Integer> ids = new ArrayList<>();
+		for (int id = 1; id <= 1200; id++) {
+			ids.add(id);
+		}
+		
+		List<Location> locations = dao.getLocationsByIds(ids);
+		
+		List<Integer> existingIds = new ArrayList<>();
+		for (Location location : locations) {
+			existingIds.add(location.getLocationId());
+		}
+		Assert.assertFalse(locations.isEmpty());
+		assertEquals(dao.getLocationsByIds(existingIds), locations);
+	}
+	
 }
@@ -11,12 +11,14 @@ package org.openmrs.api.db.hibernate;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.hibernate.SessionFactory;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.openmrs.Location;
 import org.openmrs.Person;
 import org.openmrs.api.context.Context;
 import org.openmrs.test.BaseContextSensitiveTest;
@@ -636,5 +638,20 @@ public class HibernatePersonDAOTest extends BaseContextSensitiveTest {
 		Person savedPerson = hibernatePersonDAO.getPerson(345);
 		Assert.assertEquals(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").parse("2012-05-29 15:23:56"), savedPerson.getBirthDateTime());
 	}
+	
+	/**
+	 * @see HibernatePersonDAO#getObjectsByIds(Class, java.util.Collection)
+	 */
+	@Test
+	public void getObjectsByIds_shouldLoadMoreObjectsThanFitInOneQuery() {
+		List<Integer> ids = new ArrayList<>();
+		for (int id = 1; id <= 1200; id++) {
+			ids.add(id);
+		}
+		
+		List<?> locations = hibernatePersonDAO.getObjectsByIds(Location.class, ids);
+		
+		Assert.assertEquals(Context.getLocationService().getAllLocations(true).size(), locations.size());
+	}
 
 }
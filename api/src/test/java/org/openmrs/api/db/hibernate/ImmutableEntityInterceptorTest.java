@@ -119,4 +119,23 @@ public class ImmutableEntityInterceptorTest extends BaseContextSensitiveTest {
 		order.setVoided(true);
 		interceptor.onFlushDirty(order, null, currentState, previousState, propertyNames, null);
 	}
+	
+	/**
+	 * @see ImmutableEntityInterceptor#onFlushDirty(Object, java.io.Serializable, Object[],
+	 *      Object[], String[], org.hibernate.type.Type[])
+	 */
+	@Test
+	public void onFlushDirty_shouldCheckThePropertiesAtTheIndexesOfTheGivenPropertyNames() {
+		ImmutableEntityInterceptor interceptor = new SomeImmutableEntityInterceptor();
+		String[] propertyNames = new String[] { SomeImmutableEntityInterceptor.MUTABLE_FIELD_NAME,
+		        SomeImmutableEntityInterceptor.IMMUTABLE_FIELD_NAME };
+		interceptor.onFlushDirty(new Order(), null, new String[] { "new", "same" }, new String[] { "old", "same" },
+		    propertyNames, null);
+		
+		String[] reorderedPropertyNames = new String[] { SomeImmutableEntityInterceptor.IMMUTABLE_FIELD_NAME,
+		        SomeImmutableEntityInterceptor.MUTABLE_FIELD_NAME };
+		expectedException.expect(UnchangeableObjectException.class);
+		interceptor.onFlushDirty(new Order(), null, new String[] { "new", "same" }, new String[] { "old", "same" },
+		    reorderedPropertyNames, null);
+	}
 }
@@ -0,0 +1,246 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Tests {@link ConceptSetIndex}
+ */
+public class ConceptSetIndexTest {
+
+	private List<Object[]> rows;
+
+	private int loads;
+
+	private ConceptSetIndex index;
+
+	@Before
+	public void setUp() {
+		rows = new ArrayList<>();
+		loads = 0;
+		index = new ConceptSetIndex(() -> {
+			loads++;
+			return rows;
+		});
+		// 1 = {2, 3}, 3 = {4, 5}, 4 = {6}, 7 = {3, 2}; 3 and 4 are sets, 5 has members but is not a set
+		member(1, 2, false);
+		member(1, 3, true);
+		member(3, 4, true);
+		member(3, 5, false);
+		member(4, 6, false);
+		member(5, 8, false);
+		member(7, 3, true);
+		member(7, 2, false);
+	}
+
+	@After
+	public void tearDown() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
+
+	/**
+	 * @see ConceptSetIndex#getDescendants(int)
+	 */
+	@Test
+	public void getDescendants_shouldReturnMembersOfNestedSetsDepthFirst() {
+		assertArrayEquals(new int[] { 2, 3, 4, 6, 5 }, index.getDescendants(1));
+		assertArrayEquals(new int[] { 3, 4, 6, 5, 2 }, index.getDescendants(7));
+		assertArrayEquals(new int[0], index.getDescendants(2));
+	}
+
+	/**
+	 * @see ConceptSetIndex#getDescendants(int)
+	 */
+	@Test
+	public void getDescendants_shouldLoadTheIndexOnlyOnce() {
+		index.getDescendants(1);
+		index.getDescendants(3);
+		index.getAncestors(6);
+
+		assertEquals(1, loads);
+	}
+
+	/**
+	 * @see ConceptSetIndex#getDescendants(int)
+	 */
+	@Test
+	public void getDescendants_shouldNotLoopForeverOnCyclicSets() {
+		member(4, 3, true);
+		index.clear();
+
+		assertArrayEquals(new int[] { 4, 6, 3, 5 }, index.getDescendants(3));
+	}
+
+	/**
+	 * @see ConceptSetIndex#getAncestors(int)
+	 */
+	@Test
+	public void getAncestors_shouldReturnAllSetsContainingTheConcept() {
+		assertArrayEquals(new int[] { 1, 3, 4, 7 }, index.getAncestors(6));
+		assertArrayEquals(new int[] { 1, 7 }, index.getAncestors(2));
+		// 5 is not a set so its members are not members of the sets containing it
+		assertArrayEquals(new int[] { 5 }, index.getAncestors(8));
+	}
+
+	/**
+	 * @see ConceptSetIndex#isInSet(int, int)
+	 */
+	@Test
+	public void isInSet_shouldAgreeWithGetDescendants() {
+		for (int set = 1; set <= 8; set++) {
+			for (int concept = 1; concept <= 8; concept++) {
+				boolean expected = false;
+				for (int member : index.getDescendants(set)) {
+					expected |= member == concept;
+				}
+				assertEquals("concept " + concept + " in set " + set, expected, index.isInSet(concept, set));
+			}
+		}
+	}
+
+	/**
+	 * @see ConceptSetIndex#update(int, boolean, int[], boolean[])
+	 */
+	@Test
+	public void update_shouldReplaceTheMembersOfTheSavedConcept() {
+		index.getDescendants(1);
+
+		index.update(3, true, new int[] { 9 }, new boolean[] { false });
+
+		assertArrayEquals(new int[] { 2, 3, 9 }, index.getDescendants(1));
+		assertArrayEquals(new int[] { 1, 3, 7 }, index.getAncestors(9));
+		assertArrayEquals(new int[] { 4 }, index.getAncestors(6));
+		assertEquals(1, loads);
+	}
+
+	/**
+	 * @see ConceptSetIndex#update(int, boolean, int[], boolean[])
+	 */
+	@Test
+	public void update_shouldStopExpandingAConceptThatIsNoLongerASet() {
+		index.getDescendants(1);
+
+		index.update(4, false, new int[] { 6 }, new boolean[] { false });
+
+		assertArrayEquals(new int[] { 2, 3, 4, 5 }, index.getDescendants(1));
+		assertFalse(index.isInSet(6, 1));
+	}
+
+	/**
+	 * @see ConceptSetIndex#remove(int)
+	 */
+	@Test
+	public void remove_shouldRemoveThePurgedConceptFromAllSets() {
+		index.getDescendants(1);
+
+		index.remove(3);
+
+		assertArrayEquals(new int[] { 2 }, index.getDescendants(1));
+		assertArrayEquals(new int[0], index.getAncestors(3));
+		assertTrue(index.isInSet(6, 4));
+		assertEquals(1, loads);
+	}
+
+	/**
+	 * @see ConceptSetIndex#update(int, boolean, int[], boolean[])
+	 */
+	@Test
+	public void update_shouldOnlyBeVisibleToTheSavingTransactionUntilItCommits() throws Exception {
+		index.getDescendants(1);
+		TransactionSynchronizationManager.initSynchronization();
+
+		index.update(3, true, new int[] { 9 }, new boolean[] { false });
+
+		assertArrayEquals(new int[] { 2, 3, 9 }, index.getDescendants(1));
+		assertArrayEquals(new int[] { 2, 3, 4, 6, 5 }, inOtherThread(() -> index.getDescendants(1)));
+
+		complete(TransactionSynchronization.STATUS_COMMITTED);
+
+		assertArrayEquals(new int[] { 2, 3, 9 }, index.getDescendants(1));
+		assertArrayEquals(new int[] { 2, 3, 9 }, inOtherThread(() -> index.getDescendants(1)));
+		assertEquals(1, loads);
+	}
+
+	/**
+	 * @see ConceptSetIndex#update(int, boolean, int[], boolean[])
+	 */
+	@Test
+	public void update_shouldBeDroppedIfTheTransactionRollsBack() {
+		index.getDescendants(1);
+		TransactionSynchronizationManager.initSynchronization();
+
+		index.update(3, true, new int[] { 9 }, new boolean[] { false });
+		complete(TransactionSynchronization.STATUS_ROLLED_BACK);
+
+		assertArrayEquals(new int[] { 2, 3, 4, 6, 5 }, index.getDescendants(1));
+		assertArrayEquals(new int[0], index.getAncestors(9));
+	}
+
+	/**
+	 * @see ConceptSetIndex#remove(int)
+	 */
+	@Test
+	public void remove_shouldOnlyBeAppliedToTheSharedIndexOnCommit() throws Exception {
+		index.getDescendants(1);
+		TransactionSynchronizationManager.initSynchronization();
+
+		index.remove(3);
+
+		assertArrayEquals(new int[] { 2 }, index.getDescendants(1));
+		assertArrayEquals(new int[] { 2, 3, 4, 6, 5 }, inOtherThread(() -> index.getDescendants(1)));
+
+		complete(TransactionSynchronization.STATUS_COMMITTED);
+
+		assertArrayEquals(new int[] { 2 }, index.getDescendants(1));
+	}
+
+	private void complete(int status) {
+		List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+		TransactionSynchronizationManager.clearSynchronization();
+		for (TransactionSynchronization synchronization : synchronizations) {
+			if (status == TransactionSynchronization.STATUS_COMMITTED) {
+				synchronization.afterCommit();
+			}
+			synchronization.afterCompletion(status);
+		}
+	}
+
+	private static int[] inOtherThread(Callable<int[]> task) throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			return executor.submit(task).get();
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private void member(int conceptSetId, int memberId, boolean memberIsSet) {
+		rows.add(new Object[] { conceptSetId, memberId, memberIsSet });
+	}
+}
@@ -0,0 +1,150 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests {@link LocationHierarchyIndex}
+ */
+public class LocationHierarchyIndexTest {
+
+	private List<Object[]> locations;
+
+	private List<Object[]> tags;
+
+	private int loads;
+
+	private LocationHierarchyIndex index;
+
+	@Before
+	public void setUp() {
+		locations = new ArrayList<>();
+		tags = new ArrayList<>();
+		loads = 0;
+		index = new LocationHierarchyIndex(() -> {
+			loads++;
+			return locations;
+		}, () -> tags);
+		// 1 > {2 > {4, 5 (retired) > {6}}, 3}, 7
+		location(1, null, false);
+		location(2, 1, false);
+		location(3, 1, false);
+		location(4, 2, false);
+		location(5, 2, true);
+		location(6, 5, false);
+		location(7, null, false);
+		tag(10, 1);
+		tag(10, 4);
+		tag(10, 5);
+		tag(11, 4);
+		tag(11, 7);
+	}
+
+	/**
+	 * @see LocationHierarchyIndex#isInHierarchy(int, int)
+	 */
+	@Test
+	public void isInHierarchy_shouldReturnTrueForTheRootAndTheLocationsBelowIt() {
+		assertTrue(index.isInHierarchy(1, 1));
+		assertTrue(index.isInHierarchy(6, 1));
+		assertTrue(index.isInHierarchy(6, 2));
+		assertTrue(index.isInHierarchy(3, 1));
+		assertFalse(index.isInHierarchy(1, 6));
+		assertFalse(index.isInHierarchy(3, 2));
+		assertFalse(index.isInHierarchy(7, 1));
+		assertFalse(index.isInHierarchy(99, 1));
+		assertEquals(1, loads);
+	}
+
+	/**
+	 * @see LocationHierarchyIndex#getLocationIdsInHierarchy(int, boolean)
+	 */
+	@Test
+	public void getLocationIdsInHierarchy_shouldReturnTheLocationAndItsDescendants() {
+		assertArrayEquals(new int[] { 1, 2, 4, 5, 6, 3 }, index.getLocationIdsInHierarchy(1, true));
+		assertArrayEquals(new int[] { 2, 4, 5, 6 }, index.getLocationIdsInHierarchy(2, true));
+		assertArrayEquals(new int[] { 7 }, index.getLocationIdsInHierarchy(7, true));
+		assertArrayEquals(new int[0], index.getLocationIdsInHierarchy(99, true));
+	}
+
+	/**
+	 * @see LocationHierarchyIndex#getLocationIdsInHierarchy(int, boolean)
+	 */
+	@Test
+	public void getLocationIdsInHierarchy_shouldSkipRetiredLocationsAndTheirDescendants() {
+		assertArrayEquals(new int[] { 1, 2, 4, 3 }, index.getLocationIdsInHierarchy(1, false));
+		assertArrayEquals(new int[] { 5, 6 }, index.getLocationIdsInHierarchy(5, false));
+	}
+
+	/**
+	 * @see LocationHierarchyIndex#getLocationIdsInHierarchy(int, boolean)
+	 */
+	@Test
+	public void getLocationIdsInHierarchy_shouldNotLoopForeverOnCyclicParents() {
+		location(8, 9, false);
+		location(9, 8, false);
+
+		assertArrayEquals(new int[] { 8, 9 }, index.getLocationIdsInHierarchy(8, true));
+		assertTrue(index.isInHierarchy(9, 8));
+		assertFalse(index.isInHierarchy(8, 9));
+	}
+
+	/**
+	 * @see LocationHierarchyIndex#getLocationIdsHavingAllTags(int[])
+	 */
+	@Test
+	public void getLocationIdsHavingAllTags_shouldReturnUnretiredLocationsHavingEveryTag() {
+		assertArrayEquals(new int[] { 1, 4 }, index.getLocationIdsHavingAllTags(new int[] { 10 }));
+		assertArrayEquals(new int[] { 4 }, index.getLocationIdsHavingAllTags(new int[] { 10, 11 }));
+		assertArrayEquals(new int[0], index.getLocationIdsHavingAllTags(new int[] { 10, 12 }));
+	}
+
+	/**
+	 * @see LocationHierarchyIndex#getLocationIdsHavingAnyTag(int[])
+	 */
+	@Test
+	public void getLocationIdsHavingAnyTag_shouldReturnUnretiredLocationsHavingAnyTag() {
+		assertArrayEquals(new int[] { 1, 4, 7 }, index.getLocationIdsHavingAnyTag(new int[] { 10, 11 }));
+		assertArrayEquals(new int[] { 4, 7 }, index.getLocationIdsHavingAnyTag(new int[] { 11, 12 }));
+		assertArrayEquals(new int[0], index.getLocationIdsHavingAnyTag(new int[0]));
+	}
+
+	/**
+	 * @see LocationHierarchyIndex#invalidate()
+	 */
+	@Test
+	public void invalidate_shouldLoadTheIndexAgainWhenItIsNextUsed() {
+		assertFalse(index.isInHierarchy(3, 2));
+
+		locations.set(2, new Object[] { 3, 2, false });
+		index.invalidate();
+
+		assertTrue(index.isInHierarchy(3, 2));
+		assertEquals(2, loads);
+	}
+
+	private void location(int locationId, Integer parentLocationId, boolean retired) {
+		locations.add(new Object[] { locationId, parentLocationId, retired });
+	}
+
+	private void tag(int locationTagId, int locationId) {
+		tags.add(new Object[] { locationTagId, locationId });
+	}
+}
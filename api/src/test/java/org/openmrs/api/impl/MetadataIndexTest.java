@@ -0,0 +1,169 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.api.impl;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.CareSetting;
+import org.openmrs.Location;
+
+/**
+ * Tests {@link MetadataIndex}
+ */
+public class MetadataIndexTest {
+
+	private List<Object[]> rows;
+
+	private List<Object[]> conceptClasses;
+
+	private int loads;
+
+	private MetadataIndex index;
+
+	@Before
+	public void setUp() {
+		rows = new ArrayList<>();
+		conceptClasses = new ArrayList<>();
+		loads = 0;
+		index = new MetadataIndex(() -> {
+			loads++;
+			return rows;
+		}, () -> conceptClasses);
+		// 1 > {2 > {4}, 3 (retired) > {5}}
+		row(1, "uuid-1", "Order", false, null);
+		row(2, "uuid-2", "Drug Order", false, 1);
+		row(3, "uuid-3", "Test Order", true, 1);
+		row(4, "uuid-4", "Infusion", false, 2);
+		row(5, "uuid-5", "Lab Test", false, 3);
+		conceptClasses.add(new Object[] { 10, 2 });
+		conceptClasses.add(new Object[] { 11, 3 });
+		conceptClasses.add(new Object[] { 12, 4 });
+		conceptClasses.add(new Object[] { 12, 5 });
+	}
+
+	/**
+	 * @see MetadataIndex#getIdByUuid(String)
+	 */
+	@Test
+	public void getIdByUuid_shouldReturnTheIdOfTheMetadataWithTheUuid() {
+		assertEquals(Integer.valueOf(3), index.getIdByUuid("uuid-3"));
+		assertNull(index.getIdByUuid("unknown"));
+		assertNull(index.getIdByUuid(null));
+		assertEquals(1, loads);
+	}
+
+	/**
+	 * @see MetadataIndex#getIdByName(String, boolean)
+	 */
+	@Test
+	public void getIdByName_shouldExcludeRetiredMetadataIfAsked() {
+		assertEquals(Integer.valueOf(3), index.getIdByName("Test Order", true));
+		assertNull(index.getIdByName("Test Order", false));
+		assertNull(index.getIdByName("test order", true));
+	}
+
+	/**
+	 * @see MetadataIndex#getIdByNameIgnoreCase(String)
+	 */
+	@Test
+	public void getIdByNameIgnoreCase_shouldLeaveOutNamesThatAreNotUnique() {
+		row(6, "uuid-6", "DRUG ORDER", false, null);
+
+		assertEquals(Integer.valueOf(4), index.getIdByNameIgnoreCase("infusion"));
+		assertNull(index.getIdByNameIgnoreCase("drug order"));
+		assertEquals(Integer.valueOf(2), index.getIdByName("Drug Order", true));
+	}
+
+	/**
+	 * @see MetadataIndex#getIdByConceptClass(int)
+	 */
+	@Test
+	public void getIdByConceptClass_shouldReturnTheIdMappedToTheConceptClass() {
+		assertEquals(Integer.valueOf(2), index.getIdByConceptClass(10));
+		assertNull(index.getIdByConceptClass(12));
+		assertNull(index.getIdByConceptClass(13));
+	}
+
+	/**
+	 * @see MetadataIndex#isConceptClassMapped(int)
+	 */
+	@Test
+	public void isConceptClassMapped_shouldReturnTrueForUniqueAndAmbiguousMappingsOnly() {
+		assertTrue(index.isConceptClassMapped(10));
+		assertTrue(index.isConceptClassMapped(12));
+		assertFalse(index.isConceptClassMapped(13));
+		assertEquals(1, loads);
+	}
+
+	/**
+	 * @see MetadataIndex#invalidateIndexesOf(Object)
+	 */
+	@Test
+	public void invalidateIndexesOf_shouldDiscardTheIndexesRegisteredForTheTypeOfTheObject() {
+		index.invalidateOnChangeOf(CareSetting.class);
+		long version = index.getVersion();
+
+		MetadataIndex.invalidateIndexesOf(new Location());
+		assertEquals(version, index.getVersion());
+
+		MetadataIndex.invalidateIndexesOf(new CareSetting());
+		assertNotEquals(version, index.getVersion());
+		assertEquals(2, loads);
+	}
+
+	/**
+	 * @see MetadataIndex#getDescendantIds(int, boolean)
+	 */
+	@Test
+	public void getDescendantIds_shouldReturnTheDescendantsLevelByLevel() {
+		assertArrayEquals(new int[] { 2, 3, 4, 5 }, index.getDescendantIds(1, true));
+		assertArrayEquals(new int[] { 2, 4 }, index.getDescendantIds(1, false));
+		assertArrayEquals(new int[0], index.getDescendantIds(4, true));
+	}
+
+	/**
+	 * @see MetadataIndex#invalidate()
+	 */
+	@Test
+	public void invalidate_shouldLoadANewVersionWhenTheIndexIsNextUsed() {
+		long version = index.getVersion();
+		row(6, "uuid-6", "Radiology Order", false, 1);
+
+		index.invalidate();
+
+		assertNotEquals(version, index.getVersion());
+		assertArrayEquals(new int[] { 2, 3, 6, 4, 5 }, index.getDescendantIds(1, true));
+		assertEquals(2, loads);
+	}
+
+	/**
+	 * @see MetadataIndex#lookup(Integer, java.util.function.Function, java.util.function.Supplier)
+	 */
+	@Test
+	public void lookup_shouldFallBackToTheQueryWhenTheIdIsNotKnown() {
+		assertEquals("by id 1", MetadataIndex.lookup(1, id -> "by id " + id, () -> "by query"));
+		assertEquals("by query", MetadataIndex.lookup(null, id -> "by id " + id, () -> "by query"));
+		assertEquals("by query", MetadataIndex.lookup(1, id -> null, () -> "by query"));
+	}
+
+	private void row(int id, String uuid, String name, boolean retired, Integer parentId) {
+		rows.add(new Object[] { id, uuid, name, retired, parentId });
+	}
+}
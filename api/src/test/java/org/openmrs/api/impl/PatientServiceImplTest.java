@@ -17,6 +17,7 @@ import static org.mockito.Matchers.anyList;
 import static org.mockito.Matchers.anyString;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -49,6 +50,8 @@ import org.openmrs.api.ObsService;
 import org.openmrs.api.PatientServiceTest;
 import org.openmrs.api.context.UserContext;
 import org.openmrs.api.db.PatientDAO;
+import org.openmrs.patient.DuplicatePatientCandidate;
+import org.openmrs.patient.DuplicatePatientMatch;
 import org.openmrs.test.BaseContextMockTest;
 
 /**
@@ -313,6 +316,38 @@ public class PatientServiceImplTest extends BaseContextMockTest {
 		assertEquals(causeOfDeath, savedPatient.getCauseOfDeath());
 	}
 
+	@Test
+	public void getDuplicatePatientMatches_shouldReturnScoredPairsOfLikelyDuplicatePatients() {
+		Date birthdate = new Date();
+		when(patientDaoMock.getDuplicatePatientCandidates()).thenReturn(Arrays.asList(
+		    new DuplicatePatientCandidate(1, "F", birthdate, "Jane", null, "Doe", birthdate),
+		    new DuplicatePatientCandidate(2, "F", birthdate, "Jane", null, "Doe", birthdate),
+		    new DuplicatePatientCandidate(3, "M", birthdate, "Jack", null, "Smith", birthdate)));
+
+		List<DuplicatePatientMatch> matches = patientService.getDuplicatePatientMatches(null, 0, 10);
+
+		assertEquals(1, matches.size());
+		assertEquals(Integer.valueOf(1), matches.get(0).getPatientId());
+		assertEquals(Integer.valueOf(2), matches.get(0).getOtherPatientId());
+	}
+
+	@Test
+	public void getDuplicatePatientMatches_shouldOnlyLoadPatientsSharingAFamilyNameInitialWithNewPatients() {
+		Date birthdate = new Date();
+		Date registeredSince = new Date(birthdate.getTime() - 1000);
+		DuplicatePatientCandidate newPatient = new DuplicatePatientCandidate(2, "F", birthdate, "Jane", null, "Doe",
+		        birthdate);
+		when(patientDaoMock.getDuplicatePatientCandidates(registeredSince)).thenReturn(Arrays.asList(newPatient));
+		when(patientDaoMock.getDuplicatePatientCandidatesByFamilyNameInitials(Collections.singleton("D"))).thenReturn(
+		    Arrays.asList(new DuplicatePatientCandidate(1, "F", birthdate, "Jane", null, "Doe", new Date(0)), newPatient));
+
+		List<DuplicatePatientMatch> matches = patientService.getDuplicatePatientMatches(registeredSince, 0, 10);
+
+		assertEquals(1, matches.size());
+		assertEquals(Integer.valueOf(1), matches.get(0).getPatientId());
+		verify(patientDaoMock, never()).getDuplicatePatientCandidates();
+	}
+
 	private PatientIdentifier createVoidedPatientIdentifier() {
 		PatientIdentifier patientIdentifier = new PatientIdentifier();
 		patientIdentifier.setIdentifierType(mock(PatientIdentifierType.class));
@@ -0,0 +1,104 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.messagesource.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Locale;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link MutableResourceBundleMessageSource}.
+ */
+public class MutableResourceBundleMessageSourceTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private MutableResourceBundleMessageSource messageSource;
+	
+	@Before
+	public void setUp() throws IOException {
+		write("messages.properties", "greeting=Hello\nfarewell=Goodbye\nwelcome=Welcome {0}\n");
+		write("messages_fr.properties", "greeting=Bonjour\n");
+		write("extra.properties", "greeting=Hi\nextra=Extra\n");
+		
+		messageSource = new MutableResourceBundleMessageSource();
+		messageSource.setDefaultEncoding("UTF-8");
+		messageSource.setFallbackToSystemLocale(false);
+		messageSource.setBasenames(basename("messages"), basename("extra"));
+	}
+	
+	/**
+	 * @see MutableResourceBundleMessageSource#resolveCodeWithoutArguments(String,Locale)
+	 */
+	@Test
+	public void resolveCodeWithoutArguments_shouldPreferMoreSpecificLocalesAndEarlierBasenames() {
+		assertEquals("Bonjour", messageSource.getMessage("greeting", null, Locale.FRENCH));
+		assertEquals("Hello", messageSource.getMessage("greeting", null, Locale.ENGLISH));
+		assertEquals("Goodbye", messageSource.getMessage("farewell", null, Locale.FRENCH));
+		assertEquals("Extra", messageSource.getMessage("extra", null, Locale.FRENCH));
+		assertEquals("missing", messageSource.getMessage("missing", null, "missing", Locale.FRENCH));
+	}
+	
+	/**
+	 * @see MutableResourceBundleMessageSource#resolveCode(String,Locale)
+	 */
+	@Test
+	public void resolveCode_shouldFormatTheMessageWithTheArguments() {
+		assertEquals("Welcome Jane", messageSource.getMessage("welcome", new Object[] { "Jane" }, Locale.ENGLISH));
+		assertEquals("Welcome John", messageSource.getMessage("welcome", new Object[] { "John" }, Locale.ENGLISH));
+	}
+	
+	/**
+	 * @see MutableResourceBundleMessageSource#resolveCodeWithoutArguments(String,Locale)
+	 */
+	@Test
+	public void resolveCodeWithoutArguments_shouldPickUpChangedPropertiesFiles() throws IOException {
+		messageSource.setCacheSeconds(0);
+		assertEquals("Bonjour", messageSource.getMessage("greeting", null, Locale.FRENCH));
+		
+		File file = write("messages_fr.properties", "greeting=Salut\n");
+		file.setLastModified(file.lastModified() + 10000);
+		
+		assertEquals("Salut", messageSource.getMessage("greeting", null, Locale.FRENCH));
+	}
+	
+	/**
+	 * @see MutableResourceBundleMessageSource#setBasenames(String...)
+	 */
+	@Test
+	public void setBasenames_shouldDiscardTheMergedMessages() {
+		assertEquals("Hello", messageSource.getMessage("greeting", null, Locale.ENGLISH));
+		
+		messageSource.setBasenames(basename("extra"));
+		
+		assertEquals("Hi", messageSource.getMessage("greeting", null, Locale.ENGLISH));
+		assertEquals("farewell", messageSource.getMessage("farewell", null, "farewell", Locale.ENGLISH));
+	}
+	
+	private File write(String filename, String content) throws IOException {
+		File file = new File(folder.getRoot(), filename);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+	
+	private String basename(String name) {
+		return "file:" + new File(folder.getRoot(), name).getAbsolutePath();
+	}
+}
@@ -11,9 +11,12 @@ package org.openmrs.module;
 
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.net.MalformedURLException;
 import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -265,4 +268,29 @@ public class ModuleClassLoaderTest extends BaseContextSensitiveTest {
 		
 		assertThat(result, is(true));
 	}
+	
+	/**
+	 * @see ModuleClassLoader#loadClass(String, boolean, ModuleClassLoader, java.util.Set)
+	 */
+	@Test
+	public void loadClass_shouldNotSearchTheModuleAgainForAClassThatWasNotFound() throws Exception {
+		ModuleClassLoader loader = new ModuleClassLoader(mockModule, new ArrayList<URL>(), getClass().getClassLoader());
+		String name = "org.openmrs.module.mockmodule.DoesNotExist";
+		
+		assertClassNotFound(loader, name);
+		long negativeCacheHits = ClassLoadingStatistics.getNegativeCacheHits();
+		assertClassNotFound(loader, name);
+		
+		assertThat(ClassLoadingStatistics.getNegativeCacheHits(), is(negativeCacheHits + 1));
+	}
+	
+	private void assertClassNotFound(ModuleClassLoader loader, String name) {
+		try {
+			loader.loadClass(name, false, loader, null);
+			fail("Class should not have been found: " + name);
+		}
+		catch (ClassNotFoundException e) {
+			assertThat(e.getMessage(), is(name));
+		}
+	}
 }
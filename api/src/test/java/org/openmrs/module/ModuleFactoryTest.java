@@ -11,6 +11,7 @@ package org.openmrs.module;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.AfterClass;
@@ -173,6 +174,41 @@ public class ModuleFactoryTest extends BaseContextSensitiveTest {
 		Assert.assertFalse(test3.isStarted());
 	}
 	
+	/**
+	 * @see ModuleFactory#getStartupWaves(List)
+	 */
+	@Test
+	public void getStartupWaves_shouldPutModulesAfterTheModulesTheyDependOn() throws Exception {
+		ModuleFactory.unloadModule(ModuleFactory.getModuleById(MODULE1));
+		ModuleFactory.loadModules(getModuleFiles());
+		
+		Module test1 = ModuleFactory.getModuleById(MODULE1);
+		Module test2 = ModuleFactory.getModuleById(MODULE2);
+		Module test3 = ModuleFactory.getModuleById(MODULE3);
+		
+		List<List<Module>> waves = ModuleFactory.getStartupWaves(ModuleFactory.getModulesInStartupOrder(Arrays.asList(
+		    test3, test2, test1)));
+		
+		Assert.assertEquals(2, waves.size());
+		Assert.assertEquals(Arrays.asList(test1), waves.get(0));
+		Assert.assertEquals(2, waves.get(1).size());
+		Assert.assertTrue(waves.get(1).containsAll(Arrays.asList(test2, test3)));
+	}
+	
+	@Test
+	public void startModules_shouldStartModulesInWavesAndRecordTheirStartupTimes() {
+		ModuleFactory.unloadModule(ModuleFactory.getModuleById(MODULE1));
+		ModuleFactory.loadModules(getModuleFiles());
+		
+		ModuleFactory.startModules();
+		
+		Assert.assertNotNull(ModuleFactory.getStartedModuleById(MODULE1));
+		Assert.assertNotNull(ModuleFactory.getStartedModuleById(MODULE2));
+		Assert.assertNotNull(ModuleFactory.getStartedModuleById(MODULE3));
+		Assert.assertEquals(3, ModuleFactory.getModuleStartupTimes().size());
+		Assert.assertEquals(MODULE1, ModuleFactory.getModuleStartupTimes().keySet().iterator().next());
+	}
+	
 	private Module loadModule(String location, String moduleName, boolean replace) {
 		String moduleLocation = ModuleUtil.class.getClassLoader().getResource(location).getPath();
 
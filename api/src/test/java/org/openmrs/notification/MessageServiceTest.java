@@ -11,11 +11,23 @@ package org.openmrs.notification;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Before;
 import org.junit.Test;
 import org.openmrs.api.context.Context;
+import org.openmrs.notification.impl.MessageDeliveryQueue;
+import org.openmrs.notification.impl.MessageServiceImpl;
 import org.openmrs.test.BaseContextSensitiveTest;
+import org.openmrs.util.OpenmrsConstants;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Unit tests for the MessageService.
@@ -113,4 +125,27 @@ public class MessageServiceTest extends BaseContextSensitiveTest {
 		}
 	}
 	
+	/**
+	 * @see MessageService#sendMessage(Message)
+	 */
+	@Test
+	public void sendMessage_shouldQueueTheMessageOnlyAfterTheTransactionCommits() throws Exception {
+		Context.getAdministrationService().setGlobalProperty(OpenmrsConstants.GP_MAIL_QUEUE_ENABLED, "true");
+		MessageDeliveryQueue queue = mock(MessageDeliveryQueue.class);
+		when(queue.isStarted()).thenReturn(true);
+		MessageServiceImpl service = new MessageServiceImpl();
+		service.setDeliveryQueue(queue);
+		Message message = ms.createMessage("recipient@example.com", "sender@example.com", "subject", "content");
+		List<TransactionSynchronization> before = new ArrayList<>(TransactionSynchronizationManager.getSynchronizations());
+		
+		service.sendMessage(message);
+		
+		verify(queue, never()).add(message);
+		for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if (!before.contains(synchronization)) {
+				synchronization.afterCommit();
+			}
+		}
+		verify(queue).add(message);
+	}
 }
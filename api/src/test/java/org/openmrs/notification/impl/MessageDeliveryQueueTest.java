@@ -0,0 +1,216 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.notification.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.openmrs.notification.Message;
+import org.openmrs.notification.MessageException;
+import org.openmrs.notification.MessageSender;
+
+public class MessageDeliveryQueueTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	private TestSender sender;
+	
+	private MessageDeliveryQueue queue;
+	
+	@Before
+	public void before() {
+		sender = new TestSender();
+		queue = createQueue();
+	}
+	
+	@After
+	public void after() {
+		queue.shutdown();
+	}
+	
+	/**
+	 * @see MessageDeliveryQueue#add(Message)
+	 */
+	@Test
+	public void add_shouldDeliverTheMessageInTheBackground() throws Exception {
+		queue.start(folder.getRoot());
+		queue.add(new Message(null, "one@example.com", "sender@example.com", "subject", "content"));
+		
+		waitFor(() -> queue.getDeliveredCount() == 1 && queue.getQueueDepth() == 0);
+		assertEquals(1, sender.sent.size());
+		assertEquals(0, new File(folder.getRoot(), "outbox").list().length);
+	}
+	
+	/**
+	 * @see MessageDeliveryQueue#add(Message)
+	 */
+	@Test
+	public void add_shouldSplitMessagesWithMoreRecipientsThanTheMaximum() throws Exception {
+		queue.setMaxRecipients(2);
+		queue.start(folder.getRoot());
+		queue.add(new Message(null, ",one@example.com,two@example.com,three@example.com", "sender@example.com",
+		        "subject", "content"));
+		
+		waitFor(() -> queue.getDeliveredCount() == 2);
+		assertEquals(2, sender.sent.size());
+		assertTrue(sender.sent.stream().anyMatch(m -> m.getRecipients().equals("one@example.com,two@example.com")));
+		assertTrue(sender.sent.stream().anyMatch(m -> m.getRecipients().equals("three@example.com")));
+	}
+	
+	/**
+	 * @see MessageDeliveryQueue#add(Message)
+	 */
+	@Test(expected = MessageException.class)
+	public void add_shouldFailForAMessageWithoutRecipients() throws Exception {
+		queue.start(folder.getRoot());
+		queue.add(new Message());
+	}
+	
+	/**
+	 * @see MessageDeliveryQueue#add(Message)
+	 */
+	@Test
+	public void add_shouldRetryMessagesThatCouldNotBeDelivered() throws Exception {
+		sender.failures.set(2);
+		queue.start(folder.getRoot());
+		queue.add(new Message(null, "one@example.com", "sender@example.com", "subject", "content"));
+		
+		waitFor(() -> queue.getDeliveredCount() == 1);
+		assertEquals(2, queue.getRetryCount());
+		assertEquals(0, queue.getDeadLetterCount());
+	}
+	
+	/**
+	 * @see MessageDeliveryQueue#add(Message)
+	 */
+	@Test
+	public void add_shouldMoveMessagesToTheDeadLettersAfterTheLastAttempt() throws Exception {
+		sender.failures.set(Integer.MAX_VALUE);
+		queue.setMaxAttempts(2);
+		queue.start(folder.getRoot());
+		queue.add(new Message(null, "one@example.com", "sender@example.com", "subject", "content"));
+		
+		waitFor(() -> queue.getDeadLetterCount() == 1);
+		assertEquals(0, queue.getDeliveredCount());
+		assertEquals(1, queue.getRetryCount());
+		assertEquals(0, new File(folder.getRoot(), "outbox").list().length);
+	}
+	
+	/**
+	 * @see MessageDeliveryQueue#retryDeadLetters()
+	 */
+	@Test
+	public void retryDeadLetters_shouldQueueDeadLetteredMessagesAgain() throws Exception {
+		sender.failures.set(1);
+		queue.setMaxAttempts(1);
+		queue.start(folder.getRoot());
+		queue.add(new Message(null, "one@example.com", "sender@example.com", "subject", "content"));
+		waitFor(() -> queue.getDeadLetterCount() == 1);
+		
+		assertEquals(1, queue.retryDeadLetters());
+		
+		waitFor(() -> queue.getDeliveredCount() == 1);
+		assertEquals(0, queue.getDeadLetterCount());
+	}
+	
+	/**
+	 * @see MessageDeliveryQueue#start(File)
+	 */
+	@Test
+	public void start_shouldDeliverTheMessagesLeftInTheOutbox() throws Exception {
+		sender.failures.set(Integer.MAX_VALUE);
+		queue.setRetryDelay(TimeUnit.HOURS.toMillis(1));
+		queue.start(folder.getRoot());
+		queue.add(new Message(null, "one@example.com", "sender@example.com", "subject", "content"));
+		waitFor(() -> queue.getRetryCount() == 1);
+		queue.shutdown();
+		
+		sender.failures.set(0);
+		queue = createQueue();
+		queue.start(folder.getRoot());
+		
+		waitFor(() -> queue.getDeliveredCount() == 1);
+		assertEquals("subject", sender.sent.get(0).getSubject());
+	}
+	
+	/**
+	 * @see MessageDeliveryQueue#start(File)
+	 */
+	@Test
+	public void start_shouldMoveOutboxFilesWithClassesOtherThanQueuedMessagesToTheDeadLetters() throws Exception {
+		File outbox = new File(folder.getRoot(), "outbox");
+		assertTrue(outbox.mkdirs());
+		try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(new File(outbox, "other.msg")))) {
+			out.writeObject(new HashMap<>());
+		}
+		
+		queue.start(folder.getRoot());
+		
+		assertEquals(0, queue.getQueueDepth());
+		assertEquals(0, outbox.list().length);
+		assertTrue(new File(folder.getRoot(), "dead/other.msg.unreadable").exists());
+	}
+	
+	private MessageDeliveryQueue createQueue() {
+		MessageDeliveryQueue queue = new MessageDeliveryQueue() {
+			
+			@Override
+			Map<Integer, MessageException> send(MessageSender sender, List<Message> messages) {
+				// no session is needed by the test sender
+				return sender.sendAll(messages);
+			}
+		};
+		queue.setMessageSender(sender);
+		queue.setRetryDelay(10);
+		return queue;
+	}
+	
+	private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+		long end = System.currentTimeMillis() + 10000;
+		while (!condition.getAsBoolean()) {
+			if (System.currentTimeMillis() > end) {
+				throw new AssertionError("Timed out waiting for the queue");
+			}
+			Thread.sleep(10);
+		}
+	}
+	
+	private static class TestSender implements MessageSender {
+		
+		private final List<Message> sent = new CopyOnWriteArrayList<>();
+		
+		private final AtomicInteger failures = new AtomicInteger();
+		
+		@Override
+		public void send(Message message) throws MessageException {
+			if (failures.getAndDecrement() > 0) {
+				throw new MessageException("Unable to connect");
+			}
+			sent.add(message);
+		}
+	}
+}
@@ -0,0 +1,167 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.notification.mail;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A minimal SMTP server on a free local port that keeps the messages it receives in memory, to
+ * test mail delivery without a real mail server. Recipients starting with "reject" are refused.
+ */
+public class LocalSmtpServer implements Closeable {
+	
+	private final ServerSocket serverSocket;
+	
+	private final List<ReceivedMessage> messages = new CopyOnWriteArrayList<>();
+	
+	private final AtomicInteger connections = new AtomicInteger();
+	
+	public LocalSmtpServer() throws IOException {
+		serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+		Thread thread = new Thread(this::accept, "local-smtp-server");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	public String getHost() {
+		return serverSocket.getInetAddress().getHostAddress();
+	}
+	
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+	
+	/**
+	 * @return the messages received so far
+	 */
+	public List<ReceivedMessage> getMessages() {
+		return messages;
+	}
+	
+	/**
+	 * @return the number of connections accepted so far
+	 */
+	public int getConnectionCount() {
+		return connections.get();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		serverSocket.close();
+	}
+	
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			try (Socket socket = serverSocket.accept()) {
+				connections.incrementAndGet();
+				converse(socket);
+			}
+			catch (IOException e) {
+				// closed
+			}
+		}
+	}
+	
+	private void converse(Socket socket) throws IOException {
+		BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+		Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+		reply(out, "220 localhost");
+		String sender = null;
+		List<String> recipients = new ArrayList<>();
+		String line;
+		while ((line = in.readLine()) != null) {
+			String command = line.toUpperCase();
+			if (command.startsWith("HELO") || command.startsWith("EHLO")) {
+				reply(out, "250 localhost");
+			} else if (command.startsWith("MAIL FROM:")) {
+				sender = getAddress(line);
+				recipients = new ArrayList<>();
+				reply(out, "250 OK");
+			} else if (command.startsWith("RCPT TO:")) {
+				String recipient = getAddress(line);
+				if (recipient.startsWith("reject")) {
+					reply(out, "550 No such user");
+				} else {
+					recipients.add(recipient);
+					reply(out, "250 OK");
+				}
+			} else if (command.equals("DATA")) {
+				reply(out, "354 End data with <CR><LF>.<CR><LF>");
+				StringBuilder data = new StringBuilder();
+				while ((line = in.readLine()) != null && !line.equals(".")) {
+					data.append(line.startsWith("..") ? line.substring(1) : line).append("\r\n");
+				}
+				messages.add(new ReceivedMessage(sender, recipients, data.toString()));
+				reply(out, "250 OK");
+			} else if (command.equals("QUIT")) {
+				reply(out, "221 Bye");
+				return;
+			} else if (command.equals("RSET") || command.equals("NOOP")) {
+				reply(out, "250 OK");
+			} else {
+				reply(out, "502 Command not implemented");
+			}
+		}
+	}
+	
+	private static void reply(Writer out, String reply) throws IOException {
+		out.write(reply + "\r\n");
+		out.flush();
+	}
+	
+	private static String getAddress(String line) {
+		String address = line.substring(line.indexOf(':') + 1).trim();
+		int end = address.indexOf('>');
+		return address.startsWith("<") && end > 0 ? address.substring(1, end) : address;
+	}
+	
+	public static class ReceivedMessage {
+		
+		private final String sender;
+		
+		private final List<String> recipients;
+		
+		private final String data;
+		
+		ReceivedMessage(String sender, List<String> recipients, String data) {
+			this.sender = sender;
+			this.recipients = recipients;
+			this.data = data;
+		}
+		
+		public String getSender() {
+			return sender;
+		}
+		
+		public List<String> getRecipients() {
+			return recipients;
+		}
+		
+		/**
+		 * @return the headers and body of the message
+		 */
+		public String getData() {
+			return data;
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.notification.mail;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.mail.Session;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.notification.Message;
+import org.openmrs.notification.MessageException;
+
+public class MailMessageSenderTest {
+	
+	private LocalSmtpServer server;
+	
+	private MailMessageSender sender;
+	
+	@Before
+	public void before() throws Exception {
+		server = new LocalSmtpServer();
+		Properties props = new Properties();
+		props.setProperty("mail.transport.protocol", "smtp");
+		props.setProperty("mail.smtp.host", server.getHost());
+		props.setProperty("mail.smtp.port", String.valueOf(server.getPort()));
+		sender = new MailMessageSender(Session.getInstance(props));
+	}
+	
+	@After
+	public void after() throws Exception {
+		server.close();
+	}
+	
+	/**
+	 * @see MailMessageSender#send(Message)
+	 */
+	@Test
+	public void send_shouldSendTheMessageToTheMailServer() throws Exception {
+		sender.send(createMessage("recipient@example.com", "subject"));
+		
+		assertEquals(1, server.getMessages().size());
+		LocalSmtpServer.ReceivedMessage received = server.getMessages().get(0);
+		assertEquals("sender@example.com", received.getSender());
+		assertEquals(Arrays.asList("recipient@example.com"), received.getRecipients());
+		assertTrue(received.getData().contains("Subject: subject"));
+	}
+	
+	/**
+	 * @see MailMessageSender#sendAll(java.util.List)
+	 */
+	@Test
+	public void sendAll_shouldSendAllMessagesOverOneConnection() throws Exception {
+		Map<Integer, MessageException> failures = sender.sendAll(Arrays.asList(createMessage("one@example.com", "one"),
+		    createMessage("two@example.com,three@example.com", "two")));
+		
+		assertTrue(failures.isEmpty());
+		assertEquals(1, server.getConnectionCount());
+		assertEquals(2, server.getMessages().size());
+		assertEquals(Arrays.asList("two@example.com", "three@example.com"), server.getMessages().get(1).getRecipients());
+	}
+	
+	/**
+	 * @see MailMessageSender#sendAll(java.util.List)
+	 */
+	@Test
+	public void sendAll_shouldSendTheOtherMessagesIfOneFails() throws Exception {
+		Map<Integer, MessageException> failures = sender.sendAll(Arrays.asList(createMessage("one@example.com", "one"),
+		    createMessage("rejected@example.com", "two"), createMessage("three@example.com", "three")));
+		
+		assertEquals(1, failures.size());
+		assertTrue(failures.containsKey(1));
+		assertEquals(2, server.getMessages().size());
+		assertTrue(server.getMessages().get(1).getData().contains("Subject: three"));
+	}
+	
+	private Message createMessage(String recipients, String subject) {
+		return new Message(null, recipients, "sender@example.com", subject, "content", "text/plain");
+	}
+}
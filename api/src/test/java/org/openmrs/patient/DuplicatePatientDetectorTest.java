@@ -0,0 +1,249 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.patient;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Tests the {@link DuplicatePatientDetector}
+ */
+public class DuplicatePatientDetectorTest {
+
+	private static final Date OLD = date("2010-01-01");
+
+	private static final Date NEW = date("2018-06-01");
+
+	private DuplicatePatientDetector detector = new DuplicatePatientDetector();
+
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Collection, Date)
+	 */
+	@Test
+	public void findDuplicates_shouldFindPatientsWithTheSameNamesGenderAndBirthdate() {
+		List<DuplicatePatientMatch> matches = detector.findDuplicates(Arrays.asList(
+		    candidate(1, "John", "Doe", "1980-03-04", OLD), candidate(2, "John", "Doe", "1980-03-04", OLD),
+		    candidate(3, "Mary", "Smith", "1975-01-01", OLD)), null);
+
+		assertEquals(1, matches.size());
+		assertEquals(Integer.valueOf(1), matches.get(0).getPatientId());
+		assertEquals(Integer.valueOf(2), matches.get(0).getOtherPatientId());
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Collection, Date)
+	 */
+	@Test
+	public void findDuplicates_shouldNotMatchPatientsWithDifferentNames() {
+		List<DuplicatePatientMatch> matches = detector.findDuplicates(Arrays.asList(
+		    candidate(1, "John", "Doe", "1980-03-04", OLD), candidate(2, "Peter", "Doe", "1980-03-04", OLD)), null);
+
+		assertTrue(matches.isEmpty());
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Collection, Date)
+	 */
+	@Test
+	public void findDuplicates_shouldOnlyCompareNewPatientsWhenRegisteredSinceIsGiven() {
+		List<DuplicatePatientMatch> matches = detector.findDuplicates(Arrays.asList(
+		    candidate(1, "John", "Doe", "1980-03-04", OLD), candidate(2, "John", "Doe", "1980-03-04", OLD),
+		    candidate(3, "Mary", "Smith", "1975-01-01", OLD), candidate(4, "Mary", "Smith", "1975-01-01", NEW)),
+		    date("2018-01-01"));
+
+		assertEquals(1, matches.size());
+		assertEquals(Integer.valueOf(3), matches.get(0).getPatientId());
+		assertEquals(Integer.valueOf(4), matches.get(0).getOtherPatientId());
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Collection, Date)
+	 */
+	@Test
+	public void findDuplicates_shouldReportEachPairOnlyOnce() {
+		// both patients share both blocking keys and the first one has two names
+		List<DuplicatePatientMatch> matches = detector.findDuplicates(Arrays.asList(
+		    candidate(1, "John", "Doe", "1980-03-04", OLD), candidate(1, "Jon", "Doe", "1980-03-04", OLD),
+		    candidate(2, "John", "Doe", "1980-03-04", OLD)), null);
+
+		assertEquals(1, matches.size());
+		assertEquals(1.0, matches.get(0).getScore(), 0.0001);
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Collection, Date)
+	 */
+	@Test
+	public void findDuplicates_shouldCompareOversizedBlocksSplitByASecondaryKey() {
+		DuplicatePatientDetector smallBlocks = new DuplicatePatientDetector(DuplicatePatientDetector.DEFAULT_THRESHOLD, 2);
+
+		List<DuplicatePatientMatch> matches = smallBlocks.findDuplicates(Arrays.asList(
+		    candidate(1, "John", "Doe", "1980-03-04", OLD), candidate(2, "John", "Doe", "1980-03-04", OLD),
+		    candidate(3, "Mary", "Doe", "1980-05-06", OLD)), null);
+
+		assertEquals(1, matches.size());
+		assertEquals(Integer.valueOf(1), matches.get(0).getPatientId());
+		assertEquals(Integer.valueOf(2), matches.get(0).getOtherPatientId());
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Collection, Date, Integer, Integer)
+	 */
+	@Test
+	public void findDuplicates_shouldStopComparingBlocksOnceThePageIsFilled() {
+		final AtomicInteger comparisons = new AtomicInteger();
+		DuplicatePatientDetector countingDetector = new DuplicatePatientDetector() {
+
+			@Override
+			public double score(DuplicatePatientCandidate a, DuplicatePatientCandidate b) {
+				comparisons.incrementAndGet();
+				return super.score(a, b);
+			}
+		};
+
+		List<DuplicatePatientMatch> page = countingDetector.findDuplicates(getCandidatesInThreeBlocks(), null, 0, 1);
+
+		assertEquals(1, page.size());
+		// the family name block of the Browns comes first
+		assertEquals(Integer.valueOf(5), page.get(0).getPatientId());
+		assertEquals(1, comparisons.get());
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#findDuplicates(java.util.Collection, Date, Integer, Integer)
+	 */
+	@Test
+	public void findDuplicates_shouldReturnTheSameMatchesByPageAsInOneList() {
+		List<DuplicatePatientMatch> all = detector.findDuplicates(getCandidatesInThreeBlocks(), null);
+
+		List<DuplicatePatientMatch> pages = new ArrayList<>();
+		for (int start = 0; start < all.size(); start++) {
+			pages.addAll(detector.findDuplicates(getCandidatesInThreeBlocks(), null, start, 1));
+		}
+
+		assertEquals(3, all.size());
+		assertEquals(all, pages);
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#score(DuplicatePatientCandidate, DuplicatePatientCandidate)
+	 */
+	@Test
+	public void score_shouldReturnOneForIdenticalCandidates() {
+		assertEquals(1.0, detector.score(candidate(1, "John", "Doe", "1980-03-04", OLD), candidate(2, "John", "Doe",
+		    "1980-03-04", OLD)), 0.0001);
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#score(DuplicatePatientCandidate, DuplicatePatientCandidate)
+	 */
+	@Test
+	public void score_shouldGivePartialCreditForNamesThatSoundAlike() {
+		double score = detector.score(candidate(1, "John", "Smith", "1980-03-04", OLD), candidate(2, "John", "Smyth",
+		    "1980-03-04", OLD));
+
+		assertTrue(score < 1.0);
+		assertTrue(score >= DuplicatePatientDetector.DEFAULT_THRESHOLD);
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#getBlockingKeys(DuplicatePatientCandidate)
+	 */
+	@Test
+	public void getBlockingKeys_shouldReturnKeysThatAreEqualForNamesThatSoundAlike() {
+		assertEquals(detector.getBlockingKeys(candidate(1, "Robert", "Smith", "1980-03-04", OLD)), detector
+		        .getBlockingKeys(candidate(2, "Rupert", "Smyth", "1980-12-24", OLD)));
+		assertEquals("R163", DuplicatePatientDetector.soundex("Robert"));
+		assertEquals("A261", DuplicatePatientDetector.soundex("Ashcraft"));
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#getFamilyNameInitials(java.util.Collection)
+	 */
+	@Test
+	public void getFamilyNameInitials_shouldReturnTheInitialsOfTheFamilyNamesThatSoundAlike() {
+		Set<String> initials = detector.getFamilyNameInitials(Arrays.asList(candidate(1, "John", "doe", "1980-03-04",
+		    NEW), candidate(2, "Mary", "'t Hooft", "1975-01-01", NEW), candidate(3, "Jane", null, "1975-01-01", NEW)));
+
+		assertEquals(new TreeSet<>(Arrays.asList("D", "T")), initials);
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#score(DuplicatePatientCandidate, DuplicatePatientCandidate)
+	 */
+	@Test
+	public void score_shouldCompareBirthdatesLoadedFromTheDatabaseAsCalendarDates() {
+		DuplicatePatientCandidate loaded = new DuplicatePatientCandidate(1, "M", java.sql.Date.valueOf("1980-03-04"),
+		        "John", null, "Doe", OLD);
+
+		assertEquals(1.0, detector.score(loaded, candidate(2, "John", "Doe", "1980-03-04", OLD)), 0.0001);
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#getPage(List, Integer, Integer)
+	 */
+	@Test
+	public void getPage_shouldReturnTheRequestedPage() {
+		List<DuplicatePatientMatch> matches = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			matches.add(new DuplicatePatientMatch(i, i + 10, 1.0));
+		}
+
+		List<DuplicatePatientMatch> page = DuplicatePatientDetector.getPage(matches, 1, 2);
+
+		assertEquals(2, page.size());
+		assertEquals(matches.get(1), page.get(0));
+		assertEquals(matches.get(2), page.get(1));
+		assertEquals(5, DuplicatePatientDetector.getPage(matches, null, null).size());
+	}
+
+	/**
+	 * @see DuplicatePatientDetector#getPage(List, Integer, Integer)
+	 */
+	@Test
+	public void getPage_shouldReturnAnEmptyListWhenStartIsBeyondTheEnd() {
+		List<DuplicatePatientMatch> matches = new ArrayList<>();
+		matches.add(new DuplicatePatientMatch(1, 2, 1.0));
+
+		assertTrue(DuplicatePatientDetector.getPage(matches, 5, 10).isEmpty());
+	}
+
+	private static List<DuplicatePatientCandidate> getCandidatesInThreeBlocks() {
+		return Arrays.asList(candidate(1, "John", "Doe", "1980-03-04", OLD), candidate(2, "John", "Doe", "1980-03-04",
+		    OLD), candidate(3, "Mary", "Smith", "1975-01-01", OLD), candidate(4, "Mary", "Smith", "1975-01-01", OLD),
+		    candidate(5, "Jack", "Brown", "1990-07-08", OLD), candidate(6, "Jack", "Brown", "1990-07-08", OLD));
+	}
+
+	private static DuplicatePatientCandidate candidate(int id, String given, String family, String birthdate,
+	        Date dateCreated) {
+		return new DuplicatePatientCandidate(id, "M", date(birthdate), given, null, family, dateCreated);
+	}
+
+	private static Date date(String ymd) {
+		try {
+			return new SimpleDateFormat("yyyy-MM-dd").parse(ymd);
+		}
+		catch (ParseException e) {
+			throw new IllegalArgumentException(e);
+		}
+	}
+}
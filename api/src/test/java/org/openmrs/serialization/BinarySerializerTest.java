@@ -0,0 +1,117 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.mockito.Mockito.mock;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import org.hibernate.proxy.HibernateProxy;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.openmrs.Program;
+
+public class BinarySerializerTest {
+	
+	@Rule
+	public ExpectedException expectedException = ExpectedException.none();
+	
+	/**
+	 * @see BinarySerializer#serialize(Object)
+	 */
+	@Test
+	public void serialize_shouldSerializeAnObjectThatCanBeDeserializedAgain() throws SerializationException {
+		Program program = new Program();
+		program.setName("HIV Program");
+		program.setDescription("For patients with HIV");
+		program.setUuid("a2d5f3c4-1d3e-4b6f-8c2a-0e1f2a3b4c5d");
+		
+		OpenmrsSerializer serializer = new BinarySerializer();
+		Program copy = serializer.deserialize(serializer.serialize(program), Program.class);
+		
+		assertNotSame(program, copy);
+		assertEquals("HIV Program", copy.getName());
+		assertEquals("For patients with HIV", copy.getDescription());
+		assertEquals(program.getUuid(), copy.getUuid());
+	}
+	
+	/**
+	 * @see BinarySerializer#serialize(Object)
+	 */
+	@Test
+	public void serialize_shouldNotSerializeProxies() throws SerializationException {
+		List<Object> list = new ArrayList<>();
+		list.add(mock(HibernateProxy.class));
+		
+		expectedException.expect(SerializationException.class);
+		new BinarySerializer().serialize(list);
+	}
+	
+	/**
+	 * @see BinarySerializer#deserialize(String, Class)
+	 */
+	@Test
+	public void deserialize_shouldFailForDataThatWasNotSerializedByThisSerializer() throws SerializationException {
+		String xml = new SimpleXStreamSerializer().serialize(new Foo("test", 1));
+		
+		expectedException.expect(SerializationException.class);
+		new BinarySerializer().deserialize(xml, Foo.class);
+	}
+	
+	/**
+	 * @see BinarySerializer#deserialize(String, Class)
+	 */
+	@Test
+	public void deserialize_shouldFailForClassesThatAreNotAllowed() throws SerializationException {
+		BinarySerializer serializer = new BinarySerializer();
+		String serialized = serializer.serialize(new File("test"));
+		
+		expectedException.expect(SerializationException.class);
+		serializer.deserialize(serialized, File.class);
+	}
+	
+	/**
+	 * @see BinarySerializer#deserialize(String, Class)
+	 */
+	@Test
+	public void deserialize_shouldFailForClassesThatAreNotAllowedNestedInAllowedOnes() throws SerializationException {
+		BinarySerializer serializer = new BinarySerializer();
+		List<Object> list = new ArrayList<>();
+		list.add(new Date());
+		list.add(new File("test"));
+		String serialized = serializer.serialize(list);
+		
+		expectedException.expect(SerializationException.class);
+		serializer.deserialize(serialized, List.class);
+	}
+	
+	/**
+	 * @see BinarySerializer#fromBytes(byte[], Class)
+	 */
+	@Test
+	public void fromBytes_shouldReturnANewCopyEachTime() throws SerializationException {
+		Program program = new Program();
+		program.setName("TB Program");
+		BinarySerializer serializer = new BinarySerializer();
+		byte[] bytes = serializer.toBytes(program);
+		
+		Program first = serializer.fromBytes(bytes, Program.class);
+		first.setName("changed");
+		Program second = serializer.fromBytes(bytes, Program.class);
+		
+		assertEquals("TB Program", second.getName());
+	}
+}
@@ -0,0 +1,109 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.hibernate.Hibernate;
+import org.junit.Test;
+import org.openmrs.Form;
+import org.openmrs.FormField;
+import org.openmrs.api.FormService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+public class FormStructureTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see FormStructure#compile(Form)
+	 */
+	@Test
+	public void compile_shouldOrderTheChildrenOfEachNodeLikeFormUtilGetFormStructure() throws Exception {
+		FormService fs = Context.getFormService();
+		Form form = fs.getForm(1);
+		fs.getFormField(5).setParent(fs.getFormField(2));
+		fs.getFormField(3).setSortWeight(5.0f);
+		
+		FormStructure structure = FormStructure.compile(form);
+		
+		List<FormStructure.Node> roots = structure.getRoots();
+		assertEquals(2, roots.size());
+		assertEquals(3, roots.get(0).getFormFieldId().intValue());
+		assertEquals(2, roots.get(1).getFormFieldId().intValue());
+		assertEquals(1, roots.get(1).getChildren().size());
+		assertEquals(5, roots.get(1).getChildren().get(0).getFormFieldId().intValue());
+		assertEquals(2, structure.getNode(5).getParentFormFieldId().intValue());
+	}
+	
+	/**
+	 * @see FormStructure#getNodesForConcept(Integer)
+	 */
+	@Test
+	public void getNodesForConcept_shouldReturnTheNodesOfTheFieldsOfTheConcept() throws Exception {
+		FormStructure structure = FormStructure.compile(Context.getFormService().getForm(1));
+		
+		List<FormStructure.Node> nodes = structure.getNodesForConcept(3);
+		assertEquals(3, nodes.size());
+		assertEquals(2, nodes.get(0).getFormFieldId().intValue());
+		assertEquals(1, nodes.get(0).getFieldId().intValue());
+		assertEquals(0, structure.getNodesForConcept(5089).size());
+	}
+	
+	/**
+	 * @see FormStructure#isOf(Form)
+	 */
+	@Test
+	public void isOf_shouldReturnFalseIfTheParentOfAFormFieldChanged() throws Exception {
+		FormService fs = Context.getFormService();
+		Form form = fs.getForm(1);
+		FormStructure structure = FormStructure.compile(form);
+		assertTrue(structure.isOf(form));
+		
+		fs.getFormField(5).setParent(fs.getFormField(2));
+		
+		assertFalse(structure.isOf(form));
+	}
+	
+	/**
+	 * @see FormStructure#isOf(Form)
+	 */
+	@Test
+	public void isOf_shouldReturnFalseIfTheSortWeightOfAFormFieldChanged() throws Exception {
+		FormService fs = Context.getFormService();
+		Form form = fs.getForm(1);
+		FormStructure structure = FormStructure.compile(form);
+		
+		fs.getFormField(3).setSortWeight(5.0f);
+		
+		assertFalse(structure.isOf(form));
+	}
+	
+	/**
+	 * @see FormStructure#isOf(Form)
+	 */
+	@Test
+	public void isOf_shouldNotInitializeTheFieldsOfTheFormFields() throws Exception {
+		FormService fs = Context.getFormService();
+		FormStructure structure = FormStructure.compile(fs.getForm(1));
+		Context.flushSession();
+		Context.clearSession();
+		
+		Form form = fs.getForm(1);
+		assertTrue(structure.isOf(form));
+		
+		for (FormField formField : form.getFormFields()) {
+			assertFalse(Hibernate.isInitialized(formField.getField()));
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.junit.After;
+import org.junit.Test;
+import org.openmrs.Form;
+import org.openmrs.FormField;
+import org.openmrs.api.FormService;
+import org.openmrs.api.context.Context;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+public class FormUtilTest extends BaseContextSensitiveTest {
+	
+	@After
+	public void evictFormStructures() {
+		FormUtil.evictFormStructure(null);
+	}
+	
+	/**
+	 * @see FormUtil#getCompiledFormStructure(Form)
+	 */
+	@Test
+	public void getCompiledFormStructure_shouldReturnTheCachedStructureForTheSameForm() throws Exception {
+		Form form = Context.getFormService().getForm(1);
+		
+		FormStructure structure = FormUtil.getCompiledFormStructure(form);
+		
+		assertSame(structure, FormUtil.getCompiledFormStructure(form));
+		assertEquals(3, structure.getRoots().size());
+	}
+	
+	/**
+	 * @see FormUtil#getCompiledFormStructure(Form)
+	 */
+	@Test
+	public void getCompiledFormStructure_shouldCompileTheStructureAgainAfterItWasEvicted() throws Exception {
+		FormService fs = Context.getFormService();
+		Form form = fs.getForm(1);
+		FormStructure structure = FormUtil.getCompiledFormStructure(form);
+		assertEquals(2, structure.getRoots().get(0).getFormFieldId().intValue());
+		
+		FormField formField = fs.getFormField(5);
+		formField.setSortWeight(1.0f);
+		fs.saveFormField(formField);
+		
+		FormStructure recompiled = FormUtil.getCompiledFormStructure(form);
+		assertNotSame(structure, recompiled);
+		assertEquals(5, recompiled.getRoots().get(0).getFormFieldId().intValue());
+	}
+}
@@ -0,0 +1,69 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.Date;
+
+import org.junit.Test;
+import org.openmrs.Concept;
+import org.openmrs.test.BaseContextSensitiveTest;
+
+public class PersonAttributeHydratorTest extends BaseContextSensitiveTest {
+	
+	/**
+	 * @see PersonAttributeHydrator#hydrate(String, String)
+	 */
+	@Test
+	public void hydrate_shouldHydrateAttributableValues() throws Exception {
+		Concept concept = (Concept) PersonAttributeHydrator.hydrate(Concept.class.getName(), "5089");
+		assertEquals(5089, concept.getConceptId().intValue());
+	}
+	
+	/**
+	 * @see PersonAttributeHydrator#hydrate(String, String)
+	 */
+	@Test
+	public void hydrate_shouldCreateValuesWithTheStringConstructor() throws Exception {
+		assertEquals(42, PersonAttributeHydrator.hydrate(Integer.class.getName(), "42"));
+	}
+	
+	/**
+	 * @see PersonAttributeHydrator#hydrate(String, String)
+	 */
+	@Test
+	public void hydrate_shouldReturnTheValueIfTheClassIsNotAttributable() throws Exception {
+		assertEquals("lalapalooza", PersonAttributeHydrator.hydrate(String.class.getName(), "lalapalooza"));
+	}
+	
+	/**
+	 * @see PersonAttributeHydrator#hydrate(String, String)
+	 */
+	@Test
+	public void hydrate_shouldReturnACopyOfCachedDates() throws Exception {
+		Date date = (Date) PersonAttributeHydrator.hydrate(AttributableDate.class.getName(), "2011-04-25");
+		date.setTime(0);
+		
+		Date other = (Date) PersonAttributeHydrator.hydrate(AttributableDate.class.getName(), "2011-04-25");
+		
+		assertNotSame(date, other);
+		assertEquals(new AttributableDate().hydrate("2011-04-25"), other);
+	}
+	
+	/**
+	 * @see PersonAttributeHydrator#getType(String)
+	 */
+	@Test(expected = ClassNotFoundException.class)
+	public void getType_shouldFailForANullFormat() throws Exception {
+		PersonAttributeHydrator.getType(null);
+	}
+}
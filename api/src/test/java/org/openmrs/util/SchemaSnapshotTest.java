@@ -0,0 +1,120 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.Test;
+
+/**
+ * Tests methods on the {@link SchemaSnapshot} class.
+ */
+public class SchemaSnapshotTest {
+	
+	/**
+	 * @see SchemaSnapshot#getDatabaseType(String)
+	 */
+	@Test
+	public void getDatabaseType_shouldReturnTheSubProtocolOfTheUrl() {
+		assertEquals("mysql", SchemaSnapshot.getDatabaseType("jdbc:mysql://localhost:3306/openmrs?autoReconnect=true"));
+		assertEquals("h2", SchemaSnapshot.getDatabaseType("jdbc:h2:mem:openmrs;DB_CLOSE_DELAY=-1"));
+	}
+	
+	/**
+	 * @see SchemaSnapshot#nextStatement(Reader, boolean)
+	 */
+	@Test
+	public void nextStatement_shouldNotSplitStatementsAtSemicolonsInQuotedStrings() throws Exception {
+		Reader reader = new StringReader("INSERT INTO t VALUES ('a;b'),('it''s;'),('x\\';y');\nSELECT 1;\n");
+		
+		assertEquals("INSERT INTO t VALUES ('a;b'),('it''s;'),('x\\';y')", SchemaSnapshot.nextStatement(reader, true));
+		assertEquals("SELECT 1", SchemaSnapshot.nextStatement(reader, true));
+		assertNull(SchemaSnapshot.nextStatement(reader, true));
+	}
+	
+	/**
+	 * @see SchemaSnapshot#nextStatement(Reader, boolean)
+	 */
+	@Test
+	public void nextStatement_shouldSkipCommentLines() throws Exception {
+		Reader reader = new StringReader("-- OpenMRS schema snapshot 2.2.0\n-- 3 +/- SELECT COUNT(*) FROM t;\nSELECT 1;");
+		
+		assertEquals("SELECT 1", SchemaSnapshot.nextStatement(reader, false));
+		assertNull(SchemaSnapshot.nextStatement(reader, false));
+	}
+	
+	/**
+	 * @see SchemaSnapshot#nextStatement(Reader, boolean)
+	 */
+	@Test
+	public void nextStatement_shouldTreatBackslashesAsLiteralCharactersUnlessTheyAreEscapes() throws Exception {
+		Reader reader = new StringReader("INSERT INTO t VALUES ('C:\\'),('a;b');\nSELECT 1;\n");
+		
+		assertEquals("INSERT INTO t VALUES ('C:\\'),('a;b')", SchemaSnapshot.nextStatement(reader, false));
+		assertEquals("SELECT 1", SchemaSnapshot.nextStatement(reader, false));
+		assertNull(SchemaSnapshot.nextStatement(reader, false));
+	}
+	
+	/**
+	 * @see SchemaSnapshot#load(Connection, String, Reader)
+	 */
+	@Test
+	public void load_shouldLoadASnapshotWrittenFromAnH2Database() throws Exception {
+		StringWriter script = new StringWriter();
+		try (Connection source = DriverManager.getConnection("jdbc:h2:mem:snapshotSource", "sa", "");
+		        Statement statement = source.createStatement()) {
+			statement.execute("CREATE TABLE t (id INT PRIMARY KEY, s VARCHAR(100))");
+			statement.execute("INSERT INTO t VALUES (1, 'C:\\'), (2, 'it''s; done'), (3, 'two' || CHAR(10) || 'lines')");
+			SchemaSnapshot.write(source, "h2", script);
+		}
+		
+		try (Connection target = DriverManager.getConnection("jdbc:h2:mem:snapshotTarget", "sa", "");
+		        Statement statement = target.createStatement()) {
+			assertTrue(SchemaSnapshot.load(target, "h2", new StringReader(script.toString())));
+			
+			try (ResultSet rs = statement.executeQuery("SELECT s FROM t ORDER BY id")) {
+				assertTrue(rs.next());
+				assertEquals("C:\\", rs.getString(1));
+				assertTrue(rs.next());
+				assertEquals("it's; done", rs.getString(1));
+				assertTrue(rs.next());
+				assertEquals("two\nlines", rs.getString(1));
+				assertFalse(rs.next());
+			}
+		}
+	}
+	
+	/**
+	 * @see SchemaSnapshot#load(Connection, String, Reader)
+	 */
+	@Test
+	public void load_shouldNotLoadASnapshotOfAnotherVersion() throws Exception {
+		String script = "-- OpenMRS schema snapshot 0.0.1\nCREATE TABLE t (id INT PRIMARY KEY);\n";
+		
+		try (Connection target = DriverManager.getConnection("jdbc:h2:mem:snapshotOtherVersion", "sa", "")) {
+			assertFalse(SchemaSnapshot.load(target, "h2", new StringReader(script)));
+			
+			try (ResultSet rs = target.getMetaData().getTables(null, null, "T", null)) {
+				assertFalse(rs.next());
+			}
+		}
+	}
+}
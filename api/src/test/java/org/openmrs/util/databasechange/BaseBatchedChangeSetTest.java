@@ -0,0 +1,276 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util.databasechange;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+
+/**
+ * Tests {@link BaseBatchedChangeSet} against an in-memory H2 database
+ */
+public class BaseBatchedChangeSetTest {
+	
+	private static final String URL = "jdbc:h2:mem:batchedChangeSetTest;DB_CLOSE_DELAY=-1";
+	
+	private Connection connection;
+	
+	private Database database;
+	
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection(URL, "sa", "");
+		database = mock(Database.class);
+		when(database.getConnection()).thenReturn(new JdbcConnection(connection));
+		createTable("first_table", 25);
+		createTable("second_table", 12);
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("drop all objects");
+		}
+		connection.close();
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#execute(Database)
+	 */
+	@Test
+	public void execute_shouldMigrateAllRowsChunkByChunk() throws Exception {
+		TestChangeSet changeSet = new TestChangeSet(Collections.singletonList("first_table"));
+		changeSet.setChunkSize("10");
+		changeSet.setUp();
+		
+		changeSet.execute(database);
+		
+		assertEquals(Arrays.asList(10, 10, 5), changeSet.chunkSizes);
+		assertEquals(0, countUnmigrated("first_table"));
+		assertFalse(checkpointTableExists());
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#execute(Database)
+	 */
+	@Test
+	public void execute_shouldKeepTheCheckpointOfTheLastCommittedChunkIfAChunkFails() throws Exception {
+		TestChangeSet changeSet = new TestChangeSet(Collections.singletonList("first_table"));
+		changeSet.setChunkSize("10");
+		changeSet.setUp();
+		changeSet.failAt = 15;
+		
+		try {
+			changeSet.execute(database);
+			fail("the migration should have failed");
+		}
+		catch (CustomChangeException e) {
+			// expected
+		}
+		
+		assertEquals(15, countUnmigrated("first_table"));
+		assertEquals(10, getCheckpoint());
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#execute(Database)
+	 */
+	@Test
+	public void execute_shouldResumeAfterTheLastCommittedChunk() throws Exception {
+		TestChangeSet failing = new TestChangeSet(Collections.singletonList("first_table"));
+		failing.setChunkSize("10");
+		failing.setUp();
+		failing.failAt = 15;
+		try {
+			failing.execute(database);
+			fail("the migration should have failed");
+		}
+		catch (CustomChangeException e) {
+			// expected
+		}
+		
+		TestChangeSet changeSet = new TestChangeSet(Collections.singletonList("first_table"));
+		changeSet.setChunkSize("10");
+		changeSet.setUp();
+		changeSet.execute(database);
+		
+		assertEquals(11, changeSet.processedIds.get(0).intValue());
+		assertEquals(15, changeSet.processedIds.size());
+		assertEquals(0, countUnmigrated("first_table"));
+		assertFalse(checkpointTableExists());
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#execute(Database)
+	 */
+	@Test
+	public void execute_shouldMigrateTablesInParallelWithTheirOwnConnections() throws Exception {
+		TestChangeSet changeSet = new TestChangeSet(Arrays.asList("first_table", "second_table"));
+		changeSet.setChunkSize("5");
+		changeSet.setWorkers("2");
+		changeSet.setUp();
+		
+		changeSet.execute(database);
+		
+		assertEquals(0, countUnmigrated("first_table"));
+		assertEquals(0, countUnmigrated("second_table"));
+		assertEquals(37, changeSet.processedIds.size());
+		assertEquals(2, changeSet.connections.size());
+		assertFalse(checkpointTableExists());
+	}
+	
+	/**
+	 * @see BaseBatchedChangeSet#execute(Database)
+	 */
+	@Test
+	public void execute_shouldPassTablesWithoutAUniqueIntegerKeyToProcessTable() throws Exception {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table keyed_by_name (name varchar(50) primary key, migrated boolean)");
+			statement.execute("insert into keyed_by_name values ('a', false), ('b', false)");
+			statement.execute("create table keyed_by_pair (id int not null, other_id int not null, migrated boolean, "
+			        + "primary key (id, other_id))");
+			statement.execute("insert into keyed_by_pair values (1, 1, false), (1, 2, false)");
+		}
+		TestChangeSet changeSet = new TestChangeSet(Arrays.asList("keyed_by_name", "keyed_by_pair", "first_table"));
+		changeSet.setUp();
+		
+		changeSet.execute(database);
+		
+		assertEquals(Arrays.asList("keyed_by_name", "keyed_by_pair"), changeSet.unchunkedTables);
+		assertEquals(25, changeSet.processedIds.size());
+		assertEquals(0, countUnmigrated("keyed_by_name"));
+		assertEquals(0, countUnmigrated("keyed_by_pair"));
+	}
+	
+	private void createTable(String tableName, int rows) throws SQLException {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table " + tableName + " (id int primary key, migrated boolean)");
+			for (int id = 1; id <= rows; id++) {
+				statement.execute("insert into " + tableName + " values (" + id + ", false)");
+			}
+		}
+	}
+	
+	private int countUnmigrated(String tableName) throws SQLException {
+		try (Statement statement = connection.createStatement();
+		        ResultSet rs = statement.executeQuery("select count(*) from " + tableName + " where migrated = false")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+	
+	private int getCheckpoint() throws SQLException {
+		try (Statement statement = connection.createStatement();
+		        ResultSet rs = statement.executeQuery("select last_id from " + BaseBatchedChangeSet.CHECKPOINT_TABLE)) {
+			assertTrue(rs.next());
+			return rs.getInt(1);
+		}
+	}
+	
+	private boolean checkpointTableExists() throws SQLException {
+		try (ResultSet rs = connection.getMetaData().getTables(null, null,
+		    BaseBatchedChangeSet.CHECKPOINT_TABLE.toUpperCase(), null)) {
+			return rs.next();
+		}
+	}
+	
+	/**
+	 * Marks the rows of its tables as migrated and fails at a given id
+	 */
+	private static class TestChangeSet extends BaseBatchedChangeSet {
+		
+		private final List<String> tableNames;
+		
+		private final List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+		
+		private final List<Integer> processedIds = Collections.synchronizedList(new ArrayList<>());
+		
+		private final List<String> unchunkedTables = new ArrayList<>();
+		
+		private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+		
+		private Integer failAt;
+		
+		TestChangeSet(List<String> tableNames) {
+			this.tableNames = tableNames;
+		}
+		
+		@Override
+		protected List<String> getTableNames() {
+			return tableNames;
+		}
+		
+		@Override
+		protected String getIdColumn(String tableName) {
+			return "id";
+		}
+		
+		@Override
+		protected String getRowCondition(String tableName) {
+			return "migrated = false";
+		}
+		
+		@Override
+		protected void processChunk(Connection connection, String tableName, List<Integer> ids) throws SQLException {
+			connections.add(connection);
+			chunkSizes.add(ids.size());
+			try (Statement statement = connection.createStatement()) {
+				for (Integer id : ids) {
+					if (id.equals(failAt)) {
+						throw new SQLException("Failing at " + id);
+					}
+					statement.executeUpdate("update " + tableName + " set migrated = true where id = " + id);
+				}
+			}
+			processedIds.addAll(ids);
+		}
+		
+		@Override
+		protected void processTable(Connection connection, String tableName) throws SQLException {
+			unchunkedTables.add(tableName);
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate("update " + tableName + " set migrated = true");
+			}
+		}
+		
+		@Override
+		protected Connection openConnection() throws Exception {
+			return DriverManager.getConnection(URL, "sa", "");
+		}
+		
+		@Override
+		public String getConfirmationMessage() {
+			return "Migrated";
+		}
+	}
+}
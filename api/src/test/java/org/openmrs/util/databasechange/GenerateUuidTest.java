@@ -0,0 +1,85 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.util.databasechange;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+
+/**
+ * Tests {@link GenerateUuid} against an in-memory H2 database
+ */
+public class GenerateUuidTest {
+	
+	private Connection connection;
+	
+	private Database database;
+	
+	@Before
+	public void setUp() throws Exception {
+		connection = DriverManager.getConnection("jdbc:h2:mem:generateUuidTest;DB_CLOSE_DELAY=-1", "sa", "");
+		database = mock(Database.class);
+		when(database.getConnection()).thenReturn(new JdbcConnection(connection));
+		when(database.getTypeName()).thenReturn("h2");
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("create table location (location_id int primary key, uuid char(38))");
+			statement.execute("insert into location values (1, null), (2, null), (3, null)");
+			statement.execute("create table role (role varchar(50) primary key, uuid char(38))");
+			statement.execute("insert into role values ('Provider', null), ('Clerk', null)");
+		}
+	}
+	
+	@After
+	public void tearDown() throws Exception {
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("drop all objects");
+		}
+		connection.close();
+	}
+	
+	/**
+	 * @see GenerateUuid#execute(Database)
+	 */
+	@Test
+	public void execute_shouldGenerateUuidsForTablesWithAndWithoutAnIntegerKey() throws Exception {
+		GenerateUuid changeSet = new GenerateUuid();
+		changeSet.setTableNames("location role");
+		changeSet.setIdExceptions("role_id=role");
+		changeSet.setChunkSize("2");
+		changeSet.setUp();
+		
+		changeSet.execute(database);
+		
+		assertEquals(3, countDistinctUuids("location"));
+		assertEquals(2, countDistinctUuids("role"));
+	}
+	
+	private int countDistinctUuids(String tableName) throws SQLException {
+		try (Statement statement = connection.createStatement();
+		        ResultSet rs = statement.executeQuery("select count(distinct uuid) from " + tableName
+		                + " where uuid is not null")) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+}
@@ -0,0 +1,291 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.web;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * An in-memory index from the path of a module resource (as requested from the
+ * {@link ModuleResourcesServlet}) to the file that serves it, along with everything needed to answer
+ * the request without touching the file system again: its length, last modified date, ETag, content
+ * type and any precompressed variants. Entries are added the first time a path is resolved and the
+ * whole index is cleared whenever a module is started or stopped since that is when module resources
+ * are copied into or deleted from the webapp.
+ * <p>
+ * Files can still be changed on disk in between, e.g. in an exploded webapp, so the length and last
+ * modified date of a file are checked again whenever its entry is used, except for files whose name
+ * contains a content hash. The index keeps the most recently used entries only: lookups do not
+ * lock, and when the index grows beyond its maximum size the least recently used tenth of the entries
+ * is dropped at once.
+ *
+ * @since 2.2
+ */
+public class ModuleResourceIndex {
+
+	/**
+	 * Matches file names that contain a content hash, e.g. app.3f2a9c1b.js or app-3f2a9c1b7d.min.css.
+	 * The hash must contain a letter so that dates and build numbers, e.g. app-20180101.js, do not
+	 * count as hashes.
+	 */
+	private static final Pattern FINGERPRINTED = Pattern
+	        .compile(".*[.-](?=[0-9]*[a-fA-F])[0-9a-fA-F]{8,}(\\.min)?\\.[A-Za-z0-9]+$");
+
+	/**
+	 * The number of paths kept in the shared index
+	 */
+	public static final int DEFAULT_MAX_SIZE = 5000;
+
+	private static final ModuleResourceIndex instance = new ModuleResourceIndex();
+
+	private final Map<String, Entry> resources = new ConcurrentHashMap<>();
+
+	private final AtomicLong clock = new AtomicLong();
+
+	private final Object evictionLock = new Object();
+
+	private final int maxSize;
+
+	public ModuleResourceIndex() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * @param maxSize the number of paths to keep, the least recently used are dropped first
+	 */
+	ModuleResourceIndex(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return the index shared by the module resources servlet and the module lifecycle
+	 */
+	public static ModuleResourceIndex getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @param path the path info of the request
+	 * @return the indexed resource or null if the path has not been indexed or its file has changed
+	 * @should return null and drop the entry if the file changed
+	 */
+	public Resource get(String path) {
+		Entry entry = resources.get(path);
+		if (entry == null) {
+			return null;
+		}
+		Resource resource = entry.resource;
+		if (!resource.isFingerprinted() && resource.isChanged()) {
+			resources.remove(path, entry);
+			return null;
+		}
+		entry.lastUsed = clock.incrementAndGet();
+		return resource;
+	}
+
+	/**
+	 * Creates an entry for the given file and adds it to the index
+	 *
+	 * @param path the path info of the request
+	 * @param file the existing file that serves the path
+	 * @param contentType the content type of the file, may be null
+	 * @return the new entry
+	 */
+	public Resource add(String path, File file, String contentType) {
+		Resource resource = new Resource(file, contentType);
+		resources.put(path, new Entry(resource, clock.incrementAndGet()));
+		if (resources.size() > maxSize) {
+			evict();
+		}
+		return resource;
+	}
+
+	/**
+	 * Drops the least recently used entries until a tenth of the maximum size is free again
+	 */
+	private void evict() {
+		synchronized (evictionLock) {
+			if (resources.size() <= maxSize) {
+				return;
+			}
+			int excess = resources.size() - (maxSize - maxSize / 10);
+			List<Map.Entry<String, Entry>> entries = new ArrayList<>(resources.entrySet());
+			entries.sort(Comparator.comparingLong(e -> e.getValue().lastUsed));
+			for (int i = 0; i < excess && i < entries.size(); i++) {
+				resources.remove(entries.get(i).getKey(), entries.get(i).getValue());
+			}
+		}
+	}
+
+	/**
+	 * Removes all entries, called when modules start or stop
+	 */
+	public void clear() {
+		resources.clear();
+	}
+
+	/**
+	 * @return the number of indexed paths
+	 * @should not keep more than the maximum number of paths
+	 */
+	public int size() {
+		return resources.size();
+	}
+
+	/**
+	 * @param fileName the name of a file
+	 * @return true if the file name contains a content hash so it can be cached forever
+	 * @should return true for names containing a hash
+	 * @should return false for plain names
+	 * @should return false for names containing a date
+	 */
+	public static boolean isFingerprinted(String fileName) {
+		return FINGERPRINTED.matcher(fileName).matches();
+	}
+
+	/**
+	 * A resource in the index along with when it was last used
+	 */
+	private static class Entry {
+
+		private final Resource resource;
+
+		private volatile long lastUsed;
+
+		Entry(Resource resource, long lastUsed) {
+			this.resource = resource;
+			this.lastUsed = lastUsed;
+		}
+	}
+
+	/**
+	 * An immutable description of a module resource file
+	 */
+	public static class Resource {
+
+		private final File file;
+
+		private final long length;
+
+		private final long lastModified;
+
+		private final String etag;
+
+		private final String contentType;
+
+		private final File gzipFile;
+
+		private final long gzipLength;
+
+		private final File brotliFile;
+
+		private final long brotliLength;
+
+		private final boolean fingerprinted;
+
+		Resource(File file, String contentType) {
+			this.file = file;
+			BasicFileAttributes attributes = readAttributes(file);
+			this.length = attributes == null ? 0 : attributes.size();
+			this.lastModified = attributes == null ? 0 : attributes.lastModifiedTime().toMillis();
+			this.etag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+			this.contentType = contentType;
+			this.gzipFile = variant(file, ".gz");
+			this.gzipLength = gzipFile == null ? -1 : gzipFile.length();
+			this.brotliFile = variant(file, ".br");
+			this.brotliLength = brotliFile == null ? -1 : brotliFile.length();
+			this.fingerprinted = ModuleResourceIndex.isFingerprinted(file.getName());
+		}
+
+		/**
+		 * @return true if the file or one of its precompressed variants was changed or deleted since
+		 *         this entry was created
+		 */
+		boolean isChanged() {
+			// the length and date of the file are read with one call
+			BasicFileAttributes attributes = readAttributes(file);
+			return attributes == null || attributes.lastModifiedTime().toMillis() != lastModified
+			        || attributes.size() != length || (gzipFile != null && gzipFile.length() != gzipLength)
+			        || (brotliFile != null && brotliFile.length() != brotliLength);
+		}
+
+		private static BasicFileAttributes readAttributes(File file) {
+			try {
+				return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+			}
+			catch (IOException e) {
+				return null;
+			}
+		}
+
+		private static File variant(File file, String extension) {
+			File variant = new File(file.getPath() + extension);
+			return variant.isFile() ? variant : null;
+		}
+
+		public File getFile() {
+			return file;
+		}
+
+		public long getLength() {
+			return length;
+		}
+
+		public long getLastModified() {
+			return lastModified;
+		}
+
+		/**
+		 * @return the strong ETag of the uncompressed file, including the surrounding quotes
+		 */
+		public String getEtag() {
+			return etag;
+		}
+
+		public String getContentType() {
+			return contentType;
+		}
+
+		/**
+		 * @return the precompressed gzip variant of the file or null if there is none
+		 */
+		public File getGzipFile() {
+			return gzipFile;
+		}
+
+		public long getGzipLength() {
+			return gzipLength;
+		}
+
+		/**
+		 * @return the precompressed brotli variant of the file or null if there is none
+		 */
+		public File getBrotliFile() {
+			return brotliFile;
+		}
+
+		public long getBrotliLength() {
+			return brotliLength;
+		}
+
+		public boolean isFingerprinted() {
+			return fingerprinted;
+		}
+	}
+}
@@ -10,8 +10,11 @@
 package org.openmrs.module.web;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
@@ -20,10 +23,18 @@ import javax.servlet.http.HttpServletResponse;
 
 import org.openmrs.module.Module;
 import org.openmrs.module.ModuleUtil;
-import org.openmrs.util.OpenmrsUtil;
+import org.openmrs.module.web.ModuleResourceIndex.Resource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Serves the static resources of modules. Resolved files are kept in the {@link ModuleResourceIndex}
+ * so repeated requests only check whether the file changed instead of resolving it again, files
+ * whose name contains a content hash are not even checked. Responses carry a strong
+ * ETag and Last-Modified date, file names containing a content hash are marked as cacheable forever,
+ * single byte ranges are supported and precompressed .br/.gz variants next to a file are served
+ * directly to clients that accept them.
+ */
 public class ModuleResourcesServlet extends HttpServlet {
 	
 	private static final String MODULE_PATH = "/WEB-INF/view/module/";
@@ -32,6 +43,12 @@ public class ModuleResourcesServlet extends HttpServlet {
 	
 	private static final Logger log = LoggerFactory.getLogger(ModuleResourcesServlet.class);
 	
+	private static final String CACHE_FOREVER = "public, max-age=31536000, immutable";
+	
+	private static final String CACHE_REVALIDATE = "public, no-cache";
+	
+	private static final String RESOURCE_ATTRIBUTE = ModuleResourcesServlet.class.getName() + ".resource";
+	
 	/**
 	 * Used for caching purposes
 	 *
@@ -39,13 +56,13 @@ public class ModuleResourcesServlet extends HttpServlet {
 	 */
 	@Override
 	protected long getLastModified(HttpServletRequest req) {
-		File f = getFile(req);
+		Resource resource = getResource(req);
 		
-		if (f == null) {
+		if (resource == null) {
 			return super.getLastModified(req);
 		}
 		
-		return f.lastModified();
+		return resource.getLastModified();
 	}
 	
 	@Override
@@ -53,24 +70,136 @@ public class ModuleResourcesServlet extends HttpServlet {
 		
 		log.debug("In service method for module servlet: " + request.getPathInfo());
 		
-		File f = getFile(request);
-		if (f == null) {
+		Resource resource = getResource(request);
+		if (resource == null) {
 			response.setStatus(HttpServletResponse.SC_NOT_FOUND);
 			return;
 		}
 		
-		response.setDateHeader("Last-Modified", f.lastModified());
-		response.setContentLength(Long.valueOf(f.length()).intValue());
-		String mimeType = getServletContext().getMimeType(f.getName());
-		response.setContentType(mimeType);
+		response.setDateHeader("Last-Modified", resource.getLastModified());
+		response.setHeader("Cache-Control", resource.isFingerprinted() ? CACHE_FOREVER : CACHE_REVALIDATE);
+		response.setHeader("Accept-Ranges", "bytes");
+		if (resource.getContentType() != null) {
+			response.setContentType(resource.getContentType());
+		}
+		if (resource.getGzipFile() != null || resource.getBrotliFile() != null) {
+			response.setHeader("Vary", "Accept-Encoding");
+		}
 		
-		FileInputStream is = new FileInputStream(f);
-		try {
-			OpenmrsUtil.copyFile(is, response.getOutputStream());
+		String range = request.getHeader("Range");
+		File file = resource.getFile();
+		long length = resource.getLength();
+		String etag = resource.getEtag();
+		
+		// ranges are only served from the uncompressed file
+		if (range == null) {
+			String acceptEncoding = request.getHeader("Accept-Encoding");
+			if (resource.getBrotliFile() != null && acceptsEncoding(acceptEncoding, "br")) {
+				file = resource.getBrotliFile();
+				length = resource.getBrotliLength();
+				etag = variantEtag(etag, "br");
+				response.setHeader("Content-Encoding", "br");
+			} else if (resource.getGzipFile() != null && acceptsEncoding(acceptEncoding, "gzip")) {
+				file = resource.getGzipFile();
+				length = resource.getGzipLength();
+				etag = variantEtag(etag, "gz");
+				response.setHeader("Content-Encoding", "gzip");
+			}
 		}
-		finally {
-			OpenmrsUtil.closeStream(is);
+		response.setHeader("ETag", etag);
+		
+		if (etagMatches(request.getHeader("If-None-Match"), etag)) {
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return;
+		}
+		
+		long start = 0;
+		long count = length;
+		if (range != null && isRangeApplicable(request, resource)) {
+			long[] byteRange = parseRange(range, length);
+			if (byteRange == null) {
+				response.setHeader("Content-Range", "bytes */" + length);
+				response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+			if (byteRange.length == 2) {
+				start = byteRange[0];
+				count = byteRange[1] - byteRange[0] + 1;
+				response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+				response.setHeader("Content-Range", "bytes " + byteRange[0] + "-" + byteRange[1] + "/" + length);
+			}
 		}
+		
+		response.setHeader("Content-Length", Long.toString(count));
+		transfer(file, start, count, response);
+	}
+	
+	/**
+	 * Sends a region of the given file using {@link FileChannel#transferTo(long, long, WritableByteChannel)}
+	 * which lets the container copy the data without passing it through a heap buffer where it can.
+	 */
+	private void transfer(File file, long start, long count, HttpServletResponse response) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+			long position = start;
+			long remaining = count;
+			while (remaining > 0) {
+				long transferred = channel.transferTo(position, remaining, out);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+				remaining -= transferred;
+			}
+		}
+	}
+	
+	/**
+	 * Looks up the requested resource in the index, resolving and indexing it on the first request.
+	 * The resource is kept in the request, so {@link #getLastModified(HttpServletRequest)} and
+	 * {@link #doGet(HttpServletRequest, HttpServletResponse)} only check the file once.
+	 *
+	 * @param request the current http request
+	 * @return the resource being requested or null if not found
+	 */
+	protected Resource getResource(HttpServletRequest request) {
+		// includes and forwards can serve another path in the same request
+		String attribute = RESOURCE_ATTRIBUTE + ":" + request.getPathInfo();
+		Object resolved = request.getAttribute(attribute);
+		if (resolved instanceof Resource) {
+			return (Resource) resolved;
+		}
+		Resource resource = lookUpResource(request);
+		if (resource != null) {
+			request.setAttribute(attribute, resource);
+		}
+		return resource;
+	}
+	
+	private Resource lookUpResource(HttpServletRequest request) {
+		String path = request.getPathInfo();
+		if (path == null) {
+			return null;
+		}
+		
+		ModuleResourceIndex index = ModuleResourceIndex.getInstance();
+		Resource resource = index.get(path);
+		if (resource != null) {
+			return resource;
+		}
+		
+		File f = getFile(request);
+		if (f == null || !f.isFile()) {
+			return null;
+		}
+		
+		String mimeType = getServletContext().getMimeType(f.getName());
+		Module module = ModuleUtil.getModuleForPath(path);
+		if (ModuleUtil.getDevelopmentDirectory(module.getModuleId()) != null) {
+			// resources of modules in development mode change all the time, so they are never indexed
+			return new Resource(f, mimeType);
+		}
+		return index.add(path, f, mimeType);
 	}
 	
 	/**
@@ -110,4 +239,131 @@ public class ModuleResourcesServlet extends HttpServlet {
 		return f;
 	}
 	
+	/**
+	 * @param acceptEncoding the value of the Accept-Encoding header, may be null
+	 * @param coding the content coding to look for
+	 * @return true if the coding is listed and not explicitly refused with q=0
+	 * @should return true if the coding is listed
+	 * @should return false if the coding is refused with a zero quality
+	 * @should return false if the header is null
+	 */
+	static boolean acceptsEncoding(String acceptEncoding, String coding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		for (String part : acceptEncoding.split(",")) {
+			String[] params = part.split(";");
+			if (coding.equalsIgnoreCase(params[0].trim())) {
+				for (int i = 1; i < params.length; i++) {
+					String param = params[i].trim();
+					if (param.startsWith("q=")) {
+						try {
+							return Double.parseDouble(param.substring(2)) > 0;
+						}
+						catch (NumberFormatException e) {
+							return false;
+						}
+					}
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * @param ifNoneMatch the value of the If-None-Match header, may be null
+	 * @param etag the current ETag
+	 * @return true if the header lists the ETag or is a wildcard
+	 * @should return true if one of the listed etags matches
+	 * @should return true for a wildcard
+	 * @should return false if no etag matches
+	 */
+	static boolean etagMatches(String ifNoneMatch, String etag) {
+		if (ifNoneMatch == null) {
+			return false;
+		}
+		for (String candidate : ifNoneMatch.split(",")) {
+			String trimmed = candidate.trim();
+			if (trimmed.startsWith("W/")) {
+				trimmed = trimmed.substring(2);
+			}
+			if ("*".equals(trimmed) || etag.equals(trimmed)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Parses a Range header. Only a single byte range is supported, a header listing several ranges
+	 * is ignored and the whole file is sent.
+	 *
+	 * @param range the value of the Range header
+	 * @param length the length of the file
+	 * @return the first and last byte of the range, an empty array if the whole file should be sent
+	 *         or null if the range is not satisfiable
+	 * @should parse a range with a start and end
+	 * @should parse an open ended range
+	 * @should parse a suffix range
+	 * @should return null for an unsatisfiable range
+	 * @should ignore multiple ranges
+	 */
+	static long[] parseRange(String range, long length) {
+		if (!range.startsWith("bytes=") || range.indexOf(',') >= 0) {
+			return new long[0];
+		}
+		String spec = range.substring("bytes=".length()).trim();
+		int dash = spec.indexOf('-');
+		if (dash < 0) {
+			return new long[0];
+		}
+		try {
+			long start;
+			long end;
+			if (dash == 0) {
+				long suffix = Long.parseLong(spec.substring(1));
+				if (suffix <= 0) {
+					return null;
+				}
+				start = Math.max(length - suffix, 0);
+				end = length - 1;
+			} else {
+				start = Long.parseLong(spec.substring(0, dash));
+				end = dash == spec.length() - 1 ? length - 1 : Math.min(Long.parseLong(spec.substring(dash + 1)),
+				    length - 1);
+			}
+			if (start >= length || start > end) {
+				return null;
+			}
+			return new long[] { start, end };
+		}
+		catch (NumberFormatException e) {
+			return new long[0];
+		}
+	}
+	
+	/**
+	 * A range is only applied if there is no If-Range header or it still matches the resource
+	 */
+	private boolean isRangeApplicable(HttpServletRequest request, Resource resource) {
+		String ifRange = request.getHeader("If-Range");
+		if (ifRange == null) {
+			return true;
+		}
+		if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return ifRange.equals(resource.getEtag());
+		}
+		try {
+			return request.getDateHeader("If-Range") / 1000 == resource.getLastModified() / 1000;
+		}
+		catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+	
+	private static String variantEtag(String etag, String suffix) {
+		return etag.substring(0, etag.length() - 1) + "-" + suffix + "\"";
+	}
+	
 }
@@ -55,6 +55,7 @@ import org.openmrs.module.ModuleUtil;
 import org.openmrs.module.web.filter.ModuleFilterConfig;
 import org.openmrs.module.web.filter.ModuleFilterDefinition;
 import org.openmrs.module.web.filter.ModuleFilterMapping;
+import org.openmrs.module.web.filter.ModuleFilterMappingIndex;
 import org.openmrs.scheduler.SchedulerException;
 import org.openmrs.scheduler.SchedulerService;
 import org.openmrs.scheduler.TaskDefinition;
@@ -93,8 +94,14 @@ public class WebModuleUtil {
 	
 	private static Map<String, Filter> moduleFiltersByName = Collections.synchronizedMap(new HashMap<String, Filter>());
 	
-	private static List<ModuleFilterMapping> moduleFilterMappings = Collections
-	        .synchronizedList(new Vector<ModuleFilterMapping>());
+	private static FilterMappingList moduleFilterMappings = new FilterMappingList();
+	
+	private static final Object filterMappingIndexLock = new Object();
+	
+	private static volatile ModuleFilterMappingIndex moduleFilterMappingIndex = ModuleFilterMappingIndex.EMPTY;
+	
+	// the modification count of the filter mappings the index was compiled from
+	private static volatile int moduleFilterMappingIndexModCount = 0;
 	
 	/**
 	 * Performs the webapp specific startup needs for modules Normal startup is done in
@@ -339,6 +346,9 @@ public class WebModuleUtil {
 				
 			}
 			
+			// the module's resources have just been (re)copied into the webapp
+			ModuleResourceIndex.getInstance().clear();
+			
 			if (!delayContextRefresh && ModuleFactory.isModuleStarted(mod)) {
 				// only loading the servlets/filters if spring is refreshed because one
 				// might depend on files being available in spring
@@ -557,6 +567,8 @@ public class WebModuleUtil {
 		List<ModuleFilterMapping> modMappings = ModuleFilterMapping.retrieveFilterMappings(module);
 		moduleFilterMappings.addAll(modMappings);
 		log.debug("Module: " + module.getModuleId() + " successfully loaded " + modMappings.size() + " filter mappings.");
+		
+		refreshFilterMappingIndex();
 	}
 	
 	/**
@@ -592,6 +604,40 @@ public class WebModuleUtil {
 
 			moduleFiltersByName.values().removeIf(filters::contains);
 		}
+		
+		refreshFilterMappingIndex();
+	}
+	
+	/**
+	 * Recompiles the index used by {@link #getFiltersForRequest(ServletRequest)} from the currently
+	 * registered filters and filter mappings
+	 */
+	private static void refreshFilterMappingIndex() {
+		synchronized (filterMappingIndexLock) {
+			List<ModuleFilterMapping> mappings;
+			int modCount;
+			synchronized (moduleFilterMappings) {
+				mappings = new ArrayList<>(moduleFilterMappings);
+				modCount = moduleFilterMappings.getModCount();
+			}
+			Map<String, Filter> filtersByName;
+			synchronized (moduleFiltersByName) {
+				filtersByName = new HashMap<>(moduleFiltersByName);
+			}
+			moduleFilterMappingIndex = ModuleFilterMappingIndex.compile(mappings, filtersByName);
+			moduleFilterMappingIndexModCount = modCount;
+		}
+	}
+	
+	/**
+	 * @return the filter mapping index, recompiled first if the mappings returned by
+	 *         {@link #getFilterMappings()} were changed since it was compiled
+	 */
+	private static ModuleFilterMappingIndex getFilterMappingIndex() {
+		if (moduleFilterMappingIndexModCount != moduleFilterMappings.getModCount()) {
+			refreshFilterMappingIndex();
+		}
+		return moduleFilterMappingIndex;
 	}
 	
 	/**
@@ -622,7 +668,6 @@ public class WebModuleUtil {
 	 */
 	public static List<Filter> getFiltersForRequest(ServletRequest request) {
 		
-		List<Filter> filters = new ArrayList<>();
 		if (request != null) {
 			HttpServletRequest httpRequest = (HttpServletRequest) request;
 			String requestPath = httpRequest.getRequestURI();
@@ -631,20 +676,10 @@ public class WebModuleUtil {
 				if (requestPath.startsWith(httpRequest.getContextPath())) {
 					requestPath = requestPath.substring(httpRequest.getContextPath().length());
 				}
-				for (ModuleFilterMapping filterMapping : WebModuleUtil.getFilterMappings()) {
-					if (ModuleFilterMapping.filterMappingPasses(filterMapping, requestPath)) {
-						Filter passedFilter = moduleFiltersByName.get(filterMapping.getFilterName());
-						if (passedFilter != null) {
-							filters.add(passedFilter);
-						} else {
-							log.warn("Unable to retrieve filter that has a name of " + filterMapping.getFilterName()
-							        + " in filter mapping.");
-						}
-					}
-				}
+				return new ArrayList<>(getFilterMappingIndex().getFilters(requestPath));
 			}
 		}
-		return filters;
+		return new ArrayList<>();
 	}
 	
 	/**
@@ -743,6 +778,7 @@ public class WebModuleUtil {
 				log.warn("Couldn't delete: " + moduleWebFolder.getAbsolutePath(), io);
 			}
 		}
+		ModuleResourceIndex.getInstance().clear();
 		
 		// (not) deleting module message properties
 		
@@ -960,4 +996,29 @@ public class WebModuleUtil {
 		return servletContext.getRealPath("");
 	}
 	
+	
+	/**
+	 * The registered filter mappings, which counts every change so that changes made through
+	 * {@link WebModuleUtil#getFilterMappings()} are picked up by the filter mapping index
+	 */
+	private static class FilterMappingList extends Vector<ModuleFilterMapping> {
+		
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		public synchronized ModuleFilterMapping set(int index, ModuleFilterMapping element) {
+			modCount++;
+			return super.set(index, element);
+		}
+		
+		@Override
+		public synchronized void setElementAt(ModuleFilterMapping obj, int index) {
+			modCount++;
+			super.setElementAt(obj, index);
+		}
+		
+		synchronized int getModCount() {
+			return modCount;
+		}
+	}
 }
@@ -0,0 +1,211 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.web.filter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.Filter;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * An immutable, precompiled form of all registered {@link ModuleFilterMapping}s. Instead of testing
+ * every url pattern of every mapping against each request, the patterns are compiled once into
+ * lookup structures:
+ * <ul>
+ * <li>exact paths and servlet names in a hash map</li>
+ * <li>"/path/*" patterns in a trie keyed by path segment</li>
+ * <li>"*.ext" patterns in a hash map keyed by extension</li>
+ * <li>"*" and "/*" patterns in a list that applies to every request</li>
+ * </ul>
+ * A lookup returns the filters in the same order as
+ * {@link ModuleFilterMapping#filterMappingPasses(ModuleFilterMapping, String)} would when called for
+ * each mapping in registration order. The filter list of each set of matching mappings is built once
+ * and shared by all paths that match that set, so the cached lists are bounded by the patterns
+ * rather than by the request paths, which often contain uuids. A new index is compiled whenever
+ * modules load or unload their filters.
+ *
+ * @since 2.2
+ * @see org.openmrs.module.web.WebModuleUtil#getFiltersForRequest(javax.servlet.ServletRequest)
+ */
+public class ModuleFilterMappingIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(ModuleFilterMappingIndex.class);
+
+	public static final ModuleFilterMappingIndex EMPTY = compile(Collections.emptyList(), Collections.emptyMap());
+
+	// the filter of each usable mapping, indexed by registration order
+	private final Filter[] filters;
+
+	private final BitSet wildcardMappings = new BitSet();
+
+	private final Map<String, BitSet> exactMappings = new HashMap<>();
+
+	private final Map<String, BitSet> extensionMappings = new HashMap<>();
+
+	private final PrefixNode prefixMappings = new PrefixNode();
+
+	private final Map<BitSet, List<Filter>> chainCache = new ConcurrentHashMap<>();
+
+	private ModuleFilterMappingIndex(int size) {
+		this.filters = new Filter[size];
+	}
+
+	/**
+	 * Compiles the given mappings into an index
+	 *
+	 * @param mappings the filter mappings in registration order
+	 * @param filtersByName the loaded filters keyed by filter name
+	 * @return the compiled index
+	 */
+	public static ModuleFilterMappingIndex compile(List<ModuleFilterMapping> mappings, Map<String, Filter> filtersByName) {
+		ModuleFilterMappingIndex index = new ModuleFilterMappingIndex(mappings.size());
+		for (int i = 0; i < mappings.size(); i++) {
+			ModuleFilterMapping mapping = mappings.get(i);
+			Filter filter = filtersByName.get(mapping.getFilterName());
+			if (filter == null) {
+				log.warn("Unable to retrieve filter that has a name of " + mapping.getFilterName() + " in filter mapping.");
+				continue;
+			}
+			index.filters[i] = filter;
+			for (String pattern : mapping.getUrlPatterns()) {
+				index.addUrlPattern(pattern, i);
+			}
+			for (String servletName : mapping.getServletNames()) {
+				index.addServletName(servletName, i);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the filters that apply to the given context relative request path
+	 *
+	 * @param requestPath the request path with the context path already removed
+	 * @return an unmodifiable list of the matching filters in registration order
+	 * @should return filters matching exact paths
+	 * @should return filters matching path prefixes
+	 * @should return filters matching extensions
+	 * @should return filters matching wildcards
+	 * @should return filters in registration order
+	 * @should return the same results as filterMappingPasses
+	 * @should return an empty list for a null path
+	 */
+	public List<Filter> getFilters(String requestPath) {
+		if (requestPath == null) {
+			return Collections.emptyList();
+		}
+		BitSet matched = (BitSet) wildcardMappings.clone();
+		orInto(matched, exactMappings.get(requestPath));
+		prefixMappings.collect(requestPath, matched);
+		int slash = requestPath.lastIndexOf('/');
+		int period = requestPath.lastIndexOf('.');
+		if (slash >= 0 && period > slash && period != requestPath.length() - 1) {
+			orInto(matched, extensionMappings.get(requestPath.substring(period + 1)));
+		}
+		if (matched.isEmpty()) {
+			return Collections.emptyList();
+		}
+		return chainCache.computeIfAbsent(matched, this::toFilters);
+	}
+
+	private List<Filter> toFilters(BitSet matched) {
+		List<Filter> result = new ArrayList<>(matched.cardinality());
+		for (int i = matched.nextSetBit(0); i >= 0; i = matched.nextSetBit(i + 1)) {
+			result.add(filters[i]);
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	private void addUrlPattern(String pattern, int mappingIndex) {
+		if (pattern == null) {
+			return;
+		}
+		if ("*".equals(pattern) || "/*".equals(pattern)) {
+			wildcardMappings.set(mappingIndex);
+			return;
+		}
+		// a pattern always matches itself exactly, even if it also contains wildcards
+		exactMappings.computeIfAbsent(pattern, k -> new BitSet()).set(mappingIndex);
+		if (pattern.endsWith("/*")) {
+			prefixMappings.add(pattern.substring(0, pattern.length() - 2), mappingIndex);
+		} else if (pattern.startsWith("*.") && pattern.length() > 2) {
+			extensionMappings.computeIfAbsent(pattern.substring(2), k -> new BitSet()).set(mappingIndex);
+		}
+	}
+
+	private void addServletName(String servletName, int mappingIndex) {
+		if ("*".equals(servletName)) {
+			wildcardMappings.set(mappingIndex);
+		} else if (servletName != null) {
+			exactMappings.computeIfAbsent(servletName, k -> new BitSet()).set(mappingIndex);
+		}
+	}
+
+	private static void orInto(BitSet target, BitSet source) {
+		if (source != null) {
+			target.or(source);
+		}
+	}
+
+	/**
+	 * A trie node keyed by path segment, a prefix matches a path if the segments of the prefix are
+	 * the leading segments of the path
+	 */
+	private static class PrefixNode {
+
+		private final Map<String, PrefixNode> children = new HashMap<>();
+
+		private BitSet mappings;
+
+		void add(String prefix, int mappingIndex) {
+			PrefixNode node = this;
+			int start = 0;
+			while (true) {
+				int end = prefix.indexOf('/', start);
+				String segment = end < 0 ? prefix.substring(start) : prefix.substring(start, end);
+				node = node.children.computeIfAbsent(segment, k -> new PrefixNode());
+				if (end < 0) {
+					break;
+				}
+				start = end + 1;
+			}
+			if (node.mappings == null) {
+				node.mappings = new BitSet();
+			}
+			node.mappings.set(mappingIndex);
+		}
+
+		void collect(String path, BitSet matched) {
+			PrefixNode node = this;
+			int start = 0;
+			while (!node.children.isEmpty()) {
+				int end = path.indexOf('/', start);
+				String segment = end < 0 ? path.substring(start) : path.substring(start, end);
+				node = node.children.get(segment);
+				if (node == null) {
+					return;
+				}
+				orInto(matched, node.mappings);
+				if (end < 0) {
+					return;
+				}
+				start = end + 1;
+			}
+		}
+	}
+}
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -616,7 +617,9 @@ public final class Listener extends ContextLoader implements ServletContextListe
 	        throws ModuleMustStartException, Exception {
 		
 		boolean someModuleNeedsARefresh = false;
+		Map<String, Long> startupTimes = new LinkedHashMap<>();
 		for (Module mod : startedModules) {
+			long moduleStart = System.currentTimeMillis();
 			try {
 				boolean thisModuleCausesRefresh = WebModuleUtil.startModule(mod, servletContext,
 				    /* delayContextRefresh */true);
@@ -625,11 +628,17 @@ public final class Listener extends ContextLoader implements ServletContextListe
 			catch (Exception e) {
 				mod.setStartupErrorMessage("Unable to start module", e);
 			}
+			startupTimes.put(mod.getModuleId(), System.currentTimeMillis() - moduleStart);
 		}
+		log.info("Web start of modules took, per module in ms: {}", startupTimes);
 		
+		// all modules share this one refresh instead of refreshing once per module
 		if (someModuleNeedsARefresh) {
 			try {
+				long refreshStart = System.currentTimeMillis();
 				WebModuleUtil.refreshWAC(servletContext, true, null);
+				log.info("Refreshed the application context for all modules in {}ms", System.currentTimeMillis()
+				        - refreshStart);
 			}
 			catch (ModuleMustStartException | BeanCreationException ex) {
 				// pass this up to the calling method so that openmrs loading stops
@@ -9,23 +9,38 @@
  */
 package org.openmrs.web.filter;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.Locale;
 import java.util.zip.GZIPOutputStream;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletResponse;
 
 /**
- * Wraps Response Stream for GZipFilter
+ * Wraps Response Stream for GZipFilter. The first {@link #getMinCompressSize()} bytes are held back
+ * so that small responses can be sent uncompressed with a Content-Length; once more content is
+ * written, or the stream is flushed, the decision is made and everything after that is streamed to
+ * the client as it is written. Only content types that benefit from compression are compressed,
+ * responses that already have a Content-Encoding are passed through untouched.
  * 
  * @author Matt Raible
  * @version $Revision: 1.3 $ $Date: 2004/05/16 02:17:00 $
  */
 public class GZIPResponseStream extends ServletOutputStream {
 	
-	// abstraction of the output stream used for compression
+	/**
+	 * Responses smaller than this are not worth compressing
+	 */
+	public static final int DEFAULT_MIN_COMPRESS_SIZE = 1024;
+	
+	private static final int GZIP_BUFFER_SIZE = 8192;
+	
+	private static final String[] COMPRESSIBLE_TYPES = { "text/", "application/json", "application/javascript",
+	        "application/x-javascript", "application/ecmascript", "application/xml", "application/xhtml+xml",
+	        "application/rss+xml", "application/atom+xml", "image/svg+xml" };
+	
+	// the stream the content is currently written to, null until it is decided whether to compress
 	protected OutputStream bufferedOutput;
 	
 	// state keeping variable for if close() has been called
@@ -37,15 +52,53 @@ public class GZIPResponseStream extends ServletOutputStream {
 	// reference to the output stream to the client's browser
 	protected ServletOutputStream output;
 	
-	// default size of the in-memory buffer
-	private int bufferSize = 50000;
+	// holds the start of the content until it is decided whether to compress
+	private final byte[] buffer;
+	
+	private int buffered;
+	
+	// the Content-Length set by the application, only used if the content is not compressed
+	private long contentLength = -1;
 	
 	public GZIPResponseStream(HttpServletResponse response) throws IOException {
+		this(response, DEFAULT_MIN_COMPRESS_SIZE);
+	}
+	
+	/**
+	 * @param response the response to write to
+	 * @param minCompressSize responses smaller than this are sent uncompressed
+	 * @throws IOException
+	 */
+	public GZIPResponseStream(HttpServletResponse response, int minCompressSize) throws IOException {
 		super();
 		closed = false;
 		this.response = response;
 		this.output = response.getOutputStream();
-		bufferedOutput = new ByteArrayOutputStream();
+		this.buffer = new byte[minCompressSize];
+	}
+	
+	/**
+	 * @return the number of bytes below which content is sent uncompressed
+	 */
+	public int getMinCompressSize() {
+		return buffer.length;
+	}
+	
+	/**
+	 * Records the Content-Length declared by the application. It is only passed on to the response if
+	 * the content ends up not being compressed.
+	 * 
+	 * @param contentLength the declared length
+	 */
+	public void setContentLength(long contentLength) {
+		this.contentLength = contentLength;
+	}
+	
+	/**
+	 * @return true once it has been decided that the content is compressed
+	 */
+	public boolean isCompressing() {
+		return bufferedOutput instanceof GZIPOutputStream;
 	}
 	
 	@Override
@@ -55,42 +108,23 @@ public class GZIPResponseStream extends ServletOutputStream {
 			throw new IOException("This output stream has already been closed");
 		}
 		
-		// if we buffered everything in memory, gzip it
-		if (bufferedOutput instanceof ByteArrayOutputStream) {
-			// get the content
-			ByteArrayOutputStream baos = (ByteArrayOutputStream) bufferedOutput;
-			
-			// prepare a gzip stream
-			ByteArrayOutputStream compressedContent = new ByteArrayOutputStream();
-			GZIPOutputStream gzipstream = new GZIPOutputStream(compressedContent);
-			byte[] bytes = baos.toByteArray();
-			gzipstream.write(bytes);
-			gzipstream.finish();
-			
-			// get the compressed content
-			byte[] compressedBytes = compressedContent.toByteArray();
-			
-			// set appropriate HTTP headers
-			response.setContentLength(compressedBytes.length);
-			response.addHeader("Content-Encoding", "gzip");
-			output.write(compressedBytes);
-			output.flush();
-			output.close();
-			closed = true;
-		}
-		// if things were not buffered in memory, finish the GZIP stream and response
-		else if (bufferedOutput instanceof GZIPOutputStream) {
-			// cast to appropriate type
-			GZIPOutputStream gzipstream = (GZIPOutputStream) bufferedOutput;
-			
-			// finish the compression
-			gzipstream.finish();
-			
-			// finish the response
-			output.flush();
-			output.close();
-			closed = true;
+		if (bufferedOutput == null) {
+			// everything fit in the buffer, so send it as is
+			if (buffered == 0 && contentLength >= 0) {
+				// e.g. a HEAD request for which the application only declared the length
+				response.setHeader("Content-Length", Long.toString(contentLength));
+			} else {
+				response.setContentLength(buffered);
+			}
+			output.write(buffer, 0, buffered);
+		} else if (bufferedOutput instanceof GZIPOutputStream) {
+			((GZIPOutputStream) bufferedOutput).finish();
 		}
+		
+		// finish the response
+		output.flush();
+		output.close();
+		closed = true;
 	}
 	
 	@Override
@@ -99,6 +133,10 @@ public class GZIPResponseStream extends ServletOutputStream {
 			throw new IOException("Cannot flush a closed output stream");
 		}
 		
+		// flushing means the application wants the client to see the content now, so stop waiting
+		if (bufferedOutput == null) {
+			startOutput(isCompressible());
+		}
 		bufferedOutput.flush();
 	}
 	
@@ -108,33 +146,14 @@ public class GZIPResponseStream extends ServletOutputStream {
 			throw new IOException("Cannot write to a closed output stream");
 		}
 		
-		// make sure we aren't over the buffer's limit
-		checkBufferSize(1);
-		
-		// write the byte to the temporary output
-		bufferedOutput.write((byte) b);
-	}
-	
-	private void checkBufferSize(int length) throws IOException {
-		// check if we are buffering too large of a file
-		if (bufferedOutput instanceof ByteArrayOutputStream) {
-			ByteArrayOutputStream baos = (ByteArrayOutputStream) bufferedOutput;
-			
-			if ((baos.size() + length) > bufferSize) {
-				// files too large to keep in memory are sent to the client without Content-Length specified
-				response.addHeader("Content-Encoding", "gzip");
-				
-				// get existing bytes
-				byte[] bytes = baos.toByteArray();
-				
-				// make new gzip stream using the response output stream
-				GZIPOutputStream gzipstream = new GZIPOutputStream(output);
-				gzipstream.write(bytes);
-				
-				// we are no longer buffering, send content via gzipstream
-				bufferedOutput = gzipstream;
+		if (bufferedOutput == null) {
+			if (buffered < buffer.length) {
+				buffer[buffered++] = (byte) b;
+				return;
 			}
+			startOutput(isCompressible());
 		}
+		bufferedOutput.write(b);
 	}
 	
 	@Override
@@ -149,10 +168,14 @@ public class GZIPResponseStream extends ServletOutputStream {
 			throw new IOException("Cannot write to a closed output stream");
 		}
 		
-		// make sure we aren't over the buffer's limit
-		checkBufferSize(len);
-		
-		// write the content to the buffer
+		if (bufferedOutput == null) {
+			if (buffered + len <= buffer.length) {
+				System.arraycopy(b, off, buffer, buffered, len);
+				buffered += len;
+				return;
+			}
+			startOutput(isCompressible());
+		}
 		bufferedOutput.write(b, off, len);
 	}
 	
@@ -163,4 +186,57 @@ public class GZIPResponseStream extends ServletOutputStream {
 	public void reset() {
 		//noop
 	}
+	
+	/**
+	 * Decides how the content is sent and writes out what has been buffered so far
+	 */
+	private void startOutput(boolean compress) throws IOException {
+		if (compress) {
+			response.addHeader("Content-Encoding", "gzip");
+			response.addHeader("Vary", "Accept-Encoding");
+			// sync flush so that flush() pushes everything written so far to the client
+			bufferedOutput = new GZIPOutputStream(output, GZIP_BUFFER_SIZE, true);
+		} else {
+			if (contentLength >= 0) {
+				response.setHeader("Content-Length", Long.toString(contentLength));
+			}
+			bufferedOutput = output;
+		}
+		bufferedOutput.write(buffer, 0, buffered);
+		buffered = 0;
+	}
+	
+	/**
+	 * @return true if the content type of the response benefits from compression and the content is
+	 *         not already encoded
+	 */
+	private boolean isCompressible() {
+		if (response.containsHeader("Content-Encoding")) {
+			return false;
+		}
+		return isCompressibleContentType(response.getContentType());
+	}
+	
+	/**
+	 * @param contentType the content type of a response, may be null
+	 * @return true if the content type is on the list of types that are worth compressing, responses
+	 *         without a content type are compressed
+	 * @should return true for text and json content
+	 * @should return false for images and archives
+	 * @should return true if there is no content type
+	 */
+	public static boolean isCompressibleContentType(String contentType) {
+		if (contentType == null) {
+			return true;
+		}
+		String type = contentType.toLowerCase(Locale.ENGLISH);
+		for (String compressible : COMPRESSIBLE_TYPES) {
+			if (type.startsWith(compressible)) {
+				return true;
+			}
+		}
+		int semicolon = type.indexOf(';');
+		String mimeType = (semicolon < 0 ? type : type.substring(0, semicolon)).trim();
+		return mimeType.endsWith("+json") || mimeType.endsWith("+xml");
+	}
 }
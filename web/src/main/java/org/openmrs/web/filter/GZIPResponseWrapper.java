@@ -29,6 +29,8 @@ public class GZIPResponseWrapper extends HttpServletResponseWrapper {
 	
 	private static final Logger log = LoggerFactory.getLogger(GZIPResponseWrapper.class);
 	
+	private static final String CONTENT_LENGTH = "Content-Length";
+	
 	protected HttpServletResponse origResponse;
 	
 	protected ServletOutputStream stream = null;
@@ -37,23 +39,28 @@ public class GZIPResponseWrapper extends HttpServletResponseWrapper {
 	
 	protected int error = 0;
 	
+	// the Content-Length declared by the application, held back since it doesn't apply to compressed content
+	private long contentLength = -1;
+	
 	public GZIPResponseWrapper(HttpServletResponse response) {
 		super(response);
 		origResponse = response;
 	}
 	
 	public ServletOutputStream createOutputStream() throws IOException {
-		return new GZIPResponseStream(origResponse);
+		GZIPResponseStream gzipStream = new GZIPResponseStream(origResponse);
+		gzipStream.setContentLength(contentLength);
+		return gzipStream;
 	}
 	
 	public void finishResponse() {
 		try {
 			if (writer != null) {
 				writer.close();
-			} else {
-				if (stream != null) {
-					stream.close();
-				}
+			} else if (stream != null) {
+				stream.close();
+			} else if (contentLength >= 0) {
+				origResponse.setHeader(CONTENT_LENGTH, Long.toString(contentLength));
 			}
 		}
 		catch (IOException e) {
@@ -63,7 +70,9 @@ public class GZIPResponseWrapper extends HttpServletResponseWrapper {
 	
 	@Override
 	public void flushBuffer() throws IOException {
-		if (stream != null) {
+		if (writer != null) {
+			writer.flush();
+		} else if (stream != null) {
 			stream.flush();
 		}
 	}
@@ -103,6 +112,65 @@ public class GZIPResponseWrapper extends HttpServletResponseWrapper {
 		return writer;
 	}
 	
+	@Override
+	public void setContentLength(int len) {
+		setDeclaredContentLength(len);
+	}
+	
+	@Override
+	public void setHeader(String name, String value) {
+		if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+			if (value == null) {
+				setDeclaredContentLength(-1);
+				return;
+			}
+			try {
+				setDeclaredContentLength(Long.parseLong(value.trim()));
+			}
+			catch (NumberFormatException e) {
+				// not a length this wrapper can account for, leave it to the container
+				log.debug("Passing through unparseable Content-Length: {}", value);
+				super.setHeader(name, value);
+			}
+		} else {
+			super.setHeader(name, value);
+		}
+	}
+	
+	@Override
+	public void addHeader(String name, String value) {
+		if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+			setHeader(name, value);
+		} else {
+			super.addHeader(name, value);
+		}
+	}
+	
+	@Override
+	public void setIntHeader(String name, int value) {
+		if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+			setDeclaredContentLength(value);
+		} else {
+			super.setIntHeader(name, value);
+		}
+	}
+	
+	@Override
+	public void addIntHeader(String name, int value) {
+		if (CONTENT_LENGTH.equalsIgnoreCase(name)) {
+			setDeclaredContentLength(value);
+		} else {
+			super.addIntHeader(name, value);
+		}
+	}
+	
+	private void setDeclaredContentLength(long len) {
+		contentLength = len;
+		if (stream instanceof GZIPResponseStream) {
+			((GZIPResponseStream) stream).setContentLength(len);
+		}
+	}
+	
 	/**
 	 * @see javax.servlet.http.HttpServletResponse#sendError(int, java.lang.String)
 	 */
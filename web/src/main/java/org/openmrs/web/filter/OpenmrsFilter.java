@@ -17,7 +17,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.servlet.http.HttpSession;
 
-import org.openmrs.User;
+import org.openmrs.api.context.AuthenticatedPrincipal;
 import org.openmrs.api.context.Context;
 import org.openmrs.api.context.UserContext;
 import org.openmrs.util.OpenmrsClassLoader;
@@ -86,13 +86,6 @@ public class OpenmrsFilter extends OncePerRequestFilter {
 			if (log.isDebugEnabled()) {
 				log.debug("Just set user context " + userContext + " as attribute on session");
 			}
-		} else {
-			// set username as attribute on session so parent servlet container 
-			// can identify sessions easier
-			User user = userContext.getAuthenticatedUser();
-			if (user != null) {
-				httpSession.setAttribute("username", user.getUsername());
-			}
 		}
 		
 		// set the locale on the session (for the servlet container as well)
@@ -102,6 +95,13 @@ public class OpenmrsFilter extends OncePerRequestFilter {
 		Context.setUserContext(userContext);
 		Thread.currentThread().setContextClassLoader(OpenmrsClassLoader.getInstance());
 		
+		// set username as attribute on session so parent servlet container 
+		// can identify sessions easier, the principal has it without loading the user
+		AuthenticatedPrincipal principal = userContext.getAuthenticatedPrincipal();
+		if (principal != null) {
+			httpSession.setAttribute("username", principal.getUsername());
+		}
+		
 		log.debug("before chain.Filter");
 		
 		// continue the filter chain (going on to spring, authorization, etc)
@@ -109,6 +109,8 @@ public class OpenmrsFilter extends OncePerRequestFilter {
 			chain.doFilter(httpRequest, httpResponse);
 		}
 		finally {
+			// the user was loaded in this request's hibernate session, don't keep it detached
+			userContext.releaseAuthenticatedUser();
 			Context.clearUserContext();
 		}
 		
@@ -62,6 +62,7 @@ import org.openmrs.util.MemoryAppender;
 import org.openmrs.util.OpenmrsConstants;
 import org.openmrs.util.OpenmrsUtil;
 import org.openmrs.util.PrivilegeConstants;
+import org.openmrs.util.SchemaSnapshot;
 import org.openmrs.util.Security;
 import org.openmrs.web.Listener;
 import org.openmrs.web.WebConstants;
@@ -86,9 +87,9 @@ public class InitializationFilter extends StartupFilter {
 	
 	private static final org.slf4j.Logger log = LoggerFactory.getLogger(InitializationFilter.class);
 	
-	private static final String LIQUIBASE_SCHEMA_DATA = "liquibase-schema-only.xml";
+	private static final String LIQUIBASE_SCHEMA_DATA = SchemaSnapshot.SCHEMA_CHANGELOG;
 	
-	private static final String LIQUIBASE_CORE_DATA = "liquibase-core-data.xml";
+	private static final String LIQUIBASE_CORE_DATA = SchemaSnapshot.CORE_DATA_CHANGELOG;
 	
 	private static final String LIQUIBASE_DEMO_DATA = "liquibase-demo-data.xml";
 	
@@ -1539,24 +1540,48 @@ public class InitializationFilter extends StartupFilter {
 								setCompletedPercentage(Math.round(j * 100 / numChangeSetsToRunFloat));
 							}
 							
+							/**
+							 * @see org.openmrs.util.DatabaseUpdater.ChangeSetExecutorCallback#progress(String)
+							 */
+							@Override
+							public void progress(String progressMessage) {
+								setMessage(message + ": " + progressMessage);
+							}
+							
 						}
 						
 						if (wizardModel.createTables) {
-							// use liquibase to create core data + tables
+							// load the prebuilt tables + core data if there is a snapshot for the database,
+							// otherwise use liquibase to create them
 							try {
-								setMessage("Executing " + LIQUIBASE_SCHEMA_DATA);
 								setExecutingTask(WizardTask.CREATE_TABLES);
-								DatabaseUpdater.executeChangelog(LIQUIBASE_SCHEMA_DATA, null,
-								    new PrintingChangeSetExecutorCallback("OpenMRS schema file"));
-								addExecutedTask(WizardTask.CREATE_TABLES);
+								String databaseType = SchemaSnapshot.getDatabaseType(finalDatabaseConnectionString);
+								boolean snapshotLoaded = false;
+								if (SchemaSnapshot.isAvailable(databaseType)) {
+									setMessage("Loading the OpenMRS schema and core data snapshot");
+									try (Connection connection = DatabaseUpdater.getConnection()) {
+										snapshotLoaded = SchemaSnapshot.load(connection, databaseType);
+									}
+								}
 								
-								//reset for this task
-								setCompletedPercentage(0);
-								setExecutingTask(WizardTask.ADD_CORE_DATA);
-								DatabaseUpdater.executeChangelog(LIQUIBASE_CORE_DATA, null,
-								    new PrintingChangeSetExecutorCallback("OpenMRS core data file"));
-								wizardModel.workLog.add("Created database tables and added core data");
-								addExecutedTask(WizardTask.ADD_CORE_DATA);
+								if (snapshotLoaded) {
+									addExecutedTask(WizardTask.CREATE_TABLES);
+									addExecutedTask(WizardTask.ADD_CORE_DATA);
+									wizardModel.workLog.add("Loaded database tables and core data from the snapshot");
+								} else {
+									setMessage("Executing " + LIQUIBASE_SCHEMA_DATA);
+									DatabaseUpdater.executeChangelog(LIQUIBASE_SCHEMA_DATA, null,
+									    new PrintingChangeSetExecutorCallback("OpenMRS schema file"));
+									addExecutedTask(WizardTask.CREATE_TABLES);
+									
+									//reset for this task
+									setCompletedPercentage(0);
+									setExecutingTask(WizardTask.ADD_CORE_DATA);
+									DatabaseUpdater.executeChangelog(LIQUIBASE_CORE_DATA, null,
+									    new PrintingChangeSetExecutorCallback("OpenMRS core data file"));
+									wizardModel.workLog.add("Created database tables and added core data");
+									addExecutedTask(WizardTask.ADD_CORE_DATA);
+								}
 								
 							}
 							catch (Exception e) {
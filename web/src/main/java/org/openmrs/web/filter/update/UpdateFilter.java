@@ -719,6 +719,14 @@ public class UpdateFilter extends StartupFilter {
 								setMessage(message);
 							}
 							
+							/**
+							 * @see org.openmrs.util.DatabaseUpdater.ChangeSetExecutorCallback#progress(String)
+							 */
+							@Override
+							public void progress(String progressMessage) {
+								setMessage(message + ": " + progressMessage);
+							}
+							
 						}
 						
 						try {
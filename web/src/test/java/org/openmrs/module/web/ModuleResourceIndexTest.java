@@ -0,0 +1,96 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.web;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests {@link ModuleResourceIndex}
+ */
+public class ModuleResourceIndexTest {
+	
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+	
+	/**
+	 * @see ModuleResourceIndex#get(String)
+	 */
+	@Test
+	public void get_shouldReturnNullAndDropTheEntryIfTheFileChanged() throws IOException {
+		ModuleResourceIndex index = new ModuleResourceIndex();
+		File file = folder.newFile("openmrs.js");
+		Files.write(file.toPath(), "var a;".getBytes(StandardCharsets.UTF_8));
+		index.add("/module/openmrs.js", file, "text/javascript");
+		assertNotNull(index.get("/module/openmrs.js"));
+		
+		Files.write(file.toPath(), "var a = 1;".getBytes(StandardCharsets.UTF_8));
+		
+		assertNull(index.get("/module/openmrs.js"));
+		assertEquals(0, index.size());
+	}
+	
+	/**
+	 * @see ModuleResourceIndex#size()
+	 */
+	@Test
+	public void size_shouldNotKeepMoreThanTheMaximumNumberOfPaths() throws IOException {
+		ModuleResourceIndex index = new ModuleResourceIndex(2);
+		File file = folder.newFile("openmrs.js");
+		index.add("/module/a.js", file, null);
+		index.add("/module/b.js", file, null);
+		index.get("/module/a.js");
+		index.add("/module/c.js", file, null);
+		
+		assertEquals(2, index.size());
+		assertNotNull(index.get("/module/a.js"));
+		assertNull(index.get("/module/b.js"));
+	}
+	
+	/**
+	 * @see ModuleResourceIndex#isFingerprinted(String)
+	 */
+	@Test
+	public void isFingerprinted_shouldReturnTrueForNamesContainingAHash() {
+		assertTrue(ModuleResourceIndex.isFingerprinted("app.3f2a9c1b.js"));
+		assertTrue(ModuleResourceIndex.isFingerprinted("vendor-3f2a9c1b7d0e.min.css"));
+	}
+	
+	/**
+	 * @see ModuleResourceIndex#isFingerprinted(String)
+	 */
+	@Test
+	public void isFingerprinted_shouldReturnFalseForPlainNames() {
+		assertFalse(ModuleResourceIndex.isFingerprinted("openmrs.js"));
+		assertFalse(ModuleResourceIndex.isFingerprinted("jquery-1.12.4.min.js"));
+	}
+	
+	/**
+	 * @see ModuleResourceIndex#isFingerprinted(String)
+	 */
+	@Test
+	public void isFingerprinted_shouldReturnFalseForNamesContainingADate() {
+		assertFalse(ModuleResourceIndex.isFingerprinted("app-20180101.js"));
+		assertFalse(ModuleResourceIndex.isFingerprinted("report.201801011200.min.css"));
+		assertTrue(ModuleResourceIndex.isFingerprinted("app-2018010a.js"));
+	}
+}
@@ -0,0 +1,116 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.web;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests the request header handling of {@link ModuleResourcesServlet}
+ */
+public class ModuleResourcesServletTest {
+	
+	/**
+	 * @see ModuleResourcesServlet#acceptsEncoding(String, String)
+	 */
+	@Test
+	public void acceptsEncoding_shouldReturnTrueIfTheCodingIsListed() {
+		assertTrue(ModuleResourcesServlet.acceptsEncoding("gzip, deflate, br", "br"));
+		assertTrue(ModuleResourcesServlet.acceptsEncoding("deflate, GZIP;q=0.5", "gzip"));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#acceptsEncoding(String, String)
+	 */
+	@Test
+	public void acceptsEncoding_shouldReturnFalseIfTheCodingIsRefusedWithAZeroQuality() {
+		assertFalse(ModuleResourcesServlet.acceptsEncoding("gzip;q=0, br", "gzip"));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#acceptsEncoding(String, String)
+	 */
+	@Test
+	public void acceptsEncoding_shouldReturnFalseIfTheHeaderIsNull() {
+		assertFalse(ModuleResourcesServlet.acceptsEncoding(null, "gzip"));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#etagMatches(String, String)
+	 */
+	@Test
+	public void etagMatches_shouldReturnTrueIfOneOfTheListedEtagsMatches() {
+		assertTrue(ModuleResourcesServlet.etagMatches("\"abc\", \"10-5f\"", "\"10-5f\""));
+		assertTrue(ModuleResourcesServlet.etagMatches("W/\"10-5f\"", "\"10-5f\""));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#etagMatches(String, String)
+	 */
+	@Test
+	public void etagMatches_shouldReturnTrueForAWildcard() {
+		assertTrue(ModuleResourcesServlet.etagMatches("*", "\"10-5f\""));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#etagMatches(String, String)
+	 */
+	@Test
+	public void etagMatches_shouldReturnFalseIfNoEtagMatches() {
+		assertFalse(ModuleResourcesServlet.etagMatches("\"10-5e\"", "\"10-5f\""));
+		assertFalse(ModuleResourcesServlet.etagMatches(null, "\"10-5f\""));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#parseRange(String, long)
+	 */
+	@Test
+	public void parseRange_shouldParseARangeWithAStartAndEnd() {
+		assertArrayEquals(new long[] { 0, 99 }, ModuleResourcesServlet.parseRange("bytes=0-99", 1000));
+		assertArrayEquals(new long[] { 900, 999 }, ModuleResourcesServlet.parseRange("bytes=900-5000", 1000));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#parseRange(String, long)
+	 */
+	@Test
+	public void parseRange_shouldParseAnOpenEndedRange() {
+		assertArrayEquals(new long[] { 500, 999 }, ModuleResourcesServlet.parseRange("bytes=500-", 1000));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#parseRange(String, long)
+	 */
+	@Test
+	public void parseRange_shouldParseASuffixRange() {
+		assertArrayEquals(new long[] { 900, 999 }, ModuleResourcesServlet.parseRange("bytes=-100", 1000));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#parseRange(String, long)
+	 */
+	@Test
+	public void parseRange_shouldReturnNullForAnUnsatisfiableRange() {
+		assertNull(ModuleResourcesServlet.parseRange("bytes=1000-", 1000));
+		assertNull(ModuleResourcesServlet.parseRange("bytes=50-10", 1000));
+	}
+	
+	/**
+	 * @see ModuleResourcesServlet#parseRange(String, long)
+	 */
+	@Test
+	public void parseRange_shouldIgnoreMultipleRanges() {
+		assertArrayEquals(new long[0], ModuleResourcesServlet.parseRange("bytes=0-10,20-30", 1000));
+	}
+}
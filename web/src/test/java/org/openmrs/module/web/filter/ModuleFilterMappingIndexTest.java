@@ -0,0 +1,176 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.module.web.filter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.Filter;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.openmrs.module.Module;
+
+/**
+ * Tests {@link ModuleFilterMappingIndex}
+ */
+public class ModuleFilterMappingIndexTest {
+
+	private Module module = new Module("test");
+
+	private List<ModuleFilterMapping> mappings;
+
+	private Map<String, Filter> filters;
+
+	@Before
+	public void setUp() {
+		mappings = new ArrayList<>();
+		filters = new HashMap<>();
+	}
+
+	/**
+	 * @see ModuleFilterMappingIndex#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnFiltersMatchingExactPaths() {
+		Filter filter = addMapping("exact", "/login.htm");
+
+		ModuleFilterMappingIndex index = ModuleFilterMappingIndex.compile(mappings, filters);
+
+		assertEquals(Arrays.asList(filter), index.getFilters("/login.htm"));
+		assertTrue(index.getFilters("/logout.htm").isEmpty());
+	}
+
+	/**
+	 * @see ModuleFilterMappingIndex#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnFiltersMatchingPathPrefixes() {
+		Filter filter = addMapping("prefix", "/ws/rest/*");
+
+		ModuleFilterMappingIndex index = ModuleFilterMappingIndex.compile(mappings, filters);
+
+		assertEquals(Arrays.asList(filter), index.getFilters("/ws/rest"));
+		assertEquals(Arrays.asList(filter), index.getFilters("/ws/rest/v1/patient"));
+		assertTrue(index.getFilters("/ws/restful").isEmpty());
+		assertTrue(index.getFilters("/ws").isEmpty());
+	}
+
+	/**
+	 * @see ModuleFilterMappingIndex#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnFiltersMatchingExtensions() {
+		Filter filter = addMapping("extension", "*.form");
+
+		ModuleFilterMappingIndex index = ModuleFilterMappingIndex.compile(mappings, filters);
+
+		assertEquals(Arrays.asList(filter), index.getFilters("/admin/patients/patient.form"));
+		assertTrue(index.getFilters("/admin/patients/patient.forms").isEmpty());
+		assertTrue(index.getFilters("/admin.form/patient").isEmpty());
+	}
+
+	/**
+	 * @see ModuleFilterMappingIndex#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnFiltersMatchingWildcards() {
+		Filter filter = addMapping("all", "/*");
+		Filter servletFilter = addServletMapping("allServlets", "*");
+
+		ModuleFilterMappingIndex index = ModuleFilterMappingIndex.compile(mappings, filters);
+
+		assertEquals(Arrays.asList(filter, servletFilter), index.getFilters("/anything/at/all"));
+	}
+
+	/**
+	 * @see ModuleFilterMappingIndex#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnFiltersInRegistrationOrder() {
+		Filter first = addMapping("first", "*.htm");
+		Filter second = addMapping("second", "/*");
+		Filter third = addMapping("third", "/admin/*", "/index.htm");
+
+		ModuleFilterMappingIndex index = ModuleFilterMappingIndex.compile(mappings, filters);
+
+		assertEquals(Arrays.asList(first, second, third), index.getFilters("/admin/index.htm"));
+		assertEquals(Arrays.asList(first, second, third), index.getFilters("/index.htm"));
+		assertEquals(Arrays.asList(second), index.getFilters("/moduleResources/x.js"));
+	}
+
+	/**
+	 * @see ModuleFilterMappingIndex#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnTheSameResultsAsFilterMappingPasses() {
+		addMapping("a", "/ws/*", "*.json");
+		addMapping("b", "/ws/rest/v1/*");
+		addMapping("c", "*.htm", "/module/*");
+		addServletMapping("d", "/login.htm");
+		addMapping("e", "/module/reporting/*");
+		addMapping("f", "/ws/rest/v1/*/*");
+
+		ModuleFilterMappingIndex index = ModuleFilterMappingIndex.compile(mappings, filters);
+
+		String[] paths = { "/", "", "/ws", "/ws/", "/ws/rest/v1/patient", "/ws/rest/v1/obs.json", "/login.htm",
+		        "/module/reporting/index.htm", "/module", "/modules/x.htm", "/x.json/y", "/ws/rest/v1/*/x",
+		        "/module/reporting" };
+		for (String path : paths) {
+			List<Filter> expected = new ArrayList<>();
+			for (ModuleFilterMapping mapping : mappings) {
+				if (ModuleFilterMapping.filterMappingPasses(mapping, path)) {
+					expected.add(filters.get(mapping.getFilterName()));
+				}
+			}
+			assertEquals("Unexpected filters for " + path, expected, index.getFilters(path));
+		}
+	}
+
+	/**
+	 * @see ModuleFilterMappingIndex#getFilters(String)
+	 */
+	@Test
+	public void getFilters_shouldReturnAnEmptyListForANullPath() {
+		addMapping("all", "*");
+
+		assertTrue(ModuleFilterMappingIndex.compile(mappings, filters).getFilters(null).isEmpty());
+	}
+
+	private Filter addMapping(String filterName, String... urlPatterns) {
+		ModuleFilterMapping mapping = new ModuleFilterMapping(module);
+		mapping.setFilterName(filterName);
+		for (String urlPattern : urlPatterns) {
+			mapping.addUrlPattern(urlPattern);
+		}
+		return register(mapping);
+	}
+
+	private Filter addServletMapping(String filterName, String servletName) {
+		ModuleFilterMapping mapping = new ModuleFilterMapping(module);
+		mapping.setFilterName(filterName);
+		mapping.addServletName(servletName);
+		return register(mapping);
+	}
+
+	private Filter register(ModuleFilterMapping mapping) {
+		Filter filter = mock(Filter.class);
+		filters.put(mapping.getFilterName(), filter);
+		mappings.add(mapping);
+		return filter;
+	}
+}
@@ -0,0 +1,146 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.web.filter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Tests {@link GZIPResponseStream}
+ */
+public class GZIPResponseStreamTest {
+	
+	@Test
+	public void close_shouldSendContentSmallerThanTheMinimumSizeUncompressed() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("text/html");
+		GZIPResponseStream stream = new GZIPResponseStream(response);
+		byte[] content = content(100);
+		
+		stream.write(content);
+		stream.close();
+		
+		assertNull(response.getHeader("Content-Encoding"));
+		assertEquals(100, response.getContentLength());
+		assertArrayEquals(content, response.getContentAsByteArray());
+	}
+	
+	@Test
+	public void write_shouldCompressLargeTextContent() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("application/json;charset=UTF-8");
+		GZIPResponseStream stream = new GZIPResponseStream(response);
+		byte[] content = content(100000);
+		
+		for (int i = 0; i < content.length; i += 1000) {
+			stream.write(content, i, 1000);
+		}
+		stream.close();
+		
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertTrue(response.getContentAsByteArray().length < content.length);
+		assertArrayEquals(content, gunzip(response.getContentAsByteArray()));
+	}
+	
+	@Test
+	public void write_shouldNotCompressContentTypesThatAreNotOnTheList() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("image/png");
+		GZIPResponseStream stream = new GZIPResponseStream(response);
+		stream.setContentLength(5000);
+		byte[] content = content(5000);
+		
+		stream.write(content);
+		stream.close();
+		
+		assertNull(response.getHeader("Content-Encoding"));
+		assertEquals(5000, response.getContentLength());
+		assertArrayEquals(content, response.getContentAsByteArray());
+	}
+	
+	@Test
+	public void write_shouldNotCompressContentThatIsAlreadyEncoded() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("text/plain");
+		response.setHeader("Content-Encoding", "br");
+		GZIPResponseStream stream = new GZIPResponseStream(response);
+		byte[] content = content(5000);
+		
+		stream.write(content);
+		stream.close();
+		
+		assertEquals("br", response.getHeader("Content-Encoding"));
+		assertArrayEquals(content, response.getContentAsByteArray());
+	}
+	
+	@Test
+	public void flush_shouldSendCompressedContentBeforeTheStreamIsClosed() throws IOException {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		response.setContentType("text/plain");
+		GZIPResponseStream stream = new GZIPResponseStream(response);
+		byte[] content = content(10);
+		
+		stream.write(content);
+		stream.flush();
+		
+		assertEquals("gzip", response.getHeader("Content-Encoding"));
+		assertTrue(response.getContentAsByteArray().length > 0);
+		
+		stream.close();
+		assertArrayEquals(content, gunzip(response.getContentAsByteArray()));
+	}
+	
+	@Test
+	public void isCompressibleContentType_shouldReturnTrueForTextAndJsonContent() {
+		assertTrue(GZIPResponseStream.isCompressibleContentType("text/html;charset=UTF-8"));
+		assertTrue(GZIPResponseStream.isCompressibleContentType("application/json"));
+		assertTrue(GZIPResponseStream.isCompressibleContentType("application/fhir+json; charset=UTF-8"));
+	}
+	
+	@Test
+	public void isCompressibleContentType_shouldReturnFalseForImagesAndArchives() {
+		assertFalse(GZIPResponseStream.isCompressibleContentType("image/jpeg"));
+		assertFalse(GZIPResponseStream.isCompressibleContentType("application/zip"));
+		assertFalse(GZIPResponseStream.isCompressibleContentType("application/octet-stream"));
+	}
+	
+	@Test
+	public void isCompressibleContentType_shouldReturnTrueIfThereIsNoContentType() {
+		assertTrue(GZIPResponseStream.isCompressibleContentType(null));
+	}
+	
+	private static byte[] content(int length) {
+		byte[] content = new byte[length];
+		Arrays.fill(content, (byte) 'a');
+		for (int i = 0; i < length; i += 7) {
+			content[i] = (byte) ('a' + (i % 26));
+		}
+		return content;
+	}
+	
+	private static byte[] gunzip(byte[] compressed) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		IOUtils.copy(new GZIPInputStream(new ByteArrayInputStream(compressed)), out);
+		return out.toByteArray();
+	}
+}
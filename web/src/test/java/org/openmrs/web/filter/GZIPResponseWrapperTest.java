@@ -0,0 +1,46 @@
+/**
+ * This Source Code Form is subject to the terms of the Mozilla Public License,
+ * v. 2.0. If a copy of the MPL was not distributed with this file, You can
+ * obtain one at http://mozilla.org/MPL/2.0/. OpenMRS is also distributed under
+ * the terms of the Healthcare Disclaimer located at http://openmrs.org/license.
+ *
+ * Copyright (C) OpenMRS Inc. OpenMRS is a registered trademark and the OpenMRS
+ * graphic logo is a trademark of OpenMRS Inc.
+ */
+package org.openmrs.web.filter;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+/**
+ * Tests {@link GZIPResponseWrapper}
+ */
+public class GZIPResponseWrapperTest {
+	
+	@Test
+	public void setHeader_shouldPassThroughAContentLengthThatIsNotANumber() {
+		HttpServletResponse response = mock(HttpServletResponse.class);
+		GZIPResponseWrapper wrapper = new GZIPResponseWrapper(response);
+		
+		wrapper.setHeader("Content-Length", "");
+		wrapper.setHeader("Content-Length", "12 bytes");
+		
+		verify(response).setHeader("Content-Length", "");
+		verify(response).setHeader("Content-Length", "12 bytes");
+	}
+	
+	@Test
+	public void setHeader_shouldHoldBackANumericContentLength() {
+		HttpServletResponse response = mock(HttpServletResponse.class);
+		GZIPResponseWrapper wrapper = new GZIPResponseWrapper(response);
+		
+		wrapper.setHeader("Content-Length", " 42 ");
+		
+		verify(response, never()).setHeader("Content-Length", " 42 ");
+	}
+}